@@ -0,0 +1,161 @@
+package ca.bcit.comp2522.lab03.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Minimal microbenchmark harness. Each benchmark is warmed up, then timed over several measurement rounds, and
+ * reported as the average time and the average number of bytes allocated per operation. Results of every
+ * operation are folded into a volatile sink so the JIT cannot eliminate the work being measured.
+ *
+ * Allocation is measured with com.sun.management.ThreadMXBean, which plays the part of JMH's GC profiler here.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class BenchmarkRunner
+{
+    private static final int DEFAULT_WARMUP_ROUNDS = 5;
+    private static final int DEFAULT_MEASUREMENT_ROUNDS = 5;
+    private static final int DEFAULT_OPERATIONS_PER_ROUND = 1_000_000;
+    private static final String ROW_FORMAT = "%-48s %12.2f ns/op %12.2f B/op%n";
+
+    private static volatile long sink;
+
+    private final int warmupRounds;
+    private final int measurementRounds;
+    private final int operationsPerRound;
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * A single benchmarked operation.
+     */
+    @FunctionalInterface
+    public interface Operation
+    {
+        /**
+         * Performs the operation once.
+         *
+         * @param index the number of this invocation within the round, for choosing inputs
+         * @return any value derived from the work, which is consumed so it cannot be optimized away
+         */
+        long invoke(int index);
+    }
+
+    /**
+     * Constructs a BenchmarkRunner with the default numbers of rounds and operations.
+     */
+    public BenchmarkRunner()
+    {
+        this(DEFAULT_WARMUP_ROUNDS,
+             DEFAULT_MEASUREMENT_ROUNDS,
+             DEFAULT_OPERATIONS_PER_ROUND);
+    }
+
+    /**
+     * Constructs a BenchmarkRunner with the given numbers of rounds and operations.
+     *
+     * @param warmupRounds       the number of untimed rounds run first
+     * @param measurementRounds  the number of timed rounds
+     * @param operationsPerRound the number of operations in each round
+     */
+    public BenchmarkRunner(final int warmupRounds,
+                           final int measurementRounds,
+                           final int operationsPerRound)
+    {
+        validateCount(warmupRounds, 0);
+        validateCount(measurementRounds, 1);
+        validateCount(operationsPerRound, 1);
+
+        this.warmupRounds = warmupRounds;
+        this.measurementRounds = measurementRounds;
+        this.operationsPerRound = operationsPerRound;
+        this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    /**
+     * Runs and reports a benchmark.
+     *
+     * @param name      the name to report the benchmark under
+     * @param operation the operation to measure
+     */
+    public void run(final String name,
+                    final Operation operation)
+    {
+        run(name, () -> { }, operation);
+    }
+
+    /**
+     * Runs and reports a benchmark which needs setting up before each round, such as emptying a collection the
+     * operation fills. The setup is neither timed nor counted towards allocation.
+     *
+     * @param name            the name to report the benchmark under
+     * @param beforeEachRound the untimed setup run before every round
+     * @param operation       the operation to measure
+     */
+    public void run(final String name,
+                    final Runnable beforeEachRound,
+                    final Operation operation)
+    {
+        final long threadId;
+        final long operations;
+        long elapsedNanos;
+        long allocatedBytes;
+
+        for (int round = 0; round < warmupRounds; round++)
+        {
+            beforeEachRound.run();
+            runRound(operation);
+        }
+
+        threadId = Thread.currentThread().threadId();
+        elapsedNanos = 0L;
+        allocatedBytes = 0L;
+
+        for (int round = 0; round < measurementRounds; round++)
+        {
+            beforeEachRound.run();
+
+            final long startBytes = threads.getThreadAllocatedBytes(threadId);
+            final long startNanos = System.nanoTime();
+
+            runRound(operation);
+
+            elapsedNanos += System.nanoTime() - startNanos;
+            allocatedBytes += threads.getThreadAllocatedBytes(threadId) - startBytes;
+        }
+
+        operations = (long) measurementRounds * operationsPerRound;
+
+        System.out.printf(Locale.ROOT,
+                          ROW_FORMAT,
+                          name,
+                          (double) elapsedNanos / operations,
+                          (double) allocatedBytes / operations);
+    }
+
+    // Runs one round of an operation, consuming every result.
+    private void runRound(final Operation operation)
+    {
+        long accumulator = 0L;
+
+        for (int i = 0; i < operationsPerRound; i++)
+        {
+            accumulator += operation.invoke(i);
+        }
+
+        sink += accumulator;
+    }
+
+    // Validates a round or operation count, which cannot be less than its minimum.
+    private static void validateCount(final int count,
+                                      final int minimum)
+    {
+        if (count < minimum)
+        {
+            throw new IllegalArgumentException("Invalid benchmark count: " + count);
+        }
+    }
+}
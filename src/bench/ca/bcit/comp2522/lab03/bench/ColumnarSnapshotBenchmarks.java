@@ -0,0 +1,163 @@
+package ca.bcit.comp2522.lab03.bench;
+
+import ca.bcit.comp2522.lab03.ColumnarSnapshot;
+import ca.bcit.comp2522.lab03.ColumnarSnapshotWriter;
+import ca.bcit.comp2522.lab03.DeviceField;
+import ca.bcit.comp2522.lab03.DeviceFileWriter;
+import ca.bcit.comp2522.lab03.DeviceInventory;
+import ca.bcit.comp2522.lab03.DeviceType;
+import ca.bcit.comp2522.lab03.IDevice;
+import ca.bcit.comp2522.lab03.IPad;
+import ca.bcit.comp2522.lab03.IPhone;
+import ca.bcit.comp2522.lab03.IPhone17;
+import ca.bcit.comp2522.lab03.IPod;
+import ca.bcit.comp2522.lab03.MappedDeviceFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares a compressed columnar snapshot of an inventory with the fixed-width records of a device file holding
+ * the same devices. Prints the size of each file, then times loading each into a new DeviceInventory, and a range
+ * count over the snapshot, which decodes only the blocks whose headers cannot settle the count.
+ *
+ * Both files are written to the temporary directory and deleted on exit.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class ColumnarSnapshotBenchmarks
+{
+    private static final int DEVICES = 1 << 18;
+    private static final long SEED = 2522L;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASUREMENT_ROUNDS = 5;
+    private static final int LOADS_PER_ROUND = 20;
+    private static final String[] CARRIERS = {"Verizon", "T-Mobile", "AT&T", "Rogers", "Bell", "Telus"};
+    private static final String[] OPERATING_SYSTEM_VERSIONS = {"iPadOS 14", "iPadOS 15", "iPadOS 16", "iPadOS 17"};
+    private static final int[] MEMORY_TIERS = {128, 256, 512, 1024};
+
+    private ColumnarSnapshotBenchmarks()
+    {
+    }
+
+    /**
+     * Runs every benchmark and prints the results, in nanoseconds per load or count of the whole file.
+     *
+     * @param args command-line arguments (unused).
+     * @throws IOException if the files cannot be written
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        final BenchmarkRunner runner;
+        final Random random;
+        final List<IDevice> devices;
+        final DeviceInventory inventory;
+        final Path records;
+        final Path snapshot;
+
+        runner = new BenchmarkRunner(WARMUP_ROUNDS, MEASUREMENT_ROUNDS, LOADS_PER_ROUND);
+        random = new Random(SEED);
+        devices = new ArrayList<>(DEVICES);
+        inventory = new DeviceInventory();
+
+        for (int i = 0; i < DEVICES; i++)
+        {
+            final IDevice device = randomDevice(random, random.nextInt(4));
+
+            devices.add(device);
+            inventory.add(device);
+        }
+
+        records = Files.createTempFile("devices", ".idev");
+        snapshot = Files.createTempFile("devices", ".idcs");
+        records.toFile().deleteOnExit();
+        snapshot.toFile().deleteOnExit();
+
+        DeviceFileWriter.write(records, devices);
+        ColumnarSnapshotWriter.write(snapshot, inventory);
+
+        System.out.printf("device file:       %,12d bytes%n", Files.size(records));
+        System.out.printf("columnar snapshot: %,12d bytes (%.1fx smaller)%n",
+                          Files.size(snapshot),
+                          (double) Files.size(records) / Files.size(snapshot));
+
+        runner.run("load (device file)",
+                   i -> loadRecords(records).size());
+        runner.run("load (columnar snapshot)",
+                   i -> openSnapshot(snapshot).load().size());
+        runner.run("count songsStored in range (snapshot)",
+                   i -> openSnapshot(snapshot).count(DeviceType.IPOD, DeviceField.SONGS_STORED, 1_000, 1_100));
+    }
+
+    // Loads a device file into a new inventory, one record at a time.
+    private static DeviceInventory loadRecords(final Path path)
+    {
+        final DeviceInventory inventory = new DeviceInventory();
+
+        try (final MappedDeviceFile file = MappedDeviceFile.open(path))
+        {
+            for (long index = 0; index < file.size(); index++)
+            {
+                switch (file.getType(index))
+                {
+                    case IPOD -> inventory.addIPod(file.getSongsStored(index),
+                                                   file.getMaxVolumeDb(index));
+                    case IPAD -> inventory.addIPad(file.hasCase(index),
+                                                   file.getOperatingSystemVersion(index));
+                    case IPHONE -> inventory.addIPhone(file.getRemainingPlanMinutes(index),
+                                                       file.getCarrier(index));
+                    case IPHONE17 -> inventory.addIPhone17(file.getRemainingPlanMinutes(index),
+                                                           file.getCarrier(index),
+                                                           file.hasHighResolutionCamera(index),
+                                                           file.getMemoryGB(index));
+                }
+            }
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return inventory;
+    }
+
+    // Opens a snapshot, rethrowing any failure unchecked for use in a benchmarked operation.
+    private static ColumnarSnapshot openSnapshot(final Path path)
+    {
+        try
+        {
+            return ColumnarSnapshot.open(path);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Creates a device of the given kind (0 to 3) with realistic random fields.
+    private static IDevice randomDevice(final Random random,
+                                        final int kind)
+    {
+        return switch (kind)
+        {
+            case 0 -> new IPod(random.nextInt(5_000),
+                               60.0 + random.nextInt(40));
+            case 1 -> new IPad(random.nextBoolean(),
+                               OPERATING_SYSTEM_VERSIONS[random.nextInt(OPERATING_SYSTEM_VERSIONS.length)]);
+            case 2 -> new IPhone(random.nextInt(1_000),
+                                 CARRIERS[random.nextInt(CARRIERS.length)]);
+            default -> new IPhone17(random.nextInt(1_000),
+                                    CARRIERS[random.nextInt(CARRIERS.length)],
+                                    random.nextBoolean(),
+                                    MEMORY_TIERS[random.nextInt(MEMORY_TIERS.length)]);
+        };
+    }
+}
@@ -0,0 +1,237 @@
+package ca.bcit.comp2522.lab03.bench;
+
+import ca.bcit.comp2522.lab03.DeviceBatch;
+import ca.bcit.comp2522.lab03.IDevice;
+import ca.bcit.comp2522.lab03.IPad;
+import ca.bcit.comp2522.lab03.IPhone;
+import ca.bcit.comp2522.lab03.IPhone17;
+import ca.bcit.comp2522.lab03.IPod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares whole-collection passes over a mixed List of IDevices with the same passes over a DeviceBatch, grouped
+ * by type and in insertion order. Each operation is one pass over every device, summing hash codes, summing
+ * toString lengths, or counting the devices equal to a probe. DeviceBatch.countEqual only compares the probe with
+ * the types it can equal, so equals is timed twice: calling equals on every device, in the List and through a
+ * DeviceBatch visitor, and calling it only on the probe's types, in the List and with countEqual.
+ *
+ * printDetails is left out since its cost is dominated by console output.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceBatchBenchmarks
+{
+    private static final int DEVICES = 1 << 12;
+    private static final long SEED = 2522L;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASUREMENT_ROUNDS = 5;
+    private static final int PASSES_PER_ROUND = 1_000;
+    private static final String[] CARRIERS = {"Verizon", "T-Mobile", "AT&T", "Rogers", "Bell", "Telus"};
+    private static final String[] OPERATING_SYSTEM_VERSIONS = {"iPadOS 14", "iPadOS 15", "iPadOS 16", "iPadOS 17"};
+    private static final int[] MEMORY_TIERS = {128, 256, 512, 1024};
+
+    private DeviceBatchBenchmarks()
+    {
+    }
+
+    /**
+     * Runs every benchmark and prints the results, in nanoseconds per pass over all devices.
+     *
+     * @param args command-line arguments (unused).
+     */
+    public static void main(final String[] args)
+    {
+        final BenchmarkRunner runner;
+        final Random random;
+        final List<IDevice> mixed;
+        final DeviceBatch grouped;
+        final DeviceBatch ordered;
+        final IDevice[] probes;
+
+        runner = new BenchmarkRunner(WARMUP_ROUNDS, MEASUREMENT_ROUNDS, PASSES_PER_ROUND);
+        random = new Random(SEED);
+        mixed = new ArrayList<>(DEVICES);
+
+        for (int i = 0; i < DEVICES; i++)
+        {
+            mixed.add(randomDevice(random, random.nextInt(4)));
+        }
+
+        grouped = DeviceBatch.of(mixed, false);
+        ordered = DeviceBatch.of(mixed, true);
+        probes = new IDevice[] {randomDevice(random, 0),
+                                randomDevice(random, 1),
+                                randomDevice(random, 2),
+                                randomDevice(random, 3)};
+
+        // hashCode
+        runner.run("hashCode pass (mixed List)",
+                   i -> {
+                       long sum = 0L;
+
+                       for (final IDevice device : mixed)
+                       {
+                           sum += device.hashCode();
+                       }
+
+                       return sum;
+                   });
+        runner.run("hashCode pass (DeviceBatch, grouped)",
+                   i -> sum(grouped.hashCodes()));
+        runner.run("hashCode pass (DeviceBatch, ordered)",
+                   i -> sum(ordered.hashCodes()));
+
+        // toString
+        runner.run("toString pass (mixed List)",
+                   i -> {
+                       long length = 0L;
+
+                       for (final IDevice device : mixed)
+                       {
+                           length += device.toString().length();
+                       }
+
+                       return length;
+                   });
+        runner.run("toString pass (DeviceBatch, grouped)",
+                   i -> totalLength(grouped.toStrings()));
+        runner.run("toString pass (DeviceBatch, ordered)",
+                   i -> totalLength(ordered.toStrings()));
+
+        // equals, on every device
+        runner.run("equals pass, every device (mixed List)",
+                   i -> {
+                       final IDevice probe = probes[i & 3];
+                       long count = 0L;
+
+                       for (final IDevice device : mixed)
+                       {
+                           count += probe.equals(device) ? 1 : 0;
+                       }
+
+                       return count;
+                   });
+        runner.run("equals pass, every device (DeviceBatch visitor)",
+                   i -> {
+                       final EqualCounter counter = new EqualCounter(probes[i & 3]);
+
+                       grouped.accept(counter);
+
+                       return counter.count;
+                   });
+
+        // equals, on the probe's types only
+        runner.run("equals pass, probe's types (mixed List)",
+                   i -> {
+                       final IDevice probe = probes[i & 3];
+                       long count = 0L;
+
+                       for (final IDevice device : mixed)
+                       {
+                           if (mayEqual(probe, device))
+                           {
+                               count += probe.equals(device) ? 1 : 0;
+                           }
+                       }
+
+                       return count;
+                   });
+        runner.run("equals pass, probe's types (countEqual)",
+                   i -> grouped.countEqual(probes[i & 3]));
+    }
+
+    // Determines whether a device is of a type the probe can equal, as DeviceBatch.countEqual does: an IPhone can
+    // equal an IPhone17, but every other type only equals its own.
+    private static boolean mayEqual(final IDevice probe,
+                                    final IDevice device)
+    {
+        return probe.getClass() == IPhone.class ? device instanceof IPhone : device.getClass() == probe.getClass();
+    }
+
+    // Sums an array of hash codes.
+    private static long sum(final int[] values)
+    {
+        long sum = 0L;
+
+        for (final int value : values)
+        {
+            sum += value;
+        }
+
+        return sum;
+    }
+
+    // Sums the lengths of an array of strings.
+    private static long totalLength(final String[] strings)
+    {
+        long length = 0L;
+
+        for (final String string : strings)
+        {
+            length += string.length();
+        }
+
+        return length;
+    }
+
+    // Counts the devices visited that a probe is equal to, calling equals on every one.
+    private static final class EqualCounter implements DeviceBatch.Visitor
+    {
+        private final IDevice probe;
+        private long count;
+
+        private EqualCounter(final IDevice probe)
+        {
+            this.probe = probe;
+        }
+
+        @Override
+        public void visitIPod(final IPod ipod)
+        {
+            count += probe.equals(ipod) ? 1 : 0;
+        }
+
+        @Override
+        public void visitIPad(final IPad ipad)
+        {
+            count += probe.equals(ipad) ? 1 : 0;
+        }
+
+        @Override
+        public void visitIPhone(final IPhone iphone)
+        {
+            count += probe.equals(iphone) ? 1 : 0;
+        }
+
+        @Override
+        public void visitIPhone17(final IPhone17 iphone17)
+        {
+            count += probe.equals(iphone17) ? 1 : 0;
+        }
+    }
+
+    // Creates a device of the given kind (0 to 3) with realistic random fields.
+    private static IDevice randomDevice(final Random random,
+                                        final int kind)
+    {
+        return switch (kind)
+        {
+            case 0 -> new IPod(random.nextInt(5_000),
+                               60.0 + random.nextInt(40));
+            case 1 -> new IPad(random.nextBoolean(),
+                               OPERATING_SYSTEM_VERSIONS[random.nextInt(OPERATING_SYSTEM_VERSIONS.length)]);
+            case 2 -> new IPhone(random.nextInt(1_000),
+                                 CARRIERS[random.nextInt(CARRIERS.length)]);
+            default -> new IPhone17(random.nextInt(1_000),
+                                    CARRIERS[random.nextInt(CARRIERS.length)],
+                                    random.nextBoolean(),
+                                    MEMORY_TIERS[random.nextInt(MEMORY_TIERS.length)]);
+        };
+    }
+}
@@ -0,0 +1,183 @@
+package ca.bcit.comp2522.lab03.bench;
+
+import ca.bcit.comp2522.lab03.IDevice;
+import ca.bcit.comp2522.lab03.IPad;
+import ca.bcit.comp2522.lab03.IPhone;
+import ca.bcit.comp2522.lab03.IPhone17;
+import ca.bcit.comp2522.lab03.IPod;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Baseline benchmarks for the hot methods of the IDevice hierarchy: each class's constructor (including
+ * validation), equals, hashCode and toString, plus HashSet inserts and lookups over a realistic mix of the four
+ * device types.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceBenchmarks
+{
+    private static final int SAMPLE_SIZE = 1 << 12;
+    private static final int SAMPLE_MASK = SAMPLE_SIZE - 1;
+    private static final long SEED = 2522L;
+    private static final int SET_FILL_WARMUP_ROUNDS = 1_000;
+    private static final int SET_FILL_MEASUREMENT_ROUNDS = 1_000;
+    private static final String[] CARRIERS = {"Verizon", "T-Mobile", "AT&T", "Rogers", "Bell", "Telus"};
+    private static final String[] OPERATING_SYSTEM_VERSIONS = {"iPadOS 14", "iPadOS 15", "iPadOS 16", "iPadOS 17"};
+    private static final int[] MEMORY_TIERS = {128, 256, 512, 1024};
+
+    private DeviceBenchmarks()
+    {
+    }
+
+    /**
+     * Runs every benchmark and prints the results.
+     *
+     * @param args command-line arguments (unused).
+     */
+    public static void main(final String[] args)
+    {
+        final BenchmarkRunner runner;
+        final Random random;
+        final IPod[] ipods;
+        final IPad[] ipads;
+        final IPhone[] iphones;
+        final IPhone17[] iphone17s;
+        final IDevice[] mixed;
+        final Set<IDevice> inserted;
+        final Set<IDevice> populated;
+
+        runner = new BenchmarkRunner();
+        random = new Random(SEED);
+
+        ipods = new IPod[SAMPLE_SIZE];
+        ipads = new IPad[SAMPLE_SIZE];
+        iphones = new IPhone[SAMPLE_SIZE];
+        iphone17s = new IPhone17[SAMPLE_SIZE];
+        mixed = new IDevice[SAMPLE_SIZE];
+
+        for (int i = 0; i < SAMPLE_SIZE; i++)
+        {
+            ipods[i] = randomIPod(random);
+            ipads[i] = randomIPad(random);
+            iphones[i] = randomIPhone(random);
+            iphone17s[i] = randomIPhone17(random);
+            mixed[i] = randomDevice(random);
+        }
+
+        // Constructors, including validation
+        runner.run("IPod.<init>",
+                   i -> new IPod(i & SAMPLE_MASK, 80.0).getSongsStored());
+        runner.run("IPad.<init>",
+                   i -> new IPad((i & 1) == 0, OPERATING_SYSTEM_VERSIONS[i & 3]).hashCode());
+        runner.run("IPhone.<init>",
+                   i -> (long) new IPhone(i & SAMPLE_MASK, CARRIERS[i % CARRIERS.length]).getRemainingPlanMinutes());
+        runner.run("IPhone17.<init>",
+                   i -> new IPhone17(i & SAMPLE_MASK, CARRIERS[i % CARRIERS.length], true, 256).getMemoryGB());
+
+        // equals
+        runner.run("IPod.equals",
+                   i -> ipods[i & SAMPLE_MASK].equals(ipods[(i + 1) & SAMPLE_MASK]) ? 1 : 0);
+        runner.run("IPad.equals",
+                   i -> ipads[i & SAMPLE_MASK].equals(ipads[(i + 1) & SAMPLE_MASK]) ? 1 : 0);
+        runner.run("IPhone.equals (boxes remainingPlanMinutes)",
+                   i -> iphones[i & SAMPLE_MASK].equals(iphones[(i + 1) & SAMPLE_MASK]) ? 1 : 0);
+        runner.run("IPhone17.equals",
+                   i -> iphone17s[i & SAMPLE_MASK].equals(iphone17s[(i + 1) & SAMPLE_MASK]) ? 1 : 0);
+
+        // hashCode
+        runner.run("IPod.hashCode",
+                   i -> ipods[i & SAMPLE_MASK].hashCode());
+        runner.run("IPad.hashCode",
+                   i -> ipads[i & SAMPLE_MASK].hashCode());
+        runner.run("IPhone.hashCode",
+                   i -> iphones[i & SAMPLE_MASK].hashCode());
+        runner.run("IPhone17.hashCode",
+                   i -> iphone17s[i & SAMPLE_MASK].hashCode());
+
+        // toString
+        runner.run("IPod.toString",
+                   i -> ipods[i & SAMPLE_MASK].toString().length());
+        runner.run("IPad.toString",
+                   i -> ipads[i & SAMPLE_MASK].toString().length());
+        runner.run("IPhone.toString",
+                   i -> iphones[i & SAMPLE_MASK].toString().length());
+        runner.run("IPhone17.toString",
+                   i -> iphone17s[i & SAMPLE_MASK].toString().length());
+
+        // Collections over a mix of all four types
+        inserted = new HashSet<>();
+        populated = new HashSet<>();
+
+        for (final IDevice device : mixed)
+        {
+            populated.add(device);
+        }
+
+        // Each round fills an emptied set with the whole sample; emptying it is left out of the timing.
+        new BenchmarkRunner(SET_FILL_WARMUP_ROUNDS, SET_FILL_MEASUREMENT_ROUNDS, SAMPLE_SIZE)
+            .run("HashSet<IDevice>.add (mixed)",
+                 inserted::clear,
+                 i -> inserted.add(mixed[i]) ? 1 : 0);
+        runner.run("HashSet<IDevice>.contains (mixed)",
+                   i -> populated.contains(mixed[(i * 7) & SAMPLE_MASK]) ? 1 : 0);
+    }
+
+    // Creates an IPod with realistic random fields.
+    private static IPod randomIPod(final Random random)
+    {
+        return new IPod(random.nextInt(5_000),
+                        60.0 + random.nextInt(40));
+    }
+
+    // Creates an IPad with realistic random fields.
+    private static IPad randomIPad(final Random random)
+    {
+        return new IPad(random.nextBoolean(),
+                        OPERATING_SYSTEM_VERSIONS[random.nextInt(OPERATING_SYSTEM_VERSIONS.length)]);
+    }
+
+    // Creates an IPhone with realistic random fields.
+    private static IPhone randomIPhone(final Random random)
+    {
+        return new IPhone(random.nextInt(1_000),
+                          CARRIERS[random.nextInt(CARRIERS.length)]);
+    }
+
+    // Creates an IPhone17 with realistic random fields.
+    private static IPhone17 randomIPhone17(final Random random)
+    {
+        return new IPhone17(random.nextInt(1_000),
+                            CARRIERS[random.nextInt(CARRIERS.length)],
+                            random.nextBoolean(),
+                            MEMORY_TIERS[random.nextInt(MEMORY_TIERS.length)]);
+    }
+
+    // Creates a device of a random type, weighted towards phones.
+    private static IDevice randomDevice(final Random random)
+    {
+        final int roll = random.nextInt(10);
+
+        if (roll < 4)
+        {
+            return randomIPhone(random);
+        }
+
+        if (roll < 7)
+        {
+            return randomIPhone17(random);
+        }
+
+        if (roll < 9)
+        {
+            return randomIPad(random);
+        }
+
+        return randomIPod(random);
+    }
+}
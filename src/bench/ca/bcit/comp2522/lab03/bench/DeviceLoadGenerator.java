@@ -0,0 +1,280 @@
+package ca.bcit.comp2522.lab03.bench;
+
+import ca.bcit.comp2522.lab03.DeviceService;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for DeviceService over loopback. A fixed number of virtual-thread clients each send
+ * one request at a time for a fixed duration, and the generator reports throughput and latency percentiles.
+ *
+ * The generator first creates a pool of phones, then sends a mix of requests: mostly remaining-minutes updates,
+ * with some gets and occasional carrier queries.
+ *
+ * Usage: DeviceLoadGenerator [clients] [seconds] [port]
+ * Without a port, a DeviceService is started in the same JVM on a free loopback port, with Nagle's algorithm
+ * turned off as DeviceService recommends, unless -Dsun.net.httpserver.nodelay is given.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceLoadGenerator
+{
+    private static final int DEFAULT_CLIENTS = 256;
+    private static final int DEFAULT_SECONDS = 10;
+    private static final int WARMUP_SECONDS = 2;
+    private static final int DEVICES = 1_024;
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    private static final int UPDATE_PERCENT = 80;
+    private static final int GET_PERCENT = 19;
+    private static final int PERCENT = 100;
+    private static final String[] CARRIERS = {"Verizon", "T-Mobile", "AT&T", "Rogers", "Bell", "Telus"};
+    private static final double NANOS_PER_MICRO = 1_000.0;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private DeviceLoadGenerator()
+    {
+    }
+
+    /**
+     * Runs the load and prints the results.
+     *
+     * @param args the number of clients, the number of seconds to measure, and optionally the service's port
+     * @throws Exception if the service cannot be started or reached
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        final int clients = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLIENTS;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        final DeviceService service;
+        final int port;
+
+        if (args.length > 2)
+        {
+            service = null;
+            port = Integer.parseInt(args[2]);
+        }
+        else
+        {
+            if (System.getProperty(NO_DELAY_PROPERTY) == null)
+            {
+                System.setProperty(NO_DELAY_PROPERTY, "true");
+            }
+
+            service = DeviceService.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            port = service.port();
+        }
+
+        try (final HttpClient client = HttpClient.newBuilder()
+                                                 .executor(Executors.newVirtualThreadPerTaskExecutor())
+                                                 .version(HttpClient.Version.HTTP_1_1)
+                                                 .build())
+        {
+            final URI base = URI.create("http://127.0.0.1:" + port + "/devices");
+            final int[] ids = createDevices(client, base);
+
+            System.out.printf("Warming up for %d s with %d clients%n", WARMUP_SECONDS, clients);
+            run(client, base, ids, clients, WARMUP_SECONDS);
+
+            System.out.printf("Measuring for %d s with %d clients%n", seconds, clients);
+            report(run(client, base, ids, clients, seconds), seconds);
+        }
+        finally
+        {
+            if (service != null)
+            {
+                service.close();
+            }
+        }
+    }
+
+    // Creates the phones that the load will update and read, returning their ids.
+    private static int[] createDevices(final HttpClient client,
+                                       final URI base) throws IOException, InterruptedException
+    {
+        final int[] ids = new int[DEVICES];
+
+        for (int i = 0; i < DEVICES; i++)
+        {
+            final String record = (i % 2 == 0 ? "IPHONE," : "IPHONE17,") + (i * 10) + "," +
+                                  CARRIERS[i % CARRIERS.length] + (i % 2 == 0 ? "" : ",true,256");
+            final HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(base).POST(HttpRequest.BodyPublishers.ofString(record)).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+            if (response.statusCode() != 201)
+            {
+                throw new IllegalStateException("Unable to create device: " + response.body());
+            }
+
+            ids[i] = Integer.parseInt(response.body().strip());
+        }
+
+        return ids;
+    }
+
+    // Runs the clients for the given duration, returning the latencies of every request, in nanoseconds.
+    private static long[] run(final HttpClient client,
+                              final URI base,
+                              final int[] ids,
+                              final int clients,
+                              final int seconds) throws Exception
+    {
+        final long deadline = System.nanoTime() + (long) (seconds * NANOS_PER_SECOND);
+        final AtomicLong failures = new AtomicLong();
+        final List<Future<long[]>> results = new ArrayList<>();
+
+        try (final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            for (int c = 0; c < clients; c++)
+            {
+                final long seed = c;
+
+                results.add(executor.submit(() -> runClient(client, base, ids, deadline, seed, failures)));
+            }
+        }
+
+        final List<long[]> perClient = new ArrayList<>();
+        int total = 0;
+
+        for (final Future<long[]> result : results)
+        {
+            perClient.add(result.get());
+            total += perClient.get(perClient.size() - 1).length;
+        }
+
+        final long[] latencies = new long[total];
+        int next = 0;
+
+        for (final long[] clientLatencies : perClient)
+        {
+            System.arraycopy(clientLatencies, 0, latencies, next, clientLatencies.length);
+            next += clientLatencies.length;
+        }
+
+        if (failures.get() > 0)
+        {
+            System.out.printf("%d requests failed%n", failures.get());
+        }
+
+        return latencies;
+    }
+
+    // Sends requests one at a time until the deadline, returning their latencies.
+    private static long[] runClient(final HttpClient client,
+                                    final URI base,
+                                    final int[] ids,
+                                    final long deadline,
+                                    final long seed,
+                                    final AtomicLong failures)
+    {
+        final SplittableRandom random = new SplittableRandom(seed);
+        long[] latencies = new long[1_024];
+        int count = 0;
+
+        while (System.nanoTime() < deadline)
+        {
+            final HttpRequest request = nextRequest(random, base, ids);
+            final long start = System.nanoTime();
+
+            try
+            {
+                final HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+
+                if (response.statusCode() >= 300)
+                {
+                    failures.incrementAndGet();
+                }
+            }
+            catch (final IOException e)
+            {
+                failures.incrementAndGet();
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (count == latencies.length)
+            {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+
+            latencies[count++] = System.nanoTime() - start;
+        }
+
+        return Arrays.copyOf(latencies, count);
+    }
+
+    // Chooses the next request of the mix.
+    private static HttpRequest nextRequest(final SplittableRandom random,
+                                           final URI base,
+                                           final int[] ids)
+    {
+        final int roll = random.nextInt(PERCENT);
+        final int id = ids[random.nextInt(ids.length)];
+
+        if (roll < UPDATE_PERCENT)
+        {
+            return HttpRequest.newBuilder(URI.create(base + "/" + id + "/remainingPlanMinutes"))
+                              .PUT(HttpRequest.BodyPublishers.ofString(Integer.toString(random.nextInt(10_000))))
+                              .build();
+        }
+
+        if (roll < UPDATE_PERCENT + GET_PERCENT)
+        {
+            return HttpRequest.newBuilder(URI.create(base + "/" + id)).GET().build();
+        }
+
+        final String carrier = URLEncoder.encode(CARRIERS[random.nextInt(CARRIERS.length)], StandardCharsets.UTF_8);
+
+        return HttpRequest.newBuilder(URI.create(base + "?carrier=" + carrier)).GET().build();
+    }
+
+    // Prints the throughput and latency percentiles of a run.
+    private static void report(final long[] latencies,
+                               final int seconds)
+    {
+        Arrays.sort(latencies);
+
+        System.out.printf(Locale.ROOT, "Requests: %d%n", latencies.length);
+        System.out.printf(Locale.ROOT, "Throughput: %.0f requests/s%n", (double) latencies.length / seconds);
+        System.out.printf(Locale.ROOT, "p50: %.1f us%n", percentile(latencies, 50.0) / NANOS_PER_MICRO);
+        System.out.printf(Locale.ROOT, "p99: %.1f us%n", percentile(latencies, 99.0) / NANOS_PER_MICRO);
+        System.out.printf(Locale.ROOT, "p999: %.1f us%n", percentile(latencies, 99.9) / NANOS_PER_MICRO);
+    }
+
+    // Returns the nearest-rank percentile of sorted latencies.
+    private static long percentile(final long[] sorted,
+                                   final double percentile)
+    {
+        if (sorted.length == 0)
+        {
+            return 0L;
+        }
+
+        final int rank = (int) Math.ceil(percentile / PERCENT * sorted.length);
+
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
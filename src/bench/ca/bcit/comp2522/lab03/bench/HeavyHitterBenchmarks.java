@@ -0,0 +1,127 @@
+package ca.bcit.comp2522.lab03.bench;
+
+import ca.bcit.comp2522.lab03.DeviceHeavyHitters;
+import ca.bcit.comp2522.lab03.IDevice;
+import ca.bcit.comp2522.lab03.IPad;
+import ca.bcit.comp2522.lab03.IPhone;
+import ca.bcit.comp2522.lab03.IPhone17;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares refreshing a dashboard's top carriers with DeviceHeavyHitters against counting every activation seen
+ * into a new HashMap on each refresh, over a stream of activations whose carriers and operating system versions
+ * follow a Zipf distribution with a long tail. Also times accepting one activation, the cost moved from each
+ * refresh to each event.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class HeavyHitterBenchmarks
+{
+    private static final int ACTIVATIONS = 1 << 20;
+    private static final int DISTINCT_CARRIERS = 5_000;
+    private static final int DISTINCT_OPERATING_SYSTEM_VERSIONS = 200;
+    private static final int TOP = 10;
+    private static final long SEED = 2522L;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASUREMENT_ROUNDS = 5;
+    private static final int EVENTS_PER_ROUND = 1_000_000;
+    private static final int REFRESHES_PER_ROUND = 20;
+    private static final int[] MEMORY_TIERS = {128, 256, 512, 1024};
+
+    private HeavyHitterBenchmarks()
+    {
+    }
+
+    /**
+     * Runs every benchmark and prints the results, in nanoseconds per activation or refresh.
+     *
+     * @param args command-line arguments (unused).
+     */
+    public static void main(final String[] args)
+    {
+        final Random random;
+        final IDevice[] activations;
+        final DeviceHeavyHitters heavyHitters;
+
+        random = new Random(SEED);
+        activations = new IDevice[ACTIVATIONS];
+        heavyHitters = new DeviceHeavyHitters();
+
+        for (int i = 0; i < ACTIVATIONS; i++)
+        {
+            activations[i] = randomActivation(random);
+            heavyHitters.accept(activations[i]);
+        }
+
+        heavyHitters.flush();
+
+        new BenchmarkRunner(WARMUP_ROUNDS, MEASUREMENT_ROUNDS, EVENTS_PER_ROUND)
+            .run("accept (DeviceHeavyHitters)",
+                 i ->
+                 {
+                     heavyHitters.accept(activations[i & (ACTIVATIONS - 1)]);
+
+                     return i;
+                 });
+
+        final BenchmarkRunner refreshes = new BenchmarkRunner(WARMUP_ROUNDS, MEASUREMENT_ROUNDS, REFRESHES_PER_ROUND);
+
+        refreshes.run("refresh top carriers (HashMap rebuild)",
+                      i -> countCarriers(activations).get(0).getValue());
+        refreshes.run("refresh top carriers (DeviceHeavyHitters)",
+                      i -> heavyHitters.topCarriers(TOP).get(0).getCount());
+    }
+
+    // Counts every activation's carrier into a new map and returns the most common, as the dashboard did.
+    private static List<Map.Entry<String, Long>> countCarriers(final IDevice[] activations)
+    {
+        final Map<String, Long> counts = new HashMap<>();
+
+        for (final IDevice activation : activations)
+        {
+            if (activation instanceof IPhone iphone)
+            {
+                counts.merge(iphone.getCarrier(), 1L, Long::sum);
+            }
+        }
+
+        final List<Map.Entry<String, Long>> top = new ArrayList<>(counts.entrySet());
+
+        top.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        return top.subList(0, Math.min(TOP, top.size()));
+    }
+
+    // Creates an IPad, IPhone or IPhone17 activation with Zipf-distributed carrier and operating system version.
+    private static IDevice randomActivation(final Random random)
+    {
+        final String carrier = "Carrier " + zipf(random, DISTINCT_CARRIERS);
+
+        return switch (random.nextInt(3))
+        {
+            case 0 -> new IPad(random.nextBoolean(),
+                               "iPadOS " + zipf(random, DISTINCT_OPERATING_SYSTEM_VERSIONS));
+            case 1 -> new IPhone(random.nextInt(1_000),
+                                 carrier);
+            default -> new IPhone17(random.nextInt(1_000),
+                                    carrier,
+                                    random.nextBoolean(),
+                                    MEMORY_TIERS[zipf(random, MEMORY_TIERS.length)]);
+        };
+    }
+
+    // Returns a rank from 0 to n - 1, where rank r is about 1 / (r + 1) as likely as rank 0.
+    private static int zipf(final Random random,
+                            final int n)
+    {
+        return (int) Math.min(n - 1, Math.floor(Math.pow(n + 1.0, random.nextDouble())) - 1);
+    }
+}
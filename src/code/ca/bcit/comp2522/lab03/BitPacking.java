@@ -0,0 +1,134 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.Arrays;
+
+/*
+ * Packs unsigned residues into the fewest bits each, for ColumnarSnapshotWriter and ColumnarSnapshot.
+ *
+ * Residues are packed in LANES interleaved lanes: residue i goes to lane i % LANES, and each lane's residues are
+ * packed one after another, lowest bits first, into that lane's own sequence of longs. Word w of lane j is stored
+ * at index w * LANES + j. The point of this layout is that the LANES residues unpacked in one step all sit at the
+ * same bit offset of adjacent words, so every lane shares one shift and one mask, and the inner loop of unpack is
+ * a straight-line loop over contiguous words that the JIT compiler can vectorize. A block's residues are padded
+ * with zeros to a whole number of steps.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+final class BitPacking
+{
+    /*
+     * The number of interleaved lanes. Fixed, rather than taken from the platform's vector size, so that the
+     * format is the same everywhere.
+     */
+    static final int LANES = 8;
+
+    private BitPacking()
+    {
+    }
+
+    /*
+     * Returns the number of bits needed to hold every residue from 0 to maxResidue, treated as unsigned.
+     */
+    static int widthOf(final long maxResidue)
+    {
+        return Long.SIZE - Long.numberOfLeadingZeros(maxResidue);
+    }
+
+    /*
+     * Returns the number of residues unpack writes for count residues, which is count rounded up to whole steps.
+     */
+    static int paddedCount(final int count)
+    {
+        return (count + LANES - 1) / LANES * LANES;
+    }
+
+    /*
+     * Returns the number of longs that count residues of the given width are packed into.
+     */
+    static int words(final int count,
+                     final int width)
+    {
+        final long steps = paddedCount(count) / LANES;
+        final long wordsPerLane = (steps * width + Long.SIZE - 1) / Long.SIZE;
+
+        return (int) (wordsPerLane * LANES);
+    }
+
+    /*
+     * Packs the first count residues, each of which must fit in width bits, into words, which must be zeroed and
+     * hold at least words(count, width) longs.
+     */
+    static void pack(final long[] residues,
+                     final int count,
+                     final int width,
+                     final long[] words)
+    {
+        if (width == 0)
+        {
+            return;
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+            final long bit = (long) (i / LANES) * width;
+            final int index = (int) (bit >>> 6) * LANES + i % LANES;
+            final int shift = (int) (bit & (Long.SIZE - 1));
+
+            words[index] |= residues[i] << shift;
+
+            if (shift + width > Long.SIZE)
+            {
+                words[index + LANES] |= residues[i] >>> (Long.SIZE - shift);
+            }
+        }
+    }
+
+    /*
+     * Unpacks count residues of the given width from words into residues, which must hold at least
+     * paddedCount(count) longs. The padding residues are unpacked as zeros.
+     */
+    static void unpack(final long[] words,
+                       final int count,
+                       final int width,
+                       final long[] residues)
+    {
+        final int steps = paddedCount(count) / LANES;
+
+        if (width == 0)
+        {
+            Arrays.fill(residues, 0, steps * LANES, 0L);
+            return;
+        }
+
+        final long mask = width == Long.SIZE ? -1L : (1L << width) - 1;
+
+        for (int step = 0; step < steps; step++)
+        {
+            final long bit = (long) step * width;
+            final int base = (int) (bit >>> 6) * LANES;
+            final int shift = (int) (bit & (Long.SIZE - 1));
+            final int out = step * LANES;
+
+            if (shift + width <= Long.SIZE)
+            {
+                for (int lane = 0; lane < LANES; lane++)
+                {
+                    residues[out + lane] = (words[base + lane] >>> shift) & mask;
+                }
+            }
+            else
+            {
+                final int spill = Long.SIZE - shift;
+
+                for (int lane = 0; lane < LANES; lane++)
+                {
+                    residues[out + lane] = ((words[base + lane] >>> shift) |
+                                            (words[base + LANES + lane] << spill)) & mask;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,643 @@
+package ca.bcit.comp2522.lab03;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Read-only view of a snapshot written by ColumnarSnapshotWriter. The file is memory-mapped, and opening it only
+ * reads its header and string table and walks the block headers of each column to find where its blocks start.
+ * Blocks are decoded only when they are needed.
+ *
+ * load decodes every block into a new DeviceInventory, a whole block of a column at a time. The count methods
+ * answer queries over one column from the block headers wherever they can: a block whose minimum and maximum
+ * show that none of its rows can match is skipped, a block whose rows must all match is counted without being
+ * decoded, and only the blocks in between are decoded and scanned. Skipped blocks are never read from disk.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class ColumnarSnapshot
+{
+    private final ByteBuffer data;
+    private final int[] sizes;
+    private final String[] strings;
+    private final int[][][] blockOffsets;
+
+    private ColumnarSnapshot(final ByteBuffer data,
+                             final int[] sizes,
+                             final String[] strings,
+                             final int[][][] blockOffsets)
+    {
+        this.data = data;
+        this.sizes = sizes;
+        this.strings = strings;
+        this.blockOffsets = blockOffsets;
+    }
+
+    /**
+     * Opens a snapshot for reading.
+     *
+     * @param path the file to open
+     * @return the opened snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static ColumnarSnapshot open(final Path path) throws IOException
+    {
+        if (path == null)
+        {
+            throw new IllegalArgumentException("Invalid path");
+        }
+
+        final MappedByteBuffer data;
+
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            if (channel.size() > Integer.MAX_VALUE)
+            {
+                throw new IOException("Snapshot too large to map: " + path);
+            }
+
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try
+        {
+            return parse(data, path);
+        }
+        catch (final IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e)
+        {
+            throw new IOException("Corrupt snapshot: " + path, e);
+        }
+    }
+
+    /**
+     * Returns the total number of devices in the snapshot.
+     *
+     * @return the number of devices of all types
+     */
+    public int size()
+    {
+        return Arrays.stream(sizes).sum();
+    }
+
+    /**
+     * Returns the number of devices of a given type in the snapshot.
+     *
+     * @param type the type of device to count
+     * @return the number of rows in that type's section
+     */
+    public int size(final DeviceType type)
+    {
+        if (type == null)
+        {
+            throw new IllegalArgumentException("Invalid type");
+        }
+
+        return sizes[type.ordinal()];
+    }
+
+    /**
+     * Decodes the whole snapshot into a new DeviceInventory. Every row keeps its type and row number, and every
+     * value is validated as by the DeviceInventory add methods.
+     *
+     * @return a new inventory holding the snapshot's devices
+     */
+    public DeviceInventory load()
+    {
+        final DeviceInventory inventory = new DeviceInventory();
+        final long[] residues = new long[ColumnarSnapshotFormat.BLOCK_ROWS];
+        final long[] words = new long[BitPacking.words(ColumnarSnapshotFormat.BLOCK_ROWS, Long.SIZE)];
+
+        for (final DeviceType type : DeviceType.values())
+        {
+            final DeviceField[] fields = ColumnarSnapshotFormat.fieldsOf(type);
+            final int rows = sizes[type.ordinal()];
+            int[] ints = null;
+            double[] doubles = null;
+            BitSet flags = null;
+            int[] codes = null;
+
+            for (int column = 0; column < fields.length; column++)
+            {
+                final int[] offsets = blockOffsets[type.ordinal()][column];
+
+                switch (ColumnarSnapshotFormat.kindOf(fields[column]))
+                {
+                    case INT ->
+                    {
+                        ints = new int[rows];
+                        decodeIntColumn(offsets, rows, ints, residues, words);
+                    }
+                    case DOUBLE ->
+                    {
+                        doubles = new double[rows];
+                        decodeDoubleColumn(offsets, rows, doubles, residues, words);
+                    }
+                    case BOOLEAN ->
+                    {
+                        flags = new BitSet(rows);
+                        decodeBooleanColumn(offsets, rows, flags, words);
+                    }
+                    case STRING ->
+                    {
+                        codes = new int[rows];
+                        decodeIntColumn(offsets, rows, codes, residues, words);
+                        toDictionaryCodes(codes, type == DeviceType.IPAD);
+                    }
+                }
+            }
+
+            inventory.appendColumns(new DeviceColumns(type, rows, ints, doubles, flags, codes));
+        }
+
+        return inventory;
+    }
+
+    /**
+     * Counts the devices of a type whose value of a numeric field lies within a range.
+     *
+     * @param type  the type of device to count
+     * @param field the field to test: SONGS_STORED, MAX_VOLUME_DB, REMAINING_PLAN_MINUTES or MEMORY_GB
+     * @param min   the smallest value counted
+     * @param max   the largest value counted
+     * @return the number of devices of the type whose value is at least min and at most max
+     */
+    public int count(final DeviceType type,
+                     final DeviceField field,
+                     final double min,
+                     final double max)
+    {
+        if (!(min <= max))
+        {
+            throw new IllegalArgumentException("Invalid range: " + min + " to " + max);
+        }
+
+        final int[] offsets = offsetsOf(type, field);
+        final ColumnarSnapshotFormat.ColumnKind kind = ColumnarSnapshotFormat.kindOf(field);
+
+        if (kind != ColumnarSnapshotFormat.ColumnKind.INT && kind != ColumnarSnapshotFormat.ColumnKind.DOUBLE)
+        {
+            throw new IllegalArgumentException("Invalid field for a range: " + field);
+        }
+
+        final int rows = sizes[type.ordinal()];
+        final long[] residues = new long[ColumnarSnapshotFormat.BLOCK_ROWS];
+        final long[] words = new long[BitPacking.words(ColumnarSnapshotFormat.BLOCK_ROWS, Long.SIZE)];
+        final int[] ints = new int[ColumnarSnapshotFormat.BLOCK_ROWS];
+        final double[] doubles = new double[ColumnarSnapshotFormat.BLOCK_ROWS];
+        int count = 0;
+
+        for (int block = 0; block < offsets.length; block++)
+        {
+            final int offset = offsets[block];
+            final int blockRows = ColumnarSnapshotFormat.blockRows(rows, block);
+            final double blockMin;
+            final double blockMax;
+
+            if (kind == ColumnarSnapshotFormat.ColumnKind.INT)
+            {
+                blockMin = data.getInt(offset + ColumnarSnapshotFormat.INT_MIN_OFFSET);
+                blockMax = data.getInt(offset + ColumnarSnapshotFormat.INT_MAX_OFFSET);
+            }
+            else
+            {
+                blockMin = data.getDouble(offset + ColumnarSnapshotFormat.DOUBLE_MIN_OFFSET);
+                blockMax = data.getDouble(offset + ColumnarSnapshotFormat.DOUBLE_MAX_OFFSET);
+            }
+
+            if (blockMax < min || blockMin > max)
+            {
+                continue;
+            }
+
+            if (min <= blockMin && blockMax <= max)
+            {
+                count += blockRows;
+                continue;
+            }
+
+            if (kind == ColumnarSnapshotFormat.ColumnKind.INT)
+            {
+                decodeIntBlock(offset, blockRows, ints, 0, residues, words);
+
+                for (int i = 0; i < blockRows; i++)
+                {
+                    count += ints[i] >= min & ints[i] <= max ? 1 : 0;
+                }
+            }
+            else
+            {
+                decodeDoubleBlock(offset, blockRows, doubles, 0, residues, words);
+
+                for (int i = 0; i < blockRows; i++)
+                {
+                    count += doubles[i] >= min & doubles[i] <= max ? 1 : 0;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Counts the devices of a type for which a boolean field is true. Only the block headers are read.
+     *
+     * @param type  the type of device to count
+     * @param field the field to test: TABLET_CASE or HIGH_RESOLUTION_CAMERA
+     * @return the number of devices of the type for which the field is true
+     */
+    public int countTrue(final DeviceType type,
+                         final DeviceField field)
+    {
+        final int[] offsets = offsetsOf(type, field);
+
+        if (ColumnarSnapshotFormat.kindOf(field) != ColumnarSnapshotFormat.ColumnKind.BOOLEAN)
+        {
+            throw new IllegalArgumentException("Invalid boolean field: " + field);
+        }
+
+        int count = 0;
+
+        for (final int offset : offsets)
+        {
+            count += data.getInt(offset + ColumnarSnapshotFormat.TRUE_COUNT_OFFSET);
+        }
+
+        return count;
+    }
+
+    /**
+     * Counts the devices of a type whose value of a string field is a given string.
+     *
+     * @param type  the type of device to count
+     * @param field the field to test: OPERATING_SYSTEM_VERSION or CARRIER
+     * @param value the string to count
+     * @return the number of devices of the type whose value is the string
+     */
+    public int countEqual(final DeviceType type,
+                          final DeviceField field,
+                          final String value)
+    {
+        final int[] offsets = offsetsOf(type, field);
+
+        if (ColumnarSnapshotFormat.kindOf(field) != ColumnarSnapshotFormat.ColumnKind.STRING)
+        {
+            throw new IllegalArgumentException("Invalid string field: " + field);
+        }
+
+        final int code = Arrays.asList(strings).indexOf(value);
+
+        if (code < 0)
+        {
+            return 0;
+        }
+
+        final int rows = sizes[type.ordinal()];
+        final long[] residues = new long[ColumnarSnapshotFormat.BLOCK_ROWS];
+        final long[] words = new long[BitPacking.words(ColumnarSnapshotFormat.BLOCK_ROWS, Long.SIZE)];
+        final int[] codes = new int[ColumnarSnapshotFormat.BLOCK_ROWS];
+        int count = 0;
+
+        for (int block = 0; block < offsets.length; block++)
+        {
+            final int offset = offsets[block];
+            final int blockRows = ColumnarSnapshotFormat.blockRows(rows, block);
+            final int blockMin = data.getInt(offset + ColumnarSnapshotFormat.INT_MIN_OFFSET);
+            final int blockMax = data.getInt(offset + ColumnarSnapshotFormat.INT_MAX_OFFSET);
+
+            if (code < blockMin || code > blockMax)
+            {
+                continue;
+            }
+
+            if (blockMin == blockMax)
+            {
+                count += blockRows;
+                continue;
+            }
+
+            decodeIntBlock(offset, blockRows, codes, 0, residues, words);
+
+            for (int i = 0; i < blockRows; i++)
+            {
+                count += codes[i] == code ? 1 : 0;
+            }
+        }
+
+        return count;
+    }
+
+    // Reads the header and string table and finds every block, checking the file as it goes.
+    private static ColumnarSnapshot parse(final ByteBuffer data,
+                                          final Path path) throws IOException
+    {
+        final DeviceType[] types;
+        final int[] sizes;
+        final String[] strings;
+        final int[][][] blockOffsets;
+        int position;
+
+        if (data.getInt(0) != ColumnarSnapshotFormat.MAGIC)
+        {
+            throw new IOException("Not a columnar snapshot: " + path);
+        }
+
+        if (data.getInt(Integer.BYTES) != ColumnarSnapshotFormat.VERSION ||
+            data.getInt(2 * Integer.BYTES) != ColumnarSnapshotFormat.BLOCK_ROWS)
+        {
+            throw new IOException("Unsupported columnar snapshot version: " + path);
+        }
+
+        types = DeviceType.values();
+        sizes = new int[types.length];
+        position = 3 * Integer.BYTES;
+
+        for (final DeviceType type : types)
+        {
+            sizes[type.ordinal()] = data.getInt(position);
+            position += Integer.BYTES;
+
+            if (sizes[type.ordinal()] < 0)
+            {
+                throw new IOException("Corrupt snapshot: " + path);
+            }
+        }
+
+        strings = new String[data.getInt(position)];
+        position += Integer.BYTES;
+
+        for (int i = 0; i < strings.length; i++)
+        {
+            final byte[] encoded = new byte[data.getInt(position)];
+
+            data.get(position + Integer.BYTES, encoded);
+            strings[i] = new String(encoded, StandardCharsets.UTF_8);
+            position += Integer.BYTES + encoded.length;
+        }
+
+        blockOffsets = new int[types.length][][];
+
+        for (final DeviceType type : types)
+        {
+            final DeviceField[] fields = ColumnarSnapshotFormat.fieldsOf(type);
+            final int rows = sizes[type.ordinal()];
+
+            blockOffsets[type.ordinal()] = new int[fields.length][];
+
+            for (int column = 0; column < fields.length; column++)
+            {
+                final ColumnarSnapshotFormat.ColumnKind kind = ColumnarSnapshotFormat.kindOf(fields[column]);
+                final int[] offsets = new int[ColumnarSnapshotFormat.blockCount(rows)];
+
+                for (int block = 0; block < offsets.length; block++)
+                {
+                    final int width = data.get(position + ColumnarSnapshotFormat.WIDTH_OFFSET);
+
+                    if (width < 0 || width > Long.SIZE)
+                    {
+                        throw new IOException("Corrupt snapshot: " + path);
+                    }
+
+                    offsets[block] = position;
+                    position += blockBytes(data, position, kind, ColumnarSnapshotFormat.blockRows(rows, block));
+
+                    if (kind == ColumnarSnapshotFormat.ColumnKind.STRING &&
+                        (data.getInt(offsets[block] + ColumnarSnapshotFormat.INT_MIN_OFFSET) < 0 ||
+                         data.getInt(offsets[block] + ColumnarSnapshotFormat.INT_MAX_OFFSET) >= strings.length))
+                    {
+                        throw new IOException("Corrupt snapshot: " + path);
+                    }
+                }
+
+                blockOffsets[type.ordinal()][column] = offsets;
+            }
+        }
+
+        if (position > data.limit())
+        {
+            throw new IOException("Truncated snapshot: " + path);
+        }
+
+        return new ColumnarSnapshot(data, sizes, strings, blockOffsets);
+    }
+
+    // Returns the length of the block starting at an offset, header and payload, from its header.
+    private static int blockBytes(final ByteBuffer data,
+                                  final int offset,
+                                  final ColumnarSnapshotFormat.ColumnKind kind,
+                                  final int rows)
+    {
+        final int width = data.get(offset + ColumnarSnapshotFormat.WIDTH_OFFSET);
+
+        return switch (kind)
+        {
+            case INT, STRING -> ColumnarSnapshotFormat.INT_BLOCK_HEADER_BYTES +
+                                BitPacking.words(rows, width) * Long.BYTES;
+            case DOUBLE -> ColumnarSnapshotFormat.DOUBLE_BLOCK_HEADER_BYTES +
+                           BitPacking.words(rows, width) * Long.BYTES;
+            case BOOLEAN -> ColumnarSnapshotFormat.BOOLEAN_BLOCK_HEADER_BYTES +
+                            (data.get(offset + ColumnarSnapshotFormat.ENCODING_OFFSET) ==
+                             ColumnarSnapshotFormat.BITMAP ? ColumnarSnapshotFormat.bitmapWords(rows) * Long.BYTES : 0);
+        };
+    }
+
+    // Selects the block offsets of a type's column for a field.
+    private int[] offsetsOf(final DeviceType type,
+                            final DeviceField field)
+    {
+        if (type == null || field == null)
+        {
+            throw new IllegalArgumentException("Invalid type or field");
+        }
+
+        final DeviceField[] fields = ColumnarSnapshotFormat.fieldsOf(type);
+
+        for (int column = 0; column < fields.length; column++)
+        {
+            if (fields[column] == field)
+            {
+                return blockOffsets[type.ordinal()][column];
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid field for a " + type + ": " + field);
+    }
+
+    // Replaces string table codes with the codes of the same strings in a StringDictionary.
+    private void toDictionaryCodes(final int[] codes,
+                                   final boolean operatingSystemVersions)
+    {
+        final int[] translated = new int[strings.length];
+
+        Arrays.fill(translated, -1);
+
+        for (int row = 0; row < codes.length; row++)
+        {
+            final int code = codes[row];
+
+            if (translated[code] < 0)
+            {
+                if (operatingSystemVersions)
+                {
+                    IPad.validateOperatingSystemVersion(strings[code]);
+                    translated[code] = StringDictionary.OPERATING_SYSTEM_VERSIONS.encode(strings[code]);
+                }
+                else
+                {
+                    IPhone.validateCarrier(strings[code]);
+                    translated[code] = StringDictionary.CARRIERS.encode(strings[code]);
+                }
+            }
+
+            codes[row] = translated[code];
+        }
+    }
+
+    // Decodes every block of an int column into values.
+    private void decodeIntColumn(final int[] offsets,
+                                 final int rows,
+                                 final int[] values,
+                                 final long[] residues,
+                                 final long[] words)
+    {
+        for (int block = 0; block < offsets.length; block++)
+        {
+            decodeIntBlock(offsets[block], ColumnarSnapshotFormat.blockRows(rows, block), values,
+                           block * ColumnarSnapshotFormat.BLOCK_ROWS, residues, words);
+        }
+    }
+
+    // Decodes every block of a double column into values.
+    private void decodeDoubleColumn(final int[] offsets,
+                                    final int rows,
+                                    final double[] values,
+                                    final long[] residues,
+                                    final long[] words)
+    {
+        for (int block = 0; block < offsets.length; block++)
+        {
+            decodeDoubleBlock(offsets[block], ColumnarSnapshotFormat.blockRows(rows, block), values,
+                              block * ColumnarSnapshotFormat.BLOCK_ROWS, residues, words);
+        }
+    }
+
+    // Decodes every block of a boolean column into values.
+    private void decodeBooleanColumn(final int[] offsets,
+                                     final int rows,
+                                     final BitSet values,
+                                     final long[] words)
+    {
+        for (int block = 0; block < offsets.length; block++)
+        {
+            final int offset = offsets[block];
+            final int from = block * ColumnarSnapshotFormat.BLOCK_ROWS;
+            final int blockRows = ColumnarSnapshotFormat.blockRows(rows, block);
+
+            switch (data.get(offset + ColumnarSnapshotFormat.ENCODING_OFFSET))
+            {
+                case ColumnarSnapshotFormat.ALL_TRUE -> values.set(from, from + blockRows);
+                case ColumnarSnapshotFormat.BITMAP ->
+                {
+                    final int wordCount = ColumnarSnapshotFormat.bitmapWords(blockRows);
+
+                    readWords(offset + ColumnarSnapshotFormat.BOOLEAN_BLOCK_HEADER_BYTES, wordCount, words);
+
+                    // Blocks start on a multiple of 64 rows, so each word lands on a single word of values.
+                    for (int word = 0; word < wordCount; word++)
+                    {
+                        for (long bits = words[word]; bits != 0L; bits &= bits - 1)
+                        {
+                            values.set(from + word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+                        }
+                    }
+                }
+                default ->
+                {
+                }
+            }
+        }
+    }
+
+    // Decodes one int block into values, starting at index to.
+    private void decodeIntBlock(final int offset,
+                                final int rows,
+                                final int[] values,
+                                final int to,
+                                final long[] residues,
+                                final long[] words)
+    {
+        final int width = data.get(offset + ColumnarSnapshotFormat.WIDTH_OFFSET);
+        final int reference = data.getInt(offset + ColumnarSnapshotFormat.INT_REFERENCE_OFFSET);
+
+        unpack(offset + ColumnarSnapshotFormat.INT_BLOCK_HEADER_BYTES, rows, width, residues, words);
+
+        if (data.get(offset + ColumnarSnapshotFormat.ENCODING_OFFSET) == ColumnarSnapshotFormat.DELTA)
+        {
+            final int minDelta = data.getInt(offset + ColumnarSnapshotFormat.INT_MIN_DELTA_OFFSET);
+            int value = reference;
+
+            values[to] = value;
+
+            for (int i = 1; i < rows; i++)
+            {
+                value += minDelta + (int) residues[i];
+                values[to + i] = value;
+            }
+        }
+        else
+        {
+            for (int i = 0; i < rows; i++)
+            {
+                values[to + i] = reference + (int) residues[i];
+            }
+        }
+    }
+
+    // Decodes one double block into values, starting at index to.
+    private void decodeDoubleBlock(final int offset,
+                                   final int rows,
+                                   final double[] values,
+                                   final int to,
+                                   final long[] residues,
+                                   final long[] words)
+    {
+        final int width = data.get(offset + ColumnarSnapshotFormat.WIDTH_OFFSET);
+        final int shift = data.get(offset + ColumnarSnapshotFormat.DOUBLE_SHIFT_OFFSET);
+        final long reference = data.getLong(offset + ColumnarSnapshotFormat.DOUBLE_REFERENCE_OFFSET);
+
+        unpack(offset + ColumnarSnapshotFormat.DOUBLE_BLOCK_HEADER_BYTES, rows, width, residues, words);
+
+        for (int i = 0; i < rows; i++)
+        {
+            values[to + i] = Double.longBitsToDouble(reference ^ (residues[i] << shift));
+        }
+    }
+
+    // Reads and unpacks the residues of a block whose payload starts at an offset.
+    private void unpack(final int offset,
+                        final int rows,
+                        final int width,
+                        final long[] residues,
+                        final long[] words)
+    {
+        readWords(offset, BitPacking.words(rows, width), words);
+        BitPacking.unpack(words, rows, width, residues);
+    }
+
+    // Copies wordCount longs starting at an offset into words.
+    private void readWords(final int offset,
+                           final int wordCount,
+                           final long[] words)
+    {
+        data.slice(offset, wordCount * Long.BYTES).asLongBuffer().get(words, 0, wordCount);
+    }
+}
@@ -0,0 +1,146 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * Constants describing the compressed columnar snapshot format shared by ColumnarSnapshotWriter and
+ * ColumnarSnapshot.
+ *
+ * A snapshot holds a DeviceInventory section by section, and each section column by column:
+ * - Header: magic (int), version (int), block rows (int), then the row count (int) of each DeviceType section,
+ *   in DeviceType order
+ * - String table: string count (int), then for each string its UTF-8 length (int) followed by its UTF-8 bytes.
+ *   Carriers and operating system versions are written once each and referred to by code.
+ * - Columns: for each DeviceType section, in DeviceType order, the columns of the fields given by fieldsOf
+ *
+ * Each column is split into blocks of BLOCK_ROWS rows (the last may be shorter), and each block is a header
+ * followed by its payload. The header holds everything needed to find the next block and to decide whether the
+ * block can match a query, so blocks can be skipped without decoding them:
+ * - Int block (ints and string codes): encoding (byte), bit width (byte), padding (2 bytes), minimum (int),
+ *   maximum (int), reference (int), minimum delta (int), then the packed residues. With FRAME_OF_REFERENCE,
+ *   each value is the reference plus its residue. With DELTA, the first value is the reference, and each later
+ *   value is the one before it plus the minimum delta plus its residue.
+ * - Double block: encoding (byte), bit width (byte), shift (byte), padding (byte), reference bits (long),
+ *   minimum (double), maximum (double), then the packed residues. With XOR, each value's bits are the reference
+ *   bits XORed with its residue shifted left by shift.
+ * - Boolean block: encoding (byte), padding (3 bytes), number of true values (int), then, with BITMAP only, one
+ *   bit per row in longs, lowest bit first. ALL_FALSE and ALL_TRUE blocks have no payload.
+ *
+ * Residues are bit-packed as described in BitPacking, and a block with a bit width of 0 has no payload. All
+ * values are big-endian.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+final class ColumnarSnapshotFormat
+{
+    static final int MAGIC = 0x49444353; // "IDCS"
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES = 28;
+    static final int BLOCK_ROWS = 1 << 10;
+
+    static final int ENCODING_OFFSET = 0;
+    static final int WIDTH_OFFSET = 1;
+
+    static final int INT_BLOCK_HEADER_BYTES = 20;
+    static final int INT_MIN_OFFSET = 4;
+    static final int INT_MAX_OFFSET = 8;
+    static final int INT_REFERENCE_OFFSET = 12;
+    static final int INT_MIN_DELTA_OFFSET = 16;
+
+    static final int DOUBLE_BLOCK_HEADER_BYTES = 28;
+    static final int DOUBLE_SHIFT_OFFSET = 2;
+    static final int DOUBLE_REFERENCE_OFFSET = 4;
+    static final int DOUBLE_MIN_OFFSET = 12;
+    static final int DOUBLE_MAX_OFFSET = 20;
+
+    static final int BOOLEAN_BLOCK_HEADER_BYTES = 8;
+    static final int TRUE_COUNT_OFFSET = 4;
+
+    static final byte FRAME_OF_REFERENCE = 0;
+    static final byte DELTA = 1;
+    static final byte XOR = 2;
+    static final byte ALL_FALSE = 3;
+    static final byte ALL_TRUE = 4;
+    static final byte BITMAP = 5;
+
+    private static final DeviceField[] IPOD_FIELDS = {DeviceField.SONGS_STORED,
+                                                      DeviceField.MAX_VOLUME_DB};
+    private static final DeviceField[] IPAD_FIELDS = {DeviceField.TABLET_CASE,
+                                                      DeviceField.OPERATING_SYSTEM_VERSION};
+    private static final DeviceField[] IPHONE_FIELDS = {DeviceField.REMAINING_PLAN_MINUTES,
+                                                        DeviceField.CARRIER};
+    private static final DeviceField[] IPHONE17_FIELDS = {DeviceField.REMAINING_PLAN_MINUTES,
+                                                          DeviceField.CARRIER,
+                                                          DeviceField.HIGH_RESOLUTION_CAMERA,
+                                                          DeviceField.MEMORY_GB};
+
+    /*
+     * How a column's values are stored.
+     */
+    enum ColumnKind
+    {
+        INT,
+        DOUBLE,
+        BOOLEAN,
+        STRING
+    }
+
+    private ColumnarSnapshotFormat()
+    {
+    }
+
+    /*
+     * Returns the fields of a type, in the order their columns are stored. The array must not be modified.
+     */
+    static DeviceField[] fieldsOf(final DeviceType type)
+    {
+        return switch (type)
+        {
+            case IPOD -> IPOD_FIELDS;
+            case IPAD -> IPAD_FIELDS;
+            case IPHONE -> IPHONE_FIELDS;
+            case IPHONE17 -> IPHONE17_FIELDS;
+        };
+    }
+
+    /*
+     * Returns how a field's column is stored. STRING columns are stored as int blocks of string table codes.
+     */
+    static ColumnKind kindOf(final DeviceField field)
+    {
+        return switch (field)
+        {
+            case SONGS_STORED, MEMORY_GB -> ColumnKind.INT;
+            case MAX_VOLUME_DB, REMAINING_PLAN_MINUTES -> ColumnKind.DOUBLE;
+            case TABLET_CASE, HIGH_RESOLUTION_CAMERA -> ColumnKind.BOOLEAN;
+            case OPERATING_SYSTEM_VERSION, CARRIER -> ColumnKind.STRING;
+        };
+    }
+
+    /*
+     * Returns the number of blocks a column of the given number of rows is split into.
+     */
+    static int blockCount(final int rows)
+    {
+        return (rows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+    }
+
+    /*
+     * Returns the number of rows in a block of a column.
+     */
+    static int blockRows(final int rows,
+                         final int block)
+    {
+        return Math.min(BLOCK_ROWS, rows - block * BLOCK_ROWS);
+    }
+
+    /*
+     * Returns the number of longs in the payload of a boolean block with the BITMAP encoding.
+     */
+    static int bitmapWords(final int rows)
+    {
+        return (rows + Long.SIZE - 1) / Long.SIZE;
+    }
+}
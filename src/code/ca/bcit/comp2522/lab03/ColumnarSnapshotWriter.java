@@ -0,0 +1,386 @@
+package ca.bcit.comp2522.lab03;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes DeviceInventory snapshots in the compressed columnar format described in ColumnarSnapshotFormat, for
+ * reading back with ColumnarSnapshot.
+ *
+ * Every block is encoded in the smallest form its values allow. Int columns are frame-of-reference encoded, or
+ * delta encoded when the differences between neighbouring values span a narrower range than the values, and
+ * the residues are bit-packed, so a block of songsStored between 1000 and 1500 takes 9 bits a row. Doubles are
+ * XORed with the first value of their block, which leaves the sign, the high exponent bits and the unused low
+ * mantissa bits of similar values zero, and only the bits that differ are packed. Booleans are bitmaps, or
+ * nothing at all for a block whose values are all the same. Carriers and operating system versions are written
+ * once each to a string table, and their codes are packed like ints.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class ColumnarSnapshotWriter
+{
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final long[] residues;
+    private final long[] words;
+
+    private ColumnarSnapshotWriter(final FileChannel channel)
+    {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        this.residues = new long[ColumnarSnapshotFormat.BLOCK_ROWS];
+        this.words = new long[BitPacking.words(ColumnarSnapshotFormat.BLOCK_ROWS, Long.SIZE)];
+    }
+
+    /**
+     * Writes a snapshot of an inventory to a file, replacing any existing contents.
+     *
+     * @param path      the file to write
+     * @param inventory the inventory to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(final Path path,
+                             final DeviceInventory inventory) throws IOException
+    {
+        if (path == null || inventory == null)
+        {
+            throw new IllegalArgumentException("Invalid path or inventory");
+        }
+
+        final DeviceType[] types;
+        final DeviceColumns[] sections;
+        final Map<String, Integer> codes;
+        final List<String> strings;
+        final int[][] stringCodes;
+
+        types = DeviceType.values();
+        sections = new DeviceColumns[types.length];
+        codes = new HashMap<>();
+        strings = new ArrayList<>();
+        stringCodes = new int[types.length][];
+
+        for (final DeviceType type : types)
+        {
+            sections[type.ordinal()] = inventory.columns(type);
+
+            if (type != DeviceType.IPOD)
+            {
+                stringCodes[type.ordinal()] = tableCodes(sections[type.ordinal()], codes, strings);
+            }
+        }
+
+        try (final FileChannel channel = FileChannel.open(path,
+                                                          StandardOpenOption.CREATE,
+                                                          StandardOpenOption.WRITE,
+                                                          StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            final ColumnarSnapshotWriter writer = new ColumnarSnapshotWriter(channel);
+
+            writer.putHeader(sections);
+            writer.putStrings(strings);
+
+            for (final DeviceType type : types)
+            {
+                final DeviceColumns section = sections[type.ordinal()];
+
+                for (final DeviceField field : ColumnarSnapshotFormat.fieldsOf(type))
+                {
+                    switch (ColumnarSnapshotFormat.kindOf(field))
+                    {
+                        case INT -> writer.putIntColumn(section.ints(), section.count());
+                        case DOUBLE -> writer.putDoubleColumn(section.doubles(), section.count());
+                        case BOOLEAN -> writer.putBooleanColumn(section.flags(), section.count());
+                        case STRING -> writer.putIntColumn(stringCodes[type.ordinal()], section.count());
+                    }
+                }
+            }
+
+            writer.drain();
+        }
+    }
+
+    // Translates a section's StringDictionary codes into string table codes, adding new strings to the table.
+    private static int[] tableCodes(final DeviceColumns section,
+                                    final Map<String, Integer> codes,
+                                    final List<String> strings)
+    {
+        final StringDictionary dictionary;
+        final int[] translated;
+        final int[] tableCodes;
+
+        dictionary = section.type() == DeviceType.IPAD ?
+                     StringDictionary.OPERATING_SYSTEM_VERSIONS :
+                     StringDictionary.CARRIERS;
+        translated = new int[dictionary.size()];
+        tableCodes = new int[section.count()];
+
+        Arrays.fill(translated, -1);
+
+        for (int row = 0; row < section.count(); row++)
+        {
+            final int code = section.codes()[row];
+
+            if (translated[code] < 0)
+            {
+                final String string = dictionary.decode(code);
+
+                translated[code] = codes.computeIfAbsent(string, s -> {
+                    strings.add(s);
+                    return strings.size() - 1;
+                });
+            }
+
+            tableCodes[row] = translated[code];
+        }
+
+        return tableCodes;
+    }
+
+    // Writes the header.
+    private void putHeader(final DeviceColumns[] sections)
+    {
+        buffer.putInt(ColumnarSnapshotFormat.MAGIC);
+        buffer.putInt(ColumnarSnapshotFormat.VERSION);
+        buffer.putInt(ColumnarSnapshotFormat.BLOCK_ROWS);
+
+        for (final DeviceColumns section : sections)
+        {
+            buffer.putInt(section.count());
+        }
+    }
+
+    // Writes the string table.
+    private void putStrings(final List<String> strings) throws IOException
+    {
+        buffer.putInt(strings.size());
+
+        for (final String string : strings)
+        {
+            final byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+            int written = 0;
+
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(encoded.length);
+
+            while (written < encoded.length)
+            {
+                ensureRemaining(1);
+
+                final int chunk = Math.min(buffer.remaining(), encoded.length - written);
+
+                buffer.put(encoded, written, chunk);
+                written += chunk;
+            }
+        }
+    }
+
+    // Writes an int column, block by block.
+    private void putIntColumn(final int[] values,
+                              final int rows) throws IOException
+    {
+        for (int block = 0; block < ColumnarSnapshotFormat.blockCount(rows); block++)
+        {
+            final int from = block * ColumnarSnapshotFormat.BLOCK_ROWS;
+            final int count = ColumnarSnapshotFormat.blockRows(rows, block);
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            long minDelta = Long.MAX_VALUE;
+            long maxDelta = Long.MIN_VALUE;
+
+            for (int i = from; i < from + count; i++)
+            {
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+
+            for (int i = from + 1; i < from + count; i++)
+            {
+                final long delta = (long) values[i] - values[i - 1];
+
+                minDelta = Math.min(minDelta, delta);
+                maxDelta = Math.max(maxDelta, delta);
+            }
+
+            final int frameWidth = BitPacking.widthOf(max - min);
+            final boolean delta = count > 1 &&
+                                  minDelta >= Integer.MIN_VALUE &&
+                                  BitPacking.widthOf(maxDelta - minDelta) < frameWidth;
+            final int width;
+
+            if (delta)
+            {
+                residues[0] = 0L;
+
+                for (int i = 1; i < count; i++)
+                {
+                    residues[i] = (long) values[from + i] - values[from + i - 1] - minDelta;
+                }
+
+                width = BitPacking.widthOf(maxDelta - minDelta);
+            }
+            else
+            {
+                for (int i = 0; i < count; i++)
+                {
+                    residues[i] = values[from + i] - min;
+                }
+
+                width = frameWidth;
+            }
+
+            final int wordCount = pack(count, width);
+
+            ensureRemaining(ColumnarSnapshotFormat.INT_BLOCK_HEADER_BYTES + wordCount * Long.BYTES);
+            buffer.put(delta ? ColumnarSnapshotFormat.DELTA : ColumnarSnapshotFormat.FRAME_OF_REFERENCE);
+            buffer.put((byte) width);
+            buffer.putShort((short) 0);
+            buffer.putInt((int) min);
+            buffer.putInt((int) max);
+            buffer.putInt(delta ? values[from] : (int) min);
+            buffer.putInt(delta ? (int) minDelta : 0);
+            putWords(wordCount);
+        }
+    }
+
+    // Writes a double column, block by block.
+    private void putDoubleColumn(final double[] values,
+                                 final int rows) throws IOException
+    {
+        for (int block = 0; block < ColumnarSnapshotFormat.blockCount(rows); block++)
+        {
+            final int from = block * ColumnarSnapshotFormat.BLOCK_ROWS;
+            final int count = ColumnarSnapshotFormat.blockRows(rows, block);
+            final long reference = Double.doubleToRawLongBits(values[from]);
+            double min = values[from];
+            double max = values[from];
+            long differences = 0L;
+
+            for (int i = 0; i < count; i++)
+            {
+                residues[i] = Double.doubleToRawLongBits(values[from + i]) ^ reference;
+                differences |= residues[i];
+                min = Math.min(min, values[from + i]);
+                max = Math.max(max, values[from + i]);
+            }
+
+            // The low bits which are zero in every residue are shifted out rather than packed.
+            final int shift = differences == 0L ? 0 : Long.numberOfTrailingZeros(differences);
+
+            for (int i = 0; i < count; i++)
+            {
+                residues[i] >>>= shift;
+            }
+
+            final int width = BitPacking.widthOf(differences >>> shift);
+            final int wordCount = pack(count, width);
+
+            ensureRemaining(ColumnarSnapshotFormat.DOUBLE_BLOCK_HEADER_BYTES + wordCount * Long.BYTES);
+            buffer.put(ColumnarSnapshotFormat.XOR);
+            buffer.put((byte) width);
+            buffer.put((byte) shift);
+            buffer.put((byte) 0);
+            buffer.putLong(reference);
+            buffer.putDouble(min);
+            buffer.putDouble(max);
+            putWords(wordCount);
+        }
+    }
+
+    // Writes a boolean column, block by block.
+    private void putBooleanColumn(final BitSet values,
+                                  final int rows) throws IOException
+    {
+        for (int block = 0; block < ColumnarSnapshotFormat.blockCount(rows); block++)
+        {
+            final int from = block * ColumnarSnapshotFormat.BLOCK_ROWS;
+            final int count = ColumnarSnapshotFormat.blockRows(rows, block);
+            final BitSet bits = values.get(from, from + count);
+            final int trueCount = bits.cardinality();
+            final byte encoding;
+            final int wordCount;
+
+            if (trueCount == 0)
+            {
+                encoding = ColumnarSnapshotFormat.ALL_FALSE;
+                wordCount = 0;
+            }
+            else if (trueCount == count)
+            {
+                encoding = ColumnarSnapshotFormat.ALL_TRUE;
+                wordCount = 0;
+            }
+            else
+            {
+                final long[] bitWords = bits.toLongArray();
+
+                encoding = ColumnarSnapshotFormat.BITMAP;
+                wordCount = ColumnarSnapshotFormat.bitmapWords(count);
+                Arrays.fill(words, 0, wordCount, 0L);
+                System.arraycopy(bitWords, 0, words, 0, bitWords.length);
+            }
+
+            ensureRemaining(ColumnarSnapshotFormat.BOOLEAN_BLOCK_HEADER_BYTES + wordCount * Long.BYTES);
+            buffer.put(encoding);
+            buffer.put((byte) 0);
+            buffer.putShort((short) 0);
+            buffer.putInt(trueCount);
+            putWords(wordCount);
+        }
+    }
+
+    // Packs the first count residues into words, returning the number of words used.
+    private int pack(final int count,
+                     final int width)
+    {
+        final int wordCount = BitPacking.words(count, width);
+
+        Arrays.fill(words, 0, wordCount, 0L);
+        BitPacking.pack(residues, count, width, words);
+
+        return wordCount;
+    }
+
+    // Copies the first wordCount words into the buffer, which must have room for them.
+    private void putWords(final int wordCount)
+    {
+        buffer.asLongBuffer().put(words, 0, wordCount);
+        buffer.position(buffer.position() + wordCount * Long.BYTES);
+    }
+
+    // Writes out the buffer first if it has fewer than the given number of bytes remaining.
+    private void ensureRemaining(final int bytes) throws IOException
+    {
+        if (buffer.remaining() < bytes)
+        {
+            drain();
+        }
+    }
+
+    // Writes the buffer's contents to the channel and clears it.
+    private void drain() throws IOException
+    {
+        buffer.flip();
+
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+}
@@ -0,0 +1,127 @@
+package ca.bcit.comp2522.lab03;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/*
+ * Unbounded multi-producer, single-consumer queue, used to hand commands to a thread that owns some state. Any
+ * number of threads may offer; only the consumer thread may drain and await.
+ *
+ * Offering is a single atomic exchange on the tail, so producers never wait for each other or for the consumer.
+ * The consumer drains in batches, and parks when the queue is empty until a producer offers again.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+final class CommandQueue<T>
+{
+    private static final VarHandle TAIL;
+
+    static
+    {
+        try
+        {
+            TAIL = MethodHandles.lookup().findVarHandle(CommandQueue.class, "tail", Node.class);
+        }
+        catch (final ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Thread consumer;
+    private Node<T> head;
+    @SuppressWarnings("unused")
+    private volatile Node<T> tail;
+    private volatile boolean waiting;
+
+    /*
+     * Creates an empty queue drained by the given thread.
+     */
+    CommandQueue(final Thread consumer)
+    {
+        this.consumer = consumer;
+        this.head = new Node<>(null);
+        this.tail = head;
+    }
+
+    /*
+     * Appends an element, waking the consumer if it is waiting. May be called from any thread.
+     */
+    void offer(final T element)
+    {
+        final Node<T> node = new Node<>(element);
+        @SuppressWarnings("unchecked")
+        final Node<T> previous = (Node<T>) TAIL.getAndSet(this, node);
+
+        // Until this store, the consumer sees the queue end at previous and simply drains the new node later.
+        previous.next = node;
+
+        if (waiting)
+        {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /*
+     * Removes up to max elements in the order they were offered, passing each to the action. Returns the number
+     * removed. Only the consumer thread may call this.
+     */
+    int drain(final Consumer<? super T> action,
+              final int max)
+    {
+        int drained = 0;
+
+        while (drained < max)
+        {
+            final Node<T> next = head.next;
+
+            if (next == null)
+            {
+                break;
+            }
+
+            final T element = next.element;
+
+            next.element = null;
+            head = next;
+            drained++;
+            action.accept(element);
+        }
+
+        return drained;
+    }
+
+    /*
+     * Parks the consumer until an element is available or it is interrupted. Only the consumer thread may call
+     * this.
+     */
+    void await()
+    {
+        waiting = true;
+
+        // An offer either sees waiting and unparks, or its node is seen here, so no wakeup is lost.
+        while (head.next == null && !Thread.currentThread().isInterrupted())
+        {
+            LockSupport.park(this);
+        }
+
+        waiting = false;
+    }
+
+    // A linked node; the consumer's head is a node whose element has already been taken.
+    private static final class Node<T>
+    {
+        private T element;
+        private volatile Node<T> next;
+
+        private Node(final T element)
+        {
+            this.element = element;
+        }
+    }
+}
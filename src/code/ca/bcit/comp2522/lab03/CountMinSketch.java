@@ -0,0 +1,216 @@
+package ca.bcit.comp2522.lab03;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A Count-Min sketch which estimates how many times each item has been added, in a fixed amount of memory however
+ * many distinct items are added. Items are identified by a 64-bit hash, such as one from DeviceHashing. Each of
+ * depth rows of width counters has one counter chosen for an item by double hashing, and an item's estimate is the
+ * smallest of its counters. Estimates are never below the true count, and exceed it by more than e / width of the
+ * total count with probability at most e to the power of -depth: the default 1024 by 4 sketch takes 32 KB and
+ * overestimates by more than 0.27% of the total less than 2% of the time.
+ *
+ * Counters are written by one thread at a time, with plain increments published as opaque writes, so adding
+ * never locks or contends. Any thread may estimate while another adds, and sees every counter at least as large as
+ * it was when that thread last looked. merge adds in the counters of a sketch with the same dimensions, such as
+ * one per thread.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class CountMinSketch
+{
+    private static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle TOTAL_COUNT;
+    private static final int DEFAULT_WIDTH = 1024;
+    private static final int DEFAULT_DEPTH = 4;
+    private static final int MAX_DEPTH = 32;
+
+    static
+    {
+        try
+        {
+            TOTAL_COUNT = MethodHandles.lookup().findVarHandle(CountMinSketch.class, "totalCount", long.class);
+        }
+        catch (final ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int width;
+    private final int depth;
+    private final long[] counters;
+    private long totalCount;
+
+    /**
+     * Constructs an empty CountMinSketch with the default 4 rows of 1024 counters.
+     */
+    public CountMinSketch()
+    {
+        this(DEFAULT_WIDTH, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Constructs an empty CountMinSketch with depth rows of width counters.
+     *
+     * @param width the number of counters in each row
+     * @param depth the number of rows, from 1 to 32
+     */
+    public CountMinSketch(final int width,
+                          final int depth)
+    {
+        if (width <= 0)
+        {
+            throw new IllegalArgumentException("Invalid width: " + width);
+        }
+
+        if (depth < 1 || depth > MAX_DEPTH)
+        {
+            throw new IllegalArgumentException("Invalid depth: " + depth);
+        }
+
+        if ((long) width * depth > Integer.MAX_VALUE - 8)
+        {
+            throw new IllegalArgumentException("Invalid width: " + width + " by depth " + depth +
+                                               " needs more counters than one sketch can hold");
+        }
+
+        this.width = width;
+        this.depth = depth;
+        this.counters = new long[width * depth];
+    }
+
+    /**
+     * Adds one occurrence of an item. Only one thread may add to a sketch at a time.
+     *
+     * @param hash the 64-bit hash of the item
+     */
+    public void add(final long hash)
+    {
+        add(hash, 1L);
+    }
+
+    /**
+     * Adds occurrences of an item. Only one thread may add to a sketch at a time.
+     *
+     * @param hash  the 64-bit hash of the item
+     * @param count the number of occurrences, greater than 0
+     */
+    public void add(final long hash,
+                    final long count)
+    {
+        if (count <= 0L)
+        {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+
+        final long step = DeviceHashing.mix(hash) | 1L;
+
+        for (int row = 0; row < depth; row++)
+        {
+            final int counter = counterOf(hash, step, row);
+
+            COUNTERS.setOpaque(counters, counter, (long) COUNTERS.getOpaque(counters, counter) + count);
+        }
+
+        TOTAL_COUNT.setOpaque(this, (long) TOTAL_COUNT.getOpaque(this) + count);
+    }
+
+    /**
+     * Estimates how many times an item has been added.
+     *
+     * @param hash the 64-bit hash of the item
+     * @return an estimate which is never below the true count
+     */
+    public long estimate(final long hash)
+    {
+        final long step = DeviceHashing.mix(hash) | 1L;
+        long estimate = Long.MAX_VALUE;
+
+        for (int row = 0; row < depth; row++)
+        {
+            estimate = Math.min(estimate, (long) COUNTERS.getOpaque(counters, counterOf(hash, step, row)));
+        }
+
+        return estimate;
+    }
+
+    /**
+     * Adds every occurrence added to another sketch to this one. The other sketch must have the same width and
+     * depth, and this one must not be added to by another thread meanwhile.
+     *
+     * @param other the sketch to merge into this one
+     */
+    public void merge(final CountMinSketch other)
+    {
+        if (other == null || other.width != width || other.depth != depth)
+        {
+            throw new IllegalArgumentException("Invalid sketch: must have the same width and depth");
+        }
+
+        for (int counter = 0; counter < counters.length; counter++)
+        {
+            final long count = (long) COUNTERS.getOpaque(other.counters, counter);
+
+            if (count != 0L)
+            {
+                COUNTERS.setOpaque(counters, counter, (long) COUNTERS.getOpaque(counters, counter) + count);
+            }
+        }
+
+        TOTAL_COUNT.setOpaque(this, (long) TOTAL_COUNT.getOpaque(this) + (long) TOTAL_COUNT.getOpaque(other));
+    }
+
+    /**
+     * Accessor for the total count.
+     *
+     * @return the number of occurrences of every item added
+     */
+    public long totalCount()
+    {
+        return (long) TOTAL_COUNT.getOpaque(this);
+    }
+
+    /**
+     * Accessor for the width.
+     *
+     * @return the number of counters in each row
+     */
+    public int width()
+    {
+        return width;
+    }
+
+    /**
+     * Accessor for the depth.
+     *
+     * @return the number of rows
+     */
+    public int depth()
+    {
+        return depth;
+    }
+
+    /**
+     * Returns the most an estimate is likely to exceed the true count by, given the occurrences added so far.
+     *
+     * @return e / width of the total count, which estimates exceed with probability at most e to the power of
+     *         -depth
+     */
+    public long errorBound()
+    {
+        return (long) Math.ceil(Math.E / width * totalCount());
+    }
+
+    // Returns the index of an item's counter in a row.
+    private int counterOf(final long hash,
+                          final long step,
+                          final int row)
+    {
+        return row * width + (int) Math.unsignedMultiplyHigh(hash + row * step, width);
+    }
+}
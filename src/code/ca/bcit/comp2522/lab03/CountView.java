@@ -0,0 +1,81 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.function.Predicate;
+
+/**
+ * MaterializedView which counts the devices that satisfy a condition, such as IPads with a case.
+ *
+ * @param <D> the type of device the view counts
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class CountView<D extends IDevice> extends MaterializedView<D, Boolean>
+{
+    private final Predicate<? super D> condition;
+    private int count;
+
+    private CountView(final Class<D> type,
+                      final Predicate<? super D> condition,
+                      final DeviceField... dependencies)
+    {
+        super(type, dependencies);
+
+        this.condition = condition;
+    }
+
+    /**
+     * Creates a new, empty CountView which is registered to follow device changes.
+     *
+     * @param type         the type of device to count, including its subclasses
+     * @param condition    the condition a device must satisfy to be counted
+     * @param dependencies the fields the condition reads
+     * @param <D>          the type of device to count
+     * @return the new view
+     */
+    public static <D extends IDevice> CountView<D> create(final Class<D> type,
+                                                          final Predicate<? super D> condition,
+                                                          final DeviceField... dependencies)
+    {
+        if (condition == null)
+        {
+            throw new IllegalArgumentException("Invalid condition");
+        }
+
+        return registered(new CountView<>(type, condition, dependencies));
+    }
+
+    /**
+     * Returns the number of devices in the view which satisfy the condition.
+     *
+     * @return the count
+     */
+    public synchronized int count()
+    {
+        return count;
+    }
+
+    @Override
+    protected Boolean include(final D device)
+    {
+        final boolean counted = condition.test(device);
+
+        if (counted)
+        {
+            count++;
+        }
+
+        return counted;
+    }
+
+    @Override
+    protected void exclude(final Boolean counted)
+    {
+        if (counted)
+        {
+            count--;
+        }
+    }
+}
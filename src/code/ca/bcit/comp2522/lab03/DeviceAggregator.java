@@ -0,0 +1,411 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs group-by aggregations over device collections in parallel. The input is split into ranges on a fork-join
+ * pool, each range is aggregated into its own partial result, and partial results are merged pairwise as the
+ * tasks complete, so no locks or shared mutable state are involved.
+ *
+ * Aggregations over a List of IDevices take the group key and the aggregated value from getters. Numeric values
+ * are read through ToDoubleFunction or ToIntFunction, so they are never boxed. Aggregations over a
+ * DeviceInventory read its primitive columns directly and group Strings by their dictionary codes.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceAggregator
+{
+    private static final int DEFAULT_LEAF_SIZE = 4_096;
+
+    private final ForkJoinPool pool;
+    private final int leafSize;
+
+    /**
+     * Constructs a DeviceAggregator which runs on the common fork-join pool.
+     */
+    public DeviceAggregator()
+    {
+        this(ForkJoinPool.commonPool(),
+             DEFAULT_LEAF_SIZE);
+    }
+
+    /**
+     * Constructs a DeviceAggregator which runs on the given pool, aggregating ranges of up to leafSize devices in
+     * a single task.
+     *
+     * @param pool     the ForkJoinPool to run on
+     * @param leafSize the largest range aggregated without splitting
+     */
+    public DeviceAggregator(final ForkJoinPool pool,
+                            final int leafSize)
+    {
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("Invalid pool");
+        }
+
+        if (leafSize <= 0)
+        {
+            throw new IllegalArgumentException("Invalid leaf size: " + leafSize);
+        }
+
+        this.pool = pool;
+        this.leafSize = leafSize;
+    }
+
+    /**
+     * Computes the count, total, minimum, maximum and average of a numeric field for each group of devices of a
+     * given type. For example, summarize(devices, IPhone.class, IPhone::getCarrier,
+     * IPhone::getRemainingPlanMinutes) gives the remaining plan minutes per carrier.
+     *
+     * @param devices the devices to aggregate; devices which are not of the given type are skipped
+     * @param type    the type of device to aggregate, including its subclasses
+     * @param key     computes the group of a device
+     * @param value   reads the field to aggregate
+     * @param <D>     the type of device to aggregate
+     * @param <K>     the type of the group keys
+     * @return the statistics of each group
+     */
+    public <D extends IDevice, K> Map<K, DoubleSummaryStatistics> summarize(
+        final List<? extends IDevice> devices,
+        final Class<D> type,
+        final Function<? super D, ? extends K> key,
+        final ToDoubleFunction<? super D> value)
+    {
+        validateArguments(devices, type, key, value);
+
+        return reduce(devices.size(),
+                      (from, to) -> {
+                          final Map<K, DoubleSummaryStatistics> groups = new HashMap<>();
+
+                          for (int i = from; i < to; i++)
+                          {
+                              final IDevice device = devices.get(i);
+
+                              if (type.isInstance(device))
+                              {
+                                  final D typed = type.cast(device);
+
+                                  groups.computeIfAbsent(key.apply(typed), k -> new DoubleSummaryStatistics())
+                                        .accept(value.applyAsDouble(typed));
+                              }
+                          }
+
+                          return groups;
+                      },
+                      DeviceAggregator::mergeStatistics);
+    }
+
+    /**
+     * Counts the values of an int field for each group of devices of a given type. For example,
+     * histogram(devices, IPhone17.class, IPhone17::hasHighResolutionCamera, IPhone17::getMemoryGB) gives the
+     * memoryGB histogram of IPhone17s by camera flag.
+     *
+     * @param devices the devices to aggregate; devices which are not of the given type are skipped
+     * @param type    the type of device to aggregate, including its subclasses
+     * @param key     computes the group of a device
+     * @param value   reads the field to count
+     * @param <D>     the type of device to aggregate
+     * @param <K>     the type of the group keys
+     * @return the histogram of each group
+     */
+    public <D extends IDevice, K> Map<K, IntHistogram> histogram(final List<? extends IDevice> devices,
+                                                                 final Class<D> type,
+                                                                 final Function<? super D, ? extends K> key,
+                                                                 final ToIntFunction<? super D> value)
+    {
+        validateArguments(devices, type, key, value);
+
+        return reduce(devices.size(),
+                      (from, to) -> {
+                          final Map<K, IntHistogram> groups = new HashMap<>();
+
+                          for (int i = from; i < to; i++)
+                          {
+                              final IDevice device = devices.get(i);
+
+                              if (type.isInstance(device))
+                              {
+                                  final D typed = type.cast(device);
+
+                                  groups.computeIfAbsent(key.apply(typed), k -> new IntHistogram())
+                                        .add(value.applyAsInt(typed));
+                              }
+                          }
+
+                          return groups;
+                      },
+                      DeviceAggregator::mergeHistograms);
+    }
+
+    /**
+     * Computes the statistics of remaining plan minutes per carrier, over both the IPhones and the IPhone17s of
+     * an inventory.
+     *
+     * @param inventory the inventory to aggregate
+     * @return the statistics of each carrier
+     */
+    public Map<String, DoubleSummaryStatistics> remainingPlanMinutesByCarrier(final DeviceInventory inventory)
+    {
+        validateInventory(inventory);
+
+        final Map<String, DoubleSummaryStatistics> byCarrier = new HashMap<>();
+
+        for (final DeviceType type : new DeviceType[] {DeviceType.IPHONE, DeviceType.IPHONE17})
+        {
+            final DoubleSummaryStatistics[] byCode = reduce(
+                inventory.size(type),
+                (from, to) -> {
+                    DoubleSummaryStatistics[] partial =
+                        new DoubleSummaryStatistics[StringDictionary.CARRIERS.size()];
+
+                    for (int row = from; row < to; row++)
+                    {
+                        final int code = inventory.getCarrierCode(type, row);
+                        final double minutes = inventory.getRemainingPlanMinutes(type, row);
+
+                        // A carrier may have been encoded since the partial was sized
+                        if (code >= partial.length)
+                        {
+                            partial = Arrays.copyOf(partial, code + 1);
+                        }
+
+                        if (partial[code] == null)
+                        {
+                            partial[code] = new DoubleSummaryStatistics();
+                        }
+
+                        partial[code].accept(minutes);
+                    }
+
+                    return partial;
+                },
+                DeviceAggregator::mergeStatisticsByCode);
+
+            for (int code = 0; code < byCode.length; code++)
+            {
+                if (byCode[code] != null)
+                {
+                    byCarrier.computeIfAbsent(StringDictionary.CARRIERS.decode(code),
+                                              k -> new DoubleSummaryStatistics())
+                             .combine(byCode[code]);
+                }
+            }
+        }
+
+        return byCarrier;
+    }
+
+    /**
+     * Computes the histogram of memoryGB for the IPhone17s of an inventory, split by whether they have a
+     * high-resolution camera.
+     *
+     * @param inventory the inventory to aggregate
+     * @return a map from camera flag to memoryGB histogram
+     */
+    public Map<Boolean, IntHistogram> memoryGBByCamera(final DeviceInventory inventory)
+    {
+        validateInventory(inventory);
+
+        final IntHistogram[] byCamera = reduce(
+            inventory.size(DeviceType.IPHONE17),
+            (from, to) -> {
+                final IntHistogram[] partial = {new IntHistogram(), new IntHistogram()};
+
+                for (int row = from; row < to; row++)
+                {
+                    partial[inventory.hasHighResolutionCamera(row) ? 1 : 0].add(inventory.getMemoryGB(row));
+                }
+
+                return partial;
+            },
+            (a, b) -> {
+                a[0].merge(b[0]);
+                a[1].merge(b[1]);
+                return a;
+            });
+
+        final Map<Boolean, IntHistogram> result = new HashMap<>();
+
+        result.put(false, byCamera[0]);
+        result.put(true, byCamera[1]);
+
+        return result;
+    }
+
+    /**
+     * Computes the histogram of songsStored for the IPods of an inventory, from which percentiles can be read.
+     *
+     * @param inventory the inventory to aggregate
+     * @return the songsStored histogram
+     */
+    public IntHistogram songsStored(final DeviceInventory inventory)
+    {
+        validateInventory(inventory);
+
+        return reduce(inventory.size(DeviceType.IPOD),
+                      (from, to) -> {
+                          final IntHistogram partial = new IntHistogram();
+
+                          for (int row = from; row < to; row++)
+                          {
+                              partial.add(inventory.getSongsStored(row));
+                          }
+
+                          return partial;
+                      },
+                      (a, b) -> {
+                          a.merge(b);
+                          return a;
+                      });
+    }
+
+    /*
+     * Splits the range [0, size) into leaves, aggregates each leaf in parallel, and merges the partial results.
+     * Merging may reuse either argument, since every partial result is owned by exactly one task.
+     */
+    private <R> R reduce(final int size,
+                         final RangeAggregation<R> leaf,
+                         final BinaryOperator<R> merge)
+    {
+        return pool.invoke(new RangeTask<>(0, size, leafSize, leaf, merge));
+    }
+
+    // Merges per-key statistics maps, reusing the first.
+    private static <K> Map<K, DoubleSummaryStatistics> mergeStatistics(final Map<K, DoubleSummaryStatistics> a,
+                                                                       final Map<K, DoubleSummaryStatistics> b)
+    {
+        b.forEach((k, statistics) -> a.merge(k, statistics, (x, y) -> {
+            x.combine(y);
+            return x;
+        }));
+
+        return a;
+    }
+
+    // Merges per-key histogram maps, reusing the first.
+    private static <K> Map<K, IntHistogram> mergeHistograms(final Map<K, IntHistogram> a,
+                                                            final Map<K, IntHistogram> b)
+    {
+        b.forEach((k, histogram) -> a.merge(k, histogram, (x, y) -> {
+            x.merge(y);
+            return x;
+        }));
+
+        return a;
+    }
+
+    // Merges statistics arrays indexed by dictionary code, reusing the longer.
+    private static DoubleSummaryStatistics[] mergeStatisticsByCode(final DoubleSummaryStatistics[] a,
+                                                                   final DoubleSummaryStatistics[] b)
+    {
+        final DoubleSummaryStatistics[] longer = a.length >= b.length ? a : b;
+        final DoubleSummaryStatistics[] shorter = longer == a ? b : a;
+
+        for (int code = 0; code < shorter.length; code++)
+        {
+            if (shorter[code] == null)
+            {
+                continue;
+            }
+
+            if (longer[code] == null)
+            {
+                longer[code] = shorter[code];
+            }
+            else
+            {
+                longer[code].combine(shorter[code]);
+            }
+        }
+
+        return longer;
+    }
+
+    // Validates the arguments of a List aggregation, none of which may be null.
+    private static void validateArguments(final Object... arguments)
+    {
+        for (final Object argument : arguments)
+        {
+            if (argument == null)
+            {
+                throw new IllegalArgumentException("Invalid aggregation argument");
+            }
+        }
+    }
+
+    // Validates an inventory to aggregate, which must not be null.
+    private static void validateInventory(final DeviceInventory inventory)
+    {
+        if (inventory == null)
+        {
+            throw new IllegalArgumentException("Invalid inventory");
+        }
+    }
+
+    /*
+     * Aggregates the range [from, to) into a new partial result.
+     */
+    @FunctionalInterface
+    private interface RangeAggregation<R>
+    {
+        R aggregate(int from,
+                    int to);
+    }
+
+    // Fork-join task which aggregates a range, splitting it in half until it is no larger than a leaf.
+    @SuppressWarnings("serial")
+    private static final class RangeTask<R> extends RecursiveTask<R>
+    {
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final RangeAggregation<R> leaf;
+        private final BinaryOperator<R> merge;
+
+        private RangeTask(final int from,
+                          final int to,
+                          final int leafSize,
+                          final RangeAggregation<R> leaf,
+                          final BinaryOperator<R> merge)
+        {
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.leaf = leaf;
+            this.merge = merge;
+        }
+
+        @Override
+        protected R compute()
+        {
+            if (to - from <= leafSize)
+            {
+                return leaf.aggregate(from, to);
+            }
+
+            final int middle = (from + to) >>> 1;
+            final RangeTask<R> left = new RangeTask<>(from, middle, leafSize, leaf, merge);
+            final RangeTask<R> right = new RangeTask<>(middle, to, leafSize, leaf, merge);
+
+            left.fork();
+
+            final R rightResult = right.compute();
+
+            return merge.apply(left.join(), rightResult);
+        }
+    }
+}
@@ -0,0 +1,639 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Holds a batch of IDevices with each concrete type in its own array, so that loops over the batch call methods
+ * on one receiver type at a time. The JIT can then inline printDetails, toString, equals and hashCode at every
+ * call site, where a loop over a mixed List of IDevices would see all four types and fall back to virtual calls.
+ *
+ * The per-type methods (forEachIPod and so on) and the bulk operations run one loop per type. A batch created
+ * with insertion order kept also records the type of each device as it is added; iteration, visiting and the bulk
+ * operations then follow the order the devices were added in, dispatching each device through a switch whose
+ * branches each see a single type. Without it, devices come out grouped by type: IPods, IPads, IPhones, then
+ * IPhone17s.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceBatch implements Iterable<IDevice>
+{
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int GROWTH_FACTOR = 2;
+    private static final DeviceType[] TYPES = DeviceType.values();
+
+    private final boolean keepOrder;
+
+    private IPod[] ipods;
+    private int ipodCount;
+    private IPad[] ipads;
+    private int ipadCount;
+    private IPhone[] iphones;
+    private int iphoneCount;
+    private IPhone17[] iphone17s;
+    private int iphone17Count;
+
+    // The DeviceType ordinal of each device in insertion order, if order is kept
+    private byte[] order;
+
+    /**
+     * Visits the devices of a batch, one method per concrete type. Each method does nothing by default.
+     */
+    public interface Visitor
+    {
+        /**
+         * Visits an IPod.
+         *
+         * @param ipod the IPod
+         */
+        default void visitIPod(final IPod ipod)
+        {
+        }
+
+        /**
+         * Visits an IPad.
+         *
+         * @param ipad the IPad
+         */
+        default void visitIPad(final IPad ipad)
+        {
+        }
+
+        /**
+         * Visits an IPhone which is not an IPhone17.
+         *
+         * @param iphone the IPhone
+         */
+        default void visitIPhone(final IPhone iphone)
+        {
+        }
+
+        /**
+         * Visits an IPhone17.
+         *
+         * @param iphone17 the IPhone17
+         */
+        default void visitIPhone17(final IPhone17 iphone17)
+        {
+        }
+    }
+
+    /**
+     * Constructs an empty DeviceBatch which groups devices by type.
+     */
+    public DeviceBatch()
+    {
+        this(false);
+    }
+
+    /**
+     * Constructs an empty DeviceBatch.
+     *
+     * @param keepOrder true to iterate in insertion order, false to iterate grouped by type
+     */
+    public DeviceBatch(final boolean keepOrder)
+    {
+        this.keepOrder = keepOrder;
+        this.ipods = new IPod[DEFAULT_CAPACITY];
+        this.ipads = new IPad[DEFAULT_CAPACITY];
+        this.iphones = new IPhone[DEFAULT_CAPACITY];
+        this.iphone17s = new IPhone17[DEFAULT_CAPACITY];
+        this.order = keepOrder ? new byte[DEFAULT_CAPACITY] : null;
+    }
+
+    /**
+     * Creates a DeviceBatch holding the given devices.
+     *
+     * @param devices   the devices to add
+     * @param keepOrder true to iterate in insertion order, false to iterate grouped by type
+     * @return the new batch
+     */
+    public static DeviceBatch of(final Collection<? extends IDevice> devices,
+                                 final boolean keepOrder)
+    {
+        final DeviceBatch batch = new DeviceBatch(keepOrder);
+
+        batch.addAll(devices);
+
+        return batch;
+    }
+
+    /**
+     * Adds a device to the end of its type's array.
+     *
+     * @param device the device to add
+     */
+    public void add(final IDevice device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        final DeviceType type = DeviceType.of(device);
+
+        switch (type)
+        {
+            case IPOD ->
+            {
+                if (ipodCount == ipods.length)
+                {
+                    ipods = Arrays.copyOf(ipods, ipodCount * GROWTH_FACTOR);
+                }
+
+                ipods[ipodCount++] = (IPod) device;
+            }
+            case IPAD ->
+            {
+                if (ipadCount == ipads.length)
+                {
+                    ipads = Arrays.copyOf(ipads, ipadCount * GROWTH_FACTOR);
+                }
+
+                ipads[ipadCount++] = (IPad) device;
+            }
+            case IPHONE ->
+            {
+                if (iphoneCount == iphones.length)
+                {
+                    iphones = Arrays.copyOf(iphones, iphoneCount * GROWTH_FACTOR);
+                }
+
+                iphones[iphoneCount++] = (IPhone) device;
+            }
+            case IPHONE17 ->
+            {
+                if (iphone17Count == iphone17s.length)
+                {
+                    iphone17s = Arrays.copyOf(iphone17s, iphone17Count * GROWTH_FACTOR);
+                }
+
+                iphone17s[iphone17Count++] = (IPhone17) device;
+            }
+        }
+
+        if (keepOrder)
+        {
+            final int index = size() - 1;
+
+            if (index == order.length)
+            {
+                order = Arrays.copyOf(order, index * GROWTH_FACTOR);
+            }
+
+            order[index] = (byte) type.ordinal();
+        }
+    }
+
+    /**
+     * Adds every device in a collection, in the collection's iteration order.
+     *
+     * @param devices the devices to add
+     */
+    public void addAll(final Collection<? extends IDevice> devices)
+    {
+        if (devices == null)
+        {
+            throw new IllegalArgumentException("Invalid devices");
+        }
+
+        for (final IDevice device : devices)
+        {
+            add(device);
+        }
+    }
+
+    /**
+     * Removes every device.
+     */
+    public void clear()
+    {
+        Arrays.fill(ipods, 0, ipodCount, null);
+        Arrays.fill(ipads, 0, ipadCount, null);
+        Arrays.fill(iphones, 0, iphoneCount, null);
+        Arrays.fill(iphone17s, 0, iphone17Count, null);
+        ipodCount = 0;
+        ipadCount = 0;
+        iphoneCount = 0;
+        iphone17Count = 0;
+    }
+
+    /**
+     * Returns whether devices are iterated in insertion order.
+     *
+     * @return true if insertion order is kept, false if devices are grouped by type
+     */
+    public boolean keepsOrder()
+    {
+        return keepOrder;
+    }
+
+    /**
+     * Returns the number of devices in the batch.
+     *
+     * @return the number of devices
+     */
+    public int size()
+    {
+        return ipodCount + ipadCount + iphoneCount + iphone17Count;
+    }
+
+    /**
+     * Returns the number of devices of the given type in the batch.
+     *
+     * @param type the concrete type to count
+     * @return the number of devices of that type
+     */
+    public int size(final DeviceType type)
+    {
+        if (type == null)
+        {
+            throw new IllegalArgumentException("Invalid device type");
+        }
+
+        return switch (type)
+        {
+            case IPOD -> ipodCount;
+            case IPAD -> ipadCount;
+            case IPHONE -> iphoneCount;
+            case IPHONE17 -> iphone17Count;
+        };
+    }
+
+    /**
+     * Returns the IPods in the batch, in the order they were added.
+     *
+     * @return an unmodifiable view of the IPods
+     */
+    public List<IPod> ipods()
+    {
+        return Collections.unmodifiableList(Arrays.asList(ipods).subList(0, ipodCount));
+    }
+
+    /**
+     * Returns the IPads in the batch, in the order they were added.
+     *
+     * @return an unmodifiable view of the IPads
+     */
+    public List<IPad> ipads()
+    {
+        return Collections.unmodifiableList(Arrays.asList(ipads).subList(0, ipadCount));
+    }
+
+    /**
+     * Returns the IPhones in the batch which are not IPhone17s, in the order they were added.
+     *
+     * @return an unmodifiable view of the IPhones
+     */
+    public List<IPhone> iphones()
+    {
+        return Collections.unmodifiableList(Arrays.asList(iphones).subList(0, iphoneCount));
+    }
+
+    /**
+     * Returns the IPhone17s in the batch, in the order they were added.
+     *
+     * @return an unmodifiable view of the IPhone17s
+     */
+    public List<IPhone17> iphone17s()
+    {
+        return Collections.unmodifiableList(Arrays.asList(iphone17s).subList(0, iphone17Count));
+    }
+
+    /**
+     * Applies an action to every IPod, in the order they were added.
+     *
+     * @param action the action to apply
+     */
+    public void forEachIPod(final Consumer<? super IPod> action)
+    {
+        for (int i = 0; i < ipodCount; i++)
+        {
+            action.accept(ipods[i]);
+        }
+    }
+
+    /**
+     * Applies an action to every IPad, in the order they were added.
+     *
+     * @param action the action to apply
+     */
+    public void forEachIPad(final Consumer<? super IPad> action)
+    {
+        for (int i = 0; i < ipadCount; i++)
+        {
+            action.accept(ipads[i]);
+        }
+    }
+
+    /**
+     * Applies an action to every IPhone which is not an IPhone17, in the order they were added.
+     *
+     * @param action the action to apply
+     */
+    public void forEachIPhone(final Consumer<? super IPhone> action)
+    {
+        for (int i = 0; i < iphoneCount; i++)
+        {
+            action.accept(iphones[i]);
+        }
+    }
+
+    /**
+     * Applies an action to every IPhone17, in the order they were added.
+     *
+     * @param action the action to apply
+     */
+    public void forEachIPhone17(final Consumer<? super IPhone17> action)
+    {
+        for (int i = 0; i < iphone17Count; i++)
+        {
+            action.accept(iphone17s[i]);
+        }
+    }
+
+    /**
+     * Passes every device to the visitor method for its type, in insertion order if it is kept, otherwise grouped
+     * by type.
+     *
+     * @param visitor the visitor
+     */
+    public void accept(final Visitor visitor)
+    {
+        if (visitor == null)
+        {
+            throw new IllegalArgumentException("Invalid visitor");
+        }
+
+        if (keepOrder)
+        {
+            final int[] cursors = new int[TYPES.length];
+            final int size = size();
+
+            for (int i = 0; i < size; i++)
+            {
+                switch (TYPES[order[i]])
+                {
+                    case IPOD -> visitor.visitIPod(ipods[cursors[DeviceType.IPOD.ordinal()]++]);
+                    case IPAD -> visitor.visitIPad(ipads[cursors[DeviceType.IPAD.ordinal()]++]);
+                    case IPHONE -> visitor.visitIPhone(iphones[cursors[DeviceType.IPHONE.ordinal()]++]);
+                    case IPHONE17 -> visitor.visitIPhone17(iphone17s[cursors[DeviceType.IPHONE17.ordinal()]++]);
+                }
+            }
+
+            return;
+        }
+
+        for (int i = 0; i < ipodCount; i++)
+        {
+            visitor.visitIPod(ipods[i]);
+        }
+
+        for (int i = 0; i < ipadCount; i++)
+        {
+            visitor.visitIPad(ipads[i]);
+        }
+
+        for (int i = 0; i < iphoneCount; i++)
+        {
+            visitor.visitIPhone(iphones[i]);
+        }
+
+        for (int i = 0; i < iphone17Count; i++)
+        {
+            visitor.visitIPhone17(iphone17s[i]);
+        }
+    }
+
+    /**
+     * Prints the details of every device, in iteration order.
+     */
+    public void printDetails()
+    {
+        accept(new Visitor()
+        {
+            @Override
+            public void visitIPod(final IPod ipod)
+            {
+                ipod.printDetails();
+            }
+
+            @Override
+            public void visitIPad(final IPad ipad)
+            {
+                ipad.printDetails();
+            }
+
+            @Override
+            public void visitIPhone(final IPhone iphone)
+            {
+                iphone.printDetails();
+            }
+
+            @Override
+            public void visitIPhone17(final IPhone17 iphone17)
+            {
+                iphone17.printDetails();
+            }
+        });
+    }
+
+    /**
+     * Returns the toString of every device, in iteration order.
+     *
+     * @return the strings
+     */
+    public String[] toStrings()
+    {
+        final String[] strings = new String[size()];
+
+        accept(new Visitor()
+        {
+            private int next;
+
+            @Override
+            public void visitIPod(final IPod ipod)
+            {
+                strings[next++] = ipod.toString();
+            }
+
+            @Override
+            public void visitIPad(final IPad ipad)
+            {
+                strings[next++] = ipad.toString();
+            }
+
+            @Override
+            public void visitIPhone(final IPhone iphone)
+            {
+                strings[next++] = iphone.toString();
+            }
+
+            @Override
+            public void visitIPhone17(final IPhone17 iphone17)
+            {
+                strings[next++] = iphone17.toString();
+            }
+        });
+
+        return strings;
+    }
+
+    /**
+     * Returns the hash code of every device, in iteration order.
+     *
+     * @return the hash codes
+     */
+    public int[] hashCodes()
+    {
+        final int[] hashCodes = new int[size()];
+
+        accept(new Visitor()
+        {
+            private int next;
+
+            @Override
+            public void visitIPod(final IPod ipod)
+            {
+                hashCodes[next++] = ipod.hashCode();
+            }
+
+            @Override
+            public void visitIPad(final IPad ipad)
+            {
+                hashCodes[next++] = ipad.hashCode();
+            }
+
+            @Override
+            public void visitIPhone(final IPhone iphone)
+            {
+                hashCodes[next++] = iphone.hashCode();
+            }
+
+            @Override
+            public void visitIPhone17(final IPhone17 iphone17)
+            {
+                hashCodes[next++] = iphone17.hashCode();
+            }
+        });
+
+        return hashCodes;
+    }
+
+    /**
+     * Counts the devices that the given device is equal to. Only the arrays of types the device can be equal to
+     * are searched: an IPhone can equal an IPhone17, but every other type equals only its own.
+     *
+     * @param device the device to compare with
+     * @return the number of devices in the batch for which device.equals returns true
+     */
+    public int countEqual(final IDevice device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        int count = 0;
+
+        switch (DeviceType.of(device))
+        {
+            case IPOD ->
+            {
+                for (int i = 0; i < ipodCount; i++)
+                {
+                    count += device.equals(ipods[i]) ? 1 : 0;
+                }
+            }
+            case IPAD ->
+            {
+                for (int i = 0; i < ipadCount; i++)
+                {
+                    count += device.equals(ipads[i]) ? 1 : 0;
+                }
+            }
+            case IPHONE ->
+            {
+                for (int i = 0; i < iphoneCount; i++)
+                {
+                    count += device.equals(iphones[i]) ? 1 : 0;
+                }
+
+                for (int i = 0; i < iphone17Count; i++)
+                {
+                    count += device.equals(iphone17s[i]) ? 1 : 0;
+                }
+            }
+            case IPHONE17 ->
+            {
+                for (int i = 0; i < iphone17Count; i++)
+                {
+                    count += device.equals(iphone17s[i]) ? 1 : 0;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Determines whether the batch holds a device that the given device is equal to.
+     *
+     * @param device the device to look for
+     * @return true if device.equals returns true for some device in the batch, false otherwise
+     */
+    public boolean contains(final IDevice device)
+    {
+        return countEqual(device) > 0;
+    }
+
+    /**
+     * Returns an iterator over the devices, in insertion order if it is kept, otherwise grouped by type. The
+     * iterator does not support removal.
+     *
+     * @return the iterator
+     */
+    @Override
+    public Iterator<IDevice> iterator()
+    {
+        final IDevice[] devices = new IDevice[size()];
+
+        accept(new Visitor()
+        {
+            private int next;
+
+            @Override
+            public void visitIPod(final IPod ipod)
+            {
+                devices[next++] = ipod;
+            }
+
+            @Override
+            public void visitIPad(final IPad ipad)
+            {
+                devices[next++] = ipad;
+            }
+
+            @Override
+            public void visitIPhone(final IPhone iphone)
+            {
+                devices[next++] = iphone;
+            }
+
+            @Override
+            public void visitIPhone17(final IPhone17 iphone17)
+            {
+                devices[next++] = iphone17;
+            }
+        });
+
+        return Arrays.asList(devices).iterator();
+    }
+}
@@ -0,0 +1,178 @@
+package ca.bcit.comp2522.lab03;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A Bloom filter over device equality: it answers "has a device equal to this one been put?" in a fixed amount
+ * of memory, however many devices are put. The answer no is always right; the answer yes is wrong with a small
+ * probability, which is chosen when the filter is constructed for the number of distinct devices expected.
+ *
+ * Devices are hashed once with DeviceHashing.hash64, so devices are in the same class exactly when
+ * DeviceEqualityIndex would put them in the same bucket, and the filter's bits are chosen from that hash by
+ * double hashing. Setting a bit is an atomic OR, so any number of threads may put and query at once without
+ * locking, and merge ORs in another filter built with the same parameters, such as one per thread or partition.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceBloomFilter
+{
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long MAX_BITS = (long) (Integer.MAX_VALUE - 8) * Long.SIZE;
+    private static final double LN_2 = Math.log(2.0);
+
+    private final long[] words;
+    private final long bitSize;
+    private final int hashCount;
+
+    /**
+     * Constructs an empty DeviceBloomFilter sized for a number of distinct devices and a false positive rate.
+     *
+     * @param expectedInsertions the number of distinct devices expected to be put
+     * @param falsePositiveRate  the probability, between 0 and 1 exclusive, of a wrong yes once that many have
+     *                           been put
+     */
+    public DeviceBloomFilter(final long expectedInsertions,
+                             final double falsePositiveRate)
+    {
+        if (expectedInsertions <= 0L)
+        {
+            throw new IllegalArgumentException("Invalid expected insertions: " + expectedInsertions);
+        }
+
+        if (!(falsePositiveRate > 0.0 && falsePositiveRate < 1.0))
+        {
+            throw new IllegalArgumentException("Invalid false positive rate: " + falsePositiveRate);
+        }
+
+        final double optimalBits = -expectedInsertions * Math.log(falsePositiveRate) / (LN_2 * LN_2);
+
+        if (optimalBits > MAX_BITS)
+        {
+            throw new IllegalArgumentException("Invalid expected insertions: " + expectedInsertions +
+                                               " need more bits than one filter can hold");
+        }
+
+        final long words = Math.max(1L, ((long) Math.ceil(optimalBits) + Long.SIZE - 1) / Long.SIZE);
+
+        this.words = new long[(int) words];
+        this.bitSize = words * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * LN_2));
+    }
+
+    /**
+     * Puts a device in the filter.
+     *
+     * @param device the IDevice to put
+     * @return true if no equal device had been put before, false if one probably had; when threads put equal
+     *         devices at the same time, more than one may be told it was first
+     */
+    public boolean put(final IDevice device)
+    {
+        final long hash = DeviceHashing.hash64(device);
+        final long step = DeviceHashing.mix(hash) | 1L;
+        boolean changed = false;
+
+        for (int i = 0; i < hashCount; i++)
+        {
+            final long index = Math.unsignedMultiplyHigh(hash + i * step, bitSize);
+            final int word = (int) (index >>> 6);
+            final long bit = 1L << index;
+
+            if (((long) WORDS.getOpaque(words, word) & bit) == 0L)
+            {
+                changed |= ((long) WORDS.getAndBitwiseOr(words, word, bit) & bit) == 0L;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Determines whether a device equal to a given one might have been put in the filter.
+     *
+     * @param device the IDevice to look for
+     * @return false if no equal device has been put, true if one probably has
+     */
+    public boolean mightContain(final IDevice device)
+    {
+        final long hash = DeviceHashing.hash64(device);
+        final long step = DeviceHashing.mix(hash) | 1L;
+
+        for (int i = 0; i < hashCount; i++)
+        {
+            final long index = Math.unsignedMultiplyHigh(hash + i * step, bitSize);
+
+            if (((long) WORDS.getOpaque(words, (int) (index >>> 6)) & 1L << index) == 0L)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds every device put in another filter to this one. The other filter must have been constructed with the
+     * same expected insertions and false positive rate.
+     *
+     * @param other the filter to merge into this one
+     */
+    public void merge(final DeviceBloomFilter other)
+    {
+        if (other == null || other.bitSize != bitSize || other.hashCount != hashCount)
+        {
+            throw new IllegalArgumentException("Invalid filter: must have the same size and hash count");
+        }
+
+        for (int word = 0; word < words.length; word++)
+        {
+            final long bits = (long) WORDS.getOpaque(other.words, word);
+
+            if (bits != 0L)
+            {
+                WORDS.getAndBitwiseOr(words, word, bits);
+            }
+        }
+    }
+
+    /**
+     * Accessor for the number of bits in the filter.
+     *
+     * @return the number of bits, which is a multiple of 64
+     */
+    public long bitSize()
+    {
+        return bitSize;
+    }
+
+    /**
+     * Accessor for the number of bits set for each device.
+     *
+     * @return the number of hash functions
+     */
+    public int hashCount()
+    {
+        return hashCount;
+    }
+
+    /**
+     * Estimates the probability that mightContain wrongly returns true, given the bits set so far.
+     *
+     * @return the current false positive rate
+     */
+    public double expectedFalsePositiveRate()
+    {
+        long set = 0L;
+
+        for (int word = 0; word < words.length; word++)
+        {
+            set += Long.bitCount((long) WORDS.getOpaque(words, word));
+        }
+
+        return Math.pow((double) set / bitSize, hashCount);
+    }
+}
@@ -0,0 +1,251 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.Objects;
+
+/**
+ * One difference found by DeviceDiff between two inventories: a device added, a device removed, or one field of a
+ * device changed. A device whose type changed, such as an IPhone replaced by an IPhone17 under the same key, is
+ * reported as removed and then added.
+ *
+ * Added and removed devices are held as DeviceSnapshots, so a change does not follow later changes to the
+ * devices it came from. Changed values are boxed: an Integer for songsStored and memoryGB, a Double for
+ * maxVolumeDb and remainingPlanMinutes, a Boolean for tabletCase and highResolutionCamera, and a String for
+ * operatingSystemVersion and carrier.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceChange
+{
+    private final Kind kind;
+    private final long key;
+    private final DeviceType type;
+    private final DeviceSnapshot device;
+    private final DeviceField field;
+    private final Object oldValue;
+    private final Object newValue;
+
+    /**
+     * The kinds of change.
+     */
+    public enum Kind
+    {
+        ADDED,
+        REMOVED,
+        CHANGED
+    }
+
+    private DeviceChange(final Kind kind,
+                         final long key,
+                         final DeviceType type,
+                         final DeviceSnapshot device,
+                         final DeviceField field,
+                         final Object oldValue,
+                         final Object newValue)
+    {
+        this.kind = kind;
+        this.key = key;
+        this.type = type;
+        this.device = device;
+        this.field = field;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    /*
+     * Creates the change for a device only in the newer inventory.
+     */
+    static DeviceChange added(final KeyedDevice added)
+    {
+        return new DeviceChange(Kind.ADDED,
+                                added.getKey(),
+                                DeviceType.of(added.getDevice()),
+                                added.getDevice().snapshot(),
+                                null,
+                                null,
+                                null);
+    }
+
+    /*
+     * Creates the change for a device only in the older inventory.
+     */
+    static DeviceChange removed(final KeyedDevice removed)
+    {
+        return new DeviceChange(Kind.REMOVED,
+                                removed.getKey(),
+                                DeviceType.of(removed.getDevice()),
+                                removed.getDevice().snapshot(),
+                                null,
+                                null,
+                                null);
+    }
+
+    /*
+     * Creates the change for one field of a device in both inventories.
+     */
+    static DeviceChange changed(final long key,
+                                final DeviceType type,
+                                final DeviceField field,
+                                final Object oldValue,
+                                final Object newValue)
+    {
+        return new DeviceChange(Kind.CHANGED,
+                                key,
+                                type,
+                                null,
+                                field,
+                                oldValue,
+                                newValue);
+    }
+
+    /**
+     * Accessor for the kind of change.
+     *
+     * @return ADDED, REMOVED or CHANGED
+     */
+    public Kind getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * Accessor for the key of the device.
+     *
+     * @return the key of the device added, removed or changed
+     */
+    public long getKey()
+    {
+        return key;
+    }
+
+    /**
+     * Accessor for the type of the device.
+     *
+     * @return the type of the device added, removed or changed
+     */
+    public DeviceType getType()
+    {
+        return type;
+    }
+
+    /**
+     * Accessor for the device added or removed.
+     *
+     * @return a snapshot of the device added or removed, or null for a CHANGED change
+     */
+    public DeviceSnapshot getDevice()
+    {
+        return device;
+    }
+
+    /**
+     * Accessor for the field changed.
+     *
+     * @return the field changed, or null for an ADDED or REMOVED change
+     */
+    public DeviceField getField()
+    {
+        return field;
+    }
+
+    /**
+     * Accessor for the value of the field before the change.
+     *
+     * @return the field's old value, or null for an ADDED or REMOVED change
+     */
+    public Object getOldValue()
+    {
+        return oldValue;
+    }
+
+    /**
+     * Accessor for the value of the field after the change.
+     *
+     * @return the field's new value, or null for an ADDED or REMOVED change
+     */
+    public Object getNewValue()
+    {
+        return newValue;
+    }
+
+    /**
+     * Determines whether this change is equal to a given object.
+     *
+     * @param o the reference object with which to compare
+     * @return true if o is a DeviceChange of the same kind to the same key, type, device or field and values
+     */
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (!(o instanceof final DeviceChange other))
+        {
+            return false;
+        }
+
+        return kind == other.kind &&
+               key == other.key &&
+               type == other.type &&
+               field == other.field &&
+               Objects.equals(device, other.device) &&
+               Objects.equals(oldValue, other.oldValue) &&
+               Objects.equals(newValue, other.newValue);
+    }
+
+    /**
+     * Computes the hash code of the change.
+     *
+     * @return a hash code consistent with equals
+     */
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(kind, key, type, field, device, oldValue, newValue);
+    }
+
+    /**
+     * Describes the change, for example "IPhone 42 carrier changed from Rogers to Bell".
+     *
+     * @return a description of the change
+     */
+    @Override
+    public String toString()
+    {
+        return switch (kind)
+        {
+            case ADDED -> nameOf(type) + " " + key + " added: " + device;
+            case REMOVED -> nameOf(type) + " " + key + " removed: " + device;
+            case CHANGED -> nameOf(type) + " " + key + " " + nameOf(field) + " changed from " + oldValue + " to " +
+                            newValue;
+        };
+    }
+
+    // Returns the class name of a device type.
+    private static String nameOf(final DeviceType type)
+    {
+        return switch (type)
+        {
+            case IPOD -> "IPod";
+            case IPAD -> "IPad";
+            case IPHONE -> "IPhone";
+            case IPHONE17 -> "IPhone17";
+        };
+    }
+
+    // Returns the name of the instance variable behind a field.
+    private static String nameOf(final DeviceField field)
+    {
+        return switch (field)
+        {
+            case SONGS_STORED -> "songsStored";
+            case MAX_VOLUME_DB -> "maxVolumeDb";
+            case TABLET_CASE -> "tabletCase";
+            case OPERATING_SYSTEM_VERSION -> "operatingSystemVersion";
+            case REMAINING_PLAN_MINUTES -> "remainingPlanMinutes";
+            case CARRIER -> "carrier";
+            case HIGH_RESOLUTION_CAMERA -> "highResolutionCamera";
+            case MEMORY_GB -> "memoryGB";
+        };
+    }
+}
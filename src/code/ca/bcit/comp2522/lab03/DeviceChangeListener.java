@@ -0,0 +1,32 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * Receives notifications when an IDevice's mutator changes one of its fields. Listeners are registered with
+ * DeviceChanges, and are notified once before and once after the field is assigned, so that they can read both
+ * the old and the new value through the device's accessors.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public interface DeviceChangeListener
+{
+    /**
+     * Called after the new value has been validated, but before it is assigned.
+     *
+     * @param device the IDevice being changed
+     * @param field  the field being changed
+     */
+    void beforeChange(IDevice device,
+                      DeviceField field);
+
+    /**
+     * Called after the new value has been assigned.
+     *
+     * @param device the IDevice that changed
+     * @param field  the field that changed
+     */
+    void afterChange(IDevice device,
+                     DeviceField field);
+}
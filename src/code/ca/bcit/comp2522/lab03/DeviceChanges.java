@@ -0,0 +1,87 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.Arrays;
+
+/**
+ * Registry of DeviceChangeListeners, notified by the IDevice mutators. The listeners are kept in a copy-on-write
+ * array, so when none are registered a mutator only pays for reading an empty array.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceChanges
+{
+    private static final DeviceChangeListener[] NO_LISTENERS = new DeviceChangeListener[0];
+
+    private static volatile DeviceChangeListener[] listeners = NO_LISTENERS;
+
+    private DeviceChanges()
+    {
+    }
+
+    /**
+     * Registers a listener to be notified of every device change.
+     *
+     * @param listener the listener to register
+     */
+    public static synchronized void register(final DeviceChangeListener listener)
+    {
+        if (listener == null)
+        {
+            throw new IllegalArgumentException("Invalid listener");
+        }
+
+        final DeviceChangeListener[] updated;
+
+        updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[updated.length - 1] = listener;
+
+        listeners = updated;
+    }
+
+    /**
+     * Unregisters a listener. Does nothing if the listener is not registered.
+     *
+     * @param listener the listener to unregister
+     */
+    public static synchronized void unregister(final DeviceChangeListener listener)
+    {
+        final DeviceChangeListener[] current = listeners;
+
+        for (int i = 0; i < current.length; i++)
+        {
+            if (current[i] == listener)
+            {
+                final DeviceChangeListener[] updated = new DeviceChangeListener[current.length - 1];
+
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    // Notifies every registered listener that a field is about to change.
+    static void beforeChange(final IDevice device,
+                             final DeviceField field)
+    {
+        for (final DeviceChangeListener listener : listeners)
+        {
+            listener.beforeChange(device, field);
+        }
+    }
+
+    // Notifies every registered listener that a field has changed.
+    static void afterChange(final IDevice device,
+                            final DeviceField field)
+    {
+        for (final DeviceChangeListener listener : listeners)
+        {
+            listener.afterChange(device, field);
+        }
+    }
+}
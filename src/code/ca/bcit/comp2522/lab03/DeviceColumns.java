@@ -0,0 +1,27 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.BitSet;
+
+/*
+ * The columns of one type's section of a DeviceInventory, for moving whole sections in and out of it at once.
+ * Only the first count values of each column are rows. Columns the type does not have are null:
+ * - IPod: ints are songsStored, doubles are maxVolumeDb
+ * - IPad: flags are tabletCase, codes are operatingSystemVersion
+ * - IPhone: doubles are remainingPlanMinutes, codes are carrier
+ * - IPhone17: as IPhone, plus flags are highResolutionCamera and ints are memoryGB
+ *
+ * Codes are StringDictionary codes, from CARRIERS for phones and OPERATING_SYSTEM_VERSIONS for IPads.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+record DeviceColumns(DeviceType type,
+                     int count,
+                     int[] ints,
+                     double[] doubles,
+                     BitSet flags,
+                     int[] codes)
+{
+}
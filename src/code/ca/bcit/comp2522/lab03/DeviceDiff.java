@@ -0,0 +1,426 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Finds the differences between two inventories of KeyedDevices, an older one and a newer one, each given in
+ * ascending order of key with no key repeated. The two are walked together in a single merge pass, like the
+ * merge step of a merge sort: a key only in the older inventory is a removed device, a key only in the newer one
+ * is an added device, and a key in both has its fields compared one by one. Each difference is passed to a
+ * Consumer as a DeviceChange as soon as it is found.
+ *
+ * diff reads two Iterators, holding only the current device of each, so it runs in constant memory however long
+ * the inventories are. parallelDiff reads two random-access Lists, splitting them into ranges of keys on a
+ * fork-join pool and diffing the ranges at the same time. Fields are compared as primitives or dictionary codes,
+ * and values are only boxed for fields that changed.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceDiff
+{
+    private static final int DEFAULT_PARTITION_SIZE = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final int partitionSize;
+
+    /**
+     * Constructs a DeviceDiff which runs parallel diffs on the common fork-join pool.
+     */
+    public DeviceDiff()
+    {
+        this(ForkJoinPool.commonPool(),
+             DEFAULT_PARTITION_SIZE);
+    }
+
+    /**
+     * Constructs a DeviceDiff which runs parallel diffs on the given pool, diffing ranges of up to partitionSize
+     * devices, counting both inventories, in a single task.
+     *
+     * @param pool          the ForkJoinPool to run on
+     * @param partitionSize the largest range diffed without splitting
+     */
+    public DeviceDiff(final ForkJoinPool pool,
+                      final int partitionSize)
+    {
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("Invalid pool");
+        }
+
+        if (partitionSize <= 0)
+        {
+            throw new IllegalArgumentException("Invalid partition size: " + partitionSize);
+        }
+
+        this.pool = pool;
+        this.partitionSize = partitionSize;
+    }
+
+    /**
+     * Diffs two key-sorted streams of devices, passing every change to a Consumer in ascending order of key. Only
+     * the current device of each stream is held, so the streams may be arbitrarily long.
+     *
+     * @param before  the older inventory, in ascending order of key
+     * @param after   the newer inventory, in ascending order of key
+     * @param changes receives each change as it is found
+     * @return the number of changes found
+     * @throws IllegalArgumentException if either stream is not in ascending order of key or holds a null
+     */
+    public long diff(final Iterator<? extends KeyedDevice> before,
+                     final Iterator<? extends KeyedDevice> after,
+                     final Consumer<? super DeviceChange> changes)
+    {
+        if (before == null || after == null || changes == null)
+        {
+            throw new IllegalArgumentException("Invalid inventories or consumer");
+        }
+
+        return merge(new Cursor(before, null),
+                     new Cursor(after, null),
+                     changes);
+    }
+
+    /**
+     * Diffs two key-sorted lists of devices in parallel. The lists are split at keys into ranges of about the
+     * partition size, and the ranges are diffed at the same time, so changes are passed to the Consumer from
+     * several threads at once: it must be thread-safe. Within a range, changes arrive in ascending order of key.
+     *
+     * @param before  the older inventory, in ascending order of key; should support fast random access
+     * @param after   the newer inventory, in ascending order of key; should support fast random access
+     * @param changes receives each change as it is found, from any thread of the pool
+     * @return the number of changes found
+     * @throws IllegalArgumentException if either list is not in ascending order of key or holds a null
+     */
+    public long parallelDiff(final List<? extends KeyedDevice> before,
+                             final List<? extends KeyedDevice> after,
+                             final Consumer<? super DeviceChange> changes)
+    {
+        if (before == null || after == null || changes == null)
+        {
+            throw new IllegalArgumentException("Invalid inventories or consumer");
+        }
+
+        return pool.invoke(new PartitionTask(before, 0, before.size(),
+                                             after, 0, after.size(),
+                                             partitionSize, changes));
+    }
+
+    // Merges two cursors, reporting every change, and returns the number of changes.
+    private static long merge(final Cursor before,
+                              final Cursor after,
+                              final Consumer<? super DeviceChange> changes)
+    {
+        KeyedDevice older = before.next();
+        KeyedDevice newer = after.next();
+        long count = 0L;
+
+        while (older != null || newer != null)
+        {
+            if (newer == null || (older != null && older.getKey() < newer.getKey()))
+            {
+                changes.accept(DeviceChange.removed(older));
+                older = before.next();
+                count++;
+            }
+            else if (older == null || newer.getKey() < older.getKey())
+            {
+                changes.accept(DeviceChange.added(newer));
+                newer = after.next();
+                count++;
+            }
+            else
+            {
+                count += compare(older, newer, changes);
+                older = before.next();
+                newer = after.next();
+            }
+        }
+
+        return count;
+    }
+
+    // Compares two devices with the same key, reporting every change, and returns the number of changes.
+    private static int compare(final KeyedDevice older,
+                               final KeyedDevice newer,
+                               final Consumer<? super DeviceChange> changes)
+    {
+        final DeviceType type = DeviceType.of(older.getDevice());
+
+        if (type != DeviceType.of(newer.getDevice()))
+        {
+            changes.accept(DeviceChange.removed(older));
+            changes.accept(DeviceChange.added(newer));
+            return 2;
+        }
+
+        final long key = older.getKey();
+        int count = 0;
+
+        switch (type)
+        {
+            case IPOD ->
+            {
+                final IPod was = (IPod) older.getDevice();
+                final IPod now = (IPod) newer.getDevice();
+
+                if (was.getSongsStored() != now.getSongsStored())
+                {
+                    count += report(changes, key, type, DeviceField.SONGS_STORED,
+                                    was.getSongsStored(), now.getSongsStored());
+                }
+
+                if (Double.compare(was.getMaxVolumeDb(), now.getMaxVolumeDb()) != 0)
+                {
+                    count += report(changes, key, type, DeviceField.MAX_VOLUME_DB,
+                                    was.getMaxVolumeDb(), now.getMaxVolumeDb());
+                }
+            }
+            case IPAD ->
+            {
+                final IPad was = (IPad) older.getDevice();
+                final IPad now = (IPad) newer.getDevice();
+
+                if (was.hasCase() != now.hasCase())
+                {
+                    count += report(changes, key, type, DeviceField.TABLET_CASE,
+                                    was.hasCase(), now.hasCase());
+                }
+
+                if (was.getOperatingSystemVersionCode() != now.getOperatingSystemVersionCode())
+                {
+                    count += report(changes, key, type, DeviceField.OPERATING_SYSTEM_VERSION,
+                                    was.getOperatingSystemVersion(), now.getOperatingSystemVersion());
+                }
+            }
+            case IPHONE, IPHONE17 ->
+            {
+                final IPhone was = (IPhone) older.getDevice();
+                final IPhone now = (IPhone) newer.getDevice();
+
+                if (Double.compare(was.getRemainingPlanMinutes(), now.getRemainingPlanMinutes()) != 0)
+                {
+                    count += report(changes, key, type, DeviceField.REMAINING_PLAN_MINUTES,
+                                    was.getRemainingPlanMinutes(), now.getRemainingPlanMinutes());
+                }
+
+                if (was.getCarrierCode() != now.getCarrierCode())
+                {
+                    count += report(changes, key, type, DeviceField.CARRIER,
+                                    was.getCarrier(), now.getCarrier());
+                }
+
+                if (type == DeviceType.IPHONE17)
+                {
+                    count += compareIPhone17s(key, (IPhone17) was, (IPhone17) now, changes);
+                }
+            }
+        }
+
+        return count;
+    }
+
+    // Compares the fields IPhone17s add to IPhones, reporting every change, and returns the number of changes.
+    private static int compareIPhone17s(final long key,
+                                        final IPhone17 was,
+                                        final IPhone17 now,
+                                        final Consumer<? super DeviceChange> changes)
+    {
+        int count = 0;
+
+        if (was.hasHighResolutionCamera() != now.hasHighResolutionCamera())
+        {
+            count += report(changes, key, DeviceType.IPHONE17, DeviceField.HIGH_RESOLUTION_CAMERA,
+                            was.hasHighResolutionCamera(), now.hasHighResolutionCamera());
+        }
+
+        if (was.getMemoryGB() != now.getMemoryGB())
+        {
+            count += report(changes, key, DeviceType.IPHONE17, DeviceField.MEMORY_GB,
+                            was.getMemoryGB(), now.getMemoryGB());
+        }
+
+        return count;
+    }
+
+    // Reports a changed field and returns 1, the number of changes reported.
+    private static int report(final Consumer<? super DeviceChange> changes,
+                              final long key,
+                              final DeviceType type,
+                              final DeviceField field,
+                              final Object oldValue,
+                              final Object newValue)
+    {
+        changes.accept(DeviceChange.changed(key, type, field, oldValue, newValue));
+        return 1;
+    }
+
+    // Returns the first index in [from, to) of a sorted list whose key is at least the given key.
+    private static int lowerBound(final List<? extends KeyedDevice> devices,
+                                  final int from,
+                                  final int to,
+                                  final long key)
+    {
+        int low = from;
+        int high = to;
+
+        while (low < high)
+        {
+            final int middle = (low + high) >>> 1;
+
+            if (keyAt(devices, middle) < key)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    // Returns the key of a device in a list, which must not be null.
+    private static long keyAt(final List<? extends KeyedDevice> devices,
+                              final int index)
+    {
+        final KeyedDevice device = devices.get(index);
+
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid keyed device: null");
+        }
+
+        return device.getKey();
+    }
+
+    // Reads a stream of KeyedDevices one at a time, checking that the keys ascend.
+    private static final class Cursor
+    {
+        private final Iterator<? extends KeyedDevice> devices;
+        private KeyedDevice previous;
+
+        // previous is the device before the stream's first, if the stream continues another, or null.
+        private Cursor(final Iterator<? extends KeyedDevice> devices,
+                       final KeyedDevice previous)
+        {
+            this.devices = devices;
+            this.previous = previous;
+        }
+
+        // Returns the next device, or null at the end of the stream.
+        private KeyedDevice next()
+        {
+            if (!devices.hasNext())
+            {
+                return null;
+            }
+
+            final KeyedDevice device = devices.next();
+
+            if (device == null)
+            {
+                throw new IllegalArgumentException("Invalid keyed device: null");
+            }
+
+            if (previous != null && device.getKey() <= previous.getKey())
+            {
+                throw new IllegalArgumentException("Invalid order: key " + device.getKey() + " follows key " +
+                                                   previous.getKey());
+            }
+
+            previous = device;
+
+            return device;
+        }
+    }
+
+    // Fork-join task which diffs a range of each list. A range too large for one task is split at the key of the
+    // middle device of the larger list, so that each key falls in the same half of both lists.
+    @SuppressWarnings("serial")
+    private static final class PartitionTask extends RecursiveTask<Long>
+    {
+        private final List<? extends KeyedDevice> before;
+        private final int beforeFrom;
+        private final int beforeTo;
+        private final List<? extends KeyedDevice> after;
+        private final int afterFrom;
+        private final int afterTo;
+        private final int partitionSize;
+        private final Consumer<? super DeviceChange> changes;
+
+        private PartitionTask(final List<? extends KeyedDevice> before,
+                              final int beforeFrom,
+                              final int beforeTo,
+                              final List<? extends KeyedDevice> after,
+                              final int afterFrom,
+                              final int afterTo,
+                              final int partitionSize,
+                              final Consumer<? super DeviceChange> changes)
+        {
+            this.before = before;
+            this.beforeFrom = beforeFrom;
+            this.beforeTo = beforeTo;
+            this.after = after;
+            this.afterFrom = afterFrom;
+            this.afterTo = afterTo;
+            this.partitionSize = partitionSize;
+            this.changes = changes;
+        }
+
+        @Override
+        protected Long compute()
+        {
+            final int beforeSize = beforeTo - beforeFrom;
+            final int afterSize = afterTo - afterFrom;
+
+            if (beforeSize + afterSize > partitionSize)
+            {
+                final boolean splitBefore = beforeSize >= afterSize;
+                final long key = splitBefore ?
+                                 keyAt(before, (beforeFrom + beforeTo) >>> 1) :
+                                 keyAt(after, (afterFrom + afterTo) >>> 1);
+                final int beforeSplit = lowerBound(before, beforeFrom, beforeTo, key);
+                final int afterSplit = lowerBound(after, afterFrom, afterTo, key);
+
+                // An unsorted list may not split; it is then merged whole, which reports the disorder.
+                if (splitBefore ? beforeSplit > beforeFrom && beforeSplit < beforeTo :
+                    afterSplit > afterFrom && afterSplit < afterTo)
+                {
+                    final PartitionTask left = new PartitionTask(before, beforeFrom, beforeSplit,
+                                                                 after, afterFrom, afterSplit,
+                                                                 partitionSize, changes);
+                    final PartitionTask right = new PartitionTask(before, beforeSplit, beforeTo,
+                                                                  after, afterSplit, afterTo,
+                                                                  partitionSize, changes);
+
+                    left.fork();
+
+                    final long rightCount = right.compute();
+
+                    return left.join() + rightCount;
+                }
+            }
+
+            return merge(cursor(before, beforeFrom, beforeTo),
+                         cursor(after, afterFrom, afterTo),
+                         changes);
+        }
+
+        // Creates a cursor over a range of a list, which also checks the range's first key against the one before.
+        private static Cursor cursor(final List<? extends KeyedDevice> devices,
+                                     final int from,
+                                     final int to)
+        {
+            return new Cursor(devices.subList(from, to).iterator(),
+                              from > 0 ? devices.get(from - 1) : null);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups IDevices into buckets of devices which are equal to each other, so that finding every device equal to a
+ * given one takes amortized constant time rather than a pairwise scan. Each bucket is keyed by exactly the fields
+ * which the device's equals and hashCode use:
+ * - IPod: songsStored
+ * - IPad: operatingSystemVersion
+ * - IPhone: remainingPlanMinutes
+ * - IPhone17: remainingPlanMinutes and highResolutionCamera
+ *
+ * The index listens to device changes, so it stays correct when an indexed device's key is changed through its
+ * mutators. Devices are tracked by identity, since equal devices are exactly the ones which share a bucket.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceEqualityIndex implements DeviceChangeListener, AutoCloseable
+{
+    private final Map<EqualityKey, Set<IDevice>> buckets;
+    private final Map<IDevice, EqualityKey> keysByDevice;
+
+    private DeviceEqualityIndex()
+    {
+        this.buckets = new HashMap<>();
+        this.keysByDevice = new IdentityHashMap<>();
+    }
+
+    /**
+     * Creates a new, empty DeviceEqualityIndex which is registered to follow device changes. The index should be
+     * closed once it is no longer needed.
+     *
+     * @return the new index
+     */
+    public static DeviceEqualityIndex create()
+    {
+        final DeviceEqualityIndex index;
+
+        index = new DeviceEqualityIndex();
+        DeviceChanges.register(index);
+
+        return index;
+    }
+
+    /**
+     * Adds a device to the index. Adding a device which is already indexed does nothing.
+     *
+     * @param device the IDevice to add
+     * @return true if the device was added, false if it was already indexed
+     */
+    public synchronized boolean add(final IDevice device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        if (keysByDevice.containsKey(device))
+        {
+            return false;
+        }
+
+        final EqualityKey key = EqualityKey.of(device);
+
+        keysByDevice.put(device, key);
+        bucketFor(key).add(device);
+
+        return true;
+    }
+
+    /**
+     * Removes a device from the index.
+     *
+     * @param device the IDevice to remove
+     * @return true if the device was indexed, false otherwise
+     */
+    public synchronized boolean remove(final IDevice device)
+    {
+        final EqualityKey key = keysByDevice.remove(device);
+
+        if (key == null)
+        {
+            return false;
+        }
+
+        removeFromBucket(key, device);
+
+        return true;
+    }
+
+    /**
+     * Determines whether a device is in the index.
+     *
+     * @param device the IDevice to look for
+     * @return true if this exact device is indexed, false otherwise
+     */
+    public synchronized boolean contains(final IDevice device)
+    {
+        return keysByDevice.containsKey(device);
+    }
+
+    /**
+     * Finds every indexed device which the given device is equal to; that is, every device d for which
+     * query.equals(d) is true. The query itself does not need to be indexed. Since IPhone's equals also accepts
+     * IPhone17s with the same remaining plan minutes, an IPhone query includes those IPhone17s as well.
+     *
+     * @param query the IDevice to compare against
+     * @return a new List of the equal devices
+     */
+    public synchronized List<IDevice> findEqual(final IDevice query)
+    {
+        if (query == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        final List<IDevice> equal;
+        final EqualityKey key;
+
+        equal = new ArrayList<>();
+        key = EqualityKey.of(query);
+
+        addBucket(equal, key);
+
+        if (key.type == DeviceType.IPHONE)
+        {
+            addBucket(equal, new EqualityKey(DeviceType.IPHONE17, key.bits, true));
+            addBucket(equal, new EqualityKey(DeviceType.IPHONE17, key.bits, false));
+        }
+
+        return equal;
+    }
+
+    /**
+     * Counts every indexed device which the given device is equal to, without building a list of them, so that
+     * countEqual(query) is always findEqual(query).size(). Like findEqual, an IPhone query counts the IPhone17s with
+     * the same remaining plan minutes as well.
+     *
+     * @param query the IDevice to compare against
+     * @return the number of indexed devices d for which query.equals(d) is true
+     */
+    public synchronized int countEqual(final IDevice query)
+    {
+        if (query == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        final EqualityKey key;
+        int count;
+
+        key = EqualityKey.of(query);
+        count = bucketSize(key);
+
+        if (key.type == DeviceType.IPHONE)
+        {
+            count += bucketSize(new EqualityKey(DeviceType.IPHONE17, key.bits, true));
+            count += bucketSize(new EqualityKey(DeviceType.IPHONE17, key.bits, false));
+        }
+
+        return count;
+    }
+
+    /**
+     * Counts the distinct equivalence classes among the indexed devices. Devices of different concrete types are
+     * never in the same class.
+     *
+     * @return the number of equivalence classes
+     */
+    public synchronized int equivalenceClassCount()
+    {
+        return buckets.size();
+    }
+
+    /**
+     * Returns the number of devices in the index.
+     *
+     * @return the number of indexed devices
+     */
+    public synchronized int size()
+    {
+        return keysByDevice.size();
+    }
+
+    /**
+     * Nothing needs to happen before a change, since the old key of each indexed device is already recorded.
+     *
+     * @param device the IDevice being changed
+     * @param field  the field being changed
+     */
+    @Override
+    public void beforeChange(final IDevice device,
+                             final DeviceField field)
+    {
+    }
+
+    /**
+     * Moves an indexed device into the bucket for its new key after one of its fields changes.
+     *
+     * @param device the IDevice that changed
+     * @param field  the field that changed
+     */
+    @Override
+    public synchronized void afterChange(final IDevice device,
+                                         final DeviceField field)
+    {
+        final EqualityKey oldKey = keysByDevice.get(device);
+
+        if (oldKey == null)
+        {
+            return;
+        }
+
+        final EqualityKey newKey = EqualityKey.of(device);
+
+        if (oldKey.equals(newKey))
+        {
+            return;
+        }
+
+        removeFromBucket(oldKey, device);
+        keysByDevice.put(device, newKey);
+        bucketFor(newKey).add(device);
+    }
+
+    /**
+     * Stops the index from following device changes.
+     */
+    @Override
+    public void close()
+    {
+        DeviceChanges.unregister(this);
+    }
+
+    // Returns the bucket for a key, creating it if necessary.
+    private Set<IDevice> bucketFor(final EqualityKey key)
+    {
+        return buckets.computeIfAbsent(key, k -> Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    // Removes a device from the bucket for a key, dropping the bucket once it is empty.
+    private void removeFromBucket(final EqualityKey key,
+                                  final IDevice device)
+    {
+        final Set<IDevice> bucket = buckets.get(key);
+
+        bucket.remove(device);
+
+        if (bucket.isEmpty())
+        {
+            buckets.remove(key);
+        }
+    }
+
+    // Adds the contents of the bucket for a key, if there is one, to a list.
+    private void addBucket(final List<IDevice> devices,
+                           final EqualityKey key)
+    {
+        final Set<IDevice> bucket = buckets.get(key);
+
+        if (bucket != null)
+        {
+            devices.addAll(bucket);
+        }
+    }
+
+    // Returns the number of devices in the bucket for a key, or 0 if there is none.
+    private int bucketSize(final EqualityKey key)
+    {
+        final Set<IDevice> bucket = buckets.get(key);
+
+        return bucket == null ? 0 : bucket.size();
+    }
+
+    /*
+     * Immutable snapshot of the fields a device's equality depends on. Double fields are stored as their raw long
+     * bits, matching the equivalence relation of Double.equals(), and Strings as their dictionary codes.
+     */
+    private static final class EqualityKey
+    {
+        private final DeviceType type;
+        private final long bits;
+        private final boolean flag;
+
+        private EqualityKey(final DeviceType type,
+                            final long bits,
+                            final boolean flag)
+        {
+            this.type = type;
+            this.bits = bits;
+            this.flag = flag;
+        }
+
+        // Creates the key for a device's current state.
+        private static EqualityKey of(final IDevice device)
+        {
+            return switch (DeviceType.of(device))
+            {
+                case IPOD -> new EqualityKey(DeviceType.IPOD,
+                                             ((IPod) device).getSongsStored(),
+                                             false);
+                case IPAD -> new EqualityKey(DeviceType.IPAD,
+                                             ((IPad) device).getOperatingSystemVersionCode(),
+                                             false);
+                case IPHONE -> new EqualityKey(DeviceType.IPHONE,
+                                               Double.doubleToLongBits(((IPhone) device).getRemainingPlanMinutes()),
+                                               false);
+                case IPHONE17 -> new EqualityKey(DeviceType.IPHONE17,
+                                                 Double.doubleToLongBits(((IPhone17) device).getRemainingPlanMinutes()),
+                                                 ((IPhone17) device).hasHighResolutionCamera());
+            };
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (!(o instanceof final EqualityKey other))
+            {
+                return false;
+            }
+
+            return this.type == other.type &&
+                   this.bits == other.bits &&
+                   this.flag == other.flag;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int hash = type.hashCode();
+
+            hash = 31 * hash + Long.hashCode(bits);
+            hash = 31 * hash + Boolean.hashCode(flag);
+
+            return hash;
+        }
+    }
+}
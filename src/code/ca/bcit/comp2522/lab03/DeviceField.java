@@ -0,0 +1,22 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * Enumerates the mutable fields of the IDevice hierarchy. Used to describe which field a mutator is changing
+ * when notifying a DeviceChangeListener.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public enum DeviceField
+{
+    SONGS_STORED,
+    MAX_VOLUME_DB,
+    TABLET_CASE,
+    OPERATING_SYSTEM_VERSION,
+    REMAINING_PLAN_MINUTES,
+    CARRIER,
+    HIGH_RESOLUTION_CAMERA,
+    MEMORY_GB
+}
@@ -0,0 +1,78 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * Constants describing the binary device file format shared by DeviceFileWriter and MappedDeviceFile.
+ *
+ * A file consists of a header, one fixed-width record per device, and then a string table:
+ * - Header: magic (int), version (int), record count (long), string count (int), records offset (long)
+ * - Records, starting at the records offset, each RECORD_BYTES long:
+ *   type tag (byte), flags (byte), padding (2 bytes), int value (int), double value (double),
+ *   string code (int), padding (4 bytes)
+ * - String table, straight after the last record and running to the end of the file: for each string, its UTF-8
+ *   length (int) followed by its UTF-8 bytes
+ *
+ * Which fields a record uses depends on its type:
+ * - IPod: int value is songsStored, double value is maxVolumeDb
+ * - IPad: flags hold tabletCase, string code is operatingSystemVersion
+ * - IPhone: double value is remainingPlanMinutes, string code is carrier
+ * - IPhone17: as IPhone, plus flags hold highResolutionCamera and int value is memoryGB
+ *
+ * All values are big-endian.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+final class DeviceFileFormat
+{
+    static final int MAGIC = 0x49444556; // "IDEV"
+    static final int VERSION = 2;
+
+    static final int HEADER_BYTES = 28;
+    static final int RECORD_BYTES = 24;
+
+    static final int TYPE_OFFSET = 0;
+    static final int FLAGS_OFFSET = 1;
+    static final int INT_VALUE_OFFSET = 4;
+    static final int DOUBLE_VALUE_OFFSET = 8;
+    static final int STRING_CODE_OFFSET = 16;
+
+    static final byte TABLET_CASE_FLAG = 0x01;
+    static final byte HIGH_RESOLUTION_CAMERA_FLAG = 0x02;
+    static final int NO_STRING = -1;
+
+    static final byte IPOD_TAG = 0;
+    static final byte IPAD_TAG = 1;
+    static final byte IPHONE_TAG = 2;
+    static final byte IPHONE17_TAG = 3;
+
+    private DeviceFileFormat()
+    {
+    }
+
+    // Converts a DeviceType to its type tag.
+    static byte tagOf(final DeviceType type)
+    {
+        return switch (type)
+        {
+            case IPOD -> IPOD_TAG;
+            case IPAD -> IPAD_TAG;
+            case IPHONE -> IPHONE_TAG;
+            case IPHONE17 -> IPHONE17_TAG;
+        };
+    }
+
+    // Converts a type tag to its DeviceType.
+    static DeviceType typeOf(final byte tag)
+    {
+        return switch (tag)
+        {
+            case IPOD_TAG -> DeviceType.IPOD;
+            case IPAD_TAG -> DeviceType.IPAD;
+            case IPHONE_TAG -> DeviceType.IPHONE;
+            case IPHONE17_TAG -> DeviceType.IPHONE17;
+            default -> throw new IllegalArgumentException("Invalid device type tag: " + tag);
+        };
+    }
+}
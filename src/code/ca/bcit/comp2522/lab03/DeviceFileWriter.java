@@ -0,0 +1,223 @@
+package ca.bcit.comp2522.lab03;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes collections of IDevices to the compact binary format described in DeviceFileFormat, for reading back
+ * with MappedDeviceFile. Carriers and operating system versions are written once each to a string table and
+ * referred to by code from the fixed-width device records.
+ *
+ * Records are streamed to the file as they are encoded, through one small buffer, so writing takes memory for the
+ * distinct strings only, however many devices there are. The string table is written after the records and the
+ * header last, once the counts are known.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceFileWriter
+{
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int RECORD_ALIGNMENT = 8;
+
+    // Records start at the first aligned offset after the header, so the string table can follow them.
+    private static final long RECORDS_OFFSET =
+        (DeviceFileFormat.HEADER_BYTES + RECORD_ALIGNMENT - 1) / RECORD_ALIGNMENT * RECORD_ALIGNMENT;
+
+    private DeviceFileWriter()
+    {
+    }
+
+    /**
+     * Writes devices to a file, replacing any existing contents.
+     *
+     * @param path    the file to write
+     * @param devices the IDevices to write; iterated once, so each record and the string table agree even if the
+     *                devices change meanwhile
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(final Path path,
+                             final Iterable<? extends IDevice> devices) throws IOException
+    {
+        if (path == null || devices == null)
+        {
+            throw new IllegalArgumentException("Invalid path or devices");
+        }
+
+        try (final FileChannel channel = FileChannel.open(path,
+                                                          StandardOpenOption.CREATE,
+                                                          StandardOpenOption.WRITE,
+                                                          StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            final Map<String, Integer> codes;
+            final List<String> strings;
+            final ByteBuffer buffer;
+            long recordCount;
+
+            codes = new HashMap<>();
+            strings = new ArrayList<>();
+            buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            recordCount = 0L;
+
+            // The header's place is left zeroed, so a file whose writing was cut short is never taken for a
+            // device file, and is filled in once the counts are known.
+            for (long i = 0; i < RECORDS_OFFSET; i++)
+            {
+                buffer.put((byte) 0);
+            }
+
+            // Records are written as they are encoded, building the string table which follows them.
+            for (final IDevice device : devices)
+            {
+                ensureRemaining(channel, buffer, DeviceFileFormat.RECORD_BYTES);
+                putRecord(buffer, device, codes, strings);
+                recordCount++;
+            }
+
+            for (final String string : strings)
+            {
+                final byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+
+                ensureRemaining(channel, buffer, Integer.BYTES);
+                buffer.putInt(encoded.length);
+
+                int written = 0;
+
+                while (written < encoded.length)
+                {
+                    ensureRemaining(channel, buffer, 1);
+
+                    final int chunk = Math.min(buffer.remaining(), encoded.length - written);
+
+                    buffer.put(encoded, written, chunk);
+                    written += chunk;
+                }
+            }
+
+            drain(channel, buffer);
+
+            buffer.putInt(DeviceFileFormat.MAGIC);
+            buffer.putInt(DeviceFileFormat.VERSION);
+            buffer.putLong(recordCount);
+            buffer.putInt(strings.size());
+            buffer.putLong(RECORDS_OFFSET);
+            buffer.flip();
+
+            long position = 0L;
+
+            while (buffer.hasRemaining())
+            {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    // Writes one device record at the buffer's position, adding its string to the string table if it is new.
+    private static void putRecord(final ByteBuffer buffer,
+                                  final IDevice device,
+                                  final Map<String, Integer> codes,
+                                  final List<String> strings)
+    {
+        final DeviceType type;
+        byte flags;
+        int intValue;
+        double doubleValue;
+        int stringCode;
+
+        type = DeviceType.of(device);
+        flags = 0;
+        intValue = 0;
+        doubleValue = 0.0;
+        stringCode = DeviceFileFormat.NO_STRING;
+
+        switch (type)
+        {
+            case IPOD ->
+            {
+                final IPod ipod = (IPod) device;
+                intValue = ipod.getSongsStored();
+                doubleValue = ipod.getMaxVolumeDb();
+            }
+            case IPAD ->
+            {
+                final IPad ipad = (IPad) device;
+                flags = ipad.hasCase() ? DeviceFileFormat.TABLET_CASE_FLAG : 0;
+                stringCode = codeOf(ipad.getOperatingSystemVersion(), codes, strings);
+            }
+            case IPHONE ->
+            {
+                final IPhone iphone = (IPhone) device;
+                doubleValue = iphone.getRemainingPlanMinutes();
+                stringCode = codeOf(iphone.getCarrier(), codes, strings);
+            }
+            case IPHONE17 ->
+            {
+                final IPhone17 iphone17 = (IPhone17) device;
+                flags = iphone17.hasHighResolutionCamera() ? DeviceFileFormat.HIGH_RESOLUTION_CAMERA_FLAG : 0;
+                intValue = iphone17.getMemoryGB();
+                doubleValue = iphone17.getRemainingPlanMinutes();
+                stringCode = codeOf(iphone17.getCarrier(), codes, strings);
+            }
+        }
+
+        buffer.put(DeviceFileFormat.tagOf(type));
+        buffer.put(flags);
+        buffer.putShort((short) 0);
+        buffer.putInt(intValue);
+        buffer.putDouble(doubleValue);
+        buffer.putInt(stringCode);
+        buffer.putInt(0);
+    }
+
+    // Returns a string's code in the string table, adding it to the table if it is not there yet.
+    private static int codeOf(final String string,
+                              final Map<String, Integer> codes,
+                              final List<String> strings)
+    {
+        final Integer code = codes.putIfAbsent(string, strings.size());
+
+        if (code != null)
+        {
+            return code;
+        }
+
+        strings.add(string);
+
+        return strings.size() - 1;
+    }
+
+    // Writes out the buffer first if it has fewer than the given number of bytes remaining.
+    private static void ensureRemaining(final FileChannel channel,
+                                        final ByteBuffer buffer,
+                                        final int bytes) throws IOException
+    {
+        if (buffer.remaining() < bytes)
+        {
+            drain(channel, buffer);
+        }
+    }
+
+    // Writes the buffer's contents to the channel and clears it.
+    private static void drain(final FileChannel channel,
+                              final ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+}
@@ -0,0 +1,127 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * Computes well-mixed 64-bit hashes of IDevices, for the probabilistic sketches DeviceBloomFilter and
+ * DeviceHyperLogLog. hashCode is kept cheap and returns little more than a device's fields (an IPod's is its
+ * songsStored), which is fine for a HashMap but lets a sketch's hashes cluster. hash64 hashes exactly the fields
+ * each class's equals compares, the same ones DeviceEqualityIndex groups by, together with the device's type:
+ * - IPod: songsStored
+ * - IPad: operatingSystemVersion
+ * - IPhone: remainingPlanMinutes
+ * - IPhone17: remainingPlanMinutes and highResolutionCamera
+ *
+ * So devices which are equal to each other always hash alike. As in DeviceEqualityIndex, an IPhone and an
+ * IPhone17 are never in the same class, since IPhone17.equals never accepts an IPhone. Doubles are hashed as by
+ * Double.equals, and strings by their characters rather than their dictionary codes, so a hash does not depend
+ * on the JVM that computed it and sketches built in different processes can be merged.
+ *
+ * Each field is folded in with a multiply and rotate, and the result is finished with the SplitMix64 mixer, so
+ * every input bit affects every output bit.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceHashing
+{
+    private static final long[] TYPE_SEEDS = {0x243F6A8885A308D3L,
+                                              0x13198A2E03707344L,
+                                              0xA4093822299F31D0L,
+                                              0x082EFA98EC4E6C89L};
+    private static final long FOLD_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final long FOLD_FINISH = 0xC2B2AE3D27D4EB4FL;
+    private static final int FOLD_ROTATION = 31;
+    private static final long MIX_MULTIPLIER_1 = 0xBF58476D1CE4E5B9L;
+    private static final long MIX_MULTIPLIER_2 = 0x94D049BB133111EBL;
+
+    private DeviceHashing()
+    {
+    }
+
+    /**
+     * Computes the 64-bit hash of a device's equality fields and type.
+     *
+     * @param device the IDevice to hash
+     * @return a hash which is the same for every device of the same type with the same equality fields
+     */
+    public static long hash64(final IDevice device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        final DeviceType type = DeviceType.of(device);
+        final long seed = TYPE_SEEDS[type.ordinal()];
+
+        return switch (type)
+        {
+            case IPOD -> mix(fold(seed, ((IPod) device).getSongsStored()));
+            case IPAD -> hash64(((IPad) device).getOperatingSystemVersion());
+            case IPHONE -> mix(fold(seed, Double.doubleToLongBits(((IPhone) device).getRemainingPlanMinutes())));
+            case IPHONE17 ->
+            {
+                final IPhone17 iphone17 = (IPhone17) device;
+                final long minutes = fold(seed, Double.doubleToLongBits(iphone17.getRemainingPlanMinutes()));
+
+                yield mix(fold(minutes, iphone17.hasHighResolutionCamera() ? 1L : 0L));
+            }
+        };
+    }
+
+    /*
+     * Computes the 64-bit hash of a string's characters, as hash64 hashes an IPad's operating system version.
+     */
+    static long hash64(final String string)
+    {
+        return mix(foldString(TYPE_SEEDS[DeviceType.IPAD.ordinal()], string));
+    }
+
+    /*
+     * Applies the SplitMix64 finalizer, which spreads every bit of its input over every bit of its output.
+     * Shared by the sketches to derive further hashes from one.
+     */
+    static long mix(final long value)
+    {
+        long mixed = value;
+
+        mixed = (mixed ^ (mixed >>> 30)) * MIX_MULTIPLIER_1;
+        mixed = (mixed ^ (mixed >>> 27)) * MIX_MULTIPLIER_2;
+
+        return mixed ^ (mixed >>> 31);
+    }
+
+    // Folds one field into a running hash.
+    private static long fold(final long hash,
+                             final long field)
+    {
+        return Long.rotateLeft(hash ^ (field * FOLD_MULTIPLIER), FOLD_ROTATION) * FOLD_FINISH;
+    }
+
+    // Folds a string's length and characters, four at a time, into a running hash.
+    private static long foldString(final long hash,
+                                   final String string)
+    {
+        final int length = string.length();
+        long folded = fold(hash, length);
+        int i = 0;
+
+        for (; i + 4 <= length; i += 4)
+        {
+            folded = fold(folded, (long) string.charAt(i) |
+                                  (long) string.charAt(i + 1) << 16 |
+                                  (long) string.charAt(i + 2) << 32 |
+                                  (long) string.charAt(i + 3) << 48);
+        }
+
+        long tail = 0L;
+
+        for (int shift = 0; i < length; i++, shift += 16)
+        {
+            tail |= (long) string.charAt(i) << shift;
+        }
+
+        return fold(folded, tail);
+    }
+}
@@ -0,0 +1,170 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reports the most common carriers of IPhones and IPhone17s, operating system versions of IPads and memory tiers
+ * of IPhone17s in a stream of device events, such as activations, in memory bounded by the number of processors
+ * rather than the number of threads, devices or distinct values. Each is tracked by its own HeavyHitterTracker, so
+ * any number of threads may accept devices at once without locking, and a dashboard may read the top values on
+ * every refresh without counting every value seen.
+ *
+ * Carriers and operating system versions are hashed by their characters with DeviceHashing, and memory tiers by
+ * their number of gigabytes. The top values include every device accepted before they were asked for, whether or
+ * not the thread which accepted it is still running.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceHeavyHitters implements Consumer<IDevice>
+{
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final int DEFAULT_WIDTH = 1024;
+    private static final int DEFAULT_DEPTH = 4;
+    private static final int DEFAULT_PUBLISH_INTERVAL = 4096;
+
+    private final HeavyHitterTracker<String> carriers;
+    private final HeavyHitterTracker<String> operatingSystemVersions;
+    private final HeavyHitterTracker<Integer> memoryTiers;
+
+    /**
+     * Constructs an empty DeviceHeavyHitters which tracks 64 values of each kind, with 1024 by 4 Count-Min
+     * sketches, and hands each slot's summaries over every 4096 devices.
+     */
+    public DeviceHeavyHitters()
+    {
+        this(DEFAULT_CAPACITY, DEFAULT_WIDTH, DEFAULT_DEPTH, DEFAULT_PUBLISH_INTERVAL);
+    }
+
+    /**
+     * Constructs an empty DeviceHeavyHitters.
+     *
+     * @param capacity        the number of values of each kind each Space-Saving summary tracks, greater than 0
+     * @param width           the number of counters in each row of each Count-Min sketch
+     * @param depth           the number of rows of each Count-Min sketch, from 1 to 32
+     * @param publishInterval the number of values of each kind after which a slot hands over its summary,
+     *                        greater than 0
+     */
+    public DeviceHeavyHitters(final int capacity,
+                              final int width,
+                              final int depth,
+                              final int publishInterval)
+    {
+        this.carriers = new HeavyHitterTracker<>(capacity, width, depth, publishInterval, DeviceHashing::hash64);
+        this.operatingSystemVersions =
+            new HeavyHitterTracker<>(capacity, width, depth, publishInterval, DeviceHashing::hash64);
+        this.memoryTiers = new HeavyHitterTracker<>(capacity, width, depth, publishInterval,
+                                                  memoryGB -> DeviceHashing.mix(memoryGB));
+    }
+
+    /**
+     * Counts a device's carrier, operating system version or memory tier. IPods have none of these, and are
+     * ignored.
+     *
+     * @param device the IDevice seen
+     */
+    @Override
+    public void accept(final IDevice device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        switch (DeviceType.of(device))
+        {
+            case IPOD ->
+            {
+            }
+            case IPAD -> operatingSystemVersions.add(((IPad) device).getOperatingSystemVersion());
+            case IPHONE -> carriers.add(((IPhone) device).getCarrier());
+            case IPHONE17 ->
+            {
+                final IPhone17 iphone17 = (IPhone17) device;
+
+                carriers.add(iphone17.getCarrier());
+                memoryTiers.add(iphone17.getMemoryGB());
+            }
+        }
+    }
+
+    /**
+     * Hands over everything counted so far. The top values already include it, so calling flush is never needed;
+     * it only moves the work of merging off the next refresh.
+     */
+    public void flush()
+    {
+        carriers.flush();
+        operatingSystemVersions.flush();
+        memoryTiers.flush();
+    }
+
+    /**
+     * Returns the most common carriers of IPhones and IPhone17s, most common first.
+     *
+     * @param n the largest number of carriers to return, at most the capacity
+     * @return up to n carriers with their counts
+     */
+    public List<HeavyHitter<String>> topCarriers(final int n)
+    {
+        return carriers.top(n);
+    }
+
+    /**
+     * Returns the most common operating system versions of IPads, most common first.
+     *
+     * @param n the largest number of versions to return, at most the capacity
+     * @return up to n operating system versions with their counts
+     */
+    public List<HeavyHitter<String>> topOperatingSystemVersions(final int n)
+    {
+        return operatingSystemVersions.top(n);
+    }
+
+    /**
+     * Returns the most common memory tiers of IPhone17s, most common first.
+     *
+     * @param n the largest number of tiers to return, at most the capacity
+     * @return up to n memory sizes in gigabytes with their counts
+     */
+    public List<HeavyHitter<Integer>> topMemoryTiers(final int n)
+    {
+        return memoryTiers.top(n);
+    }
+
+    /**
+     * Estimates how many IPhones and IPhone17s with a carrier have been seen.
+     *
+     * @param carrier the name of the carrier
+     * @return an estimate which is never below the true count
+     */
+    public long estimateCarrier(final String carrier)
+    {
+        return carriers.estimate(carrier);
+    }
+
+    /**
+     * Estimates how many IPads with an operating system version have been seen.
+     *
+     * @param operatingSystemVersion the operating system version
+     * @return an estimate which is never below the true count
+     */
+    public long estimateOperatingSystemVersion(final String operatingSystemVersion)
+    {
+        return operatingSystemVersions.estimate(operatingSystemVersion);
+    }
+
+    /**
+     * Estimates how many IPhone17s with a memory size have been seen.
+     *
+     * @param memoryGB the gigabytes of memory
+     * @return an estimate which is never below the true count
+     */
+    public long estimateMemoryTier(final int memoryGB)
+    {
+        return memoryTiers.estimate(memoryGB);
+    }
+}
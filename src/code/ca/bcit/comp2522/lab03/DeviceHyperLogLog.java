@@ -0,0 +1,168 @@
+package ca.bcit.comp2522.lab03;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A HyperLogLog sketch which estimates how many distinct classes of equal devices have been added, in a fixed
+ * amount of memory however many devices are added. With the default precision of 14, the sketch takes 16 KB and
+ * its estimates have a relative standard error of about 0.8%.
+ *
+ * Devices are hashed with DeviceHashing.hash64, so adding a device equal to one already added never changes the
+ * estimate. The first precision bits of the hash choose a register, and the register keeps the largest number of
+ * leading zeros seen in the remaining bits. Registers are raised with compare-and-set, so any number of threads
+ * may add at once without locking, and merge takes the larger of each pair of registers of two sketches with the
+ * same precision, such as one per thread or partition.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceHyperLogLog
+{
+    private static final VarHandle REGISTERS = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 18;
+    private static final int DEFAULT_PRECISION = 14;
+    private static final double STANDARD_ERROR_FACTOR = 1.04;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Constructs an empty DeviceHyperLogLog with the default precision of 14.
+     */
+    public DeviceHyperLogLog()
+    {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Constructs an empty DeviceHyperLogLog with 2 to the power of precision registers.
+     *
+     * @param precision the number of hash bits which choose a register, from 4 to 18
+     */
+    public DeviceHyperLogLog(final int precision)
+    {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION)
+        {
+            throw new IllegalArgumentException("Invalid precision: " + precision);
+        }
+
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Adds a device to the sketch.
+     *
+     * @param device the IDevice to add
+     * @return true if the sketch changed, false if the device made no difference to it
+     */
+    public boolean add(final IDevice device)
+    {
+        final long hash = DeviceHashing.hash64(device);
+        final int register = (int) (hash >>> (Long.SIZE - precision));
+        final byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        byte current = (byte) REGISTERS.getOpaque(registers, register);
+
+        while (current < rank)
+        {
+            if (REGISTERS.compareAndSet(registers, register, current, rank))
+            {
+                return true;
+            }
+
+            current = (byte) REGISTERS.getOpaque(registers, register);
+        }
+
+        return false;
+    }
+
+    /**
+     * Estimates the number of distinct classes of equal devices added.
+     *
+     * @return the estimated number of distinct devices
+     */
+    public long estimate()
+    {
+        final int count = registers.length;
+        double sum = 0.0;
+        int zeros = 0;
+
+        for (int register = 0; register < count; register++)
+        {
+            final byte rank = (byte) REGISTERS.getOpaque(registers, register);
+
+            sum += Math.scalb(1.0, -rank);
+            zeros += rank == 0 ? 1 : 0;
+        }
+
+        final double raw = alpha(count) * count * count / sum;
+
+        // Small cardinalities leave registers empty, and are counted more accurately from how many.
+        if (raw <= 2.5 * count && zeros > 0)
+        {
+            return Math.round(count * Math.log((double) count / zeros));
+        }
+
+        return Math.round(raw);
+    }
+
+    /**
+     * Adds every device added to another sketch to this one. The other sketch must have the same precision.
+     *
+     * @param other the sketch to merge into this one
+     */
+    public void merge(final DeviceHyperLogLog other)
+    {
+        if (other == null || other.precision != precision)
+        {
+            throw new IllegalArgumentException("Invalid sketch: must have the same precision");
+        }
+
+        for (int register = 0; register < registers.length; register++)
+        {
+            final byte rank = (byte) REGISTERS.getOpaque(other.registers, register);
+            byte current = (byte) REGISTERS.getOpaque(registers, register);
+
+            while (current < rank && !REGISTERS.compareAndSet(registers, register, current, rank))
+            {
+                current = (byte) REGISTERS.getOpaque(registers, register);
+            }
+        }
+    }
+
+    /**
+     * Accessor for the precision.
+     *
+     * @return the number of hash bits which choose a register
+     */
+    public int precision()
+    {
+        return precision;
+    }
+
+    /**
+     * Returns the relative standard error of the sketch's estimates, which depends only on its precision.
+     *
+     * @return the relative standard error, such as 0.008 for 0.8%
+     */
+    public double relativeStandardError()
+    {
+        return STANDARD_ERROR_FACTOR / Math.sqrt(registers.length);
+    }
+
+    // Returns the bias correction constant for a number of registers.
+    private static double alpha(final int count)
+    {
+        return switch (count)
+        {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1.0 + 1.079 / count);
+        };
+    }
+}
@@ -0,0 +1,851 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * Stores large numbers of IDevices in columnar (struct-of-arrays) form. Rather than holding one object per device,
+ * each concrete type has its own section of primitive columns, and devices are addressed by their type and their
+ * row within that type's section. Scans and aggregations run directly over the columns.
+ *
+ * All values are checked with the same validation rules as the IDevice constructors and mutators. Carriers and
+ * operating system versions are stored as their StringDictionary codes.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public class DeviceInventory
+{
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int GROWTH_FACTOR = 2;
+
+    // IPod section
+    private int ipodCount;
+    private int[] songsStored;
+    private double[] maxVolumeDb;
+
+    // IPad section
+    private int ipadCount;
+    private final BitSet tabletCase;
+    private int[] operatingSystemVersionCodes;
+
+    // IPhone section
+    private int iphoneCount;
+    private double[] iphoneRemainingPlanMinutes;
+    private int[] iphoneCarrierCodes;
+
+    // IPhone17 section
+    private int iphone17Count;
+    private double[] iphone17RemainingPlanMinutes;
+    private int[] iphone17CarrierCodes;
+    private final BitSet highResolutionCamera;
+    private int[] memoryGB;
+
+    /**
+     * Constructs a new, empty DeviceInventory.
+     */
+    public DeviceInventory()
+    {
+        this.songsStored = new int[DEFAULT_CAPACITY];
+        this.maxVolumeDb = new double[DEFAULT_CAPACITY];
+
+        this.tabletCase = new BitSet(DEFAULT_CAPACITY);
+        this.operatingSystemVersionCodes = new int[DEFAULT_CAPACITY];
+
+        this.iphoneRemainingPlanMinutes = new double[DEFAULT_CAPACITY];
+        this.iphoneCarrierCodes = new int[DEFAULT_CAPACITY];
+
+        this.iphone17RemainingPlanMinutes = new double[DEFAULT_CAPACITY];
+        this.iphone17CarrierCodes = new int[DEFAULT_CAPACITY];
+        this.highResolutionCamera = new BitSet(DEFAULT_CAPACITY);
+        this.memoryGB = new int[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Adds the fields of an existing IDevice to the inventory.
+     *
+     * @param device the IDevice to copy into the inventory
+     * @return the row of the device within its type's section
+     */
+    public int add(final IDevice device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        return switch (DeviceType.of(device))
+        {
+            case IPOD ->
+            {
+                final IPod ipod = (IPod) device;
+                yield addIPod(ipod.getSongsStored(),
+                              ipod.getMaxVolumeDb());
+            }
+            case IPAD ->
+            {
+                final IPad ipad = (IPad) device;
+                yield addIPad(ipad.hasCase(),
+                              ipad.getOperatingSystemVersion());
+            }
+            case IPHONE ->
+            {
+                final IPhone iphone = (IPhone) device;
+                yield addIPhone(iphone.getRemainingPlanMinutes(),
+                                iphone.getCarrier());
+            }
+            case IPHONE17 ->
+            {
+                final IPhone17 iphone17 = (IPhone17) device;
+                yield addIPhone17(iphone17.getRemainingPlanMinutes(),
+                                  iphone17.getCarrier(),
+                                  iphone17.hasHighResolutionCamera(),
+                                  iphone17.getMemoryGB());
+            }
+        };
+    }
+
+    /**
+     * Adds an IPod to the inventory.
+     *
+     * @param songsStored the number of songs stored on the IPod
+     * @param maxVolumeDb the maximum volume of the IPod, in decibels
+     * @return the row of the new IPod
+     */
+    public int addIPod(final int songsStored,
+                       final double maxVolumeDb)
+    {
+        IPod.validateSongsStored(songsStored);
+        IPod.validateMaxVolumeDb(maxVolumeDb);
+
+        if (ipodCount == this.songsStored.length)
+        {
+            final int newCapacity = ipodCount * GROWTH_FACTOR;
+            this.songsStored = Arrays.copyOf(this.songsStored, newCapacity);
+            this.maxVolumeDb = Arrays.copyOf(this.maxVolumeDb, newCapacity);
+        }
+
+        this.songsStored[ipodCount] = songsStored;
+        this.maxVolumeDb[ipodCount] = maxVolumeDb;
+
+        return ipodCount++;
+    }
+
+    /**
+     * Adds an IPad to the inventory.
+     *
+     * @param tabletCase             true if the IPad has a case, false otherwise
+     * @param operatingSystemVersion the OS version of the IPad
+     * @return the row of the new IPad
+     */
+    public int addIPad(final boolean tabletCase,
+                       final String operatingSystemVersion)
+    {
+        IPad.validateOperatingSystemVersion(operatingSystemVersion);
+
+        if (ipadCount == operatingSystemVersionCodes.length)
+        {
+            operatingSystemVersionCodes = Arrays.copyOf(operatingSystemVersionCodes, ipadCount * GROWTH_FACTOR);
+        }
+
+        final int code = StringDictionary.OPERATING_SYSTEM_VERSIONS.encode(operatingSystemVersion);
+
+        this.tabletCase.set(ipadCount, tabletCase);
+        operatingSystemVersionCodes[ipadCount] = code;
+
+        return ipadCount++;
+    }
+
+    /**
+     * Adds an IPhone to the inventory.
+     *
+     * @param remainingPlanMinutes the number of minutes remaining on the IPhone's plan
+     * @param carrier              the name of the IPhone's carrier
+     * @return the row of the new IPhone
+     */
+    public int addIPhone(final double remainingPlanMinutes,
+                         final String carrier)
+    {
+        IPhone.validateRemainingPlanMinutes(remainingPlanMinutes);
+        IPhone.validateCarrier(carrier);
+
+        if (iphoneCount == iphoneCarrierCodes.length)
+        {
+            final int newCapacity = iphoneCount * GROWTH_FACTOR;
+            iphoneRemainingPlanMinutes = Arrays.copyOf(iphoneRemainingPlanMinutes, newCapacity);
+            iphoneCarrierCodes = Arrays.copyOf(iphoneCarrierCodes, newCapacity);
+        }
+
+        iphoneRemainingPlanMinutes[iphoneCount] = remainingPlanMinutes;
+        iphoneCarrierCodes[iphoneCount] = StringDictionary.CARRIERS.encode(carrier);
+
+        return iphoneCount++;
+    }
+
+    /**
+     * Adds an IPhone17 to the inventory.
+     *
+     * @param remainingPlanMinutes the number of minutes remaining on the IPhone17's plan
+     * @param carrier              the name of the IPhone17's carrier
+     * @param highResolutionCamera true if the IPhone17 has a high-resolution camera, false otherwise
+     * @param memoryGB             the gigabytes of memory of the IPhone17
+     * @return the row of the new IPhone17
+     */
+    public int addIPhone17(final double remainingPlanMinutes,
+                           final String carrier,
+                           final boolean highResolutionCamera,
+                           final int memoryGB)
+    {
+        IPhone.validateRemainingPlanMinutes(remainingPlanMinutes);
+        IPhone.validateCarrier(carrier);
+        IPhone17.validateMemoryGB(memoryGB);
+
+        if (iphone17Count == iphone17CarrierCodes.length)
+        {
+            final int newCapacity = iphone17Count * GROWTH_FACTOR;
+            iphone17RemainingPlanMinutes = Arrays.copyOf(iphone17RemainingPlanMinutes, newCapacity);
+            iphone17CarrierCodes = Arrays.copyOf(iphone17CarrierCodes, newCapacity);
+            this.memoryGB = Arrays.copyOf(this.memoryGB, newCapacity);
+        }
+
+        iphone17RemainingPlanMinutes[iphone17Count] = remainingPlanMinutes;
+        iphone17CarrierCodes[iphone17Count] = StringDictionary.CARRIERS.encode(carrier);
+        this.highResolutionCamera.set(iphone17Count, highResolutionCamera);
+        this.memoryGB[iphone17Count] = memoryGB;
+
+        return iphone17Count++;
+    }
+
+    /*
+     * Returns the columns of a type's section. The arrays are the inventory's own, not copies, and must not be
+     * modified; they are usually longer than the section, so only the first count values are rows.
+     */
+    DeviceColumns columns(final DeviceType type)
+    {
+        return switch (type)
+        {
+            case IPOD -> new DeviceColumns(type, ipodCount, songsStored, maxVolumeDb, null, null);
+            case IPAD -> new DeviceColumns(type, ipadCount, null, null, tabletCase, operatingSystemVersionCodes);
+            case IPHONE -> new DeviceColumns(type, iphoneCount, null, iphoneRemainingPlanMinutes, null,
+                                             iphoneCarrierCodes);
+            case IPHONE17 -> new DeviceColumns(type, iphone17Count, memoryGB, iphone17RemainingPlanMinutes,
+                                               highResolutionCamera, iphone17CarrierCodes);
+        };
+    }
+
+    /*
+     * Appends whole columns to the end of a type's section, as if each row were added in turn. Every value is
+     * validated before any is appended, so nothing is appended if one is invalid. Codes are not checked, and must
+     * already be codes of the type's StringDictionary.
+     */
+    void appendColumns(final DeviceColumns columns)
+    {
+        final int count = columns.count();
+
+        switch (columns.type())
+        {
+            case IPOD ->
+            {
+                for (int i = 0; i < count; i++)
+                {
+                    IPod.validateSongsStored(columns.ints()[i]);
+                    IPod.validateMaxVolumeDb(columns.doubles()[i]);
+                }
+
+                final int newCount = ipodCount + count;
+
+                if (newCount > songsStored.length)
+                {
+                    final int newCapacity = capacityFor(songsStored.length, newCount);
+                    songsStored = Arrays.copyOf(songsStored, newCapacity);
+                    maxVolumeDb = Arrays.copyOf(maxVolumeDb, newCapacity);
+                }
+
+                System.arraycopy(columns.ints(), 0, songsStored, ipodCount, count);
+                System.arraycopy(columns.doubles(), 0, maxVolumeDb, ipodCount, count);
+                ipodCount = newCount;
+            }
+            case IPAD ->
+            {
+                final int newCount = ipadCount + count;
+
+                if (newCount > operatingSystemVersionCodes.length)
+                {
+                    operatingSystemVersionCodes = Arrays.copyOf(operatingSystemVersionCodes,
+                                                                capacityFor(operatingSystemVersionCodes.length,
+                                                                            newCount));
+                }
+
+                System.arraycopy(columns.codes(), 0, operatingSystemVersionCodes, ipadCount, count);
+                appendFlags(tabletCase, ipadCount, columns.flags(), count);
+                ipadCount = newCount;
+            }
+            case IPHONE ->
+            {
+                for (int i = 0; i < count; i++)
+                {
+                    IPhone.validateRemainingPlanMinutes(columns.doubles()[i]);
+                }
+
+                final int newCount = iphoneCount + count;
+
+                if (newCount > iphoneCarrierCodes.length)
+                {
+                    final int newCapacity = capacityFor(iphoneCarrierCodes.length, newCount);
+                    iphoneRemainingPlanMinutes = Arrays.copyOf(iphoneRemainingPlanMinutes, newCapacity);
+                    iphoneCarrierCodes = Arrays.copyOf(iphoneCarrierCodes, newCapacity);
+                }
+
+                System.arraycopy(columns.doubles(), 0, iphoneRemainingPlanMinutes, iphoneCount, count);
+                System.arraycopy(columns.codes(), 0, iphoneCarrierCodes, iphoneCount, count);
+                iphoneCount = newCount;
+            }
+            case IPHONE17 ->
+            {
+                for (int i = 0; i < count; i++)
+                {
+                    IPhone.validateRemainingPlanMinutes(columns.doubles()[i]);
+                    IPhone17.validateMemoryGB(columns.ints()[i]);
+                }
+
+                final int newCount = iphone17Count + count;
+
+                if (newCount > iphone17CarrierCodes.length)
+                {
+                    final int newCapacity = capacityFor(iphone17CarrierCodes.length, newCount);
+                    iphone17RemainingPlanMinutes = Arrays.copyOf(iphone17RemainingPlanMinutes, newCapacity);
+                    iphone17CarrierCodes = Arrays.copyOf(iphone17CarrierCodes, newCapacity);
+                    memoryGB = Arrays.copyOf(memoryGB, newCapacity);
+                }
+
+                System.arraycopy(columns.doubles(), 0, iphone17RemainingPlanMinutes, iphone17Count, count);
+                System.arraycopy(columns.codes(), 0, iphone17CarrierCodes, iphone17Count, count);
+                System.arraycopy(columns.ints(), 0, memoryGB, iphone17Count, count);
+                appendFlags(highResolutionCamera, iphone17Count, columns.flags(), count);
+                iphone17Count = newCount;
+            }
+        }
+    }
+
+    /**
+     * Returns the total number of devices in the inventory.
+     *
+     * @return the number of devices of all types
+     */
+    public int size()
+    {
+        return ipodCount + ipadCount + iphoneCount + iphone17Count;
+    }
+
+    /**
+     * Returns the number of devices of a given type in the inventory.
+     *
+     * @param type the type of device to count
+     * @return the number of rows in that type's section
+     */
+    public int size(final DeviceType type)
+    {
+        return switch (type)
+        {
+            case IPOD -> ipodCount;
+            case IPAD -> ipadCount;
+            case IPHONE -> iphoneCount;
+            case IPHONE17 -> iphone17Count;
+        };
+    }
+
+    /**
+     * Materializes a device from the inventory as a new IDevice object. The returned object is a copy; changing
+     * it does not change the inventory.
+     *
+     * @param type the type of the device
+     * @param row  the row of the device within its type's section
+     * @return a new IDevice with the fields stored at the given row
+     */
+    public IDevice toDevice(final DeviceType type,
+                            final int row)
+    {
+        Objects.checkIndex(row, size(type));
+
+        return switch (type)
+        {
+            case IPOD -> new IPod(songsStored[row],
+                                  maxVolumeDb[row]);
+            case IPAD -> new IPad(tabletCase.get(row),
+                                  getOperatingSystemVersion(row));
+            case IPHONE -> new IPhone(iphoneRemainingPlanMinutes[row],
+                                      getCarrier(type, row));
+            case IPHONE17 -> new IPhone17(iphone17RemainingPlanMinutes[row],
+                                          getCarrier(type, row),
+                                          highResolutionCamera.get(row),
+                                          memoryGB[row]);
+        };
+    }
+
+    /**
+     * Accessor for an IPod's songsStored.
+     *
+     * @param row the row of the IPod
+     * @return the number of songs stored on the IPod
+     */
+    public int getSongsStored(final int row)
+    {
+        Objects.checkIndex(row, ipodCount);
+        return songsStored[row];
+    }
+
+    /**
+     * Mutator for an IPod's songsStored.
+     *
+     * @param row         the row of the IPod
+     * @param songsStored the new number of songs stored on the IPod
+     */
+    public void setSongsStored(final int row,
+                               final int songsStored)
+    {
+        Objects.checkIndex(row, ipodCount);
+        IPod.validateSongsStored(songsStored);
+        this.songsStored[row] = songsStored;
+    }
+
+    /**
+     * Accessor for an IPod's maxVolumeDb.
+     *
+     * @param row the row of the IPod
+     * @return the maximum volume of the IPod, in decibels
+     */
+    public double getMaxVolumeDb(final int row)
+    {
+        Objects.checkIndex(row, ipodCount);
+        return maxVolumeDb[row];
+    }
+
+    /**
+     * Mutator for an IPod's maxVolumeDb.
+     *
+     * @param row         the row of the IPod
+     * @param maxVolumeDb the new maximum volume of the IPod, in decibels
+     */
+    public void setMaxVolumeDb(final int row,
+                               final double maxVolumeDb)
+    {
+        Objects.checkIndex(row, ipodCount);
+        IPod.validateMaxVolumeDb(maxVolumeDb);
+        this.maxVolumeDb[row] = maxVolumeDb;
+    }
+
+    /**
+     * Accessor for an IPad's tabletCase.
+     *
+     * @param row the row of the IPad
+     * @return true if the IPad has a case, false otherwise
+     */
+    public boolean hasCase(final int row)
+    {
+        Objects.checkIndex(row, ipadCount);
+        return tabletCase.get(row);
+    }
+
+    /**
+     * Mutator for an IPad's tabletCase.
+     *
+     * @param row        the row of the IPad
+     * @param tabletCase true to give the IPad a case, false to remove it
+     */
+    public void setTabletCase(final int row,
+                              final boolean tabletCase)
+    {
+        Objects.checkIndex(row, ipadCount);
+        this.tabletCase.set(row, tabletCase);
+    }
+
+    /**
+     * Accessor for an IPad's operatingSystemVersion.
+     *
+     * @param row the row of the IPad
+     * @return the IPad's operating system version
+     */
+    public String getOperatingSystemVersion(final int row)
+    {
+        Objects.checkIndex(row, ipadCount);
+        return StringDictionary.OPERATING_SYSTEM_VERSIONS.decode(operatingSystemVersionCodes[row]);
+    }
+
+    // Accessor for the dictionary code of an IPad's operatingSystemVersion.
+    int getOperatingSystemVersionCode(final int row)
+    {
+        Objects.checkIndex(row, ipadCount);
+        return operatingSystemVersionCodes[row];
+    }
+
+    /**
+     * Mutator for an IPad's operatingSystemVersion.
+     *
+     * @param row                    the row of the IPad
+     * @param operatingSystemVersion the IPad's new operating system version
+     */
+    public void setOperatingSystemVersion(final int row,
+                                          final String operatingSystemVersion)
+    {
+        Objects.checkIndex(row, ipadCount);
+        IPad.validateOperatingSystemVersion(operatingSystemVersion);
+        operatingSystemVersionCodes[row] =
+            StringDictionary.OPERATING_SYSTEM_VERSIONS.encode(operatingSystemVersion);
+    }
+
+    /**
+     * Accessor for the remainingPlanMinutes of an IPhone or IPhone17.
+     *
+     * @param type either IPHONE or IPHONE17
+     * @param row  the row of the phone
+     * @return the number of minutes remaining on the phone's plan
+     */
+    public double getRemainingPlanMinutes(final DeviceType type,
+                                          final int row)
+    {
+        Objects.checkIndex(row, size(type));
+        return phoneMinutesColumn(type)[row];
+    }
+
+    /**
+     * Mutator for the remainingPlanMinutes of an IPhone or IPhone17.
+     *
+     * @param type                 either IPHONE or IPHONE17
+     * @param row                  the row of the phone
+     * @param remainingPlanMinutes the new number of minutes remaining on the phone's plan
+     */
+    public void setRemainingPlanMinutes(final DeviceType type,
+                                        final int row,
+                                        final double remainingPlanMinutes)
+    {
+        Objects.checkIndex(row, size(type));
+        IPhone.validateRemainingPlanMinutes(remainingPlanMinutes);
+        phoneMinutesColumn(type)[row] = remainingPlanMinutes;
+    }
+
+    /**
+     * Accessor for the carrier of an IPhone or IPhone17.
+     *
+     * @param type either IPHONE or IPHONE17
+     * @param row  the row of the phone
+     * @return the name of the phone's carrier
+     */
+    public String getCarrier(final DeviceType type,
+                             final int row)
+    {
+        Objects.checkIndex(row, size(type));
+        return StringDictionary.CARRIERS.decode(phoneCarrierColumn(type)[row]);
+    }
+
+    // Accessor for the dictionary code of the carrier of an IPhone or IPhone17.
+    int getCarrierCode(final DeviceType type,
+                       final int row)
+    {
+        Objects.checkIndex(row, size(type));
+        return phoneCarrierColumn(type)[row];
+    }
+
+    /**
+     * Mutator for the carrier of an IPhone or IPhone17.
+     *
+     * @param type    either IPHONE or IPHONE17
+     * @param row     the row of the phone
+     * @param carrier the name of the phone's new carrier
+     */
+    public void setCarrier(final DeviceType type,
+                           final int row,
+                           final String carrier)
+    {
+        Objects.checkIndex(row, size(type));
+        IPhone.validateCarrier(carrier);
+        phoneCarrierColumn(type)[row] = StringDictionary.CARRIERS.encode(carrier);
+    }
+
+    /**
+     * Subtracts each phone's usage from its remaining plan minutes, for every IPhone or every IPhone17 at once.
+     * Results below MIN_REMAINING_PLAN_MINUTES are clamped to it rather than rejected. Runs as a single pass over
+     * the column, vectorized where the Vector API is available.
+     *
+     * @param type  either IPHONE or IPHONE17
+     * @param usage the minutes used by each phone, indexed by row; each must be zero or more
+     */
+    public void subtractRemainingPlanMinutes(final DeviceType type,
+                                             final double[] usage)
+    {
+        final double[] minutes = phoneMinutesColumn(type);
+        final int count = size(type);
+
+        if (usage == null || usage.length != count)
+        {
+            throw new IllegalArgumentException("Invalid usage: expected one value for each of " + count + " rows");
+        }
+
+        for (final double used : usage)
+        {
+            validateUsage(used);
+        }
+
+        PlanMinutesKernels.subtract(minutes, usage, count, IPhone.MIN_REMAINING_PLAN_MINUTES);
+    }
+
+    /**
+     * Subtracts the same usage from the remaining plan minutes of every IPhone or every IPhone17 on a carrier.
+     * Results below MIN_REMAINING_PLAN_MINUTES are clamped to it rather than rejected.
+     *
+     * @param type    either IPHONE or IPHONE17
+     * @param carrier the name of the carrier whose phones are charged
+     * @param usage   the minutes used by each of those phones; must be zero or more
+     */
+    public void subtractRemainingPlanMinutes(final DeviceType type,
+                                             final String carrier,
+                                             final double usage)
+    {
+        final double[] minutes = phoneMinutesColumn(type);
+
+        IPhone.validateCarrier(carrier);
+        validateUsage(usage);
+
+        final int carrierCode = StringDictionary.CARRIERS.lookup(carrier);
+
+        if (carrierCode >= 0)
+        {
+            PlanMinutesKernels.subtractWhere(minutes,
+                                             phoneCarrierColumn(type),
+                                             size(type),
+                                             carrierCode,
+                                             usage,
+                                             IPhone.MIN_REMAINING_PLAN_MINUTES);
+        }
+    }
+
+    /**
+     * Sets the remaining plan minutes of every IPhone or every IPhone17 on a carrier, as at the start of a billing
+     * cycle.
+     *
+     * @param type                 either IPHONE or IPHONE17
+     * @param carrier              the name of the carrier whose phones are reset
+     * @param remainingPlanMinutes the new number of minutes remaining on each of those phones' plans
+     */
+    public void resetRemainingPlanMinutes(final DeviceType type,
+                                          final String carrier,
+                                          final double remainingPlanMinutes)
+    {
+        final double[] minutes = phoneMinutesColumn(type);
+
+        IPhone.validateCarrier(carrier);
+        IPhone.validateRemainingPlanMinutes(remainingPlanMinutes);
+
+        final int carrierCode = StringDictionary.CARRIERS.lookup(carrier);
+
+        if (carrierCode >= 0)
+        {
+            PlanMinutesKernels.assignWhere(minutes,
+                                           phoneCarrierColumn(type),
+                                           size(type),
+                                           carrierCode,
+                                           remainingPlanMinutes);
+        }
+    }
+
+    /**
+     * Accessor for an IPhone17's highResolutionCamera.
+     *
+     * @param row the row of the IPhone17
+     * @return true if the IPhone17 has a high-resolution camera, false otherwise
+     */
+    public boolean hasHighResolutionCamera(final int row)
+    {
+        Objects.checkIndex(row, iphone17Count);
+        return highResolutionCamera.get(row);
+    }
+
+    /**
+     * Mutator for an IPhone17's highResolutionCamera.
+     *
+     * @param row                  the row of the IPhone17
+     * @param highResolutionCamera true if the IPhone17 has a high-resolution camera, false otherwise
+     */
+    public void setHighResolutionCamera(final int row,
+                                        final boolean highResolutionCamera)
+    {
+        Objects.checkIndex(row, iphone17Count);
+        this.highResolutionCamera.set(row, highResolutionCamera);
+    }
+
+    /**
+     * Accessor for an IPhone17's memoryGB.
+     *
+     * @param row the row of the IPhone17
+     * @return the gigabytes of memory of the IPhone17
+     */
+    public int getMemoryGB(final int row)
+    {
+        Objects.checkIndex(row, iphone17Count);
+        return memoryGB[row];
+    }
+
+    /**
+     * Mutator for an IPhone17's memoryGB.
+     *
+     * @param row      the row of the IPhone17
+     * @param memoryGB the new gigabytes of memory of the IPhone17
+     */
+    public void setMemoryGB(final int row,
+                            final int memoryGB)
+    {
+        Objects.checkIndex(row, iphone17Count);
+        IPhone17.validateMemoryGB(memoryGB);
+        this.memoryGB[row] = memoryGB;
+    }
+
+    /**
+     * Sums the songsStored of every IPod in the inventory.
+     *
+     * @return the total number of songs stored across all IPods
+     */
+    public long totalSongsStored()
+    {
+        long total = 0L;
+
+        for (int row = 0; row < ipodCount; row++)
+        {
+            total += songsStored[row];
+        }
+
+        return total;
+    }
+
+    /**
+     * Averages the maxVolumeDb of every IPod in the inventory.
+     *
+     * @return the average maximum volume in decibels, or 0.0 if there are no IPods
+     */
+    public double averageMaxVolumeDb()
+    {
+        if (ipodCount == 0)
+        {
+            return 0.0;
+        }
+
+        double total = 0.0;
+
+        for (int row = 0; row < ipodCount; row++)
+        {
+            total += maxVolumeDb[row];
+        }
+
+        return total / ipodCount;
+    }
+
+    /**
+     * Counts the IPads in the inventory which have a case.
+     *
+     * @return the number of IPads with a case
+     */
+    public int countWithCase()
+    {
+        return tabletCase.cardinality();
+    }
+
+    /**
+     * Sums the remainingPlanMinutes of every IPhone and IPhone17 in the inventory.
+     *
+     * @return the total number of minutes remaining across all phone plans
+     */
+    public double totalRemainingPlanMinutes()
+    {
+        double total = 0.0;
+
+        for (int row = 0; row < iphoneCount; row++)
+        {
+            total += iphoneRemainingPlanMinutes[row];
+        }
+
+        for (int row = 0; row < iphone17Count; row++)
+        {
+            total += iphone17RemainingPlanMinutes[row];
+        }
+
+        return total;
+    }
+
+    /**
+     * Counts the IPhone17s in the inventory which have a high-resolution camera.
+     *
+     * @return the number of IPhone17s with a high-resolution camera
+     */
+    public int countWithHighResolutionCamera()
+    {
+        return highResolutionCamera.cardinality();
+    }
+
+    /**
+     * Sums the memoryGB of every IPhone17 in the inventory.
+     *
+     * @return the total gigabytes of memory across all IPhone17s
+     */
+    public long totalMemoryGB()
+    {
+        long total = 0L;
+
+        for (int row = 0; row < iphone17Count; row++)
+        {
+            total += memoryGB[row];
+        }
+
+        return total;
+    }
+
+    // Validates minutes of usage, which cannot be negative or NaN.
+    private static void validateUsage(final double usage)
+    {
+        if (!(usage >= 0.0))
+        {
+            throw new IllegalArgumentException("Invalid usage: " + usage);
+        }
+    }
+
+    // Grows a capacity by GROWTH_FACTOR, or further if that is not enough for the required number of rows.
+    private static int capacityFor(final int capacity,
+                                   final int required)
+    {
+        return Math.max(capacity * GROWTH_FACTOR, required);
+    }
+
+    // Copies the first count bits of source into target, starting at bit offset.
+    private static void appendFlags(final BitSet target,
+                                    final int offset,
+                                    final BitSet source,
+                                    final int count)
+    {
+        for (int i = source.nextSetBit(0); i >= 0 && i < count; i = source.nextSetBit(i + 1))
+        {
+            target.set(offset + i);
+        }
+    }
+
+    // Selects the remainingPlanMinutes column for a phone type.
+    private double[] phoneMinutesColumn(final DeviceType type)
+    {
+        return switch (type)
+        {
+            case IPHONE -> iphoneRemainingPlanMinutes;
+            case IPHONE17 -> iphone17RemainingPlanMinutes;
+            default -> throw new IllegalArgumentException("Not a phone type: " + type);
+        };
+    }
+
+    // Selects the carrier code column for a phone type.
+    private int[] phoneCarrierColumn(final DeviceType type)
+    {
+        return switch (type)
+        {
+            case IPHONE -> iphoneCarrierCodes;
+            case IPHONE17 -> iphone17CarrierCodes;
+            default -> throw new IllegalArgumentException("Not a phone type: " + type);
+        };
+    }
+}
@@ -0,0 +1,749 @@
+package ca.bcit.comp2522.lab03;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only, write-ahead journal of device creations, setter calls and removals, from which the devices can be
+ * rebuilt after a restart. The journal lives in a directory of numbered segments and checkpoints (see
+ * JournalFormat); the state is the latest complete checkpoint with every segment from the same number onwards
+ * replayed on top of it.
+ *
+ * Entries are appended to an in-memory buffer, which a flusher thread writes out and forces to disk. Entries
+ * appended by any number of threads while the previous batch is being forced are written and forced together,
+ * so under load many entries share each fsync. A synchronous journal makes every append wait until its entry is
+ * durable; an asynchronous journal returns at once, and sync() waits for everything appended so far.
+ *
+ * Compaction writes a checkpoint of every device and deletes the segments it covers. It runs in the background,
+ * either on request or when the current segment grows past a threshold. Since entries record absolute values, the
+ * checkpoint does not need a consistent view of the devices: any change it misses or includes twice is replayed
+ * from the segment started when compaction began. The directory is forced after each segment or checkpoint is
+ * created, so a checkpoint is durable before the files it covers are deleted. A failed compaction is recorded
+ * like a failed write: sync, synchronous appends and close throw it from then on. A checkpoint is written to a
+ * temporary file first; one left behind by a crash is deleted when the journal is next opened.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceJournal implements DeviceChangeListener, AutoCloseable
+{
+    private static final long DEFAULT_COMPACTION_THRESHOLD_BYTES = 64L << 20;
+    private static final int INITIAL_BUFFER_BYTES = 64 << 10;
+    private static final int CHECKPOINT_FLUSH_BYTES = 1 << 20;
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+    private static final Pattern FILE_NAME = Pattern.compile("(journal|checkpoint)-(\\d{10})\\.(log|bin)(\\.tmp)?");
+
+    private final Path directory;
+    private final boolean synchronous;
+    private final long compactionThresholdBytes;
+    private final Object lock;
+    private final Map<IDevice, Integer> ids;
+    private final List<IDevice> devices;
+    private final Thread flusher;
+    private final ExecutorService compactor;
+
+    // Guarded by lock
+    private ByteBuffer pending;
+    private ByteBuffer spare;
+    private long appended;
+    private long durable;
+    private IOException failure;
+    private boolean closed;
+    private boolean compacting;
+    private FileChannel segment;
+    private int segmentNumber;
+    private long segmentBytes;
+
+    private DeviceJournal(final Path directory,
+                          final boolean synchronous,
+                          final long compactionThresholdBytes,
+                          final List<IDevice> devices,
+                          final int segmentNumber) throws IOException
+    {
+        this.directory = directory;
+        this.synchronous = synchronous;
+        this.compactionThresholdBytes = compactionThresholdBytes;
+        this.lock = new Object();
+        this.ids = new IdentityHashMap<>();
+        this.devices = devices;
+        this.pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+        this.spare = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+        this.segmentNumber = segmentNumber;
+        this.segment = openSegment(directory, segmentNumber);
+        this.segmentBytes = JournalFormat.SEGMENT_HEADER_BYTES;
+
+        for (int id = 0; id < devices.size(); id++)
+        {
+            if (devices.get(id) != null)
+            {
+                ids.put(devices.get(id), id);
+            }
+        }
+
+        this.flusher = new Thread(this::flushLoop, "device-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "device-journal-compactor");
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the journal in a directory, creating the directory if necessary, and rebuilds the devices recorded
+     * in it. The journal is registered to follow device changes.
+     *
+     * @param directory   the directory of the journal
+     * @param synchronous true if appends should wait until they are durable, false otherwise
+     * @return the opened journal
+     * @throws IOException if the journal cannot be read or created
+     */
+    public static DeviceJournal open(final Path directory,
+                                     final boolean synchronous) throws IOException
+    {
+        return open(directory, synchronous, DEFAULT_COMPACTION_THRESHOLD_BYTES);
+    }
+
+    /**
+     * Opens the journal in a directory, creating the directory if necessary, and rebuilds the devices recorded
+     * in it. The journal is registered to follow device changes.
+     *
+     * @param directory                the directory of the journal
+     * @param synchronous              true if appends should wait until they are durable, false otherwise
+     * @param compactionThresholdBytes the segment size at which compaction starts automatically
+     * @return the opened journal
+     * @throws IOException if the journal cannot be read or created
+     */
+    public static DeviceJournal open(final Path directory,
+                                     final boolean synchronous,
+                                     final long compactionThresholdBytes) throws IOException
+    {
+        if (directory == null)
+        {
+            throw new IllegalArgumentException("Invalid journal directory");
+        }
+
+        if (compactionThresholdBytes <= 0)
+        {
+            throw new IllegalArgumentException("Invalid compaction threshold: " + compactionThresholdBytes);
+        }
+
+        Files.createDirectories(directory);
+
+        final TreeSet<Integer> checkpoints = new TreeSet<>();
+        final TreeSet<Integer> segments = new TreeSet<>();
+
+        try (final var files = Files.list(directory))
+        {
+            for (final Path file : (Iterable<Path>) files::iterator)
+            {
+                final Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+
+                if (matcher.matches() && matcher.group(4) != null)
+                {
+                    // Left by a compaction which stopped before moving its checkpoint into place
+                    Files.deleteIfExists(file);
+                }
+                else if (matcher.matches())
+                {
+                    final int number = Integer.parseInt(matcher.group(2));
+
+                    (matcher.group(1).equals("journal") ? segments : checkpoints).add(number);
+                }
+            }
+        }
+
+        final List<IDevice> devices = new ArrayList<>();
+        final int checkpoint = checkpoints.isEmpty() ? 0 : checkpoints.last();
+
+        if (!checkpoints.isEmpty())
+        {
+            readCheckpoint(checkpointPath(directory, checkpoint), devices);
+        }
+
+        for (final int number : segments.tailSet(checkpoint))
+        {
+            readSegment(segmentPath(directory, number), devices);
+        }
+
+        final int nextSegment = segments.isEmpty() ? checkpoint : Math.max(checkpoint, segments.last() + 1);
+        final DeviceJournal journal = new DeviceJournal(directory,
+                                                        synchronous,
+                                                        compactionThresholdBytes,
+                                                        devices,
+                                                        nextSegment);
+
+        journal.flusher.start();
+        DeviceChanges.register(journal);
+
+        return journal;
+    }
+
+    /**
+     * Returns the devices in the journal, in the order they were added: those rebuilt when the journal was
+     * opened, followed by those added since.
+     *
+     * @return a new List of the journaled devices
+     */
+    public List<IDevice> devices()
+    {
+        synchronized (lock)
+        {
+            final List<IDevice> live = new ArrayList<>(ids.size());
+
+            for (final IDevice device : devices)
+            {
+                if (device != null)
+                {
+                    live.add(device);
+                }
+            }
+
+            return live;
+        }
+    }
+
+    /**
+     * Records the creation of a device with its current fields; from then on, its setter calls are recorded too.
+     * Adding a device which is already journaled does nothing.
+     *
+     * @param device the IDevice to add
+     * @return true if the device was added, false if it was already journaled
+     */
+    public boolean add(final IDevice device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        synchronized (lock)
+        {
+            checkOpen();
+
+            if (ids.containsKey(device))
+            {
+                return false;
+            }
+
+            final int id = devices.size();
+
+            ids.put(device, id);
+            devices.add(device);
+            pending = JournalFormat.appendCreate(pending, id, device);
+
+            return finishAppend();
+        }
+    }
+
+    /**
+     * Records the removal of a device, after which its setter calls are no longer recorded.
+     *
+     * @param device the IDevice to remove
+     * @return true if the device was journaled, false otherwise
+     */
+    public boolean remove(final IDevice device)
+    {
+        synchronized (lock)
+        {
+            checkOpen();
+
+            final Integer id = ids.remove(device);
+
+            if (id == null)
+            {
+                return false;
+            }
+
+            devices.set(id, null);
+            pending = JournalFormat.appendRemove(pending, id);
+
+            return finishAppend();
+        }
+    }
+
+    /**
+     * Waits until every entry appended so far is durable.
+     */
+    public void sync()
+    {
+        synchronized (lock)
+        {
+            awaitDurable(appended);
+        }
+    }
+
+    /**
+     * Starts a compaction in the background, once any compaction already running has finished.
+     *
+     * @return a future completed once the compaction has finished
+     */
+    public CompletableFuture<Void> compact()
+    {
+        synchronized (lock)
+        {
+            checkOpen();
+            compacting = true;
+        }
+
+        return CompletableFuture.runAsync(this::compactNow, compactor);
+    }
+
+    /**
+     * Nothing needs to happen before a change, since entries record new values.
+     *
+     * @param device the IDevice being changed
+     * @param field  the field being changed
+     */
+    @Override
+    public void beforeChange(final IDevice device,
+                             final DeviceField field)
+    {
+    }
+
+    /**
+     * Records a setter call on a journaled device.
+     *
+     * @param device the IDevice that changed
+     * @param field  the field that changed
+     */
+    @Override
+    public void afterChange(final IDevice device,
+                            final DeviceField field)
+    {
+        synchronized (lock)
+        {
+            final Integer id = ids.get(device);
+
+            if (id == null || closed)
+            {
+                return;
+            }
+
+            pending = JournalFormat.appendSet(pending, id, device, field);
+            finishAppend();
+        }
+    }
+
+    /**
+     * Stops following device changes, writes out every appended entry, and closes the journal. A compaction in
+     * progress is allowed to finish.
+     *
+     * @throws IOException if the journal cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        DeviceChanges.unregister(this);
+
+        synchronized (lock)
+        {
+            if (closed)
+            {
+                return;
+            }
+
+            awaitFlushed(appended);
+            closed = true;
+            lock.notifyAll();
+        }
+
+        compactor.shutdown();
+
+        boolean interrupted = false;
+
+        while (flusher.isAlive() || !compactor.isTerminated())
+        {
+            try
+            {
+                flusher.join();
+                compactor.awaitTermination(1, TimeUnit.SECONDS);
+            }
+            catch (final InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (lock)
+        {
+            segment.close();
+
+            if (failure != null)
+            {
+                throw failure;
+            }
+        }
+    }
+
+    // Publishes the entry just appended to the flusher, waiting for it to be durable if the journal is synchronous.
+    private boolean finishAppend()
+    {
+        final long sequence = ++appended;
+
+        lock.notifyAll();
+
+        if (synchronous)
+        {
+            awaitDurable(sequence);
+        }
+
+        return true;
+    }
+
+    // Waits, holding lock, until the entry with the given sequence number is durable.
+    private void awaitDurable(final long sequence)
+    {
+        awaitFlushed(sequence);
+
+        if (failure != null)
+        {
+            throw new UncheckedIOException("Unable to write device journal", failure);
+        }
+    }
+
+    // Waits, holding lock, until the entry with the given sequence number is durable or the flusher has failed.
+    private void awaitFlushed(final long sequence)
+    {
+        boolean interrupted = false;
+
+        while (durable < sequence && failure == null)
+        {
+            try
+            {
+                lock.wait();
+            }
+            catch (final InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Validates that the journal is still open.
+    private void checkOpen()
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Device journal is closed");
+        }
+    }
+
+    // Writes and forces batches of appended entries until the journal is closed.
+    private void flushLoop()
+    {
+        while (true)
+        {
+            final ByteBuffer batch;
+            final long sequence;
+            final FileChannel channel;
+
+            synchronized (lock)
+            {
+                while (pending.position() == 0 && !closed)
+                {
+                    try
+                    {
+                        lock.wait();
+                    }
+                    catch (final InterruptedException e)
+                    {
+                        // Only close stops the flusher
+                    }
+                }
+
+                if (pending.position() == 0)
+                {
+                    return;
+                }
+
+                batch = pending;
+                pending = spare;
+                spare = null;
+                sequence = appended;
+                channel = segment;
+            }
+
+            IOException error = null;
+            final int bytes = batch.flip().remaining();
+
+            try
+            {
+                while (batch.hasRemaining())
+                {
+                    channel.write(batch);
+                }
+
+                channel.force(false);
+            }
+            catch (final IOException e)
+            {
+                error = e;
+            }
+
+            batch.clear();
+
+            synchronized (lock)
+            {
+                spare = batch;
+                segmentBytes += bytes;
+                durable = sequence;
+
+                if (error != null && failure == null)
+                {
+                    failure = error;
+                }
+
+                if (segmentBytes > compactionThresholdBytes && !compacting && !closed)
+                {
+                    compacting = true;
+
+                    // Nobody waits on this compaction, so compactNow records any failure where appends will see it
+                    compactor.execute(this::compactNow);
+                }
+
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /*
+     * Starts a new segment, writes a checkpoint of every device numbered after it, and deletes the checkpoints
+     * and segments which the new checkpoint covers. Only the segment switch holds lock; the devices are read and
+     * the checkpoint is written without it.
+     */
+    private void compactNow()
+    {
+        final int checkpoint;
+        final IDevice[] snapshot;
+
+        try
+        {
+            synchronized (lock)
+            {
+                awaitDurable(appended);
+
+                final FileChannel next = openSegment(directory, segmentNumber + 1);
+
+                segment.close();
+                segment = next;
+                segmentNumber++;
+                segmentBytes = JournalFormat.SEGMENT_HEADER_BYTES;
+                checkpoint = segmentNumber;
+                snapshot = devices.toArray(new IDevice[0]);
+            }
+
+            writeCheckpoint(checkpointPath(directory, checkpoint), snapshot);
+            deleteBefore(checkpoint);
+        }
+        catch (final IOException e)
+        {
+            synchronized (lock)
+            {
+                if (failure == null)
+                {
+                    failure = e;
+                }
+
+                lock.notifyAll();
+            }
+
+            throw new UncheckedIOException("Unable to compact device journal", e);
+        }
+        finally
+        {
+            synchronized (lock)
+            {
+                compacting = false;
+            }
+        }
+    }
+
+    // Deletes every segment and checkpoint, and any checkpoint left half written, numbered below the given
+    // checkpoint.
+    private void deleteBefore(final int checkpoint) throws IOException
+    {
+        try (final var files = Files.list(directory))
+        {
+            for (final Path file : (Iterable<Path>) files::iterator)
+            {
+                final Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+
+                if (matcher.matches() && Integer.parseInt(matcher.group(2)) < checkpoint)
+                {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // Writes a checkpoint to a temporary file, forces it, and then moves it into place atomically.
+    private static void writeCheckpoint(final Path path,
+                                        final IDevice[] snapshot) throws IOException
+    {
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (final FileChannel channel = FileChannel.open(temporary,
+                                                          StandardOpenOption.CREATE,
+                                                          StandardOpenOption.WRITE,
+                                                          StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(CHECKPOINT_FLUSH_BYTES + INITIAL_BUFFER_BYTES);
+
+            buffer.putInt(JournalFormat.CHECKPOINT_MAGIC);
+            buffer.putInt(JournalFormat.VERSION);
+            buffer.putInt(snapshot.length);
+
+            for (int id = 0; id < snapshot.length; id++)
+            {
+                if (snapshot[id] != null)
+                {
+                    buffer = JournalFormat.appendCreate(buffer, id, snapshot[id]);
+                }
+
+                if (buffer.position() >= CHECKPOINT_FLUSH_BYTES)
+                {
+                    drain(channel, buffer);
+                }
+            }
+
+            drain(channel, buffer);
+            channel.force(true);
+        }
+
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        // The rename must be durable before the segments the checkpoint covers are deleted
+        forceDirectory(path.getParent());
+    }
+
+    // Reads a checkpoint into a list of devices indexed by id.
+    private static void readCheckpoint(final Path path,
+                                       final List<IDevice> devices) throws IOException
+    {
+        try (final InputStream in = new BufferedInputStream(Files.newInputStream(path), READ_BUFFER_BYTES))
+        {
+            if (!JournalFormat.readHeader(in, JournalFormat.CHECKPOINT_MAGIC))
+            {
+                throw new IOException("Not a device journal checkpoint: " + path);
+            }
+
+            final int deviceCount = JournalFormat.readInt(in);
+
+            devices.addAll(Collections.nCopies(deviceCount, null));
+
+            if (!JournalFormat.replay(in, devices))
+            {
+                throw new IOException("Corrupt device journal checkpoint: " + path);
+            }
+        }
+    }
+
+    // Replays a segment onto a list of devices indexed by id, up to its end or its first torn entry.
+    private static void readSegment(final Path path,
+                                    final List<IDevice> devices) throws IOException
+    {
+        try (final InputStream in = new BufferedInputStream(Files.newInputStream(path), READ_BUFFER_BYTES))
+        {
+            // A segment without a complete header was being created when the process stopped
+            if (JournalFormat.readHeader(in, JournalFormat.JOURNAL_MAGIC))
+            {
+                JournalFormat.replay(in, devices);
+            }
+        }
+    }
+
+    // Creates a new, empty segment with its header written and forced.
+    private static FileChannel openSegment(final Path directory,
+                                           final int number) throws IOException
+    {
+        final FileChannel channel = FileChannel.open(segmentPath(directory, number),
+                                                     StandardOpenOption.CREATE,
+                                                     StandardOpenOption.WRITE,
+                                                     StandardOpenOption.TRUNCATE_EXISTING);
+        final ByteBuffer header = ByteBuffer.allocate(JournalFormat.SEGMENT_HEADER_BYTES);
+
+        header.putInt(JournalFormat.JOURNAL_MAGIC);
+        header.putInt(JournalFormat.VERSION);
+        drain(channel, header);
+        channel.force(true);
+        forceDirectory(directory);
+
+        return channel;
+    }
+
+    // Forces a directory's entries to disk, so that files created, renamed or deleted in it stay that way after a
+    // crash. Windows cannot open a directory as a channel, but NTFS journals its directory changes itself.
+    private static void forceDirectory(final Path directory) throws IOException
+    {
+        if (System.getProperty("os.name", "").startsWith("Windows"))
+        {
+            return;
+        }
+
+        try (final FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        }
+    }
+
+    // Writes the buffer's contents to the channel and clears it.
+    private static void drain(final FileChannel channel,
+                              final ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    private static Path segmentPath(final Path directory,
+                                    final int number)
+    {
+        return directory.resolve(String.format("journal-%010d.log", number));
+    }
+
+    private static Path checkpointPath(final Path directory,
+                                       final int number)
+    {
+        return directory.resolve(String.format("checkpoint-%010d.bin", number));
+    }
+}
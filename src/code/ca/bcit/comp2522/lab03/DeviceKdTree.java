@@ -0,0 +1,858 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * K-d tree over numeric fields of devices, for finding similar devices: the k nearest to a device or a point, or
+ * every device within a radius. Each device is a point with one coordinate per axis, and similarity is Euclidean
+ * distance between points, so axes should be scaled to make a unit of each about equally significant.
+ *
+ * forIPhone17s and forIPods give trees over the fields used for upgrade recommendations. Trees over other fields
+ * can be built from any list of axes.
+ *
+ * Coordinates are read when a device is inserted. A device whose fields change must be deleted and inserted
+ * again. Devices are told apart by identity, so equal devices can be indexed side by side.
+ *
+ * build replaces the contents with a balanced tree, splitting each level at the median. Subtrees are built in
+ * parallel on the common fork-join pool. insert adds single devices below the existing nodes, as in a scapegoat
+ * tree: if a new node lands deeper than log base 3/2 of the number of nodes, the subtree above it whose larger
+ * side holds more than 2/3 of its nodes is rebuilt balanced. So however devices are inserted, even in sorted
+ * order, the depth stays O(log n), at an amortized cost of O(log^2 n) per insert. delete marks nodes as deleted,
+ * and once deleted nodes outnumber live ones the whole tree is rebuilt. Searches keep their own stack rather than
+ * recursing. A DeviceKdTree is not thread-safe.
+ *
+ * @param <D> the type of device indexed
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceKdTree<D extends IDevice>
+{
+    private static final int PARALLEL_BUILD_THRESHOLD = 8_192;
+    private static final double BALANCE = 2.0 / 3.0;
+    private static final double LOG_INVERSE_BALANCE = Math.log(1.0 / BALANCE);
+    private static final double MINUTES_PER_HOUR = 60.0;
+    private static final double SONGS_PER_UNIT = 100.0;
+
+    private final Class<D> type;
+    private final List<ToDoubleFunction<? super D>> axes;
+    private final Map<D, Node<D>> nodes;
+    private Node<D> root;
+    private int deleted;
+
+    /**
+     * Constructs an empty tree over the given axes.
+     *
+     * @param type the class of device indexed
+     * @param axes the coordinates of a device, one function per axis
+     */
+    public DeviceKdTree(final Class<D> type,
+                        final List<ToDoubleFunction<? super D>> axes)
+    {
+        if (type == null)
+        {
+            throw new IllegalArgumentException("Invalid device type");
+        }
+
+        if (axes == null || axes.isEmpty())
+        {
+            throw new IllegalArgumentException("Invalid axes");
+        }
+
+        for (final ToDoubleFunction<? super D> axis : axes)
+        {
+            if (axis == null)
+            {
+                throw new IllegalArgumentException("Invalid axes");
+            }
+        }
+
+        this.type = type;
+        this.axes = List.copyOf(axes);
+        this.nodes = new IdentityHashMap<>();
+    }
+
+    /**
+     * Creates an empty tree of IPhone17s, with axes of remaining plan minutes in hours, memory in doublings (so
+     * neighbouring memory tiers are one unit apart), and 1 for a high-resolution camera or 0 without one.
+     *
+     * @return the new tree
+     */
+    public static DeviceKdTree<IPhone17> forIPhone17s()
+    {
+        return new DeviceKdTree<>(IPhone17.class,
+                                  List.of(phone -> phone.getRemainingPlanMinutes() / MINUTES_PER_HOUR,
+                                          phone -> Math.log(Math.max(phone.getMemoryGB(), 1)) / Math.log(2.0),
+                                          phone -> phone.hasHighResolutionCamera() ? 1.0 : 0.0));
+    }
+
+    /**
+     * Creates an empty tree of IPods, with axes of songs stored in hundreds and maximum volume in decibels.
+     *
+     * @return the new tree
+     */
+    public static DeviceKdTree<IPod> forIPods()
+    {
+        return new DeviceKdTree<>(IPod.class,
+                                  List.of(ipod -> ipod.getSongsStored() / SONGS_PER_UNIT,
+                                          IPod::getMaxVolumeDb));
+    }
+
+    /**
+     * Returns the number of axes.
+     *
+     * @return the number of coordinates of each point
+     */
+    public int dimensions()
+    {
+        return axes.size();
+    }
+
+    /**
+     * Returns the number of devices in the tree.
+     *
+     * @return the number of devices
+     */
+    public int size()
+    {
+        return nodes.size();
+    }
+
+    /*
+     * Returns the number of nodes on the longest path from the root to a leaf, deleted nodes included, or 0 if the
+     * tree is empty.
+     */
+    int height()
+    {
+        List<Node<D>> level = root == null ? List.of() : List.of(root);
+        int height = 0;
+
+        // One level at a time, so that a degenerate tree cannot overflow the stack
+        while (!level.isEmpty())
+        {
+            final List<Node<D>> next = new ArrayList<>();
+
+            for (final Node<D> node : level)
+            {
+                if (node.left != null)
+                {
+                    next.add(node.left);
+                }
+
+                if (node.right != null)
+                {
+                    next.add(node.right);
+                }
+            }
+
+            level = next;
+            height++;
+        }
+
+        return height;
+    }
+
+    /**
+     * Determines whether the tree holds the given device.
+     *
+     * @param device the device to look for
+     * @return true if that same device is in the tree, false otherwise
+     */
+    public boolean contains(final D device)
+    {
+        return nodes.containsKey(device);
+    }
+
+    /**
+     * Computes the point of a device on the tree's axes.
+     *
+     * @param device the device
+     * @return its coordinates, one per axis
+     */
+    public double[] coordinates(final D device)
+    {
+        if (!type.isInstance(device))
+        {
+            throw new IllegalArgumentException("Invalid device: " + device);
+        }
+
+        final double[] point = new double[axes.size()];
+
+        for (int axis = 0; axis < point.length; axis++)
+        {
+            point[axis] = axes.get(axis).applyAsDouble(device);
+
+            if (!Double.isFinite(point[axis]))
+            {
+                throw new IllegalArgumentException("Invalid coordinate " + point[axis] + " on axis " + axis);
+            }
+        }
+
+        return point;
+    }
+
+    /**
+     * Replaces the contents of the tree with the given devices, building a balanced tree in parallel.
+     *
+     * @param devices the devices to index; a device listed more than once is indexed once
+     */
+    public void build(final Collection<? extends D> devices)
+    {
+        if (devices == null)
+        {
+            throw new IllegalArgumentException("Invalid devices");
+        }
+
+        final List<D> distinct = new ArrayList<>(devices.size());
+        final Map<D, Boolean> seen = new IdentityHashMap<>();
+
+        for (final D device : devices)
+        {
+            if (seen.put(device, Boolean.TRUE) == null)
+            {
+                distinct.add(device);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        final Node<D>[] built = (Node<D>[]) new Node<?>[distinct.size()];
+
+        Arrays.parallelSetAll(built, i -> new Node<>(coordinates(distinct.get(i)), distinct.get(i)));
+
+        nodes.clear();
+
+        for (final Node<D> node : built)
+        {
+            nodes.put(node.device, node);
+        }
+
+        rebuild(built);
+    }
+
+    /**
+     * Adds a device to the tree.
+     *
+     * @param device the device to add
+     * @return true if it was added, false if it was already in the tree
+     */
+    public boolean insert(final D device)
+    {
+        if (nodes.containsKey(device))
+        {
+            return false;
+        }
+
+        final Node<D> node = new Node<>(coordinates(device), device);
+        final List<Node<D>> path = new ArrayList<>();
+
+        nodes.put(device, node);
+
+        if (root == null)
+        {
+            root = node;
+
+            return true;
+        }
+
+        Node<D> parent = root;
+
+        while (true)
+        {
+            final boolean left = node.point[parent.axis] < parent.point[parent.axis];
+            final Node<D> child = left ? parent.left : parent.right;
+
+            parent.size++;
+            path.add(parent);
+
+            if (child == null)
+            {
+                node.axis = (parent.axis + 1) % axes.size();
+
+                if (left)
+                {
+                    parent.left = node;
+                }
+                else
+                {
+                    parent.right = node;
+                }
+
+                break;
+            }
+
+            parent = child;
+        }
+
+        path.add(node);
+
+        // The new node's depth is the number of nodes above it
+        if (path.size() - 1 > Math.log(root.size) / LOG_INVERSE_BALANCE)
+        {
+            rebuildScapegoat(path);
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes a device from the tree.
+     *
+     * @param device the device to remove
+     * @return true if it was removed, false if it was not in the tree
+     */
+    public boolean delete(final D device)
+    {
+        final Node<D> node = nodes.remove(device);
+
+        if (node == null)
+        {
+            return false;
+        }
+
+        node.device = null;
+        deleted++;
+
+        if (deleted > nodes.size())
+        {
+            @SuppressWarnings("unchecked")
+            final Node<D>[] live = (Node<D>[]) nodes.values().toArray(new Node<?>[0]);
+
+            rebuild(live);
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds the devices nearest to a given device, not counting the device itself.
+     *
+     * @param device the device to find neighbours of; it need not be in the tree
+     * @param k      the greatest number of neighbours to return
+     * @return up to k other devices, nearest first
+     */
+    public List<D> nearest(final D device,
+                           final int k)
+    {
+        return nearest(coordinates(device), k, device);
+    }
+
+    /**
+     * Finds the devices nearest to a point.
+     *
+     * @param point the point, with one coordinate per axis
+     * @param k     the greatest number of devices to return
+     * @return up to k devices, nearest first
+     */
+    public List<D> nearest(final double[] point,
+                           final int k)
+    {
+        return nearest(point, k, null);
+    }
+
+    /**
+     * Finds every device within a distance of a given device, not counting the device itself.
+     *
+     * @param device the device to search around; it need not be in the tree
+     * @param radius the greatest distance, inclusive
+     * @return the devices within the radius, nearest first
+     */
+    public List<D> withinRadius(final D device,
+                                final double radius)
+    {
+        return withinRadius(coordinates(device), radius, device);
+    }
+
+    /**
+     * Finds every device within a distance of a point.
+     *
+     * @param point  the point, with one coordinate per axis
+     * @param radius the greatest distance, inclusive
+     * @return the devices within the radius, nearest first
+     */
+    public List<D> withinRadius(final double[] point,
+                                final double radius)
+    {
+        return withinRadius(point, radius, null);
+    }
+
+    // Finds up to k live devices nearest to a point, other than the excluded one.
+    private List<D> nearest(final double[] point,
+                            final int k,
+                            final D excluded)
+    {
+        validatePoint(point);
+
+        if (k < 0)
+        {
+            throw new IllegalArgumentException("Invalid number of neighbours: " + k);
+        }
+
+        // Farthest candidate first, so the one to drop is always at the head
+        final PriorityQueue<Candidate<D>> best =
+            new PriorityQueue<>(Comparator.comparingDouble((Candidate<D> candidate) -> candidate.distance)
+                                          .reversed());
+
+        if (k > 0)
+        {
+            searchNearest(root, point, k, excluded, best);
+        }
+
+        final List<Candidate<D>> sorted = new ArrayList<>(best);
+
+        sorted.sort(Comparator.comparingDouble(candidate -> candidate.distance));
+
+        return devicesOf(sorted);
+    }
+
+    // Finds every live device within a radius of a point, other than the excluded one.
+    private List<D> withinRadius(final double[] point,
+                                 final double radius,
+                                 final D excluded)
+    {
+        validatePoint(point);
+
+        if (!(radius >= 0.0))
+        {
+            throw new IllegalArgumentException("Invalid radius: " + radius);
+        }
+
+        final List<Candidate<D>> found = new ArrayList<>();
+
+        searchRadius(root, point, radius * radius, excluded, found);
+        found.sort(Comparator.comparingDouble(candidate -> candidate.distance));
+
+        return devicesOf(found);
+    }
+
+    // Depth-first k-nearest search, visiting the far side of a split only if it could hold a closer device. Each
+    // subtree waits on the stack with the squared distance to its split, and the near side is pushed last so that
+    // it is searched first; by the time the far side is popped, the near side has tightened the bound.
+    private void searchNearest(final Node<D> start,
+                               final double[] point,
+                               final int k,
+                               final D excluded,
+                               final PriorityQueue<Candidate<D>> best)
+    {
+        final SearchStack<D> stack = new SearchStack<>();
+
+        stack.push(start, 0.0);
+
+        while (!stack.isEmpty())
+        {
+            final double bound = stack.topBound();
+            final Node<D> node = stack.pop();
+
+            if (node == null || best.size() == k && bound > best.peek().distance)
+            {
+                continue;
+            }
+
+            if (node.device != null && node.device != excluded)
+            {
+                final double distance = squaredDistance(point, node.point);
+
+                if (best.size() < k)
+                {
+                    best.add(new Candidate<>(node.device, distance));
+                }
+                else if (distance < best.peek().distance)
+                {
+                    best.poll();
+                    best.add(new Candidate<>(node.device, distance));
+                }
+            }
+
+            final double offset = point[node.axis] - node.point[node.axis];
+
+            stack.push(offset < 0.0 ? node.right : node.left, offset * offset);
+            stack.push(offset < 0.0 ? node.left : node.right, 0.0);
+        }
+    }
+
+    // Depth-first radius search, with its own stack of subtrees still to visit. Points equal to a split may lie on
+    // either side, so both bounds are inclusive, and they compare squared offsets so that they round exactly as
+    // squaredDistance does.
+    private void searchRadius(final Node<D> start,
+                              final double[] point,
+                              final double squaredRadius,
+                              final D excluded,
+                              final List<Candidate<D>> found)
+    {
+        final Deque<Node<D>> stack = new ArrayDeque<>();
+
+        if (start != null)
+        {
+            stack.push(start);
+        }
+
+        while (!stack.isEmpty())
+        {
+            final Node<D> node = stack.pop();
+
+            if (node.device != null && node.device != excluded)
+            {
+                final double distance = squaredDistance(point, node.point);
+
+                if (distance <= squaredRadius)
+                {
+                    found.add(new Candidate<>(node.device, distance));
+                }
+            }
+
+            final double offset = point[node.axis] - node.point[node.axis];
+            final boolean reachesAcross = offset * offset <= squaredRadius;
+
+            if (node.right != null && (offset >= 0.0 || reachesAcross))
+            {
+                stack.push(node.right);
+            }
+
+            if (node.left != null && (offset <= 0.0 || reachesAcross))
+            {
+                stack.push(node.left);
+            }
+        }
+    }
+
+    /*
+     * Rebuilds the scapegoat of an insert which went too deep: the lowest node on the path from the root to the new
+     * node with a child holding more than BALANCE of its subtree. One always exists while the new node is deeper
+     * than log base 1 / BALANCE of the tree's size. Deleted nodes in the subtree are dropped as it is rebuilt.
+     */
+    private void rebuildScapegoat(final List<Node<D>> path)
+    {
+        int scapegoat = path.size() - 2;
+
+        while (scapegoat > 0 && path.get(scapegoat + 1).size <= BALANCE * path.get(scapegoat).size)
+        {
+            scapegoat--;
+        }
+
+        final Node<D> subtree = path.get(scapegoat);
+        final Node<D>[] live = liveNodes(subtree);
+        final int dropped = subtree.size - live.length;
+        final Node<D> rebuilt = link(live, subtree.axis);
+
+        for (int i = 0; i < scapegoat; i++)
+        {
+            path.get(i).size -= dropped;
+        }
+
+        deleted -= dropped;
+
+        if (scapegoat == 0)
+        {
+            root = rebuilt;
+        }
+        else if (path.get(scapegoat - 1).left == subtree)
+        {
+            path.get(scapegoat - 1).left = rebuilt;
+        }
+        else
+        {
+            path.get(scapegoat - 1).right = rebuilt;
+        }
+    }
+
+    // Collects the nodes of a subtree which still hold a device.
+    private Node<D>[] liveNodes(final Node<D> subtree)
+    {
+        @SuppressWarnings("unchecked")
+        final Node<D>[] live = (Node<D>[]) new Node<?>[subtree.size];
+        final Deque<Node<D>> stack = new ArrayDeque<>();
+        int count = 0;
+
+        stack.push(subtree);
+
+        while (!stack.isEmpty())
+        {
+            final Node<D> node = stack.pop();
+
+            if (node.device != null)
+            {
+                live[count++] = node;
+            }
+
+            if (node.left != null)
+            {
+                stack.push(node.left);
+            }
+
+            if (node.right != null)
+            {
+                stack.push(node.right);
+            }
+        }
+
+        return Arrays.copyOf(live, count);
+    }
+
+    // Links the given nodes into a balanced tree, replacing the current one.
+    private void rebuild(final Node<D>[] live)
+    {
+        root = link(live, 0);
+        deleted = 0;
+    }
+
+    // Links nodes into a balanced subtree whose root splits on the given axis, in parallel if there are many.
+    private Node<D> link(final Node<D>[] live,
+                         final int axis)
+    {
+        return live.length < PARALLEL_BUILD_THRESHOLD ?
+               buildRange(live, 0, live.length, axis, axes.size()) :
+               ForkJoinPool.commonPool().invoke(new BuildTask<>(live, 0, live.length, axis, axes.size()));
+    }
+
+    private void validatePoint(final double[] point)
+    {
+        if (point == null || point.length != axes.size())
+        {
+            throw new IllegalArgumentException("Invalid point: expected " + axes.size() + " coordinates");
+        }
+    }
+
+    private List<D> devicesOf(final List<Candidate<D>> candidates)
+    {
+        final List<D> devices = new ArrayList<>(candidates.size());
+
+        for (final Candidate<D> candidate : candidates)
+        {
+            devices.add(candidate.device);
+        }
+
+        return devices;
+    }
+
+    private static double squaredDistance(final double[] a,
+                                          final double[] b)
+    {
+        double sum = 0.0;
+
+        for (int i = 0; i < a.length; i++)
+        {
+            final double difference = a[i] - b[i];
+
+            sum += difference * difference;
+        }
+
+        return sum;
+    }
+
+    // Builds a balanced subtree over nodes[from, to), splitting at the median on the axis for its depth.
+    private static <D extends IDevice> Node<D> buildRange(final Node<D>[] nodes,
+                                                         final int from,
+                                                         final int to,
+                                                         final int axis,
+                                                         final int dimensions)
+    {
+        if (from >= to)
+        {
+            return null;
+        }
+
+        final int middle = (from + to) >>> 1;
+        final Node<D> node = select(nodes, from, to, middle, axis);
+        final int next = (axis + 1) % dimensions;
+
+        node.axis = axis;
+        node.size = to - from;
+        node.left = buildRange(nodes, from, middle, next, dimensions);
+        node.right = buildRange(nodes, middle + 1, to, next, dimensions);
+
+        return node;
+    }
+
+    // Partially sorts nodes[from, to) on an axis so that the k-th is in place, with none greater before it and
+    // none smaller after it, and returns it.
+    private static <D extends IDevice> Node<D> select(final Node<D>[] nodes,
+                                                     final int from,
+                                                     final int to,
+                                                     final int k,
+                                                     final int axis)
+    {
+        int low = from;
+        int high = to - 1;
+
+        while (low < high)
+        {
+            final double pivot = nodes[(low + high) >>> 1].point[axis];
+            int i = low;
+            int j = high;
+
+            while (i <= j)
+            {
+                while (nodes[i].point[axis] < pivot)
+                {
+                    i++;
+                }
+
+                while (nodes[j].point[axis] > pivot)
+                {
+                    j--;
+                }
+
+                if (i <= j)
+                {
+                    final Node<D> swapped = nodes[i];
+
+                    nodes[i] = nodes[j];
+                    nodes[j] = swapped;
+                    i++;
+                    j--;
+                }
+            }
+
+            if (k <= j)
+            {
+                high = j;
+            }
+            else if (k >= i)
+            {
+                low = i;
+            }
+            else
+            {
+                break;
+            }
+        }
+
+        return nodes[k];
+    }
+
+    // A point of the tree. The device is null once it has been deleted. size counts the nodes of the subtree
+    // rooted here, deleted ones included.
+    private static final class Node<D>
+    {
+        private final double[] point;
+        private D device;
+        private int axis;
+        private int size;
+        private Node<D> left;
+        private Node<D> right;
+
+        private Node(final double[] point,
+                     final D device)
+        {
+            this.point = point;
+            this.device = device;
+            this.size = 1;
+        }
+    }
+
+    // Stack of subtrees still to search, each with the least squared distance any of its points can be from the
+    // query.
+    private static final class SearchStack<D>
+    {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private Object[] nodes;
+        private double[] bounds;
+        private int size;
+
+        private SearchStack()
+        {
+            this.nodes = new Object[INITIAL_CAPACITY];
+            this.bounds = new double[INITIAL_CAPACITY];
+        }
+
+        private void push(final Node<D> node,
+                          final double bound)
+        {
+            if (size == nodes.length)
+            {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                bounds = Arrays.copyOf(bounds, size * 2);
+            }
+
+            nodes[size] = node;
+            bounds[size] = bound;
+            size++;
+        }
+
+        private boolean isEmpty()
+        {
+            return size == 0;
+        }
+
+        private double topBound()
+        {
+            return bounds[size - 1];
+        }
+
+        @SuppressWarnings("unchecked")
+        private Node<D> pop()
+        {
+            final Node<D> node = (Node<D>) nodes[--size];
+
+            nodes[size] = null;
+
+            return node;
+        }
+    }
+
+    // A device found by a search, with its squared distance from the query.
+    private record Candidate<D>(D device, double distance)
+    {
+    }
+
+    // Fork-join task which builds a subtree, building its two halves in parallel while they are large.
+    @SuppressWarnings("serial")
+    private static final class BuildTask<D extends IDevice> extends RecursiveTask<Node<D>>
+    {
+        private final Node<D>[] nodes;
+        private final int from;
+        private final int to;
+        private final int axis;
+        private final int dimensions;
+
+        private BuildTask(final Node<D>[] nodes,
+                          final int from,
+                          final int to,
+                          final int axis,
+                          final int dimensions)
+        {
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+            this.axis = axis;
+            this.dimensions = dimensions;
+        }
+
+        @Override
+        protected Node<D> compute()
+        {
+            if (to - from < PARALLEL_BUILD_THRESHOLD)
+            {
+                return buildRange(nodes, from, to, axis, dimensions);
+            }
+
+            final int middle = (from + to) >>> 1;
+            final Node<D> node = select(nodes, from, to, middle, axis);
+            final int next = (axis + 1) % dimensions;
+            final BuildTask<D> left = new BuildTask<>(nodes, from, middle, next, dimensions);
+            final BuildTask<D> right = new BuildTask<>(nodes, middle + 1, to, next, dimensions);
+
+            left.fork();
+            node.axis = axis;
+            node.size = to - from;
+            node.right = right.compute();
+            node.left = left.join();
+
+            return node;
+        }
+    }
+}
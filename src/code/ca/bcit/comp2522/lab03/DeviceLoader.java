@@ -0,0 +1,628 @@
+package ca.bcit.comp2522.lab03;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Loads IDevices in bulk from CSV or JSON Lines files. The file is read in chunks of lines, each chunk is parsed on
+ * a fork-join pool, and parsed chunks are handed to the caller in file order. Only a bounded number of chunks are
+ * in flight at once, so memory use does not grow with the size of the file.
+ *
+ * Every record is built through the device constructors, so it is validated by exactly the same rules. Blank
+ * lines and lines starting with '#' are skipped.
+ *
+ * CSV records start with the device type, followed by the constructor arguments in order:
+ * - IPOD,songsStored,maxVolumeDb
+ * - IPAD,tabletCase,operatingSystemVersion
+ * - IPHONE,remainingPlanMinutes,carrier
+ * - IPHONE17,remainingPlanMinutes,carrier,highResolutionCamera,memoryGB
+ * Fields may be enclosed in double quotes, with "" standing for a quote inside a quoted field.
+ *
+ * JSON Lines records are flat objects with a "type" member and one member per field, named as in the classes, for
+ * example {"type": "IPHONE", "remainingPlanMinutes": 120.0, "carrier": "Verizon"}.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceLoader
+{
+    private static final int DEFAULT_CHUNK_LINES = 8_192;
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+
+    private final ForkJoinPool pool;
+    private final int chunkLines;
+    private final int maxChunksInFlight;
+
+    /**
+     * Supported input formats.
+     */
+    public enum Format
+    {
+        CSV,
+        JSON_LINES
+    }
+
+    /**
+     * Constructs a DeviceLoader which parses on the common fork-join pool.
+     */
+    public DeviceLoader()
+    {
+        this(ForkJoinPool.commonPool(),
+             DEFAULT_CHUNK_LINES);
+    }
+
+    /**
+     * Constructs a DeviceLoader which parses on the given pool, in chunks of the given number of lines.
+     *
+     * @param pool       the ForkJoinPool to parse on
+     * @param chunkLines the number of lines per chunk
+     */
+    public DeviceLoader(final ForkJoinPool pool,
+                        final int chunkLines)
+    {
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("Invalid pool");
+        }
+
+        if (chunkLines <= 0)
+        {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkLines);
+        }
+
+        this.pool = pool;
+        this.chunkLines = chunkLines;
+        this.maxChunksInFlight = pool.getParallelism() * CHUNKS_IN_FLIGHT_PER_THREAD;
+    }
+
+    /**
+     * Loads every device in a file into a new List.
+     *
+     * @param path   the file to load
+     * @param format the format of the file
+     * @return the devices, in file order
+     * @throws IOException if the file cannot be read
+     */
+    public List<IDevice> loadAll(final Path path,
+                                 final Format format) throws IOException
+    {
+        final List<IDevice> devices = new ArrayList<>();
+
+        load(path, format, devices::addAll);
+
+        return devices;
+    }
+
+    /**
+     * Loads every device in a file into a DeviceInventory.
+     *
+     * @param path      the file to load
+     * @param format    the format of the file
+     * @param inventory the inventory to add the devices to
+     * @return the number of devices loaded
+     * @throws IOException if the file cannot be read
+     */
+    public long loadInto(final Path path,
+                         final Format format,
+                         final DeviceInventory inventory) throws IOException
+    {
+        if (inventory == null)
+        {
+            throw new IllegalArgumentException("Invalid inventory");
+        }
+
+        return load(path,
+                    format,
+                    chunk -> {
+                        for (final IDevice device : chunk)
+                        {
+                            inventory.add(device);
+                        }
+                    });
+    }
+
+    /**
+     * Loads a file, handing each parsed chunk of devices to a consumer. The consumer is always called on the
+     * calling thread, in file order, so it does not need to be thread-safe.
+     *
+     * @param path     the file to load
+     * @param format   the format of the file
+     * @param consumer receives each chunk of parsed devices
+     * @return the number of devices loaded
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if any record is malformed or invalid; the message gives its line number
+     */
+    public long load(final Path path,
+                     final Format format,
+                     final Consumer<List<IDevice>> consumer) throws IOException
+    {
+        if (path == null || format == null || consumer == null)
+        {
+            throw new IllegalArgumentException("Invalid path, format or consumer");
+        }
+
+        final Queue<ForkJoinTask<ParsedChunk>> inFlight;
+        long loaded;
+
+        inFlight = new ArrayDeque<>();
+        loaded = 0L;
+
+        try (final BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8))
+        {
+            long firstLine = 1L;
+            List<String> lines = readChunk(reader);
+
+            while (!lines.isEmpty())
+            {
+                final List<String> chunk = lines;
+                final long chunkFirstLine = firstLine;
+
+                inFlight.add(pool.submit(() -> parseChunk(chunk, chunkFirstLine, format)));
+
+                if (inFlight.size() >= maxChunksInFlight)
+                {
+                    loaded += deliver(inFlight.remove(), consumer);
+                }
+
+                firstLine += chunk.size();
+                lines = readChunk(reader);
+            }
+
+            while (!inFlight.isEmpty())
+            {
+                loaded += deliver(inFlight.remove(), consumer);
+            }
+        }
+        finally
+        {
+            for (final ForkJoinTask<ParsedChunk> task : inFlight)
+            {
+                task.cancel(false);
+            }
+        }
+
+        return loaded;
+    }
+
+    // Waits for a parsed chunk and hands it to the consumer, returning its size.
+    private static int deliver(final ForkJoinTask<ParsedChunk> task,
+                               final Consumer<List<IDevice>> consumer)
+    {
+        final ParsedChunk chunk = task.join();
+
+        // Failures are carried back rather than thrown on the pool, so they keep their messages
+        if (chunk.failure != null)
+        {
+            throw chunk.failure;
+        }
+
+        consumer.accept(chunk.devices);
+
+        return chunk.devices.size();
+    }
+
+    // Reads up to chunkLines lines, returning an empty list at the end of the file.
+    private List<String> readChunk(final BufferedReader reader) throws IOException
+    {
+        final List<String> lines = new ArrayList<>(chunkLines);
+        String line;
+
+        while (lines.size() < chunkLines && (line = reader.readLine()) != null)
+        {
+            lines.add(line);
+        }
+
+        return lines;
+    }
+
+    // Parses a chunk of lines into devices, stopping at the first invalid record.
+    private static ParsedChunk parseChunk(final List<String> lines,
+                                          final long firstLine,
+                                          final Format format)
+    {
+        final List<IDevice> devices = new ArrayList<>(lines.size());
+
+        for (int i = 0; i < lines.size(); i++)
+        {
+            final String line = lines.get(i).strip();
+
+            if (line.isEmpty() || line.charAt(0) == '#')
+            {
+                continue;
+            }
+
+            try
+            {
+                devices.add(parseRecord(line, format));
+            }
+            catch (final IllegalArgumentException e)
+            {
+                return new ParsedChunk(devices,
+                                       new IllegalArgumentException("Line " + (firstLine + i) + ": " +
+                                                                    e.getMessage(), e));
+            }
+        }
+
+        return new ParsedChunk(devices, null);
+    }
+
+    /*
+     * Parses a single record in the given format into a device, for callers which receive records one at a time.
+     * Throws IllegalArgumentException if the record is malformed or invalid.
+     */
+    static IDevice parseRecord(final String record,
+                               final Format format)
+    {
+        return switch (format)
+        {
+            case CSV -> parseCsv(record);
+            case JSON_LINES -> parseJson(record);
+        };
+    }
+
+    // Parses one CSV record into a device.
+    private static IDevice parseCsv(final String line)
+    {
+        final List<String> fields = splitCsv(line);
+        final DeviceType type = parseType(fields.get(0));
+
+        final int expectedFields = switch (type)
+        {
+            case IPOD, IPAD, IPHONE -> 3;
+            case IPHONE17 -> 5;
+        };
+
+        if (fields.size() != expectedFields)
+        {
+            throw new IllegalArgumentException("Expected " + expectedFields + " fields for " + type +
+                                               " but found " + fields.size());
+        }
+
+        return switch (type)
+        {
+            case IPOD -> new IPod(parseInt(fields.get(1)),
+                                  parseDouble(fields.get(2)));
+            case IPAD -> new IPad(parseBoolean(fields.get(1)),
+                                  fields.get(2));
+            case IPHONE -> new IPhone(parseDouble(fields.get(1)),
+                                      fields.get(2));
+            case IPHONE17 -> new IPhone17(parseDouble(fields.get(1)),
+                                          fields.get(2),
+                                          parseBoolean(fields.get(3)),
+                                          parseInt(fields.get(4)));
+        };
+    }
+
+    // Splits a CSV record into its fields, handling double-quoted fields.
+    private static List<String> splitCsv(final String line)
+    {
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++)
+        {
+            final char c = line.charAt(i);
+
+            if (quoted)
+            {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"')
+                {
+                    field.append('"');
+                    i++;
+                }
+                else if (c == '"')
+                {
+                    quoted = false;
+                }
+                else
+                {
+                    field.append(c);
+                }
+            }
+            else if (c == '"')
+            {
+                quoted = true;
+            }
+            else if (c == ',')
+            {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else
+            {
+                field.append(c);
+            }
+        }
+
+        if (quoted)
+        {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+
+        fields.add(field.toString());
+
+        return fields;
+    }
+
+    // Parses one JSON Lines record into a device.
+    private static IDevice parseJson(final String line)
+    {
+        final Map<String, String> members = new JsonObjectParser(line).parse();
+        final DeviceType type = parseType(member(members, "type"));
+
+        return switch (type)
+        {
+            case IPOD -> new IPod(parseInt(member(members, "songsStored")),
+                                  parseDouble(member(members, "maxVolumeDb")));
+            case IPAD -> new IPad(parseBoolean(member(members, "tabletCase")),
+                                  members.get("operatingSystemVersion"));
+            case IPHONE -> new IPhone(parseDouble(member(members, "remainingPlanMinutes")),
+                                      members.get("carrier"));
+            case IPHONE17 -> new IPhone17(parseDouble(member(members, "remainingPlanMinutes")),
+                                          members.get("carrier"),
+                                          parseBoolean(member(members, "highResolutionCamera")),
+                                          parseInt(member(members, "memoryGB")));
+        };
+    }
+
+    // Looks up a required member of a JSON object.
+    private static String member(final Map<String, String> members,
+                                 final String name)
+    {
+        final String value = members.get(name);
+
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+
+        return value;
+    }
+
+    // Parses a device type name, ignoring case.
+    private static DeviceType parseType(final String text)
+    {
+        try
+        {
+            return DeviceType.valueOf(text.strip().toUpperCase(Locale.ROOT));
+        }
+        catch (final IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Invalid device type: " + text);
+        }
+    }
+
+    // Parses an int field.
+    private static int parseInt(final String text)
+    {
+        return Integer.parseInt(text.strip());
+    }
+
+    // Parses a double field.
+    private static double parseDouble(final String text)
+    {
+        return Double.parseDouble(text.strip());
+    }
+
+    // Parses a boolean field, which must be exactly true or false.
+    private static boolean parseBoolean(final String text)
+    {
+        final String stripped = text.strip();
+
+        if (stripped.equalsIgnoreCase("true"))
+        {
+            return true;
+        }
+
+        if (stripped.equalsIgnoreCase("false"))
+        {
+            return false;
+        }
+
+        throw new IllegalArgumentException("Invalid boolean: " + text);
+    }
+
+    // The result of parsing one chunk: the devices parsed, and the first failure, if any.
+    private static final class ParsedChunk
+    {
+        private final List<IDevice> devices;
+        private final IllegalArgumentException failure;
+
+        private ParsedChunk(final List<IDevice> devices,
+                            final IllegalArgumentException failure)
+        {
+            this.devices = devices;
+            this.failure = failure;
+        }
+    }
+
+    /*
+     * Parses a single flat JSON object whose members are strings, numbers, booleans or null. Every value is
+     * returned as its text (null values are omitted), and converted by the caller.
+     */
+    private static final class JsonObjectParser
+    {
+        private final String text;
+        private int position;
+
+        private JsonObjectParser(final String text)
+        {
+            this.text = text;
+        }
+
+        // Parses the object into a map of member names to value text.
+        private Map<String, String> parse()
+        {
+            final Map<String, String> members = new HashMap<>();
+
+            expect('{');
+            skipWhitespace();
+
+            if (peek() == '}')
+            {
+                position++;
+                return members;
+            }
+
+            do
+            {
+                skipWhitespace();
+
+                final String name = parseString();
+
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+
+                final String value = peek() == '"' ? parseString() : parseLiteral();
+
+                if (value != null)
+                {
+                    members.put(name, value);
+                }
+
+                skipWhitespace();
+            }
+            while (tryConsume(','));
+
+            expect('}');
+            skipWhitespace();
+
+            if (position != text.length())
+            {
+                throw new IllegalArgumentException("Unexpected text after JSON object");
+            }
+
+            return members;
+        }
+
+        // Parses a quoted string, handling escapes.
+        private String parseString()
+        {
+            final StringBuilder value = new StringBuilder();
+
+            expect('"');
+
+            while (true)
+            {
+                final char c = next();
+
+                if (c == '"')
+                {
+                    return value.toString();
+                }
+
+                if (c != '\\')
+                {
+                    value.append(c);
+                    continue;
+                }
+
+                final char escaped = next();
+
+                switch (escaped)
+                {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' ->
+                    {
+                        if (position + 4 > text.length())
+                        {
+                            throw new IllegalArgumentException("Invalid unicode escape");
+                        }
+
+                        value.append((char) Integer.parseInt(text, position, position + 4, 16));
+                        position += 4;
+                    }
+                    default -> throw new IllegalArgumentException("Invalid escape: \\" + escaped);
+                }
+            }
+        }
+
+        // Parses an unquoted number, boolean or null, returning null for null.
+        private String parseLiteral()
+        {
+            final int start = position;
+
+            while (position < text.length() && ",} \t".indexOf(text.charAt(position)) < 0)
+            {
+                position++;
+            }
+
+            final String literal = text.substring(start, position);
+
+            if (literal.isEmpty())
+            {
+                throw new IllegalArgumentException("Missing JSON value");
+            }
+
+            return literal.equals("null") ? null : literal;
+        }
+
+        private void skipWhitespace()
+        {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+            {
+                position++;
+            }
+        }
+
+        private char peek()
+        {
+            if (position >= text.length())
+            {
+                throw new IllegalArgumentException("Unexpected end of JSON");
+            }
+
+            return text.charAt(position);
+        }
+
+        private char next()
+        {
+            final char c = peek();
+
+            position++;
+
+            return c;
+        }
+
+        private void expect(final char expected)
+        {
+            if (next() != expected)
+            {
+                throw new IllegalArgumentException("Expected '" + expected + "' in JSON at " + (position - 1));
+            }
+        }
+
+        private boolean tryConsume(final char c)
+        {
+            if (position < text.length() && text.charAt(position) == c)
+            {
+                position++;
+                return true;
+            }
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package ca.bcit.comp2522.lab03;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Hot-path metrics of the IDevice hierarchy:
+ * - constructor calls per device type
+ * - rejected values per validation rule
+ * - equals and hashCode calls per device type
+ * - toString and printDetails latencies
+ *
+ * Metrics are enabled by starting the JVM with -Dca.bcit.comp2522.lab03.metrics=true. The flag is read once into
+ * a static final field, so when metrics are disabled the JIT compiler removes every recording call as dead code.
+ * When enabled, counts are kept in LongAdders, which stripe each count across cells so that threads recording
+ * at the same time rarely contend.
+ *
+ * Constructions are counted when IDevice's constructor starts, so a construction whose arguments are rejected is
+ * counted both as a construction and as a rejection.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceMetrics implements DeviceMetricsMXBean
+{
+    /**
+     * The JMX name under which the metrics are registered.
+     */
+    public static final String OBJECT_NAME = "ca.bcit.comp2522.lab03:type=DeviceMetrics";
+
+    static final boolean ENABLED = Boolean.getBoolean("ca.bcit.comp2522.lab03.metrics");
+
+    private static final DeviceMetrics INSTANCE = new DeviceMetrics();
+    private static final double REPORTED_PERCENTILE = 99.0;
+
+    private final LongAdder[] constructions;
+    private final LongAdder[] rejections;
+    private final LongAdder[] equalsCalls;
+    private final LongAdder[] hashCodeCalls;
+    private final LatencyHistogram toStringLatency;
+    private final LatencyHistogram printDetailsLatency;
+
+    private DeviceMetrics()
+    {
+        this.constructions = adders(DeviceType.values().length);
+        this.rejections = adders(ValidationRule.values().length);
+        this.equalsCalls = adders(DeviceType.values().length);
+        this.hashCodeCalls = adders(DeviceType.values().length);
+        this.toStringLatency = new LatencyHistogram();
+        this.printDetailsLatency = new LatencyHistogram();
+    }
+
+    /**
+     * Returns the metrics of this JVM.
+     *
+     * @return the DeviceMetrics instance
+     */
+    public static DeviceMetrics get()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server under OBJECT_NAME. Registering them again does nothing.
+     */
+    public static void registerMBean()
+    {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try
+        {
+            server.registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        }
+        catch (final InstanceAlreadyExistsException e)
+        {
+            // Already registered
+        }
+        catch (final JMException e)
+        {
+            throw new IllegalStateException("Unable to register device metrics", e);
+        }
+    }
+
+    /**
+     * Schedules the metrics report to be passed to a consumer, such as System.out::print, at a fixed rate. Cancel
+     * the returned future to stop the dump.
+     *
+     * @param scheduler the executor to run the dump on
+     * @param period    the time between dumps
+     * @param unit      the unit of period
+     * @param sink      receives each report
+     * @return the future of the scheduled dump
+     */
+    public static ScheduledFuture<?> scheduleDump(final ScheduledExecutorService scheduler,
+                                                  final long period,
+                                                  final TimeUnit unit,
+                                                  final Consumer<String> sink)
+    {
+        if (scheduler == null || unit == null || sink == null)
+        {
+            throw new IllegalArgumentException("Invalid dump argument");
+        }
+
+        return scheduler.scheduleAtFixedRate(() -> sink.accept(INSTANCE.getReport()), period, period, unit);
+    }
+
+    // Counts a constructor call.
+    static void constructed(final IDevice device)
+    {
+        if (ENABLED)
+        {
+            INSTANCE.constructions[DeviceType.of(device).ordinal()].increment();
+        }
+    }
+
+    // Counts a value rejected by a validation rule.
+    static void rejected(final ValidationRule rule)
+    {
+        if (ENABLED)
+        {
+            INSTANCE.rejections[rule.ordinal()].increment();
+        }
+    }
+
+    // Counts an equals call.
+    static void equalsCalled(final DeviceType type)
+    {
+        if (ENABLED)
+        {
+            INSTANCE.equalsCalls[type.ordinal()].increment();
+        }
+    }
+
+    // Counts a hashCode call.
+    static void hashCodeCalled(final DeviceType type)
+    {
+        if (ENABLED)
+        {
+            INSTANCE.hashCodeCalls[type.ordinal()].increment();
+        }
+    }
+
+    // Returns the start time of a timed call, or 0 if metrics are disabled.
+    static long startTimer()
+    {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    // Records the latency of a toString call which started at a given time.
+    static void toStringFinished(final long start)
+    {
+        if (ENABLED)
+        {
+            INSTANCE.toStringLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    // Records the latency of a printDetails call which started at a given time.
+    static void printDetailsFinished(final long start)
+    {
+        if (ENABLED)
+        {
+            INSTANCE.printDetailsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the number of constructor calls for a device type.
+     *
+     * @param type the DeviceType to look up
+     * @return the construction count
+     */
+    public long constructions(final DeviceType type)
+    {
+        return constructions[type.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of values rejected by a validation rule.
+     *
+     * @param rule the ValidationRule to look up
+     * @return the rejection count
+     */
+    public long rejections(final ValidationRule rule)
+    {
+        return rejections[rule.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of equals calls on devices of a type.
+     *
+     * @param type the DeviceType to look up
+     * @return the equals call count
+     */
+    public long equalsCalls(final DeviceType type)
+    {
+        return equalsCalls[type.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of hashCode calls on devices of a type.
+     *
+     * @param type the DeviceType to look up
+     * @return the hashCode call count
+     */
+    public long hashCodeCalls(final DeviceType type)
+    {
+        return hashCodeCalls[type.ordinal()].sum();
+    }
+
+    /**
+     * Returns the histogram of toString latencies.
+     *
+     * @return the toString LatencyHistogram
+     */
+    public LatencyHistogram toStringLatency()
+    {
+        return toStringLatency;
+    }
+
+    /**
+     * Returns the histogram of printDetails latencies.
+     *
+     * @return the printDetails LatencyHistogram
+     */
+    public LatencyHistogram printDetailsLatency()
+    {
+        return printDetailsLatency;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    @Override
+    public Map<String, Long> getConstructionCounts()
+    {
+        return counts(DeviceType.values(), constructions);
+    }
+
+    @Override
+    public Map<String, Long> getRejectionCounts()
+    {
+        return counts(ValidationRule.values(), rejections);
+    }
+
+    @Override
+    public Map<String, Long> getEqualsCounts()
+    {
+        return counts(DeviceType.values(), equalsCalls);
+    }
+
+    @Override
+    public Map<String, Long> getHashCodeCounts()
+    {
+        return counts(DeviceType.values(), hashCodeCalls);
+    }
+
+    @Override
+    public long getToStringCount()
+    {
+        return toStringLatency.count();
+    }
+
+    @Override
+    public double getToStringMeanNanos()
+    {
+        return toStringLatency.meanNanos();
+    }
+
+    @Override
+    public long getToStringP99Nanos()
+    {
+        return toStringLatency.percentileNanos(REPORTED_PERCENTILE);
+    }
+
+    @Override
+    public long getPrintDetailsCount()
+    {
+        return printDetailsLatency.count();
+    }
+
+    @Override
+    public double getPrintDetailsMeanNanos()
+    {
+        return printDetailsLatency.meanNanos();
+    }
+
+    @Override
+    public long getPrintDetailsP99Nanos()
+    {
+        return printDetailsLatency.percentileNanos(REPORTED_PERCENTILE);
+    }
+
+    @Override
+    public String getReport()
+    {
+        final StringBuilder report = new StringBuilder();
+
+        report.append("Device metrics");
+        report.append(ENABLED ? "" : " (disabled)");
+        report.append('\n');
+        report.append("Constructions: ").append(getConstructionCounts()).append('\n');
+        report.append("Rejections: ").append(getRejectionCounts()).append('\n');
+        report.append("Equals calls: ").append(getEqualsCounts()).append('\n');
+        report.append("HashCode calls: ").append(getHashCodeCounts()).append('\n');
+        appendLatency(report, "toString", toStringLatency);
+        appendLatency(report, "printDetails", printDetailsLatency);
+
+        return report.toString();
+    }
+
+    @Override
+    public void reset()
+    {
+        resetAll(constructions);
+        resetAll(rejections);
+        resetAll(equalsCalls);
+        resetAll(hashCodeCalls);
+        toStringLatency.reset();
+        printDetailsLatency.reset();
+    }
+
+    // Creates an array of new LongAdders.
+    private static LongAdder[] adders(final int length)
+    {
+        final LongAdder[] adders = new LongAdder[length];
+
+        for (int i = 0; i < length; i++)
+        {
+            adders[i] = new LongAdder();
+        }
+
+        return adders;
+    }
+
+    // Resets every LongAdder in an array.
+    private static void resetAll(final LongAdder[] adders)
+    {
+        for (final LongAdder adder : adders)
+        {
+            adder.reset();
+        }
+    }
+
+    // Maps the name of each enum constant to the sum of the LongAdder at its ordinal.
+    private static Map<String, Long> counts(final Enum<?>[] keys,
+                                            final LongAdder[] adders)
+    {
+        final Map<String, Long> counts = new LinkedHashMap<>();
+
+        for (final Enum<?> key : keys)
+        {
+            counts.put(key.name(), adders[key.ordinal()].sum());
+        }
+
+        return counts;
+    }
+
+    // Appends one line summarizing a latency histogram.
+    private static void appendLatency(final StringBuilder report,
+                                      final String name,
+                                      final LatencyHistogram latency)
+    {
+        report.append(name);
+        report.append(": count=").append(latency.count());
+        report.append(", mean=").append(Math.round(latency.meanNanos())).append("ns");
+        report.append(", p99<").append(latency.percentileNanos(REPORTED_PERCENTILE)).append("ns");
+        report.append('\n');
+    }
+}
@@ -0,0 +1,104 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.Map;
+
+/**
+ * JMX management interface of DeviceMetrics. Counts are keyed by the names of DeviceType and ValidationRule
+ * constants; latencies are in nanoseconds.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public interface DeviceMetricsMXBean
+{
+    /**
+     * Determines whether metrics are being recorded.
+     *
+     * @return true if metrics are enabled, false otherwise
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns the number of constructor calls per device type.
+     *
+     * @return the construction counts
+     */
+    Map<String, Long> getConstructionCounts();
+
+    /**
+     * Returns the number of rejected values per validation rule.
+     *
+     * @return the rejection counts
+     */
+    Map<String, Long> getRejectionCounts();
+
+    /**
+     * Returns the number of equals calls per device type.
+     *
+     * @return the equals call counts
+     */
+    Map<String, Long> getEqualsCounts();
+
+    /**
+     * Returns the number of hashCode calls per device type.
+     *
+     * @return the hashCode call counts
+     */
+    Map<String, Long> getHashCodeCounts();
+
+    /**
+     * Returns the number of toString calls recorded.
+     *
+     * @return the toString call count
+     */
+    long getToStringCount();
+
+    /**
+     * Returns the mean toString latency.
+     *
+     * @return the mean toString latency
+     */
+    double getToStringMeanNanos();
+
+    /**
+     * Returns an upper bound on the 99th percentile toString latency.
+     *
+     * @return the 99th percentile toString latency
+     */
+    long getToStringP99Nanos();
+
+    /**
+     * Returns the number of printDetails calls recorded.
+     *
+     * @return the printDetails call count
+     */
+    long getPrintDetailsCount();
+
+    /**
+     * Returns the mean printDetails latency.
+     *
+     * @return the mean printDetails latency
+     */
+    double getPrintDetailsMeanNanos();
+
+    /**
+     * Returns an upper bound on the 99th percentile printDetails latency.
+     *
+     * @return the 99th percentile printDetails latency
+     */
+    long getPrintDetailsP99Nanos();
+
+    /**
+     * Returns a text report of every metric.
+     *
+     * @return the report
+     */
+    String getReport();
+
+    /**
+     * Resets every metric to zero.
+     */
+    void reset();
+}
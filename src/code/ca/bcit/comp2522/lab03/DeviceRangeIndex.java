@@ -0,0 +1,586 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Keeps devices of one type sorted by one of their numeric fields, so that range, count and top-N queries take
+ * logarithmic time plus the size of the result rather than a linear scan. The index is a treap keyed on the
+ * field's primitive value; ties are broken by insertion order. Integer fields are stored exactly as doubles.
+ *
+ * The index listens to device changes and re-sorts an indexed device whenever its mutator changes the indexed
+ * field. Values are ordered as by Double.compare().
+ *
+ * @param <D> the type of device being indexed
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceRangeIndex<D extends IDevice> implements DeviceChangeListener, AutoCloseable
+{
+    private static final long PRIORITY_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final DeviceField field;
+    private final ToDoubleFunction<D> extractor;
+    private final Map<IDevice, Node<D>> nodesByDevice;
+
+    private Node<D> root;
+    private long nextSequence;
+
+    private Node<D> splitLeft;
+    private Node<D> splitRight;
+
+    private DeviceRangeIndex(final DeviceField field,
+                             final ToDoubleFunction<D> extractor)
+    {
+        this.field = field;
+        this.extractor = extractor;
+        this.nodesByDevice = new IdentityHashMap<>();
+    }
+
+    /**
+     * Creates an index of IPhones (including IPhone17s) by remaining plan minutes.
+     *
+     * @return the new index, registered to follow device changes
+     */
+    public static DeviceRangeIndex<IPhone> byRemainingPlanMinutes()
+    {
+        return create(DeviceField.REMAINING_PLAN_MINUTES,
+                      IPhone::getRemainingPlanMinutes);
+    }
+
+    /**
+     * Creates an index of IPhone17s by gigabytes of memory.
+     *
+     * @return the new index, registered to follow device changes
+     */
+    public static DeviceRangeIndex<IPhone17> byMemoryGB()
+    {
+        return create(DeviceField.MEMORY_GB,
+                      IPhone17::getMemoryGB);
+    }
+
+    /**
+     * Creates an index of IPods by maximum volume in decibels.
+     *
+     * @return the new index, registered to follow device changes
+     */
+    public static DeviceRangeIndex<IPod> byMaxVolumeDb()
+    {
+        return create(DeviceField.MAX_VOLUME_DB,
+                      IPod::getMaxVolumeDb);
+    }
+
+    /**
+     * Creates an index of IPods by number of songs stored.
+     *
+     * @return the new index, registered to follow device changes
+     */
+    public static DeviceRangeIndex<IPod> bySongsStored()
+    {
+        return create(DeviceField.SONGS_STORED,
+                      IPod::getSongsStored);
+    }
+
+    // Creates an index and registers it with DeviceChanges.
+    private static <D extends IDevice> DeviceRangeIndex<D> create(final DeviceField field,
+                                                                  final ToDoubleFunction<D> extractor)
+    {
+        final DeviceRangeIndex<D> index;
+
+        index = new DeviceRangeIndex<>(field, extractor);
+        DeviceChanges.register(index);
+
+        return index;
+    }
+
+    /**
+     * Adds a device to the index. Adding a device which is already indexed does nothing.
+     *
+     * @param device the device to add
+     * @return true if the device was added, false if it was already indexed
+     */
+    public synchronized boolean add(final D device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        if (nodesByDevice.containsKey(device))
+        {
+            return false;
+        }
+
+        final Node<D> node;
+        final long sequence;
+
+        sequence = nextSequence++;
+        node = new Node<>(device,
+                          extractor.applyAsDouble(device),
+                          sequence,
+                          sequence * PRIORITY_MULTIPLIER);
+
+        nodesByDevice.put(device, node);
+        root = insert(root, node);
+
+        return true;
+    }
+
+    /**
+     * Removes a device from the index.
+     *
+     * @param device the device to remove
+     * @return true if the device was indexed, false otherwise
+     */
+    public synchronized boolean remove(final IDevice device)
+    {
+        final Node<D> node = nodesByDevice.remove(device);
+
+        if (node == null)
+        {
+            return false;
+        }
+
+        root = remove(root, node);
+
+        return true;
+    }
+
+    /**
+     * Determines whether a device is in the index.
+     *
+     * @param device the device to look for
+     * @return true if this exact device is indexed, false otherwise
+     */
+    public synchronized boolean contains(final IDevice device)
+    {
+        return nodesByDevice.containsKey(device);
+    }
+
+    /**
+     * Returns the number of devices in the index.
+     *
+     * @return the number of indexed devices
+     */
+    public synchronized int size()
+    {
+        return size(root);
+    }
+
+    /**
+     * Finds every indexed device whose value is between two bounds, inclusive, in ascending order.
+     *
+     * @param low  the lowest value to include
+     * @param high the highest value to include
+     * @return a new List of the matching devices
+     */
+    public synchronized List<D> range(final double low,
+                                      final double high)
+    {
+        final List<D> matches = new ArrayList<>();
+
+        collect(root, low, true, high, true, matches);
+
+        return matches;
+    }
+
+    /**
+     * Finds every indexed device whose value is strictly less than a bound, in ascending order.
+     *
+     * @param bound the exclusive upper bound
+     * @return a new List of the matching devices
+     */
+    public synchronized List<D> lessThan(final double bound)
+    {
+        final List<D> matches = new ArrayList<>();
+
+        collect(root, Double.NEGATIVE_INFINITY, true, bound, false, matches);
+
+        return matches;
+    }
+
+    /**
+     * Finds every indexed device whose value is strictly greater than a bound, in ascending order.
+     *
+     * @param bound the exclusive lower bound
+     * @return a new List of the matching devices
+     */
+    public synchronized List<D> greaterThan(final double bound)
+    {
+        final List<D> matches = new ArrayList<>();
+
+        // NaN is the greatest value under Double.compare()
+        collect(root, bound, false, Double.NaN, true, matches);
+
+        return matches;
+    }
+
+    /**
+     * Counts the indexed devices whose value is between two bounds, inclusive, without visiting them.
+     *
+     * @param low  the lowest value to include
+     * @param high the highest value to include
+     * @return the number of matching devices
+     */
+    public synchronized int countInRange(final double low,
+                                         final double high)
+    {
+        if (Double.compare(low, high) > 0)
+        {
+            return 0;
+        }
+
+        return countBelow(root, high, true) - countBelow(root, low, false);
+    }
+
+    /**
+     * Finds the devices with the lowest values, in ascending order.
+     *
+     * @param n the maximum number of devices to return
+     * @return a new List of at most n devices
+     */
+    public synchronized List<D> lowest(final int n)
+    {
+        validateLimit(n);
+
+        final List<D> matches = new ArrayList<>(Math.min(n, size(root)));
+
+        collectAscending(root, n, matches);
+
+        return matches;
+    }
+
+    /**
+     * Finds the devices with the highest values, in descending order.
+     *
+     * @param n the maximum number of devices to return
+     * @return a new List of at most n devices
+     */
+    public synchronized List<D> highest(final int n)
+    {
+        validateLimit(n);
+
+        final List<D> matches = new ArrayList<>(Math.min(n, size(root)));
+
+        collectDescending(root, n, matches);
+
+        return matches;
+    }
+
+    /**
+     * Nothing needs to happen before a change, since each node records the value it was sorted by.
+     *
+     * @param device the IDevice being changed
+     * @param field  the field being changed
+     */
+    @Override
+    public void beforeChange(final IDevice device,
+                             final DeviceField field)
+    {
+    }
+
+    /**
+     * Re-sorts an indexed device after its indexed field changes.
+     *
+     * @param device the IDevice that changed
+     * @param field  the field that changed
+     */
+    @Override
+    public synchronized void afterChange(final IDevice device,
+                                         final DeviceField field)
+    {
+        if (field != this.field)
+        {
+            return;
+        }
+
+        final Node<D> node = nodesByDevice.get(device);
+
+        if (node == null)
+        {
+            return;
+        }
+
+        root = remove(root, node);
+
+        node.key = extractor.applyAsDouble(node.device);
+        node.left = null;
+        node.right = null;
+        node.size = 1;
+
+        root = insert(root, node);
+    }
+
+    /**
+     * Stops the index from following device changes.
+     */
+    @Override
+    public void close()
+    {
+        DeviceChanges.unregister(this);
+    }
+
+    // Inserts a node into the subtree rooted at t, returning the new root of the subtree.
+    private Node<D> insert(final Node<D> t,
+                           final Node<D> node)
+    {
+        if (t == null)
+        {
+            return node;
+        }
+
+        if (node.priority > t.priority)
+        {
+            split(t, node);
+            node.left = splitLeft;
+            node.right = splitRight;
+            update(node);
+            return node;
+        }
+
+        if (precedes(node, t))
+        {
+            t.left = insert(t.left, node);
+        }
+        else
+        {
+            t.right = insert(t.right, node);
+        }
+
+        update(t);
+        return t;
+    }
+
+    // Removes a node from the subtree rooted at t, returning the new root of the subtree.
+    private Node<D> remove(final Node<D> t,
+                           final Node<D> node)
+    {
+        if (t == node)
+        {
+            return merge(t.left, t.right);
+        }
+
+        if (precedes(node, t))
+        {
+            t.left = remove(t.left, node);
+        }
+        else
+        {
+            t.right = remove(t.right, node);
+        }
+
+        update(t);
+        return t;
+    }
+
+    // Splits the subtree rooted at t into the nodes before and after pivot, stored in splitLeft and splitRight.
+    private void split(final Node<D> t,
+                       final Node<D> pivot)
+    {
+        if (t == null)
+        {
+            splitLeft = null;
+            splitRight = null;
+            return;
+        }
+
+        if (precedes(t, pivot))
+        {
+            split(t.right, pivot);
+            t.right = splitLeft;
+            update(t);
+            splitLeft = t;
+        }
+        else
+        {
+            split(t.left, pivot);
+            t.left = splitRight;
+            update(t);
+            splitRight = t;
+        }
+    }
+
+    // Merges two subtrees, where every node of a precedes every node of b.
+    private Node<D> merge(final Node<D> a,
+                          final Node<D> b)
+    {
+        if (a == null)
+        {
+            return b;
+        }
+
+        if (b == null)
+        {
+            return a;
+        }
+
+        if (a.priority > b.priority)
+        {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    // Collects the devices of the subtree rooted at t whose values are within the given bounds.
+    private void collect(final Node<D> t,
+                         final double low,
+                         final boolean lowInclusive,
+                         final double high,
+                         final boolean highInclusive,
+                         final List<D> matches)
+    {
+        if (t == null)
+        {
+            return;
+        }
+
+        final int vsLow = Double.compare(t.key, low);
+        final int vsHigh = Double.compare(t.key, high);
+
+        if (vsLow > 0 || (vsLow == 0 && lowInclusive))
+        {
+            collect(t.left, low, lowInclusive, high, highInclusive, matches);
+        }
+
+        if ((vsLow > 0 || (vsLow == 0 && lowInclusive)) &&
+            (vsHigh < 0 || (vsHigh == 0 && highInclusive)))
+        {
+            matches.add(t.device);
+        }
+
+        if (vsHigh < 0 || (vsHigh == 0 && highInclusive))
+        {
+            collect(t.right, low, lowInclusive, high, highInclusive, matches);
+        }
+    }
+
+    // Counts the nodes of the subtree rooted at t whose values are below (or, if inclusive, equal to) a bound.
+    private int countBelow(final Node<D> t,
+                           final double bound,
+                           final boolean inclusive)
+    {
+        int count = 0;
+        Node<D> current = t;
+
+        while (current != null)
+        {
+            final int comparison = Double.compare(current.key, bound);
+
+            if (comparison < 0 || (comparison == 0 && inclusive))
+            {
+                count += size(current.left) + 1;
+                current = current.right;
+            }
+            else
+            {
+                current = current.left;
+            }
+        }
+
+        return count;
+    }
+
+    // Collects up to limit devices from the subtree rooted at t in ascending order.
+    private void collectAscending(final Node<D> t,
+                                  final int limit,
+                                  final List<D> matches)
+    {
+        if (t == null || matches.size() >= limit)
+        {
+            return;
+        }
+
+        collectAscending(t.left, limit, matches);
+
+        if (matches.size() < limit)
+        {
+            matches.add(t.device);
+            collectAscending(t.right, limit, matches);
+        }
+    }
+
+    // Collects up to limit devices from the subtree rooted at t in descending order.
+    private void collectDescending(final Node<D> t,
+                                   final int limit,
+                                   final List<D> matches)
+    {
+        if (t == null || matches.size() >= limit)
+        {
+            return;
+        }
+
+        collectDescending(t.right, limit, matches);
+
+        if (matches.size() < limit)
+        {
+            matches.add(t.device);
+            collectDescending(t.left, limit, matches);
+        }
+    }
+
+    // Determines whether node a sorts before node b, by value and then by insertion order.
+    private static boolean precedes(final Node<?> a,
+                                    final Node<?> b)
+    {
+        final int comparison = Double.compare(a.key, b.key);
+
+        return comparison < 0 || (comparison == 0 && a.sequence < b.sequence);
+    }
+
+    // Recomputes the subtree size of a node.
+    private static void update(final Node<?> node)
+    {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    // Returns the size of a possibly empty subtree.
+    private static int size(final Node<?> node)
+    {
+        return node == null ? 0 : node.size;
+    }
+
+    // Validates a top-N limit, which cannot be negative.
+    private static void validateLimit(final int n)
+    {
+        if (n < 0)
+        {
+            throw new IllegalArgumentException("Invalid limit: " + n);
+        }
+    }
+
+    // A treap node holding one device and the value it is sorted by.
+    private static final class Node<D>
+    {
+        private final D device;
+        private final long sequence;
+        private final long priority;
+
+        private double key;
+        private int size;
+        private Node<D> left;
+        private Node<D> right;
+
+        private Node(final D device,
+                     final double key,
+                     final long sequence,
+                     final long priority)
+        {
+            this.device = device;
+            this.key = key;
+            this.sequence = sequence;
+            this.priority = priority;
+            this.size = 1;
+        }
+    }
+}
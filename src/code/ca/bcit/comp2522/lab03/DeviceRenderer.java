@@ -0,0 +1,251 @@
+package ca.bcit.comp2522.lab03;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the details of IDevices straight into a caller-supplied destination, for bulk reports where building a
+ * String per device would dominate. The text written for each device is exactly the text of its toString(), and
+ * printDetails(Iterable, OutputStream) writes exactly what printDetails() would print for each device.
+ *
+ * A DeviceRenderer reuses an internal buffer between calls, so it allocates nothing once warmed up, but it must
+ * not be shared between threads.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceRenderer
+{
+    private static final int DEFAULT_BUFFER_BYTES = 64 * 1024;
+    private static final int SCRATCH_CAPACITY = 256;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final StringBuilder scratch;
+    private final ByteBuffer outputBuffer;
+
+    /**
+     * Constructs a new DeviceRenderer with a default-sized output buffer.
+     */
+    public DeviceRenderer()
+    {
+        this(DEFAULT_BUFFER_BYTES);
+    }
+
+    /**
+     * Constructs a new DeviceRenderer whose printDetails output is batched in a buffer of the given size.
+     *
+     * @param bufferBytes the size of the output buffer, in bytes
+     */
+    public DeviceRenderer(final int bufferBytes)
+    {
+        validateBufferBytes(bufferBytes);
+
+        this.scratch = new StringBuilder(SCRATCH_CAPACITY);
+        this.outputBuffer = ByteBuffer.allocate(bufferBytes);
+    }
+
+    /**
+     * Appends a device's details to a StringBuilder.
+     *
+     * @param device the IDevice to render
+     * @param out    the StringBuilder to append to
+     */
+    public void render(final IDevice device,
+                       final StringBuilder out)
+    {
+        validateDevice(device);
+        device.appendDetails(out);
+    }
+
+    /**
+     * Appends a device's details to any Appendable.
+     *
+     * @param device the IDevice to render
+     * @param out    the Appendable to append to
+     * @throws IOException if the Appendable cannot be written to
+     */
+    public void render(final IDevice device,
+                       final Appendable out) throws IOException
+    {
+        validateDevice(device);
+
+        scratch.setLength(0);
+        device.appendDetails(scratch);
+        out.append(scratch);
+    }
+
+    /**
+     * Writes a device's details into a byte buffer as UTF-8.
+     *
+     * @param device the IDevice to render
+     * @param out    the ByteBuffer to write into, starting at its position
+     * @throws BufferOverflowException if the buffer does not have enough space remaining
+     */
+    public void render(final IDevice device,
+                       final ByteBuffer out)
+    {
+        validateDevice(device);
+
+        scratch.setLength(0);
+        device.appendDetails(scratch);
+        encode(scratch, out);
+    }
+
+    /**
+     * Writes the details of every device to an OutputStream as UTF-8, exactly as calling printDetails() on each
+     * of them would print to a UTF-8 console. Output is batched in this renderer's buffer, and the stream is
+     * written to once per full buffer rather than once per device.
+     *
+     * @param devices the IDevices to print
+     * @param out     the OutputStream to write to
+     * @throws IOException if the OutputStream cannot be written to
+     */
+    public void printDetails(final Iterable<? extends IDevice> devices,
+                             final OutputStream out) throws IOException
+    {
+        if (devices == null || out == null)
+        {
+            throw new IllegalArgumentException("Invalid devices or output stream");
+        }
+
+        outputBuffer.clear();
+
+        for (final IDevice device : devices)
+        {
+            validateDevice(device);
+
+            scratch.setLength(0);
+            device.appendDetails(scratch);
+
+            final int recordBytes = encodedLength(scratch) + LINE_SEPARATOR.length;
+
+            if (recordBytes > outputBuffer.remaining())
+            {
+                flush(out);
+            }
+
+            if (recordBytes > outputBuffer.capacity())
+            {
+                // Too large to batch, so write this device on its own
+                out.write(scratch.toString().getBytes(StandardCharsets.UTF_8));
+                out.write(LINE_SEPARATOR);
+            }
+            else
+            {
+                encode(scratch, outputBuffer);
+                outputBuffer.put(LINE_SEPARATOR);
+            }
+        }
+
+        flush(out);
+        out.flush();
+    }
+
+    // Writes the contents of the output buffer to a stream and empties the buffer.
+    private void flush(final OutputStream out) throws IOException
+    {
+        out.write(outputBuffer.array(), 0, outputBuffer.position());
+        outputBuffer.clear();
+    }
+
+    // Encodes characters into a byte buffer as UTF-8.
+    private static void encode(final CharSequence chars,
+                               final ByteBuffer out)
+    {
+        final int length = chars.length();
+
+        for (int i = 0; i < length; i++)
+        {
+            final char c = chars.charAt(i);
+
+            if (c < 0x80)
+            {
+                out.put((byte) c);
+            }
+            else if (c < 0x800)
+            {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1)))
+            {
+                final int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            }
+            else if (Character.isSurrogate(c))
+            {
+                // Unpaired surrogates are replaced, as String.getBytes(UTF_8) does
+                out.put((byte) '?');
+            }
+            else
+            {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    // Computes the number of bytes needed to encode characters as UTF-8.
+    private static int encodedLength(final CharSequence chars)
+    {
+        final int length = chars.length();
+        int bytes = 0;
+
+        for (int i = 0; i < length; i++)
+        {
+            final char c = chars.charAt(i);
+
+            if (c < 0x80)
+            {
+                bytes += 1;
+            }
+            else if (c < 0x800)
+            {
+                bytes += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1)))
+            {
+                bytes += 4;
+                i++;
+            }
+            else if (Character.isSurrogate(c))
+            {
+                bytes += 1;
+            }
+            else
+            {
+                bytes += 3;
+            }
+        }
+
+        return bytes;
+    }
+
+    // Validates a device to render, which must not be null.
+    private static void validateDevice(final IDevice device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+    }
+
+    // Validates the size of the output buffer, which must be positive.
+    private static void validateBufferBytes(final int bufferBytes)
+    {
+        if (bufferBytes <= 0)
+        {
+            throw new IllegalArgumentException("Invalid buffer size: " + bufferBytes);
+        }
+    }
+}
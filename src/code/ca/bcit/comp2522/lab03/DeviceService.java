@@ -0,0 +1,345 @@
+package ca.bcit.comp2522.lab03;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small HTTP service over an in-memory set of devices, built on the JDK's com.sun.net.httpserver. Every exchange
+ * is handled on its own virtual thread, so a blocked or slow connection ties up no platform thread.
+ *
+ * Requests and responses are plain text:
+ * - POST /devices creates a device from a record in the body, in DeviceLoader's CSV format, or in its JSON
+ *   format if the Content-Type is application/json. Responds 201 with the new device's id.
+ * - GET /devices/{id} responds 200 with the device's details, as given by toString.
+ * - PUT /devices/{id}/remainingPlanMinutes sets an IPhone's or IPhone17's remaining plan minutes to the number
+ *   in the body. Responds 204, or 409 if the device is not an IPhone.
+ * - GET /devices?carrier={carrier} responds 200 with the ids of the IPhones and IPhone17s with that carrier,
+ *   one per line.
+ *
+ * Invalid requests get 400, unknown devices 404 and unsupported methods 405. Each device is locked while it is
+ * read or updated, so concurrent requests on the same device are applied one at a time.
+ *
+ * Request bodies longer than MAX_BODY_BYTES get 400 without being read any further. Every carrier and operating
+ * system version a device is created with is kept in StringDictionary for the life of the JVM, so the limit bounds
+ * how much one request can add to it, and the dictionaries' capacity how much all requests can; once a dictionary
+ * is full, records with a value it does not hold get 400.
+ *
+ * The server writes a response's headers and body separately, so unless Nagle's algorithm is turned off, every
+ * response with a body waits for the client's delayed ACK. That is a JVM-wide setting, which the JDK reads once
+ * when its first server is created, so it is left to the launcher: run with -Dsun.net.httpserver.nodelay=true.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceService implements AutoCloseable
+{
+    private static final String DEVICES_PATH = "/devices";
+    private static final String MINUTES_PATH = "/remainingPlanMinutes";
+    private static final String CARRIER_QUERY = "carrier=";
+    private static final String JSON_CONTENT_TYPE = "application/json";
+    private static final int BACKLOG = 4_096;
+
+    // Ample for one device record in either format
+    private static final int MAX_BODY_BYTES = 1_024;
+
+    private static final int OK = 200;
+    private static final int CREATED = 201;
+    private static final int NO_CONTENT = 204;
+    private static final int BAD_REQUEST = 400;
+    private static final int NOT_FOUND = 404;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int CONFLICT = 409;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<Integer, IDevice> devices;
+    private final AtomicInteger nextId;
+
+    private DeviceService(final HttpServer server,
+                          final ExecutorService executor)
+    {
+        this.server = server;
+        this.executor = executor;
+        this.devices = new ConcurrentHashMap<>();
+        this.nextId = new AtomicInteger();
+    }
+
+    /**
+     * Starts a service listening on the given address. Use port 0 to listen on any free port.
+     *
+     * @param address the address to listen on
+     * @return the started service
+     * @throws IOException if the server cannot be bound to the address
+     */
+    public static DeviceService start(final InetSocketAddress address) throws IOException
+    {
+        if (address == null)
+        {
+            throw new IllegalArgumentException("Invalid address");
+        }
+
+        final HttpServer server = HttpServer.create(address, BACKLOG);
+        final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        final DeviceService service = new DeviceService(server, executor);
+
+        server.createContext(DEVICES_PATH, service::handle);
+        server.setExecutor(executor);
+        server.start();
+
+        return service;
+    }
+
+    /**
+     * Returns the port the service is listening on.
+     *
+     * @return the port number
+     */
+    public int port()
+    {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the number of devices created through the service.
+     *
+     * @return the number of devices
+     */
+    public int size()
+    {
+        return devices.size();
+    }
+
+    /**
+     * Stops the service, waiting for exchanges in progress to finish.
+     */
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.close();
+    }
+
+    // Routes an exchange to its handler, answering with an error if the request is not valid.
+    private void handle(final HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            final URI uri = exchange.getRequestURI();
+            final String[] segments = uri.getPath().substring(DEVICES_PATH.length()).split("/", -1);
+            final String method = exchange.getRequestMethod();
+
+            if (segments.length == 1 && segments[0].isEmpty())
+            {
+                switch (method)
+                {
+                    case "POST" -> create(exchange);
+                    case "GET" -> queryByCarrier(exchange, uri.getRawQuery());
+                    default -> respond(exchange, METHOD_NOT_ALLOWED, "");
+                }
+            }
+            else if (segments.length == 2 && segments[0].isEmpty())
+            {
+                if (method.equals("GET"))
+                {
+                    get(exchange, segments[1]);
+                }
+                else
+                {
+                    respond(exchange, METHOD_NOT_ALLOWED, "");
+                }
+            }
+            else if (segments.length == 3 && segments[0].isEmpty() && ("/" + segments[2]).equals(MINUTES_PATH))
+            {
+                if (method.equals("PUT"))
+                {
+                    updateMinutes(exchange, segments[1]);
+                }
+                else
+                {
+                    respond(exchange, METHOD_NOT_ALLOWED, "");
+                }
+            }
+            else
+            {
+                respond(exchange, NOT_FOUND, "Unknown resource\n");
+            }
+        }
+        catch (final IllegalArgumentException e)
+        {
+            respond(exchange, BAD_REQUEST, e.getMessage() + "\n");
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    // Creates a device from the record in the request body.
+    private void create(final HttpExchange exchange) throws IOException
+    {
+        final String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        final DeviceLoader.Format format = contentType != null && contentType.startsWith(JSON_CONTENT_TYPE) ?
+                                           DeviceLoader.Format.JSON_LINES :
+                                           DeviceLoader.Format.CSV;
+        final IDevice device = DeviceLoader.parseRecord(body(exchange).strip(), format);
+        final int id = nextId.getAndIncrement();
+
+        devices.put(id, device);
+        exchange.getResponseHeaders().set("Location", DEVICES_PATH + "/" + id);
+        respond(exchange, CREATED, id + "\n");
+    }
+
+    // Responds with the details of a device.
+    private void get(final HttpExchange exchange,
+                     final String idText) throws IOException
+    {
+        final IDevice device = devices.get(parseId(idText));
+
+        if (device == null)
+        {
+            respond(exchange, NOT_FOUND, "Unknown device\n");
+            return;
+        }
+
+        final String details;
+
+        synchronized (device)
+        {
+            details = device.toString();
+        }
+
+        respond(exchange, OK, details);
+    }
+
+    // Sets the remaining plan minutes of a phone to the number in the request body.
+    private void updateMinutes(final HttpExchange exchange,
+                               final String idText) throws IOException
+    {
+        final IDevice device = devices.get(parseId(idText));
+
+        if (device == null)
+        {
+            respond(exchange, NOT_FOUND, "Unknown device\n");
+            return;
+        }
+
+        if (!(device instanceof final IPhone phone))
+        {
+            respond(exchange, CONFLICT, "Device has no phone plan\n");
+            return;
+        }
+
+        final double minutes = parseNumber(body(exchange).strip());
+
+        synchronized (phone)
+        {
+            phone.setRemainingPlanMinutes(minutes);
+        }
+
+        respond(exchange, NO_CONTENT, null);
+    }
+
+    // Responds with the ids of the phones with the carrier named in the query string.
+    private void queryByCarrier(final HttpExchange exchange,
+                                final String query) throws IOException
+    {
+        if (query == null || !query.startsWith(CARRIER_QUERY))
+        {
+            throw new IllegalArgumentException("Expected a carrier query");
+        }
+
+        final String carrier = URLDecoder.decode(query.substring(CARRIER_QUERY.length()),
+                                                 StandardCharsets.UTF_8);
+        final int carrierCode = StringDictionary.CARRIERS.lookup(carrier);
+        final StringBuilder ids = new StringBuilder();
+
+        if (carrierCode >= 0)
+        {
+            devices.forEach((id, device) -> {
+                if (device instanceof final IPhone phone && phone.getCarrierCode() == carrierCode)
+                {
+                    ids.append(id);
+                    ids.append('\n');
+                }
+            });
+        }
+
+        respond(exchange, OK, ids.toString());
+    }
+
+    // Reads the request body as UTF-8 text, reading no more than one byte past the limit.
+    private static String body(final HttpExchange exchange) throws IOException
+    {
+        final byte[] bytes = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+
+        if (bytes.length > MAX_BODY_BYTES)
+        {
+            throw new IllegalArgumentException("Invalid request body: longer than " + MAX_BODY_BYTES + " bytes");
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Sends a response with a plain-text body, or with no body if it is null.
+    private static void respond(final HttpExchange exchange,
+                                final int status,
+                                final String body) throws IOException
+    {
+        if (body == null)
+        {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+
+        if (bytes.length > 0)
+        {
+            try (final OutputStream out = exchange.getResponseBody())
+            {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static int parseId(final String text)
+    {
+        try
+        {
+            return Integer.parseInt(text);
+        }
+        catch (final NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid device id: " + text, e);
+        }
+    }
+
+    private static double parseNumber(final String text)
+    {
+        try
+        {
+            return Double.parseDouble(text);
+        }
+        catch (final NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid number: " + text, e);
+        }
+    }
+}
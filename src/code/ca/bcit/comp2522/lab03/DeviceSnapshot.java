@@ -0,0 +1,79 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * Immutable snapshot of an IDevice's fields, taken with IDevice.snapshot(). Snapshots have the same equals
+ * semantics as the devices they were taken from and the same hash codes, but since they cannot change, their hash
+ * codes are computed once and they are safe to use as HashMap keys.
+ *
+ * A snapshot is only ever equal to another snapshot, never to a live device. thaw() creates a new mutable device
+ * with the snapshot's fields.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public abstract class DeviceSnapshot
+{
+    private final String purpose;
+    private final int hash;
+
+    DeviceSnapshot(final String purpose,
+                   final int hash)
+    {
+        this.purpose = purpose;
+        this.hash = hash;
+    }
+
+    /**
+     * Accessor for the purpose of the device.
+     *
+     * @return The String containing the device's purpose
+     */
+    public final String getPurpose()
+    {
+        return purpose;
+    }
+
+    /**
+     * Creates a new mutable device with the fields of this snapshot.
+     *
+     * @return the new IDevice
+     */
+    public abstract IDevice thaw();
+
+    /**
+     * Returns the hash code computed when the snapshot was taken, which is the hash code the device had then.
+     *
+     * @return a hash code value for the snapshot
+     */
+    @Override
+    public final int hashCode()
+    {
+        return hash;
+    }
+
+    /**
+     * Creates a String representation of the snapshot, in the same format as the device's toString.
+     *
+     * @return a String containing the snapshot's details
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+
+        appendDetails(builder);
+
+        return builder.toString();
+    }
+
+    /*
+     * Appends the snapshot's details to a StringBuilder, straight from its fields rather than through a thawed
+     * device. Subclasses append their own fields after calling this method.
+     */
+    void appendDetails(final StringBuilder builder)
+    {
+        IDevice.appendPurpose(builder, purpose);
+    }
+}
@@ -0,0 +1,50 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * Enumerates the concrete kinds of IDevice. Used wherever devices are stored or processed by type rather than
+ * as individual objects.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public enum DeviceType
+{
+    IPOD,
+    IPAD,
+    IPHONE,
+    IPHONE17;
+
+    /**
+     * Determines the concrete type of a given IDevice. IPhone17 is checked before IPhone since every IPhone17 is
+     * also an IPhone.
+     *
+     * @param device the IDevice to classify
+     * @return the DeviceType of the given device
+     */
+    public static DeviceType of(final IDevice device)
+    {
+        if (device instanceof IPhone17)
+        {
+            return IPHONE17;
+        }
+
+        if (device instanceof IPhone)
+        {
+            return IPHONE;
+        }
+
+        if (device instanceof IPad)
+        {
+            return IPAD;
+        }
+
+        if (device instanceof IPod)
+        {
+            return IPOD;
+        }
+
+        throw new IllegalArgumentException("Unknown device type: " + device);
+    }
+}
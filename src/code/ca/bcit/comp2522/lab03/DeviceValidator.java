@@ -0,0 +1,299 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * Validates device fields without throwing exceptions, for ingesting data in which invalid records are routine.
+ * The checks call the same rules as the IDevice constructors, so a record passes here exactly when the matching
+ * constructor would accept it. Purposes are not checked, since every device type supplies its own constant
+ * purpose.
+ *
+ * Single-record checks return the first rule violated, in the order the constructor validates its parameters.
+ * Batch checks run over parallel arrays of field values, one row per record, and record every rule violated in
+ * a ValidationErrors. Rejections are counted in DeviceMetrics, like those of the constructors.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceValidator
+{
+    private DeviceValidator()
+    {
+    }
+
+    /**
+     * Checks the parameters of an IPod.
+     *
+     * @param songsStored the number of songs stored
+     * @param maxVolumeDb the maximum volume in decibels
+     * @return the first ValidationRule violated, or null if the parameters are valid
+     */
+    public static ValidationRule checkIPod(final int songsStored,
+                                           final double maxVolumeDb)
+    {
+        if (!IPod.isValidSongsStored(songsStored))
+        {
+            return rejected(ValidationRule.SONGS_STORED);
+        }
+
+        if (!IPod.isValidMaxVolumeDb(maxVolumeDb))
+        {
+            return rejected(ValidationRule.MAX_VOLUME_DB);
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks the parameters of an IPad. Every tablet case value is valid.
+     *
+     * @param operatingSystemVersion the operating system version
+     * @return the ValidationRule violated, or null if the parameters are valid
+     */
+    public static ValidationRule checkIPad(final String operatingSystemVersion)
+    {
+        if (!IPad.isValidOperatingSystemVersion(operatingSystemVersion))
+        {
+            return rejected(ValidationRule.OPERATING_SYSTEM_VERSION);
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks the parameters of an IPhone.
+     *
+     * @param remainingPlanMinutes the number of minutes remaining on the phone plan
+     * @param carrier              the name of the carrier
+     * @return the first ValidationRule violated, or null if the parameters are valid
+     */
+    public static ValidationRule checkIPhone(final double remainingPlanMinutes,
+                                             final String carrier)
+    {
+        if (!IPhone.isValidRemainingPlanMinutes(remainingPlanMinutes))
+        {
+            return rejected(ValidationRule.REMAINING_PLAN_MINUTES);
+        }
+
+        if (!IPhone.isValidCarrier(carrier))
+        {
+            return rejected(ValidationRule.CARRIER);
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks the parameters of an IPhone17. Every high-resolution camera value is valid.
+     *
+     * @param remainingPlanMinutes the number of minutes remaining on the phone plan
+     * @param carrier              the name of the carrier
+     * @param memoryGB             the gigabytes of memory
+     * @return the first ValidationRule violated, or null if the parameters are valid
+     */
+    public static ValidationRule checkIPhone17(final double remainingPlanMinutes,
+                                               final String carrier,
+                                               final int memoryGB)
+    {
+        final ValidationRule phoneRule = checkIPhone(remainingPlanMinutes, carrier);
+
+        if (phoneRule != null)
+        {
+            return phoneRule;
+        }
+
+        if (!IPhone17.isValidMemoryGB(memoryGB))
+        {
+            return rejected(ValidationRule.MEMORY_GB);
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks a batch of IPod records.
+     *
+     * @param songsStored the number of songs stored of each record
+     * @param maxVolumeDb the maximum volume of each record
+     * @param errors      receives every rule violated
+     * @return the number of invalid records
+     */
+    public static int validateIPods(final int[] songsStored,
+                                    final double[] maxVolumeDb,
+                                    final ValidationErrors errors)
+    {
+        final int rows = rowCount(errors, songsStored.length, maxVolumeDb.length);
+        int invalid = 0;
+
+        for (int row = 0; row < rows; row++)
+        {
+            boolean valid = check(IPod.isValidSongsStored(songsStored[row]),
+                                  ValidationRule.SONGS_STORED, row, errors);
+
+            valid &= check(IPod.isValidMaxVolumeDb(maxVolumeDb[row]),
+                           ValidationRule.MAX_VOLUME_DB, row, errors);
+
+            invalid += valid ? 0 : 1;
+        }
+
+        return invalid;
+    }
+
+    /**
+     * Checks a batch of IPad records.
+     *
+     * @param operatingSystemVersions the operating system version of each record
+     * @param errors                  receives every rule violated
+     * @return the number of invalid records
+     */
+    public static int validateIPads(final String[] operatingSystemVersions,
+                                    final ValidationErrors errors)
+    {
+        final int rows = rowCount(errors, operatingSystemVersions.length);
+        int invalid = 0;
+
+        for (int row = 0; row < rows; row++)
+        {
+            final boolean valid = check(IPad.isValidOperatingSystemVersion(operatingSystemVersions[row]),
+                                        ValidationRule.OPERATING_SYSTEM_VERSION, row, errors);
+
+            invalid += valid ? 0 : 1;
+        }
+
+        return invalid;
+    }
+
+    /**
+     * Checks a batch of IPhone records.
+     *
+     * @param remainingPlanMinutes the remaining plan minutes of each record
+     * @param carriers             the carrier of each record
+     * @param errors               receives every rule violated
+     * @return the number of invalid records
+     */
+    public static int validateIPhones(final double[] remainingPlanMinutes,
+                                      final String[] carriers,
+                                      final ValidationErrors errors)
+    {
+        final int rows = rowCount(errors, remainingPlanMinutes.length, carriers.length);
+        int invalid = 0;
+
+        for (int row = 0; row < rows; row++)
+        {
+            invalid += checkPhone(remainingPlanMinutes[row], carriers[row], row, errors) ? 0 : 1;
+        }
+
+        return invalid;
+    }
+
+    /**
+     * Checks a batch of IPhone17 records.
+     *
+     * @param remainingPlanMinutes the remaining plan minutes of each record
+     * @param carriers             the carrier of each record
+     * @param memoryGB             the gigabytes of memory of each record
+     * @param errors               receives every rule violated
+     * @return the number of invalid records
+     */
+    public static int validateIPhone17s(final double[] remainingPlanMinutes,
+                                        final String[] carriers,
+                                        final int[] memoryGB,
+                                        final ValidationErrors errors)
+    {
+        final int rows = rowCount(errors, remainingPlanMinutes.length, carriers.length, memoryGB.length);
+        int invalid = 0;
+
+        for (int row = 0; row < rows; row++)
+        {
+            boolean valid = checkPhone(remainingPlanMinutes[row], carriers[row], row, errors);
+
+            valid &= check(IPhone17.isValidMemoryGB(memoryGB[row]),
+                           ValidationRule.MEMORY_GB, row, errors);
+
+            invalid += valid ? 0 : 1;
+        }
+
+        return invalid;
+    }
+
+    // Checks the fields shared by IPhones and IPhone17s, returning whether both are valid.
+    private static boolean checkPhone(final double remainingPlanMinutes,
+                                      final String carrier,
+                                      final int row,
+                                      final ValidationErrors errors)
+    {
+        boolean valid = check(IPhone.isValidRemainingPlanMinutes(remainingPlanMinutes),
+                              ValidationRule.REMAINING_PLAN_MINUTES, row, errors);
+
+        valid &= check(IPhone.isValidCarrier(carrier),
+                       ValidationRule.CARRIER, row, errors);
+
+        return valid;
+    }
+
+    // Records an error if a rule is violated, returning whether it was satisfied.
+    private static boolean check(final boolean valid,
+                                 final ValidationRule rule,
+                                 final int row,
+                                 final ValidationErrors errors)
+    {
+        if (!valid)
+        {
+            errors.add(rejected(rule), row);
+        }
+
+        return valid;
+    }
+
+    // Counts a rejection in DeviceMetrics, returning the rule.
+    private static ValidationRule rejected(final ValidationRule rule)
+    {
+        DeviceMetrics.rejected(rule);
+
+        return rule;
+    }
+
+    // Validates the ValidationErrors of a one-column batch, returning its number of rows. The column counts have
+    // fixed-arity overloads rather than varargs, so validating a batch allocates nothing.
+    private static int rowCount(final ValidationErrors errors,
+                                final int length)
+    {
+        if (errors == null)
+        {
+            throw new IllegalArgumentException("Invalid validation errors");
+        }
+
+        return length;
+    }
+
+    // Validates the ValidationErrors and the column lengths of a two-column batch, returning its number of rows.
+    private static int rowCount(final ValidationErrors errors,
+                                final int firstLength,
+                                final int secondLength)
+    {
+        final int rows = rowCount(errors, firstLength);
+
+        if (secondLength != rows)
+        {
+            throw new IllegalArgumentException("Columns have different lengths");
+        }
+
+        return rows;
+    }
+
+    // Validates the ValidationErrors and the column lengths of a three-column batch, returning its number of rows.
+    private static int rowCount(final ValidationErrors errors,
+                                final int firstLength,
+                                final int secondLength,
+                                final int thirdLength)
+    {
+        final int rows = rowCount(errors, firstLength, secondLength);
+
+        if (thirdLength != rows)
+        {
+            throw new IllegalArgumentException("Columns have different lengths");
+        }
+
+        return rows;
+    }
+}
@@ -0,0 +1,55 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * Factories for the MaterializedViews which dashboards query most often. Each view starts empty; add devices to
+ * it, and close it once it is no longer needed.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceViews
+{
+    private DeviceViews()
+    {
+    }
+
+    /**
+     * Creates a view of the total remaining plan minutes per carrier, over IPhones and IPhone17s.
+     *
+     * @return the new view, keyed by carrier
+     */
+    public static GroupedSumView<IPhone, String> remainingPlanMinutesByCarrier()
+    {
+        return GroupedSumView.create(IPhone.class,
+                                     IPhone::getCarrier,
+                                     IPhone::getRemainingPlanMinutes,
+                                     DeviceField.CARRIER,
+                                     DeviceField.REMAINING_PLAN_MINUTES);
+    }
+
+    /**
+     * Creates a view of the number of IPads with a case.
+     *
+     * @return the new view
+     */
+    public static CountView<IPad> iPadsWithCase()
+    {
+        return CountView.create(IPad.class,
+                                IPad::hasCase,
+                                DeviceField.TABLET_CASE);
+    }
+
+    /**
+     * Creates a view of the number of IPhone17s with a high-resolution camera.
+     *
+     * @return the new view
+     */
+    public static CountView<IPhone17> iPhone17sWithHighResolutionCamera()
+    {
+        return CountView.create(IPhone17.class,
+                                IPhone17::hasHighResolutionCamera,
+                                DeviceField.HIGH_RESOLUTION_CAMERA);
+    }
+}
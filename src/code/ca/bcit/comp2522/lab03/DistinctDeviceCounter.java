@@ -0,0 +1,126 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Estimates how many distinct classes of equal devices have been seen for each purpose, with one
+ * DeviceHyperLogLog per purpose: "music" for IPods, "learning" for IPads and "talking" for IPhones and IPhone17s.
+ * Like the sketches it holds, a counter may be added to by any number of threads at once, and merged with others
+ * of the same precision.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DistinctDeviceCounter
+{
+    private static final String[] PURPOSES = {IPod.PURPOSE, IPad.PURPOSE, IPhone.PURPOSE};
+
+    private final DeviceHyperLogLog[] sketches;
+
+    /**
+     * Constructs an empty DistinctDeviceCounter whose sketches have the default precision.
+     */
+    public DistinctDeviceCounter()
+    {
+        this.sketches = new DeviceHyperLogLog[PURPOSES.length];
+
+        for (int i = 0; i < PURPOSES.length; i++)
+        {
+            sketches[i] = new DeviceHyperLogLog();
+        }
+    }
+
+    /**
+     * Constructs an empty DistinctDeviceCounter whose sketches have the given precision.
+     *
+     * @param precision the precision of each purpose's DeviceHyperLogLog, from 4 to 18
+     */
+    public DistinctDeviceCounter(final int precision)
+    {
+        this.sketches = new DeviceHyperLogLog[PURPOSES.length];
+
+        for (int i = 0; i < PURPOSES.length; i++)
+        {
+            sketches[i] = new DeviceHyperLogLog(precision);
+        }
+    }
+
+    /**
+     * Adds a device to the sketch of its purpose.
+     *
+     * @param device the IDevice to add
+     */
+    public void add(final IDevice device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        final int purpose = switch (DeviceType.of(device))
+        {
+            case IPOD -> 0;
+            case IPAD -> 1;
+            case IPHONE, IPHONE17 -> 2;
+        };
+
+        sketches[purpose].add(device);
+    }
+
+    /**
+     * Estimates the number of distinct classes of equal devices seen with a purpose.
+     *
+     * @param purpose "music", "learning" or "talking"
+     * @return the estimated number of distinct devices with that purpose
+     */
+    public long estimate(final String purpose)
+    {
+        for (int i = 0; i < PURPOSES.length; i++)
+        {
+            if (PURPOSES[i].equals(purpose))
+            {
+                return sketches[i].estimate();
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid purpose: " + purpose);
+    }
+
+    /**
+     * Estimates the number of distinct classes of equal devices seen with every purpose.
+     *
+     * @return the estimate for each purpose, in the order "music", "learning", "talking"
+     */
+    public Map<String, Long> estimates()
+    {
+        final Map<String, Long> estimates = new LinkedHashMap<>();
+
+        for (int i = 0; i < PURPOSES.length; i++)
+        {
+            estimates.put(PURPOSES[i], sketches[i].estimate());
+        }
+
+        return estimates;
+    }
+
+    /**
+     * Adds every device seen by another counter to this one. The other counter must have the same precision.
+     *
+     * @param other the counter to merge into this one
+     */
+    public void merge(final DistinctDeviceCounter other)
+    {
+        if (other == null)
+        {
+            throw new IllegalArgumentException("Invalid counter");
+        }
+
+        for (int i = 0; i < PURPOSES.length; i++)
+        {
+            sketches[i].merge(other.sketches[i]);
+        }
+    }
+}
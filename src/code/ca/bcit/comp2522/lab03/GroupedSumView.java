@@ -0,0 +1,154 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * MaterializedView which keeps the count and the total of a numeric field for each group of devices, such as the
+ * total remaining plan minutes per carrier. Without grouping, it is the total over every device in the view.
+ *
+ * Totals are updated by subtracting old values and adding new ones, so values that are not exactly representable
+ * as doubles can accumulate rounding error over many changes.
+ *
+ * @param <D> the type of device the view aggregates
+ * @param <K> the type of the group keys
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class GroupedSumView<D extends IDevice, K> extends MaterializedView<D, Map.Entry<K, Double>>
+{
+    private final Function<? super D, ? extends K> key;
+    private final ToDoubleFunction<? super D> value;
+    private final Map<K, Group> groups;
+
+    private GroupedSumView(final Class<D> type,
+                           final Function<? super D, ? extends K> key,
+                           final ToDoubleFunction<? super D> value,
+                           final DeviceField... dependencies)
+    {
+        super(type, dependencies);
+
+        this.key = key;
+        this.value = value;
+        this.groups = new HashMap<>();
+    }
+
+    /**
+     * Creates a new, empty GroupedSumView which is registered to follow device changes.
+     *
+     * @param type         the type of device to aggregate, including its subclasses
+     * @param key          computes the group of a device
+     * @param value        reads the field to total
+     * @param dependencies the fields which key and value read
+     * @param <D>          the type of device to aggregate
+     * @param <K>          the type of the group keys
+     * @return the new view
+     */
+    public static <D extends IDevice, K> GroupedSumView<D, K> create(final Class<D> type,
+                                                                     final Function<? super D, ? extends K> key,
+                                                                     final ToDoubleFunction<? super D> value,
+                                                                     final DeviceField... dependencies)
+    {
+        if (key == null || value == null)
+        {
+            throw new IllegalArgumentException("Invalid view definition");
+        }
+
+        return registered(new GroupedSumView<>(type, key, value, dependencies));
+    }
+
+    /**
+     * Returns the total of the field over a group.
+     *
+     * @param group the group's key
+     * @return the group's total, or 0 if no device is in the group
+     */
+    public synchronized double total(final K group)
+    {
+        final Group totals = groups.get(group);
+
+        return totals == null ? 0.0 : totals.total;
+    }
+
+    /**
+     * Returns the number of devices in a group.
+     *
+     * @param group the group's key
+     * @return the number of devices in the group
+     */
+    public synchronized int count(final K group)
+    {
+        final Group totals = groups.get(group);
+
+        return totals == null ? 0 : totals.count;
+    }
+
+    /**
+     * Returns the average of the field over a group.
+     *
+     * @param group the group's key
+     * @return the group's average, or 0 if no device is in the group
+     */
+    public synchronized double average(final K group)
+    {
+        final Group totals = groups.get(group);
+
+        return totals == null ? 0.0 : totals.total / totals.count;
+    }
+
+    /**
+     * Returns the total of every group.
+     *
+     * @return a new Map from group key to total
+     */
+    public synchronized Map<K, Double> totals()
+    {
+        final Map<K, Double> totals = new HashMap<>();
+
+        groups.forEach((group, sums) -> totals.put(group, sums.total));
+
+        return totals;
+    }
+
+    // A device's contribution is its group and value, as an entry since the group may be null.
+    @Override
+    protected Map.Entry<K, Double> include(final D device)
+    {
+        final K group = key.apply(device);
+        final double amount = value.applyAsDouble(device);
+        final Group totals = groups.computeIfAbsent(group, k -> new Group());
+
+        totals.count++;
+        totals.total += amount;
+
+        return new AbstractMap.SimpleImmutableEntry<>(group, amount);
+    }
+
+    @Override
+    protected void exclude(final Map.Entry<K, Double> contribution)
+    {
+        final K group = contribution.getKey();
+        final Group totals = groups.get(group);
+
+        totals.count--;
+        totals.total -= contribution.getValue();
+
+        if (totals.count == 0)
+        {
+            groups.remove(group);
+        }
+    }
+
+    // Running count and total of one group.
+    private static final class Group
+    {
+        private int count;
+        private double total;
+    }
+}
@@ -0,0 +1,82 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * One of the most frequent items reported by a SpaceSavingTopK or HeavyHitterTracker: the item, an estimate of how
+ * many times it occurred which is never below the true count, and the most that estimate can exceed it by.
+ *
+ * @param <T> the type of the item
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class HeavyHitter<T>
+{
+    private final T item;
+    private final long count;
+    private final long error;
+
+    /*
+     * Constructs a HeavyHitter from a summary's counter for an item.
+     */
+    HeavyHitter(final T item,
+                final long count,
+                final long error)
+    {
+        this.item = item;
+        this.count = count;
+        this.error = error;
+    }
+
+    /**
+     * Accessor for the item.
+     *
+     * @return the item
+     */
+    public T getItem()
+    {
+        return item;
+    }
+
+    /**
+     * Accessor for the count.
+     *
+     * @return the estimated number of occurrences, which is never below the true count
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Accessor for the error.
+     *
+     * @return the most the count can exceed the true number of occurrences by
+     */
+    public long getError()
+    {
+        return error;
+    }
+
+    /**
+     * Returns the number of occurrences the item is certain to have had.
+     *
+     * @return the count less the error
+     */
+    public long getGuaranteedCount()
+    {
+        return count - error;
+    }
+
+    /**
+     * Returns a string representation of the heavy hitter, such as "Rogers: 1200 (+/- 35)".
+     *
+     * @return the item, count and error
+     */
+    @Override
+    public String toString()
+    {
+        return item + ": " + count + " (+/- " + error + ")";
+    }
+}
@@ -0,0 +1,310 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToLongFunction;
+
+/**
+ * Tracks the most frequent items of a stream added to by any number of threads, in memory bounded by the number of
+ * processors rather than the number of threads or distinct items. It pairs a SpaceSavingTopK, which finds the
+ * candidates, with a CountMinSketch, which tightens their counts and estimates any item's count.
+ *
+ * Additions go to a fixed array of slots, each with its own summary and sketch, a few per processor. A thread
+ * starts at the slot its id hashes to and claims the first free one with a compare-and-set, so adding never
+ * blocks, and threads which come and go, such as virtual threads, leave nothing behind. Every publishInterval
+ * additions, a slot hands its summary over on a lock-free queue, merging in one already waiting there, and starts
+ * a new one. top merges the handed over summaries, and takes whatever each slot still holds, so it reports every
+ * addition made before it was called. Sketches are long-lived and read directly, so estimates never lag.
+ *
+ * @param <T> the type of the items
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class HeavyHitterTracker<T>
+{
+    private static final int SLOTS_PER_PROCESSOR = 4;
+
+    private final int capacity;
+    private final int publishInterval;
+    private final ToLongFunction<? super T> hasher;
+    private final Slot<T>[] slots;
+    private final Queue<SpaceSavingTopK<T>> publishedSummaries;
+    private final SpaceSavingTopK<T> mergedSummary;
+
+    /**
+     * Constructs an empty HeavyHitterTracker.
+     *
+     * @param capacity        the number of items each Space-Saving summary tracks, greater than 0
+     * @param width           the number of counters in each row of each Count-Min sketch
+     * @param depth           the number of rows of each Count-Min sketch, from 1 to 32
+     * @param publishInterval the number of additions after which a slot hands over its summary, greater than 0
+     * @param hasher          computes the 64-bit hash of an item, which must be the same for equal items
+     */
+    public HeavyHitterTracker(final int capacity,
+                              final int width,
+                              final int depth,
+                              final int publishInterval,
+                              final ToLongFunction<? super T> hasher)
+    {
+        if (publishInterval <= 0)
+        {
+            throw new IllegalArgumentException("Invalid publish interval: " + publishInterval);
+        }
+
+        if (hasher == null)
+        {
+            throw new IllegalArgumentException("Invalid hasher");
+        }
+
+        this.capacity = capacity;
+        this.publishInterval = publishInterval;
+        this.hasher = hasher;
+        this.mergedSummary = new SpaceSavingTopK<>(capacity);
+        this.publishedSummaries = new ConcurrentLinkedQueue<>();
+
+        // A power of two, so that a thread's hash picks its first slot with a mask
+        @SuppressWarnings("unchecked")
+        final Slot<T>[] created =
+            (Slot<T>[]) new Slot<?>[Integer.highestOneBit(SLOTS_PER_PROCESSOR *
+                                                          Runtime.getRuntime().availableProcessors())];
+
+        for (int i = 0; i < created.length; i++)
+        {
+            created[i] = new Slot<>(new SpaceSavingTopK<>(capacity), new CountMinSketch(width, depth));
+        }
+
+        this.slots = created;
+    }
+
+    /**
+     * Adds one occurrence of an item, to the summary and sketch of a slot the calling thread claims for the
+     * duration.
+     *
+     * @param item the item, not null
+     */
+    public void add(final T item)
+    {
+        if (item == null)
+        {
+            throw new IllegalArgumentException("Invalid item");
+        }
+
+        final long hash = hasher.applyAsLong(item);
+        final Slot<T> slot = claim();
+
+        try
+        {
+            slot.summary.add(item);
+            slot.sketch.add(hash);
+
+            if (++slot.pending == publishInterval)
+            {
+                publish(slot);
+            }
+        }
+        finally
+        {
+            slot.busy.set(false);
+        }
+    }
+
+    /**
+     * Hands over everything added so far. top already does this, so calling flush is never needed; it only moves
+     * the work of merging off the next call to top.
+     */
+    public void flush()
+    {
+        for (final Slot<T> slot : slots)
+        {
+            lock(slot);
+
+            try
+            {
+                publish(slot);
+            }
+            finally
+            {
+                slot.busy.set(false);
+            }
+        }
+    }
+
+    /**
+     * Returns the most frequent items added so far, most frequent first. Each count is the smaller of the
+     * Space-Saving count and the Count-Min estimate, both of which are never below the true count.
+     *
+     * @param n the largest number of items to return, at most the capacity
+     * @return up to n items with the largest counts
+     */
+    public List<HeavyHitter<T>> top(final int n)
+    {
+        if (n < 0 || n > capacity)
+        {
+            throw new IllegalArgumentException("Invalid n: " + n);
+        }
+
+        final List<HeavyHitter<T>> top = new ArrayList<>(capacity);
+
+        synchronized (mergedSummary)
+        {
+            for (final Slot<T> slot : slots)
+            {
+                lock(slot);
+
+                try
+                {
+                    if (slot.pending > 0)
+                    {
+                        mergedSummary.merge(slot.summary);
+                        slot.summary = new SpaceSavingTopK<>(capacity);
+                        slot.pending = 0;
+                    }
+                }
+                finally
+                {
+                    slot.busy.set(false);
+                }
+            }
+
+            SpaceSavingTopK<T> summary;
+
+            while ((summary = publishedSummaries.poll()) != null)
+            {
+                mergedSummary.merge(summary);
+            }
+
+            for (final HeavyHitter<T> candidate : mergedSummary.top(capacity))
+            {
+                final long guaranteed = candidate.getGuaranteedCount();
+                final long count = Math.min(candidate.getCount(), estimate(candidate.getItem()));
+
+                top.add(new HeavyHitter<>(candidate.getItem(), count, Math.max(0L, count - guaranteed)));
+            }
+        }
+
+        top.sort(Comparator.comparingLong((HeavyHitter<T> hitter) -> hitter.getCount()).reversed());
+
+        return top.subList(0, Math.min(n, top.size()));
+    }
+
+    /**
+     * Estimates how many times an item has been added, by any thread.
+     *
+     * @param item the item
+     * @return an estimate which is never below the true count
+     */
+    public long estimate(final T item)
+    {
+        if (item == null)
+        {
+            throw new IllegalArgumentException("Invalid item");
+        }
+
+        final long hash = hasher.applyAsLong(item);
+        long estimate = 0L;
+
+        // The sum of every slot's upper bound is tighter than one merged sketch's.
+        for (final Slot<T> slot : slots)
+        {
+            estimate += slot.sketch.estimate(hash);
+        }
+
+        return estimate;
+    }
+
+    /**
+     * Accessor for the capacity.
+     *
+     * @return the number of items each Space-Saving summary tracks
+     */
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    /*
+     * Returns the number of slots, which bounds the summaries and sketches held however many threads add.
+     */
+    int slotCount()
+    {
+        return slots.length;
+    }
+
+    // Claims a free slot, starting from the one the calling thread's id hashes to and moving on past busy ones.
+    // A slot is only held for one addition, so going round every slot without finding one free is rare.
+    private Slot<T> claim()
+    {
+        final int mask = slots.length - 1;
+        final int start = (int) DeviceHashing.mix(Thread.currentThread().threadId()) & mask;
+
+        while (true)
+        {
+            for (int i = 0; i < slots.length; i++)
+            {
+                final Slot<T> slot = slots[(start + i) & mask];
+
+                if (slot.busy.compareAndSet(false, true))
+                {
+                    return slot;
+                }
+            }
+
+            Thread.onSpinWait();
+        }
+    }
+
+    // Waits until a particular slot is free and claims it.
+    private void lock(final Slot<T> slot)
+    {
+        while (!slot.busy.compareAndSet(false, true))
+        {
+            Thread.onSpinWait();
+        }
+    }
+
+    // Hands over a claimed slot's summary, if anything has been added to it since it last did, and starts a new
+    // one. A summary already waiting is taken and merged in first, so the queue stays about as long as the number
+    // of slots even while nobody reads.
+    private void publish(final Slot<T> slot)
+    {
+        if (slot.pending > 0)
+        {
+            final SpaceSavingTopK<T> waiting = publishedSummaries.poll();
+
+            if (waiting != null)
+            {
+                slot.summary.merge(waiting);
+            }
+
+            publishedSummaries.offer(slot.summary);
+            slot.summary = new SpaceSavingTopK<>(capacity);
+            slot.pending = 0;
+        }
+    }
+
+    // One slot's summary, sketch and additions since its summary was last handed over. Only the thread which has
+    // claimed the slot by setting busy may touch the summary or add to the sketch; claiming and releasing it
+    // order those changes for the next thread to claim it.
+    private static final class Slot<T>
+    {
+        private final AtomicBoolean busy;
+        private final CountMinSketch sketch;
+        private SpaceSavingTopK<T> summary;
+        private int pending;
+
+        private Slot(final SpaceSavingTopK<T> summary,
+                     final CountMinSketch sketch)
+        {
+            this.busy = new AtomicBoolean();
+            this.summary = summary;
+            this.sketch = sketch;
+        }
+    }
+}
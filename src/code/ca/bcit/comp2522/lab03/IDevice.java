@@ -12,8 +12,11 @@ public abstract class IDevice
 {
     private final String purpose;
 
+    @SuppressWarnings("this-escape")
     public IDevice(final String purpose)
     {
+        // Only the class of this device is inspected, so it is safe to pass before it is initialized
+        DeviceMetrics.constructed(this);
         validatePurpose(purpose);
 
         this.purpose = purpose;
@@ -24,6 +27,13 @@ public abstract class IDevice
      */
     public abstract void printDetails();
 
+    /**
+     * Takes an immutable snapshot of the IDevice's current fields, which can safely be used as a HashMap key.
+     *
+     * @return the IDevice's snapshot
+     */
+    public abstract DeviceSnapshot snapshot();
+
     /**
      * Accessor for the IDevice's purpose.
      *
@@ -35,15 +45,49 @@ public abstract class IDevice
     }
 
     /**
-     * Creates a String representation of the IDevice.
+     * Creates a String representation of the IDevice, containing all of its fields (see appendDetails for
+     * specifics).
      *
-     * @return a String containing the IDevice's purpose
+     * @return a String containing the IDevice's details
      */
     @Override
     public String toString()
     {
-        return String.format("Purpose: %s\n",
-                             purpose);
+        final long start;
+        final StringBuilder toStringBuilder;
+
+        start = DeviceMetrics.startTimer();
+        toStringBuilder = new StringBuilder();
+        appendDetails(toStringBuilder);
+
+        final String details = toStringBuilder.toString();
+
+        DeviceMetrics.toStringFinished(start);
+
+        return details;
+    }
+
+    /**
+     * Appends the IDevice's details to a StringBuilder. Subclasses append their own fields after calling this
+     * method, so that toString() and DeviceRenderer produce the same text without intermediate Strings.
+     *
+     * @param builder the StringBuilder to append to
+     */
+    void appendDetails(final StringBuilder builder)
+    {
+        appendPurpose(builder, purpose);
+    }
+
+    /*
+     * Appends the purpose line which begins every device's details, for snapshots and views which render the same
+     * text from their own fields.
+     */
+    static void appendPurpose(final StringBuilder builder,
+                              final String purpose)
+    {
+        builder.append("Purpose: ");
+        builder.append(purpose);
+        builder.append('\n');
     }
 
     /**
@@ -86,6 +130,7 @@ public abstract class IDevice
     {
         if (purpose == null)
         {
+            DeviceMetrics.rejected(ValidationRule.PURPOSE);
             throw new IllegalArgumentException("invalid purpose");
         }
     }
@@ -9,11 +9,12 @@ package ca.bcit.comp2522.lab03;
  */
 public class IPad extends IDevice
 {
-    private static final String PURPOSE = "learning";
+    static final String PURPOSE = "learning";
     private boolean tabletCase;
 
 
-    private String operatingSystemVersion;
+    // Code of the operating system version in StringDictionary.OPERATING_SYSTEM_VERSIONS
+    private int operatingSystemVersionCode;
 
 
     /**
@@ -31,7 +32,26 @@ public class IPad extends IDevice
         validateOperatingSystemVersion(operatingSystemVersion);
 
         this.tabletCase = tabletCase;
-        this.operatingSystemVersion = operatingSystemVersion;
+        this.operatingSystemVersionCode = StringDictionary.OPERATING_SYSTEM_VERSIONS.encode(operatingSystemVersion);
+    }
+
+    /**
+     * Creates a new IPad with the given parameters if they are valid, without throwing an exception if they are
+     * not. DeviceValidator.checkIPad gives the rule an invalid parameter violates.
+     *
+     * @param tabletCase             true if the IPad currently has a case, false otherwise
+     * @param operatingSystemVersion the current OS version of the IPad
+     * @return the new IPad, or null if a parameter is invalid
+     */
+    public static IPad tryCreate(final boolean tabletCase,
+                                 final String operatingSystemVersion)
+    {
+        if (DeviceValidator.checkIPad(operatingSystemVersion) != null)
+        {
+            return null;
+        }
+
+        return new IPad(tabletCase, operatingSystemVersion);
     }
 
     /**
@@ -40,34 +60,43 @@ public class IPad extends IDevice
     @Override
     public void printDetails()
     {
+        final long start = DeviceMetrics.startTimer();
+
         System.out.println(this);
+        DeviceMetrics.printDetailsFinished(start);
     }
 
     /**
-     * Generates a String representation of the IPad, containing all of its fields.
+     * Appends the IPad's details, containing all of its fields, to a StringBuilder.
      *
-     * @return A String with the IPad's:
+     * The details include the IPad's:
      * - Purpose
      * - Whether it has a case
      * - Operating system version
+     *
+     * @param builder the StringBuilder to append to
      */
     @Override
-    public String toString()
+    void appendDetails(final StringBuilder builder)
     {
-        final StringBuilder toStringBuilder;
-        final String superString;
-
-        superString = super.toString();
-        toStringBuilder = new StringBuilder(superString);
-
-        toStringBuilder.append("Has case: ");
-        toStringBuilder.append(this.tabletCase);
-        toStringBuilder.append('\n');
-        toStringBuilder.append("Operating system version: ");
-        toStringBuilder.append(this.operatingSystemVersion);
-        toStringBuilder.append('\n');
+        super.appendDetails(builder);
+        appendFields(builder, this.tabletCase, getOperatingSystemVersion());
+    }
 
-        return toStringBuilder.toString();
+    /*
+     * Appends the lines of an IPad's details which follow its purpose, for snapshots and views which render the
+     * same text from their own fields.
+     */
+    static void appendFields(final StringBuilder builder,
+                             final boolean tabletCase,
+                             final String operatingSystemVersion)
+    {
+        builder.append("Has case: ");
+        builder.append(tabletCase);
+        builder.append('\n');
+        builder.append("Operating system version: ");
+        builder.append(operatingSystemVersion);
+        builder.append('\n');
     }
 
     /**
@@ -80,6 +109,8 @@ public class IPad extends IDevice
     @Override
     public boolean equals(final Object o)
     {
+        DeviceMetrics.equalsCalled(DeviceType.IPAD);
+
         if (o == null)
         {
             return false;
@@ -90,7 +121,7 @@ public class IPad extends IDevice
             return false;
         }
 
-        return this.operatingSystemVersion.equals(other.getOperatingSystemVersion());
+        return this.operatingSystemVersionCode == other.operatingSystemVersionCode;
     }
 
     /**
@@ -102,7 +133,20 @@ public class IPad extends IDevice
     @Override
     public int hashCode()
     {
-        return this.operatingSystemVersion.hashCode();
+        DeviceMetrics.hashCodeCalled(DeviceType.IPAD);
+
+        return this.operatingSystemVersionCode;
+    }
+
+    /**
+     * Takes an immutable snapshot of the IPad.
+     *
+     * @return the IPad's current fields as an IPadSnapshot
+     */
+    @Override
+    public IPadSnapshot snapshot()
+    {
+        return new IPadSnapshot(this);
     }
 
     /**
@@ -123,7 +167,9 @@ public class IPad extends IDevice
     public final void setTabletCase(final boolean tabletCase)
     {
         // all possible values of tabletCase are valid
+        DeviceChanges.beforeChange(this, DeviceField.TABLET_CASE);
         this.tabletCase = tabletCase;
+        DeviceChanges.afterChange(this, DeviceField.TABLET_CASE);
     }
 
     /**
@@ -133,7 +179,16 @@ public class IPad extends IDevice
      */
     public final String getOperatingSystemVersion()
     {
-        return this.operatingSystemVersion;
+        return StringDictionary.OPERATING_SYSTEM_VERSIONS.decode(this.operatingSystemVersionCode);
+    }
+
+    /*
+     * Accessor for the dictionary code of operatingSystemVersion. Two IPads have the same operating system version
+     * if and only if they have the same code.
+     */
+    final int getOperatingSystemVersionCode()
+    {
+        return this.operatingSystemVersionCode;
     }
 
     /**
@@ -144,18 +199,30 @@ public class IPad extends IDevice
     public final void setOperatingSystemVersion(final String operatingSystemVersion)
     {
         validateOperatingSystemVersion(operatingSystemVersion);
-        this.operatingSystemVersion = operatingSystemVersion;
+        DeviceChanges.beforeChange(this, DeviceField.OPERATING_SYSTEM_VERSION);
+        this.operatingSystemVersionCode = StringDictionary.OPERATING_SYSTEM_VERSIONS.encode(operatingSystemVersion);
+        DeviceChanges.afterChange(this, DeviceField.OPERATING_SYSTEM_VERSION);
+    }
+
+    /*
+     * Determines whether a String is a valid operating system version, which it is if it is not null and not
+     * blank (that is, it must have non-whitespace characters).
+     */
+    static boolean isValidOperatingSystemVersion(final String operatingSystemVersion)
+    {
+        return operatingSystemVersion != null &&
+               !operatingSystemVersion.isBlank();
     }
 
     /*
      * Validates the operating system version of the IPad. A String is a valid operating system version if
      * it is not null and not blank (that is, it must have non-whitespace characters).
      */
-    private static void validateOperatingSystemVersion(final String operatingSystemVersion)
+    static void validateOperatingSystemVersion(final String operatingSystemVersion)
     {
-        if (operatingSystemVersion == null ||
-            operatingSystemVersion.isBlank())
+        if (!isValidOperatingSystemVersion(operatingSystemVersion))
         {
+            DeviceMetrics.rejected(ValidationRule.OPERATING_SYSTEM_VERSION);
             throw new IllegalArgumentException("Invalid operating system version");
         }
     }
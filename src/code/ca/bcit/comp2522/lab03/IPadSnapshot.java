@@ -0,0 +1,96 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * Immutable snapshot of an IPad. The operating system version is kept as its dictionary code, so taking a
+ * snapshot copies no Strings.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class IPadSnapshot extends DeviceSnapshot
+{
+    private final boolean tabletCase;
+    // Code of the operating system version in StringDictionary.OPERATING_SYSTEM_VERSIONS
+    private final int operatingSystemVersionCode;
+
+    IPadSnapshot(final IPad iPad)
+    {
+        this(iPad.hasCase(),
+             iPad.getOperatingSystemVersionCode());
+    }
+
+    /*
+     * Constructs a snapshot from an IPad's field values, for copies taken without an IPad, as from an
+     * OffHeapDeviceView.
+     */
+    IPadSnapshot(final boolean tabletCase,
+                 final int operatingSystemVersionCode)
+    {
+        super(IPad.PURPOSE,
+              operatingSystemVersionCode);
+
+        this.tabletCase = tabletCase;
+        this.operatingSystemVersionCode = operatingSystemVersionCode;
+    }
+
+    /**
+     * Accessor for the tablet case.
+     *
+     * @return true if the IPad had a case, false otherwise
+     */
+    public boolean hasCase()
+    {
+        return tabletCase;
+    }
+
+    /**
+     * Accessor for the operating system version.
+     *
+     * @return the IPad's operating system version
+     */
+    public String getOperatingSystemVersion()
+    {
+        return StringDictionary.OPERATING_SYSTEM_VERSIONS.decode(operatingSystemVersionCode);
+    }
+
+    /**
+     * Creates a new IPad with the fields of this snapshot.
+     *
+     * @return the new IPad
+     */
+    @Override
+    public IPad thaw()
+    {
+        return new IPad(tabletCase, getOperatingSystemVersion());
+    }
+
+    /*
+     * Appends the snapshot's details, in the same format as IPad.appendDetails.
+     */
+    @Override
+    void appendDetails(final StringBuilder builder)
+    {
+        super.appendDetails(builder);
+        IPad.appendFields(builder, tabletCase, getOperatingSystemVersion());
+    }
+
+    /**
+     * Determines whether this snapshot is equal to a given object. Like IPads, IPad snapshots are equal if and
+     * only if they have the same operating system version.
+     *
+     * @param o the reference object with which to compare
+     * @return true if o is an IPadSnapshot with the same operating system version, false otherwise
+     */
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (!(o instanceof final IPadSnapshot other))
+        {
+            return false;
+        }
+
+        return this.operatingSystemVersionCode == other.operatingSystemVersionCode;
+    }
+}
@@ -10,11 +10,12 @@ package ca.bcit.comp2522.lab03;
  */
 public class IPhone extends IDevice
 {
-    private static final String PURPOSE = "talking";
-    private static final double MIN_REMAINING_PLAN_MINUTES = 0.0;
+    static final String PURPOSE = "talking";
+    static final double MIN_REMAINING_PLAN_MINUTES = 0.0;
 
     private double remainingPlanMinutes;
-    private String carrier;
+    // Code of the carrier in StringDictionary.CARRIERS
+    private int carrierCode;
 
     /**
      * Constructs a new IPhone with the given parameters, if they are valid.
@@ -31,7 +32,26 @@ public class IPhone extends IDevice
         validateCarrier(carrier);
 
         this.remainingPlanMinutes = remainingPlanMinutes;
-        this.carrier = carrier;
+        this.carrierCode = StringDictionary.CARRIERS.encode(carrier);
+    }
+
+    /**
+     * Creates a new IPhone with the given parameters if they are valid, without throwing an exception if they are
+     * not. DeviceValidator.checkIPhone gives the rule an invalid parameter violates.
+     *
+     * @param remainingPlanMinutes number of minutes remaining on phone plan
+     * @param carrier              the name of carrier
+     * @return the new IPhone, or null if a parameter is invalid
+     */
+    public static IPhone tryCreate(final double remainingPlanMinutes,
+                                   final String carrier)
+    {
+        if (DeviceValidator.checkIPhone(remainingPlanMinutes, carrier) != null)
+        {
+            return null;
+        }
+
+        return new IPhone(remainingPlanMinutes, carrier);
     }
 
 
@@ -41,34 +61,43 @@ public class IPhone extends IDevice
     @Override
     public void printDetails()
     {
+        final long start = DeviceMetrics.startTimer();
+
         System.out.println(this);
+        DeviceMetrics.printDetailsFinished(start);
     }
 
     /**
-     * Generates a String representation of the IPhone, containing all of its fields.
+     * Appends the IPhone's details, containing all of its fields, to a StringBuilder.
      *
-     * @return A String with the IPhone's:
+     * The details include the IPhone's:
      *         - Purpose
      *         - carrier
      *         - minutes remaining on phone plan
+     *
+     * @param builder the StringBuilder to append to
      */
     @Override
-    public String toString()
+    void appendDetails(final StringBuilder builder)
     {
-        final StringBuilder toStringBuilder;
-        final String superString;
-
-        superString = super.toString();
-        toStringBuilder = new StringBuilder(superString);
-
-        toStringBuilder.append("Carrier: ");
-        toStringBuilder.append(this.carrier);
-        toStringBuilder.append('\n');
-        toStringBuilder.append("The number of minutes remaining on phone plan: ");
-        toStringBuilder.append(this.remainingPlanMinutes);
-        toStringBuilder.append('\n');
+        super.appendDetails(builder);
+        appendFields(builder, getCarrier(), this.remainingPlanMinutes);
+    }
 
-        return toStringBuilder.toString();
+    /*
+     * Appends the lines of an IPhone's details which follow its purpose, for snapshots and views which render the
+     * same text from their own fields.
+     */
+    static void appendFields(final StringBuilder builder,
+                             final String carrier,
+                             final double remainingPlanMinutes)
+    {
+        builder.append("Carrier: ");
+        builder.append(carrier);
+        builder.append('\n');
+        builder.append("The number of minutes remaining on phone plan: ");
+        builder.append(remainingPlanMinutes);
+        builder.append('\n');
     }
 
     /**
@@ -81,6 +110,8 @@ public class IPhone extends IDevice
     @Override
     public boolean equals(final Object o)
     {
+        DeviceMetrics.equalsCalled(DeviceType.IPHONE);
+
         if (o == null)
         {
             return false;
@@ -91,6 +122,18 @@ public class IPhone extends IDevice
             return false;
         }
 
+        return hasSamePlanMinutes(other);
+    }
+
+    /**
+     * Determines whether this IPhone has the same remaining plan minutes as another. Shared by the equals methods
+     * of IPhone and IPhone17, so that each equals call is counted once in DeviceMetrics.
+     *
+     * @param other the IPhone to compare with
+     * @return true if both IPhones have the same remaining plan minutes, false otherwise
+     */
+    final boolean hasSamePlanMinutes(final IPhone other)
+    {
         /*
          * We're boxing the remainingPlanMinutes value in order to use Double.equals(), which respects the
          * .equals() contract by being a true equivalence relation (it has the reflexive, transitive, symmetric,
@@ -109,9 +152,22 @@ public class IPhone extends IDevice
     @Override
     public int hashCode()
     {
+        DeviceMetrics.hashCodeCalled(DeviceType.IPHONE);
+
         return Double.hashCode(remainingPlanMinutes);
     }
 
+    /**
+     * Takes an immutable snapshot of the IPhone.
+     *
+     * @return the IPhone's current fields as an IPhoneSnapshot
+     */
+    @Override
+    public IPhoneSnapshot snapshot()
+    {
+        return new IPhoneSnapshot(this);
+    }
+
     /**
      * Accessor for remainingPlanMinutes
      *
@@ -131,7 +187,9 @@ public class IPhone extends IDevice
     public final void setRemainingPlanMinutes(final double remainingPlanMinutes)
     {
         validateRemainingPlanMinutes(remainingPlanMinutes);
+        DeviceChanges.beforeChange(this, DeviceField.REMAINING_PLAN_MINUTES);
         this.remainingPlanMinutes = remainingPlanMinutes;
+        DeviceChanges.afterChange(this, DeviceField.REMAINING_PLAN_MINUTES);
     }
 
     /**
@@ -141,10 +199,19 @@ public class IPhone extends IDevice
      */
     public final String getCarrier()
     {
-        return this.carrier;
+        return StringDictionary.CARRIERS.decode(this.carrierCode);
     }
 
 
+    /*
+     * Accessor for the dictionary code of carrier. Two IPhones have the same carrier if and only if they have the
+     * same code.
+     */
+    final int getCarrierCode()
+    {
+        return this.carrierCode;
+    }
+
     /**
      * Setter for carrier
      *
@@ -153,33 +220,58 @@ public class IPhone extends IDevice
     public final void setCarrier(final String carrier)
     {
         validateCarrier(carrier);
-        this.carrier = carrier;
+        DeviceChanges.beforeChange(this, DeviceField.CARRIER);
+        this.carrierCode = StringDictionary.CARRIERS.encode(carrier);
+        DeviceChanges.afterChange(this, DeviceField.CARRIER);
     }
 
 
+    /**
+     * Determines whether remaining minutes on plan are valid, which they are unless they are less than
+     * MIN_REMAINING_PLAN_MINUTES.
+     * @param remainingPlanMinutes the number of minutes on phone plan.
+     * @return true if the minutes are valid, false otherwise
+     */
+    static boolean isValidRemainingPlanMinutes(final double remainingPlanMinutes)
+    {
+        return !(remainingPlanMinutes < MIN_REMAINING_PLAN_MINUTES);
+    }
+
     /**
      * Validates remaining minutes on plan , which cannot be less than MIN_REAMINING_PLAN_MINUTES.
      * @param remainingPlanMinutes the number of minutes on phone plan.
      */
-    private static void validateRemainingPlanMinutes(final double remainingPlanMinutes)
+    static void validateRemainingPlanMinutes(final double remainingPlanMinutes)
     {
-        if (remainingPlanMinutes < MIN_REMAINING_PLAN_MINUTES)
+        if (!isValidRemainingPlanMinutes(remainingPlanMinutes))
         {
+            DeviceMetrics.rejected(ValidationRule.REMAINING_PLAN_MINUTES);
             throw new IllegalArgumentException(
                 "Invalid number of minutes remaining on phone plan: " +
                 remainingPlanMinutes);
         }
     }
 
+    /**
+     * Determines whether a carrier is valid, which it is if it is not null or blank.
+     * @param carrier the name of carrier
+     * @return true if the carrier is valid, false otherwise
+     */
+    static boolean isValidCarrier(final String carrier)
+    {
+        return carrier != null &&
+               !carrier.isBlank();
+    }
+
     /**
      * Validate the carrier of IPhone, which cannot be null or blank.
      * @param carrier the name of carrier
      */
-    private static void validateCarrier(final String carrier)
+    static void validateCarrier(final String carrier)
     {
-        if (carrier == null ||
-            carrier.isBlank())
+        if (!isValidCarrier(carrier))
         {
+            DeviceMetrics.rejected(ValidationRule.CARRIER);
             throw new IllegalArgumentException("Invalid carrier");
         }
     }
@@ -1,7 +1,5 @@
 package ca.bcit.comp2522.lab03;
 
-import java.util.Objects;
-
 /**
  * Represents an IPhone17, which is an IPhone with high-resolution camera, and gigabytes of memory.
  *
@@ -40,39 +38,71 @@ public class IPhone17 extends IPhone
         this.memoryGB = memoryGB;
     }
 
+    /**
+     * Creates a new IPhone17 with the given parameters if they are valid, without throwing an exception if they
+     * are not. DeviceValidator.checkIPhone17 gives the rule an invalid parameter violates.
+     *
+     * @param remainingPlanMinutes the number of minutes remaining on phone plan for the IPhone17
+     * @param carrier              the name of the IPhone17's carrier
+     * @param highResolutionCamera true if the IPhone17 has a camera, false otherwise
+     * @param memoryGB             the gigabytes of memory of IPhone17
+     * @return the new IPhone17, or null if a parameter is invalid
+     */
+    public static IPhone17 tryCreate(final double remainingPlanMinutes,
+                                     final String carrier,
+                                     final boolean highResolutionCamera,
+                                     final int memoryGB)
+    {
+        if (DeviceValidator.checkIPhone17(remainingPlanMinutes, carrier, memoryGB) != null)
+        {
+            return null;
+        }
+
+        return new IPhone17(remainingPlanMinutes, carrier, highResolutionCamera, memoryGB);
+    }
+
     /**
      * Prints the IPhone17's details to the console (see toString for specifics).
      */
     @Override
     public void printDetails()
     {
+        final long start = DeviceMetrics.startTimer();
+
         System.out.println(this);
+        DeviceMetrics.printDetailsFinished(start);
     }
 
     /**
-     * Generates a String representation of the IPhone17, containing all of its fields.
+     * Appends the IPhone17's details, containing all of its fields, to a StringBuilder.
      *
-     * @return A String with the IPhone17's:
+     * The details include the IPhone17's:
      * - highResolutionCamera
      * - gigabytes of memory
+     *
+     * @param builder the StringBuilder to append to
      */
     @Override
-    public String toString()
+    void appendDetails(final StringBuilder builder)
     {
-        final StringBuilder toStringBuilder;
-        final String superString;
-
-        superString = super.toString();
-        toStringBuilder = new StringBuilder(superString);
-
-        toStringBuilder.append("Has high resolution camera: ");
-        toStringBuilder.append(this.highResolutionCamera);
-        toStringBuilder.append('\n');
-        toStringBuilder.append("The gigabytes of memory: ");
-        toStringBuilder.append(this.memoryGB);
-        toStringBuilder.append('\n');
+        super.appendDetails(builder);
+        appendFields(builder, this.highResolutionCamera, this.memoryGB);
+    }
 
-        return toStringBuilder.toString();
+    /*
+     * Appends the lines of an IPhone17's details which follow an IPhone's, for snapshots and views which render
+     * the same text from their own fields.
+     */
+    static void appendFields(final StringBuilder builder,
+                             final boolean highResolutionCamera,
+                             final int memoryGB)
+    {
+        builder.append("Has high resolution camera: ");
+        builder.append(highResolutionCamera);
+        builder.append('\n');
+        builder.append("The gigabytes of memory: ");
+        builder.append(memoryGB);
+        builder.append('\n');
     }
 
     /**
@@ -88,6 +118,8 @@ public class IPhone17 extends IPhone
     @Override
     public boolean equals(final Object o)
     {
+        DeviceMetrics.equalsCalled(DeviceType.IPHONE17);
+
         if (o == null)
         {
             return false;
@@ -98,7 +130,7 @@ public class IPhone17 extends IPhone
             return false;
         }
 
-        if (!super.equals(o))
+        if (!hasSamePlanMinutes(other))
         {
             return false;
         }
@@ -115,8 +147,36 @@ public class IPhone17 extends IPhone
     @Override
     public int hashCode()
     {
-        return Objects.hash(super.getRemainingPlanMinutes(),
-                            highResolutionCamera);
+        DeviceMetrics.hashCodeCalled(DeviceType.IPHONE17);
+
+        return hashOf(super.getRemainingPlanMinutes(),
+                      highResolutionCamera);
+    }
+
+    /*
+     * Computes the same value as Objects.hash(remainingPlanMinutes, highResolutionCamera), without boxing the
+     * fields into a varargs array. Shared with IPhone17Snapshot so that both hash identically.
+     */
+    static int hashOf(final double remainingPlanMinutes,
+                      final boolean highResolutionCamera)
+    {
+        int hash = 1;
+
+        hash = 31 * hash + Double.hashCode(remainingPlanMinutes);
+        hash = 31 * hash + Boolean.hashCode(highResolutionCamera);
+
+        return hash;
+    }
+
+    /**
+     * Takes an immutable snapshot of the IPhone17.
+     *
+     * @return the IPhone17's current fields as an IPhone17Snapshot
+     */
+    @Override
+    public IPhone17Snapshot snapshot()
+    {
+        return new IPhone17Snapshot(this);
     }
 
     /**
@@ -137,7 +197,9 @@ public class IPhone17 extends IPhone
     public final void setMemoryGB(final int memoryGB)
     {
         validateMemoryGB(memoryGB);
+        DeviceChanges.beforeChange(this, DeviceField.MEMORY_GB);
         this.memoryGB = memoryGB;
+        DeviceChanges.afterChange(this, DeviceField.MEMORY_GB);
     }
 
     /**
@@ -158,18 +220,31 @@ public class IPhone17 extends IPhone
     public final void setHighResolutionCamera(final boolean highResolutionCamera)
     {
         // All possible values of high resolution camera are valid
+        DeviceChanges.beforeChange(this, DeviceField.HIGH_RESOLUTION_CAMERA);
         this.highResolutionCamera = highResolutionCamera;
+        DeviceChanges.afterChange(this, DeviceField.HIGH_RESOLUTION_CAMERA);
     }
 
 
+    /**
+     * Determines whether gigabytes of memory are valid, which they are unless they are less than MIN_MEMORY_GB
+     * @param memoryGB the gigabytes of memory of IPhone17
+     * @return true if the memory is valid, false otherwise
+     */
+    static boolean isValidMemoryGB(final int memoryGB)
+    {
+        return memoryGB >= MIN_MEMORY_GB;
+    }
+
     /**
      * Validates the gigabytes of memory of IPhone17 , which cannot be less than MIN_MEMORY_GB
      * @param memoryGB the gigabytes of memory of IPhone17
      */
-    private static void validateMemoryGB(final int memoryGB)
+    static void validateMemoryGB(final int memoryGB)
     {
-        if (memoryGB < MIN_MEMORY_GB)
+        if (!isValidMemoryGB(memoryGB))
         {
+            DeviceMetrics.rejected(ValidationRule.MEMORY_GB);
             throw new IllegalArgumentException("Invalid memory of IPhone17: " + memoryGB);
         }
     }
@@ -0,0 +1,101 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * Immutable snapshot of an IPhone17.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class IPhone17Snapshot extends IPhoneSnapshot
+{
+    private final boolean highResolutionCamera;
+    private final int memoryGB;
+
+    IPhone17Snapshot(final IPhone17 iPhone17)
+    {
+        this(iPhone17.getRemainingPlanMinutes(),
+             iPhone17.getCarrierCode(),
+             iPhone17.hasHighResolutionCamera(),
+             iPhone17.getMemoryGB());
+    }
+
+    /*
+     * Constructs a snapshot from an IPhone17's field values, for copies taken without an IPhone17, as from an
+     * OffHeapDeviceView.
+     */
+    IPhone17Snapshot(final double remainingPlanMinutes,
+                     final int carrierCode,
+                     final boolean highResolutionCamera,
+                     final int memoryGB)
+    {
+        super(remainingPlanMinutes,
+              carrierCode,
+              IPhone17.hashOf(remainingPlanMinutes,
+                              highResolutionCamera));
+
+        this.highResolutionCamera = highResolutionCamera;
+        this.memoryGB = memoryGB;
+    }
+
+    /**
+     * Accessor for the high-resolution camera.
+     *
+     * @return true if the IPhone17 had a high-resolution camera, false otherwise
+     */
+    public boolean hasHighResolutionCamera()
+    {
+        return highResolutionCamera;
+    }
+
+    /**
+     * Accessor for the memory.
+     *
+     * @return the gigabytes of memory of the IPhone17
+     */
+    public int getMemoryGB()
+    {
+        return memoryGB;
+    }
+
+    /**
+     * Creates a new IPhone17 with the fields of this snapshot.
+     *
+     * @return the new IPhone17
+     */
+    @Override
+    public IPhone17 thaw()
+    {
+        return new IPhone17(getRemainingPlanMinutes(), getCarrier(), highResolutionCamera, memoryGB);
+    }
+
+    /*
+     * Appends the snapshot's details, in the same format as IPhone17.appendDetails.
+     */
+    @Override
+    void appendDetails(final StringBuilder builder)
+    {
+        super.appendDetails(builder);
+        IPhone17.appendFields(builder, highResolutionCamera, memoryGB);
+    }
+
+    /**
+     * Determines whether this snapshot is equal to a given object. Like IPhone17s, IPhone17 snapshots are equal
+     * if and only if they have the same remaining plan minutes and the same value for high-resolution camera.
+     *
+     * @param o the reference object with which to compare
+     * @return true if o is an IPhone17Snapshot with the same minutes and camera, false otherwise
+     */
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (!(o instanceof final IPhone17Snapshot other))
+        {
+            return false;
+        }
+
+        return hasSamePlanMinutes(other) &&
+               this.highResolutionCamera == other.highResolutionCamera;
+    }
+}
@@ -0,0 +1,112 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * Immutable snapshot of an IPhone. The carrier is kept as its dictionary code, so taking a snapshot copies no
+ * Strings.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public class IPhoneSnapshot extends DeviceSnapshot
+{
+    private final double remainingPlanMinutes;
+    // Code of the carrier in StringDictionary.CARRIERS
+    private final int carrierCode;
+
+    IPhoneSnapshot(final IPhone iPhone)
+    {
+        this(iPhone.getRemainingPlanMinutes(),
+             iPhone.getCarrierCode());
+    }
+
+    /*
+     * Constructs a snapshot from an IPhone's field values, for copies taken without an IPhone, as from an
+     * OffHeapDeviceView.
+     */
+    IPhoneSnapshot(final double remainingPlanMinutes,
+                   final int carrierCode)
+    {
+        this(remainingPlanMinutes,
+             carrierCode,
+             Double.hashCode(remainingPlanMinutes));
+    }
+
+    IPhoneSnapshot(final double remainingPlanMinutes,
+                   final int carrierCode,
+                   final int hash)
+    {
+        super(IPhone.PURPOSE,
+              hash);
+
+        this.remainingPlanMinutes = remainingPlanMinutes;
+        this.carrierCode = carrierCode;
+    }
+
+    /**
+     * Accessor for the remaining plan minutes.
+     *
+     * @return the number of minutes remaining on the phone plan
+     */
+    public final double getRemainingPlanMinutes()
+    {
+        return remainingPlanMinutes;
+    }
+
+    /**
+     * Accessor for the carrier.
+     *
+     * @return the carrier's name
+     */
+    public final String getCarrier()
+    {
+        return StringDictionary.CARRIERS.decode(carrierCode);
+    }
+
+    /**
+     * Creates a new IPhone with the fields of this snapshot.
+     *
+     * @return the new IPhone
+     */
+    @Override
+    public IPhone thaw()
+    {
+        return new IPhone(remainingPlanMinutes, getCarrier());
+    }
+
+    /*
+     * Appends the snapshot's details, in the same format as IPhone.appendDetails.
+     */
+    @Override
+    void appendDetails(final StringBuilder builder)
+    {
+        super.appendDetails(builder);
+        IPhone.appendFields(builder, getCarrier(), remainingPlanMinutes);
+    }
+
+    /**
+     * Determines whether this snapshot is equal to a given object. Like IPhones, IPhone snapshots are equal to
+     * any IPhone or IPhone17 snapshot with the same remaining plan minutes, compared as by Double.equals().
+     *
+     * @param o the reference object with which to compare
+     * @return true if o is an IPhoneSnapshot with the same remaining plan minutes, false otherwise
+     */
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (!(o instanceof final IPhoneSnapshot other))
+        {
+            return false;
+        }
+
+        return hasSamePlanMinutes(other);
+    }
+
+    // Determines whether two snapshots have the same remaining plan minutes, by the rules of Double.equals().
+    final boolean hasSamePlanMinutes(final IPhoneSnapshot other)
+    {
+        return Double.doubleToLongBits(this.remainingPlanMinutes) ==
+               Double.doubleToLongBits(other.remainingPlanMinutes);
+    }
+}
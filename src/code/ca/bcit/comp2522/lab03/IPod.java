@@ -10,7 +10,7 @@ package ca.bcit.comp2522.lab03;
  */
 public class IPod extends IDevice
 {
-    private static final String PURPOSE = "music";
+    static final String PURPOSE = "music";
     private static final int MIN_SONGS_STORED = 0;
     private static final double MIN_MAX_VOLUME_DB = 0.0;
 
@@ -35,40 +35,68 @@ public class IPod extends IDevice
         this.maxVolumeDb = maxVolumeDb;
     }
 
+    /**
+     * Creates a new IPod with the given parameters if they are valid, without throwing an exception if they are
+     * not. DeviceValidator.checkIPod gives the rule an invalid parameter violates.
+     *
+     * @param songsStored the discrete number of songs currently stored on the IPod
+     * @param maxVolumeDb the maximum volume of the IPod, in decibels
+     * @return the new IPod, or null if a parameter is invalid
+     */
+    public static IPod tryCreate(final int songsStored,
+                                 final double maxVolumeDb)
+    {
+        if (DeviceValidator.checkIPod(songsStored, maxVolumeDb) != null)
+        {
+            return null;
+        }
+
+        return new IPod(songsStored, maxVolumeDb);
+    }
+
     /**
      * Prints the IPod's details to the console (see toString for specifics).
      */
     @Override
     public void printDetails()
     {
+        final long start = DeviceMetrics.startTimer();
+
         System.out.println(this);
+        DeviceMetrics.printDetailsFinished(start);
     }
 
     /**
-     * Generates a String representation of the IPod, containing all of its fields.
+     * Appends the IPod's details, containing all of its fields, to a StringBuilder.
      *
-     * @return A String with the IPod's:
+     * The details include the IPod's:
      * - Purpose
      * - Number of songs stored
      * - Maximum volume in decibels
+     *
+     * @param builder the StringBuilder to append to
      */
     @Override
-    public String toString()
+    void appendDetails(final StringBuilder builder)
     {
-        final StringBuilder toStringBuilder;
-        final String superString;
-
-        superString = super.toString();
-        toStringBuilder = new StringBuilder(superString);
-
-        toStringBuilder.append("Songs stored: ");
-        toStringBuilder.append(songsStored);
-        toStringBuilder.append('\n');
-        toStringBuilder.append("Maximum volume (decibels): ");
-        toStringBuilder.append(maxVolumeDb);
-        toStringBuilder.append('\n');
+        super.appendDetails(builder);
+        appendFields(builder, songsStored, maxVolumeDb);
+    }
 
-        return toStringBuilder.toString();
+    /*
+     * Appends the lines of an IPod's details which follow its purpose, for snapshots and views which render the
+     * same text from their own fields.
+     */
+    static void appendFields(final StringBuilder builder,
+                             final int songsStored,
+                             final double maxVolumeDb)
+    {
+        builder.append("Songs stored: ");
+        builder.append(songsStored);
+        builder.append('\n');
+        builder.append("Maximum volume (decibels): ");
+        builder.append(maxVolumeDb);
+        builder.append('\n');
     }
 
     /**
@@ -81,6 +109,8 @@ public class IPod extends IDevice
     @Override
     public boolean equals(final Object o)
     {
+        DeviceMetrics.equalsCalled(DeviceType.IPOD);
+
         if (o == null)
         {
             return false;
@@ -103,9 +133,22 @@ public class IPod extends IDevice
     @Override
     public int hashCode()
     {
+        DeviceMetrics.hashCodeCalled(DeviceType.IPOD);
+
         return this.songsStored;
     }
 
+    /**
+     * Takes an immutable snapshot of the IPod.
+     *
+     * @return the IPod's current fields as an IPodSnapshot
+     */
+    @Override
+    public IPodSnapshot snapshot()
+    {
+        return new IPodSnapshot(this);
+    }
+
     /**
      * Accessor for songsStored.
      *
@@ -124,7 +167,9 @@ public class IPod extends IDevice
     public final void setSongsStored(final int songsStored)
     {
         validateSongsStored(songsStored);
+        DeviceChanges.beforeChange(this, DeviceField.SONGS_STORED);
         this.songsStored = songsStored;
+        DeviceChanges.afterChange(this, DeviceField.SONGS_STORED);
     }
 
     /**
@@ -145,23 +190,39 @@ public class IPod extends IDevice
     public final void setMaxVolumeDb(final double maxVolumeDb)
     {
         validateMaxVolumeDb(maxVolumeDb);
+        DeviceChanges.beforeChange(this, DeviceField.MAX_VOLUME_DB);
         this.maxVolumeDb = maxVolumeDb;
+        DeviceChanges.afterChange(this, DeviceField.MAX_VOLUME_DB);
+    }
+
+    // Determines whether a number of songs stored is valid, which it is unless it is less than MIN_SONGS_STORED
+    static boolean isValidSongsStored(final int songsStored)
+    {
+        return songsStored >= MIN_SONGS_STORED;
     }
 
     // Validates the number of songs stored on the IPod, which cannot be less than MIN_SONGS_STORED
-    private static void validateSongsStored(final int songsStored)
+    static void validateSongsStored(final int songsStored)
     {
-        if (songsStored < MIN_SONGS_STORED)
+        if (!isValidSongsStored(songsStored))
         {
+            DeviceMetrics.rejected(ValidationRule.SONGS_STORED);
             throw new IllegalArgumentException("Invalid amount of songs stored: " + songsStored);
         }
     }
 
+    // Determines whether a maximum volume is valid, which it is unless it is less than MIN_MAX_VOLUME_DB
+    static boolean isValidMaxVolumeDb(final double maxVolumeDb)
+    {
+        return !(maxVolumeDb < MIN_MAX_VOLUME_DB);
+    }
+
     // Validates the maximum volume in decibels, which cannot be less than MIN_MAX_VOLUME_DB
-    private static void validateMaxVolumeDb(final double maxVolumeDb)
+    static void validateMaxVolumeDb(final double maxVolumeDb)
     {
-        if (maxVolumeDb < MIN_MAX_VOLUME_DB)
+        if (!isValidMaxVolumeDb(maxVolumeDb))
         {
+            DeviceMetrics.rejected(ValidationRule.MAX_VOLUME_DB);
             throw new IllegalArgumentException("Invalid maximum volume in decibels: " + maxVolumeDb);
         }
     }
@@ -0,0 +1,94 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * Immutable snapshot of an IPod.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class IPodSnapshot extends DeviceSnapshot
+{
+    private final int songsStored;
+    private final double maxVolumeDb;
+
+    IPodSnapshot(final IPod iPod)
+    {
+        this(iPod.getSongsStored(),
+             iPod.getMaxVolumeDb());
+    }
+
+    /*
+     * Constructs a snapshot from an IPod's field values, for copies taken without an IPod, as from an
+     * OffHeapDeviceView.
+     */
+    IPodSnapshot(final int songsStored,
+                 final double maxVolumeDb)
+    {
+        super(IPod.PURPOSE,
+              songsStored);
+
+        this.songsStored = songsStored;
+        this.maxVolumeDb = maxVolumeDb;
+    }
+
+    /**
+     * Accessor for the number of songs stored.
+     *
+     * @return the number of songs stored on the IPod
+     */
+    public int getSongsStored()
+    {
+        return songsStored;
+    }
+
+    /**
+     * Accessor for the maximum volume.
+     *
+     * @return the maximum volume of the IPod, in decibels
+     */
+    public double getMaxVolumeDb()
+    {
+        return maxVolumeDb;
+    }
+
+    /**
+     * Creates a new IPod with the fields of this snapshot.
+     *
+     * @return the new IPod
+     */
+    @Override
+    public IPod thaw()
+    {
+        return new IPod(songsStored, maxVolumeDb);
+    }
+
+    /*
+     * Appends the snapshot's details, in the same format as IPod.appendDetails.
+     */
+    @Override
+    void appendDetails(final StringBuilder builder)
+    {
+        super.appendDetails(builder);
+        IPod.appendFields(builder, songsStored, maxVolumeDb);
+    }
+
+    /**
+     * Determines whether this snapshot is equal to a given object. Like IPods, IPod snapshots are equal if and
+     * only if they have the same number of songs stored.
+     *
+     * @param o the reference object with which to compare
+     * @return true if o is an IPodSnapshot with the same number of songs stored, false otherwise
+     */
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (!(o instanceof final IPodSnapshot other))
+        {
+            return false;
+        }
+
+        return this.songsStored == other.songsStored;
+    }
+}
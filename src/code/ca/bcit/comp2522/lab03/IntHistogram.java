@@ -0,0 +1,249 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.Arrays;
+
+/**
+ * Counts occurrences of int values without boxing them. Values are kept in an open-addressing hash table of
+ * primitive arrays, so a histogram over a narrow field such as songsStored or memoryGB stays small no matter how
+ * many devices are counted. Histograms can be merged, which makes them suitable as per-thread partial results.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class IntHistogram
+{
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAX_LOAD_PERCENT = 50;
+    private static final double MIN_PERCENTILE = 0.0;
+    private static final double MAX_PERCENTILE = 100.0;
+
+    private int[] values;
+    private long[] counts;
+    private boolean[] used;
+    private int distinct;
+    private long total;
+
+    /**
+     * Constructs a new, empty IntHistogram.
+     */
+    public IntHistogram()
+    {
+        this.values = new int[INITIAL_CAPACITY];
+        this.counts = new long[INITIAL_CAPACITY];
+        this.used = new boolean[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Counts one occurrence of a value.
+     *
+     * @param value the value to count
+     */
+    public void add(final int value)
+    {
+        add(value, 1L);
+    }
+
+    /**
+     * Counts several occurrences of a value.
+     *
+     * @param value       the value to count
+     * @param occurrences the number of occurrences, which cannot be negative
+     */
+    public void add(final int value,
+                    final long occurrences)
+    {
+        if (occurrences < 0)
+        {
+            throw new IllegalArgumentException("Invalid number of occurrences: " + occurrences);
+        }
+
+        if ((distinct + 1) * 100L > (long) values.length * MAX_LOAD_PERCENT)
+        {
+            resize();
+        }
+
+        final int slot = slotOf(value);
+
+        if (!used[slot])
+        {
+            used[slot] = true;
+            values[slot] = value;
+            distinct++;
+        }
+
+        counts[slot] += occurrences;
+        total += occurrences;
+    }
+
+    /**
+     * Adds every count of another histogram to this one.
+     *
+     * @param other the histogram to merge in
+     */
+    public void merge(final IntHistogram other)
+    {
+        for (int slot = 0; slot < other.used.length; slot++)
+        {
+            if (other.used[slot])
+            {
+                add(other.values[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of times a value was counted.
+     *
+     * @param value the value to look up
+     * @return the value's count
+     */
+    public long count(final int value)
+    {
+        final int slot = slotOf(value);
+
+        return used[slot] ? counts[slot] : 0L;
+    }
+
+    /**
+     * Returns the total number of occurrences counted.
+     *
+     * @return the sum of every count
+     */
+    public long total()
+    {
+        return total;
+    }
+
+    /**
+     * Returns the distinct values counted, in ascending order.
+     *
+     * @return a new array of the values
+     */
+    public int[] values()
+    {
+        final int[] sorted = new int[distinct];
+        int next = 0;
+
+        for (int slot = 0; slot < used.length; slot++)
+        {
+            if (used[slot])
+            {
+                sorted[next++] = values[slot];
+            }
+        }
+
+        Arrays.sort(sorted);
+
+        return sorted;
+    }
+
+    /**
+     * Returns the value at a percentile, using the nearest-rank method: the smallest value such that at least the
+     * given percentage of occurrences are less than or equal to it.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the value at that percentile
+     */
+    public int percentile(final double percentile)
+    {
+        if (!(percentile >= MIN_PERCENTILE && percentile <= MAX_PERCENTILE))
+        {
+            throw new IllegalArgumentException("Invalid percentile: " + percentile);
+        }
+
+        if (total == 0)
+        {
+            throw new IllegalStateException("Empty histogram has no percentiles");
+        }
+
+        final long rank = Math.max(1L, (long) Math.ceil(percentile / MAX_PERCENTILE * total));
+        long seen = 0L;
+
+        for (final int value : values())
+        {
+            seen += count(value);
+
+            if (seen >= rank)
+            {
+                return value;
+            }
+        }
+
+        throw new IllegalStateException("Histogram counts are inconsistent");
+    }
+
+    /**
+     * Creates a String representation of the histogram.
+     *
+     * @return a String listing each value and its count, in ascending order of value
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder toStringBuilder = new StringBuilder("{");
+
+        for (final int value : values())
+        {
+            if (toStringBuilder.length() > 1)
+            {
+                toStringBuilder.append(", ");
+            }
+
+            toStringBuilder.append(value);
+            toStringBuilder.append('=');
+            toStringBuilder.append(count(value));
+        }
+
+        toStringBuilder.append('}');
+
+        return toStringBuilder.toString();
+    }
+
+    // Finds the slot holding a value, or the empty slot where it belongs.
+    private int slotOf(final int value)
+    {
+        final int mask = values.length - 1;
+        int slot = mix(value) & mask;
+
+        while (used[slot] && values[slot] != value)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    // Doubles the capacity of the table and reinserts every value.
+    private void resize()
+    {
+        final int[] oldValues = values;
+        final long[] oldCounts = counts;
+        final boolean[] oldUsed = used;
+
+        values = new int[oldValues.length * 2];
+        counts = new long[oldValues.length * 2];
+        used = new boolean[oldValues.length * 2];
+
+        for (int slot = 0; slot < oldUsed.length; slot++)
+        {
+            if (oldUsed[slot])
+            {
+                final int newSlot = slotOf(oldValues[slot]);
+
+                used[newSlot] = true;
+                values[newSlot] = oldValues[slot];
+                counts[newSlot] = oldCounts[slot];
+            }
+        }
+    }
+
+    // Scrambles a value's bits so that runs of consecutive values spread over the table.
+    private static int mix(final int value)
+    {
+        final int mixed = value * 0x9E3779B9;
+
+        return mixed ^ (mixed >>> 16);
+    }
+}
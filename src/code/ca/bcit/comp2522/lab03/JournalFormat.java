@@ -0,0 +1,406 @@
+package ca.bcit.comp2522.lab03;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Encoding of the entries shared by DeviceJournal's journal segments and checkpoints.
+ *
+ * Journal segments and checkpoints both start with a header: magic (int), version (int). A checkpoint's header
+ * is followed by the next device id (int). After the header come entries, each framed as:
+ * payload length (int), CRC32C of the payload (int), payload
+ *
+ * Each payload starts with its kind (byte) and the id of the device it concerns (int):
+ * - CREATE: type tag (byte, as in DeviceFileFormat), then the device's fields in constructor order
+ * - SET: field (byte, a DeviceField ordinal), then the field's new value
+ * - REMOVE: nothing further
+ *
+ * Ints are 4 bytes, doubles 8, booleans 1, and Strings are a UTF-8 length (int) followed by UTF-8 bytes. All
+ * values are big-endian. Every entry records absolute values, so replaying an entry twice, or replaying entries
+ * on top of a checkpoint which already includes them, gives the same state.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+final class JournalFormat
+{
+    static final int JOURNAL_MAGIC = 0x49444A4C; // "IDJL"
+    static final int CHECKPOINT_MAGIC = 0x49444A43; // "IDJC"
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER_BYTES = 8;
+
+    static final byte CREATE = 1;
+    static final byte SET = 2;
+    static final byte REMOVE = 3;
+
+    private static final int ENTRY_HEADER_BYTES = 8;
+    private static final int MIN_PAYLOAD_BYTES = 5;
+    private static final int MAX_BUFFERED_PAYLOAD_BYTES = 1 << 20;
+    private static final int GROWTH_FACTOR = 2;
+    private static final DeviceField[] FIELDS = DeviceField.values();
+
+    private JournalFormat()
+    {
+    }
+
+    // Appends an entry recording a device's creation with its current fields, growing the buffer if needed.
+    static ByteBuffer appendCreate(final ByteBuffer buffer,
+                                   final int id,
+                                   final IDevice device)
+    {
+        final DeviceType type = DeviceType.of(device);
+        final byte[] text = utf8(stringOf(device));
+        final ByteBuffer out = ensureRemaining(buffer, ENTRY_HEADER_BYTES + MIN_PAYLOAD_BYTES + 1 +
+                                                       Double.BYTES + Integer.BYTES * 2 + 1 + text.length);
+        final int start = beginEntry(out, CREATE, id);
+
+        out.put(DeviceFileFormat.tagOf(type));
+
+        switch (type)
+        {
+            case IPOD ->
+            {
+                out.putInt(((IPod) device).getSongsStored());
+                out.putDouble(((IPod) device).getMaxVolumeDb());
+            }
+            case IPAD ->
+            {
+                putBoolean(out, ((IPad) device).hasCase());
+                putString(out, text);
+            }
+            case IPHONE ->
+            {
+                out.putDouble(((IPhone) device).getRemainingPlanMinutes());
+                putString(out, text);
+            }
+            case IPHONE17 ->
+            {
+                out.putDouble(((IPhone17) device).getRemainingPlanMinutes());
+                putString(out, text);
+                putBoolean(out, ((IPhone17) device).hasHighResolutionCamera());
+                out.putInt(((IPhone17) device).getMemoryGB());
+            }
+        }
+
+        endEntry(out, start);
+
+        return out;
+    }
+
+    // Appends an entry recording a field's current value, growing the buffer if needed.
+    static ByteBuffer appendSet(final ByteBuffer buffer,
+                                final int id,
+                                final IDevice device,
+                                final DeviceField field)
+    {
+        final byte[] text = switch (field)
+        {
+            case OPERATING_SYSTEM_VERSION -> utf8(((IPad) device).getOperatingSystemVersion());
+            case CARRIER -> utf8(((IPhone) device).getCarrier());
+            default -> null;
+        };
+        final ByteBuffer out = ensureRemaining(buffer, ENTRY_HEADER_BYTES + MIN_PAYLOAD_BYTES + 1 +
+                                                       Double.BYTES + (text == null ? 0 : text.length));
+        final int start = beginEntry(out, SET, id);
+
+        out.put((byte) field.ordinal());
+
+        switch (field)
+        {
+            case SONGS_STORED -> out.putInt(((IPod) device).getSongsStored());
+            case MAX_VOLUME_DB -> out.putDouble(((IPod) device).getMaxVolumeDb());
+            case TABLET_CASE -> putBoolean(out, ((IPad) device).hasCase());
+            case REMAINING_PLAN_MINUTES -> out.putDouble(((IPhone) device).getRemainingPlanMinutes());
+            case HIGH_RESOLUTION_CAMERA -> putBoolean(out, ((IPhone17) device).hasHighResolutionCamera());
+            case MEMORY_GB -> out.putInt(((IPhone17) device).getMemoryGB());
+            case OPERATING_SYSTEM_VERSION, CARRIER -> putString(out, text);
+        }
+
+        endEntry(out, start);
+
+        return out;
+    }
+
+    // Appends an entry recording a device's removal, growing the buffer if needed.
+    static ByteBuffer appendRemove(final ByteBuffer buffer,
+                                   final int id)
+    {
+        final ByteBuffer out = ensureRemaining(buffer, ENTRY_HEADER_BYTES + MIN_PAYLOAD_BYTES);
+        final int start = beginEntry(out, REMOVE, id);
+
+        endEntry(out, start);
+
+        return out;
+    }
+
+    /*
+     * Applies every entry of a stream to a list of devices indexed by id, in which removed devices are null. Stops
+     * at the end of the stream, or at the first entry which is truncated or fails its checksum, since such an
+     * entry was being written when the process stopped.
+     *
+     * Entries of any length are replayed, since a device's strings, and so its entries, have no length limit.
+     * Payloads longer than MAX_BUFFERED_PAYLOAD_BYTES are read in pieces rather than into a buffer of the length
+     * the framing claims, so a torn length costs no more memory than the stream holds.
+     *
+     * Returns true if the whole stream was replayed, false if it ended with a torn entry.
+     */
+    static boolean replay(final InputStream in,
+                          final List<IDevice> devices) throws IOException
+    {
+        final CRC32C crc = new CRC32C();
+        final byte[] header = new byte[ENTRY_HEADER_BYTES];
+        byte[] payload = new byte[ENTRY_HEADER_BYTES];
+
+        while (true)
+        {
+            final int headerBytes = in.readNBytes(header, 0, ENTRY_HEADER_BYTES);
+
+            if (headerBytes == 0)
+            {
+                return true;
+            }
+
+            if (headerBytes < ENTRY_HEADER_BYTES)
+            {
+                return false;
+            }
+
+            final ByteBuffer framing = ByteBuffer.wrap(header);
+            final int length = framing.getInt();
+            final int checksum = framing.getInt();
+
+            if (length < MIN_PAYLOAD_BYTES)
+            {
+                return false;
+            }
+
+            final byte[] read;
+
+            if (length <= MAX_BUFFERED_PAYLOAD_BYTES)
+            {
+                if (payload.length < length)
+                {
+                    payload = new byte[Math.max(length, payload.length * GROWTH_FACTOR)];
+                }
+
+                read = payload;
+
+                if (in.readNBytes(read, 0, length) < length)
+                {
+                    return false;
+                }
+            }
+            else
+            {
+                read = in.readNBytes(length);
+
+                if (read.length < length)
+                {
+                    return false;
+                }
+            }
+
+            crc.reset();
+            crc.update(read, 0, length);
+
+            if ((int) crc.getValue() != checksum)
+            {
+                return false;
+            }
+
+            apply(ByteBuffer.wrap(read, 0, length), devices);
+        }
+    }
+
+    // Reads a segment or checkpoint header, returning false if the stream does not start with one.
+    static boolean readHeader(final InputStream in,
+                              final int magic) throws IOException
+    {
+        final byte[] header = new byte[SEGMENT_HEADER_BYTES];
+
+        if (in.readNBytes(header, 0, SEGMENT_HEADER_BYTES) < SEGMENT_HEADER_BYTES)
+        {
+            return false;
+        }
+
+        final ByteBuffer fields = ByteBuffer.wrap(header);
+
+        return fields.getInt() == magic &&
+               fields.getInt() == VERSION;
+    }
+
+    // Reads an int which must be present.
+    static int readInt(final InputStream in) throws IOException
+    {
+        final byte[] bytes = new byte[Integer.BYTES];
+
+        if (in.readNBytes(bytes, 0, Integer.BYTES) < Integer.BYTES)
+        {
+            throw new EOFException("Truncated journal header");
+        }
+
+        return ByteBuffer.wrap(bytes).getInt();
+    }
+
+    // Applies one entry's payload.
+    private static void apply(final ByteBuffer payload,
+                              final List<IDevice> devices)
+    {
+        final byte kind = payload.get();
+        final int id = payload.getInt();
+
+        switch (kind)
+        {
+            case CREATE ->
+            {
+                while (devices.size() <= id)
+                {
+                    devices.add(null);
+                }
+
+                devices.set(id, readDevice(payload));
+            }
+            case SET -> applySet(payload, devices.get(id));
+            case REMOVE -> devices.set(id, null);
+            default -> throw new IllegalArgumentException("Invalid journal entry kind: " + kind);
+        }
+    }
+
+    // Reads the fields of a CREATE entry and constructs the device.
+    private static IDevice readDevice(final ByteBuffer payload)
+    {
+        return switch (DeviceFileFormat.typeOf(payload.get()))
+        {
+            case IPOD -> new IPod(payload.getInt(),
+                                  payload.getDouble());
+            case IPAD -> new IPad(getBoolean(payload),
+                                  getString(payload));
+            case IPHONE -> new IPhone(payload.getDouble(),
+                                      getString(payload));
+            case IPHONE17 -> new IPhone17(payload.getDouble(),
+                                          getString(payload),
+                                          getBoolean(payload),
+                                          payload.getInt());
+        };
+    }
+
+    // Applies a SET entry to its device through the field's mutator.
+    private static void applySet(final ByteBuffer payload,
+                                 final IDevice device)
+    {
+        switch (FIELDS[payload.get()])
+        {
+            case SONGS_STORED -> ((IPod) device).setSongsStored(payload.getInt());
+            case MAX_VOLUME_DB -> ((IPod) device).setMaxVolumeDb(payload.getDouble());
+            case TABLET_CASE -> ((IPad) device).setTabletCase(getBoolean(payload));
+            case OPERATING_SYSTEM_VERSION -> ((IPad) device).setOperatingSystemVersion(getString(payload));
+            case REMAINING_PLAN_MINUTES -> ((IPhone) device).setRemainingPlanMinutes(payload.getDouble());
+            case CARRIER -> ((IPhone) device).setCarrier(getString(payload));
+            case HIGH_RESOLUTION_CAMERA -> ((IPhone17) device).setHighResolutionCamera(getBoolean(payload));
+            case MEMORY_GB -> ((IPhone17) device).setMemoryGB(payload.getInt());
+        }
+    }
+
+    // Writes an entry's framing placeholder, kind and id, returning the entry's start.
+    private static int beginEntry(final ByteBuffer out,
+                                  final byte kind,
+                                  final int id)
+    {
+        final int start = out.position();
+
+        out.putInt(0);
+        out.putInt(0);
+        out.put(kind);
+        out.putInt(id);
+
+        return start;
+    }
+
+    // Fills in an entry's length and checksum once its payload is written.
+    private static void endEntry(final ByteBuffer out,
+                                 final int start)
+    {
+        final int payloadStart = start + ENTRY_HEADER_BYTES;
+        final int length = out.position() - payloadStart;
+        final CRC32C crc = new CRC32C();
+
+        crc.update(out.array(), out.arrayOffset() + payloadStart, length);
+        out.putInt(start, length);
+        out.putInt(start + Integer.BYTES, (int) crc.getValue());
+    }
+
+    // Returns the buffer, or a larger copy of it, with at least the given number of bytes remaining.
+    private static ByteBuffer ensureRemaining(final ByteBuffer buffer,
+                                              final int bytes)
+    {
+        if (buffer.remaining() >= bytes)
+        {
+            return buffer;
+        }
+
+        final ByteBuffer grown = ByteBuffer.wrap(
+            Arrays.copyOf(buffer.array(), Math.max(buffer.capacity() * GROWTH_FACTOR, buffer.position() + bytes)));
+
+        grown.position(buffer.position());
+
+        return grown;
+    }
+
+    // Returns the String field of a device, if it has one.
+    private static String stringOf(final IDevice device)
+    {
+        if (device instanceof final IPhone phone)
+        {
+            return phone.getCarrier();
+        }
+
+        if (device instanceof final IPad iPad)
+        {
+            return iPad.getOperatingSystemVersion();
+        }
+
+        return null;
+    }
+
+    // Encodes a String as UTF-8, or returns an empty array for null.
+    private static byte[] utf8(final String value)
+    {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putString(final ByteBuffer out,
+                                  final byte[] text)
+    {
+        out.putInt(text.length);
+        out.put(text);
+    }
+
+    private static String getString(final ByteBuffer in)
+    {
+        final int length = in.getInt();
+        final String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+
+        in.position(in.position() + length);
+
+        return value;
+    }
+
+    private static void putBoolean(final ByteBuffer out,
+                                   final boolean value)
+    {
+        out.put(value ? (byte) 1 : (byte) 0);
+    }
+
+    private static boolean getBoolean(final ByteBuffer in)
+    {
+        return in.get() != 0;
+    }
+}
@@ -0,0 +1,65 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * An IDevice paired with the key that identifies it across inventories, such as a serial number or a
+ * ShardedInventory id. DeviceDiff matches the devices of two inventories by key.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class KeyedDevice
+{
+    private final long key;
+    private final IDevice device;
+
+    /**
+     * Constructs a new KeyedDevice.
+     *
+     * @param key    the key identifying the device
+     * @param device the device
+     */
+    public KeyedDevice(final long key,
+                       final IDevice device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        this.key = key;
+        this.device = device;
+    }
+
+    /**
+     * Accessor for the key.
+     *
+     * @return the key identifying the device
+     */
+    public long getKey()
+    {
+        return key;
+    }
+
+    /**
+     * Accessor for the device.
+     *
+     * @return the device
+     */
+    public IDevice getDevice()
+    {
+        return device;
+    }
+
+    /**
+     * Returns the key and the device's details.
+     *
+     * @return the key, followed by the device's details
+     */
+    @Override
+    public String toString()
+    {
+        return key + ": " + device;
+    }
+}
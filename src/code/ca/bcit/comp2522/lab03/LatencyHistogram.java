@@ -0,0 +1,159 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of latencies in nanoseconds, with one bucket per power of two. Each bucket is a LongAdder,
+ * which stripes its count across cells so that threads recording at the same time rarely contend.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class LatencyHistogram
+{
+    private static final int BUCKETS = Long.SIZE;
+    private static final double MIN_PERCENTILE = 0.0;
+    private static final double MAX_PERCENTILE = 100.0;
+
+    private final LongAdder[] buckets;
+    private final LongAdder totalNanos;
+
+    /**
+     * Constructs a new, empty LatencyHistogram.
+     */
+    public LatencyHistogram()
+    {
+        this.buckets = new LongAdder[BUCKETS];
+        this.totalNanos = new LongAdder();
+
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one latency. Bucket i holds the latencies from 2^(i-1) up to, but not including, 2^i nanoseconds;
+     * bucket 0 holds zero-length latencies.
+     *
+     * @param nanos the latency in nanoseconds; negative values are recorded as zero
+     */
+    public void record(final long nanos)
+    {
+        final long clamped = Math.max(0L, nanos);
+
+        buckets[Long.SIZE - Long.numberOfLeadingZeros(clamped)].increment();
+        totalNanos.add(clamped);
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return the number of latencies
+     */
+    public long count()
+    {
+        long count = 0L;
+
+        for (final LongAdder bucket : buckets)
+        {
+            count += bucket.sum();
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the mean of the latencies recorded.
+     *
+     * @return the mean latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public double meanNanos()
+    {
+        final long count = count();
+
+        return count == 0 ? 0.0 : (double) totalNanos.sum() / count;
+    }
+
+    /**
+     * Returns an upper bound on the latency at a percentile: the exclusive upper bound of the bucket that the
+     * percentile falls in.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the percentile's upper bound in nanoseconds, or 0 if nothing was recorded
+     */
+    public long percentileNanos(final double percentile)
+    {
+        if (!(percentile >= MIN_PERCENTILE && percentile <= MAX_PERCENTILE))
+        {
+            throw new IllegalArgumentException("Invalid percentile: " + percentile);
+        }
+
+        final long[] counts = new long[BUCKETS];
+        long count = 0L;
+
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+
+        if (count == 0)
+        {
+            return 0L;
+        }
+
+        final long rank = Math.max(1L, (long) Math.ceil(percentile / MAX_PERCENTILE * count));
+        long seen = 0L;
+
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += counts[i];
+
+            if (seen >= rank)
+            {
+                return upperBound(i);
+            }
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the count of every bucket, indexed as described in record.
+     *
+     * @return a new array of the bucket counts
+     */
+    public long[] bucketCounts()
+    {
+        final long[] counts = new long[BUCKETS];
+
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            counts[i] = buckets[i].sum();
+        }
+
+        return counts;
+    }
+
+    /**
+     * Discards every recorded latency. Latencies recorded concurrently with a reset may or may not be kept.
+     */
+    public void reset()
+    {
+        for (final LongAdder bucket : buckets)
+        {
+            bucket.reset();
+        }
+
+        totalNanos.reset();
+    }
+
+    // Returns the exclusive upper bound of a bucket, saturating at Long.MAX_VALUE.
+    private static long upperBound(final int bucket)
+    {
+        return bucket >= Long.SIZE - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+}
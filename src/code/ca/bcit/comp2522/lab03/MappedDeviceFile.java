@@ -0,0 +1,343 @@
+package ca.bcit.comp2522.lab03;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Read-only view of a device file written by DeviceFileWriter. The device records are memory-mapped rather than
+ * parsed, so opening a file only reads its header and string table, and each accessor reads its field straight
+ * from the mapping. Devices are only materialized as IDevice objects when toDevice is called.
+ *
+ * Files larger than a single mapping allows are mapped in several regions, each holding a whole number of
+ * records.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class MappedDeviceFile implements AutoCloseable
+{
+    private static final int RECORDS_PER_REGION = Integer.MAX_VALUE / DeviceFileFormat.RECORD_BYTES;
+
+    private final FileChannel channel;
+    private final long recordCount;
+    private final String[] strings;
+    private final MappedByteBuffer[] regions;
+
+    private MappedDeviceFile(final FileChannel channel,
+                             final long recordCount,
+                             final String[] strings,
+                             final MappedByteBuffer[] regions)
+    {
+        this.channel = channel;
+        this.recordCount = recordCount;
+        this.strings = strings;
+        this.regions = regions;
+    }
+
+    /**
+     * Opens a device file for reading.
+     *
+     * @param path the file to open
+     * @return the opened file
+     * @throws IOException if the file cannot be read or is not a device file
+     */
+    public static MappedDeviceFile open(final Path path) throws IOException
+    {
+        if (path == null)
+        {
+            throw new IllegalArgumentException("Invalid path");
+        }
+
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try
+        {
+            final MappedByteBuffer header;
+            final long recordCount;
+            final int stringCount;
+            final long recordsOffset;
+            final String[] strings;
+            final MappedByteBuffer[] regions;
+
+            header = channel.map(FileChannel.MapMode.READ_ONLY, 0, DeviceFileFormat.HEADER_BYTES);
+
+            if (header.getInt() != DeviceFileFormat.MAGIC)
+            {
+                throw new IOException("Not a device file: " + path);
+            }
+
+            if (header.getInt() != DeviceFileFormat.VERSION)
+            {
+                throw new IOException("Unsupported device file version: " + path);
+            }
+
+            recordCount = header.getLong();
+            stringCount = header.getInt();
+            recordsOffset = header.getLong();
+
+            if (recordsOffset + recordCount * DeviceFileFormat.RECORD_BYTES > channel.size())
+            {
+                throw new IOException("Truncated device file: " + path);
+            }
+
+            strings = readStrings(channel, stringCount, recordsOffset + recordCount * DeviceFileFormat.RECORD_BYTES);
+            regions = new MappedByteBuffer[(int) ((recordCount + RECORDS_PER_REGION - 1) / RECORDS_PER_REGION)];
+
+            for (int region = 0; region < regions.length; region++)
+            {
+                final long firstRecord = (long) region * RECORDS_PER_REGION;
+                final long records = Math.min(RECORDS_PER_REGION, recordCount - firstRecord);
+
+                regions[region] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                              recordsOffset + firstRecord * DeviceFileFormat.RECORD_BYTES,
+                                              records * DeviceFileFormat.RECORD_BYTES);
+            }
+
+            return new MappedDeviceFile(channel, recordCount, strings, regions);
+        }
+        catch (final IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of devices in the file.
+     *
+     * @return the number of device records
+     */
+    public long size()
+    {
+        return recordCount;
+    }
+
+    /**
+     * Returns the type of a device.
+     *
+     * @param index the index of the device in the file
+     * @return the DeviceType of the device
+     */
+    public DeviceType getType(final long index)
+    {
+        return DeviceFileFormat.typeOf(region(index).get(offset(index) + DeviceFileFormat.TYPE_OFFSET));
+    }
+
+    /**
+     * Accessor for an IPod's songsStored.
+     *
+     * @param index the index of the IPod in the file
+     * @return the number of songs stored on the IPod
+     */
+    public int getSongsStored(final long index)
+    {
+        requireType(index, DeviceType.IPOD);
+        return intValue(index);
+    }
+
+    /**
+     * Accessor for an IPod's maxVolumeDb.
+     *
+     * @param index the index of the IPod in the file
+     * @return the maximum volume of the IPod, in decibels
+     */
+    public double getMaxVolumeDb(final long index)
+    {
+        requireType(index, DeviceType.IPOD);
+        return doubleValue(index);
+    }
+
+    /**
+     * Accessor for an IPad's tabletCase.
+     *
+     * @param index the index of the IPad in the file
+     * @return true if the IPad has a case, false otherwise
+     */
+    public boolean hasCase(final long index)
+    {
+        requireType(index, DeviceType.IPAD);
+        return (flags(index) & DeviceFileFormat.TABLET_CASE_FLAG) != 0;
+    }
+
+    /**
+     * Accessor for an IPad's operatingSystemVersion.
+     *
+     * @param index the index of the IPad in the file
+     * @return the IPad's operating system version
+     */
+    public String getOperatingSystemVersion(final long index)
+    {
+        requireType(index, DeviceType.IPAD);
+        return string(index);
+    }
+
+    /**
+     * Accessor for the remainingPlanMinutes of an IPhone or IPhone17.
+     *
+     * @param index the index of the phone in the file
+     * @return the number of minutes remaining on the phone's plan
+     */
+    public double getRemainingPlanMinutes(final long index)
+    {
+        requirePhone(index);
+        return doubleValue(index);
+    }
+
+    /**
+     * Accessor for the carrier of an IPhone or IPhone17.
+     *
+     * @param index the index of the phone in the file
+     * @return the name of the phone's carrier
+     */
+    public String getCarrier(final long index)
+    {
+        requirePhone(index);
+        return string(index);
+    }
+
+    /**
+     * Accessor for an IPhone17's highResolutionCamera.
+     *
+     * @param index the index of the IPhone17 in the file
+     * @return true if the IPhone17 has a high-resolution camera, false otherwise
+     */
+    public boolean hasHighResolutionCamera(final long index)
+    {
+        requireType(index, DeviceType.IPHONE17);
+        return (flags(index) & DeviceFileFormat.HIGH_RESOLUTION_CAMERA_FLAG) != 0;
+    }
+
+    /**
+     * Accessor for an IPhone17's memoryGB.
+     *
+     * @param index the index of the IPhone17 in the file
+     * @return the gigabytes of memory of the IPhone17
+     */
+    public int getMemoryGB(final long index)
+    {
+        requireType(index, DeviceType.IPHONE17);
+        return intValue(index);
+    }
+
+    /**
+     * Materializes a device from the file as a new IDevice object, validating its fields as the constructors do.
+     *
+     * @param index the index of the device in the file
+     * @return a new IDevice with the fields of the record
+     */
+    public IDevice toDevice(final long index)
+    {
+        return switch (getType(index))
+        {
+            case IPOD -> new IPod(intValue(index),
+                                  doubleValue(index));
+            case IPAD -> new IPad((flags(index) & DeviceFileFormat.TABLET_CASE_FLAG) != 0,
+                                  string(index));
+            case IPHONE -> new IPhone(doubleValue(index),
+                                      string(index));
+            case IPHONE17 -> new IPhone17(doubleValue(index),
+                                          string(index),
+                                          (flags(index) & DeviceFileFormat.HIGH_RESOLUTION_CAMERA_FLAG) != 0,
+                                          intValue(index));
+        };
+    }
+
+    /**
+     * Closes the file. Mapped regions are released once they are no longer reachable.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    // Returns the mapped region holding a record.
+    private ByteBuffer region(final long index)
+    {
+        Objects.checkIndex(index, recordCount);
+        return regions[(int) (index / RECORDS_PER_REGION)];
+    }
+
+    // Returns the byte offset of a record within its region.
+    private static int offset(final long index)
+    {
+        return (int) (index % RECORDS_PER_REGION) * DeviceFileFormat.RECORD_BYTES;
+    }
+
+    // Reads the flags of a record.
+    private byte flags(final long index)
+    {
+        return region(index).get(offset(index) + DeviceFileFormat.FLAGS_OFFSET);
+    }
+
+    // Reads the int value of a record.
+    private int intValue(final long index)
+    {
+        return region(index).getInt(offset(index) + DeviceFileFormat.INT_VALUE_OFFSET);
+    }
+
+    // Reads the double value of a record.
+    private double doubleValue(final long index)
+    {
+        return region(index).getDouble(offset(index) + DeviceFileFormat.DOUBLE_VALUE_OFFSET);
+    }
+
+    // Looks up the string table entry a record refers to.
+    private String string(final long index)
+    {
+        return strings[region(index).getInt(offset(index) + DeviceFileFormat.STRING_CODE_OFFSET)];
+    }
+
+    // Ensures a record is of the given type.
+    private void requireType(final long index,
+                             final DeviceType type)
+    {
+        if (getType(index) != type)
+        {
+            throw new IllegalArgumentException("Device " + index + " is not an " + type);
+        }
+    }
+
+    // Ensures a record is an IPhone or IPhone17.
+    private void requirePhone(final long index)
+    {
+        final DeviceType type = getType(index);
+
+        if (type != DeviceType.IPHONE && type != DeviceType.IPHONE17)
+        {
+            throw new IllegalArgumentException("Device " + index + " is not a phone");
+        }
+    }
+
+    // Reads the string table, which lies between the last record and the end of the file.
+    private static String[] readStrings(final FileChannel channel,
+                                        final int stringCount,
+                                        final long stringsOffset) throws IOException
+    {
+        final String[] strings;
+        final MappedByteBuffer table;
+
+        strings = new String[stringCount];
+        table = channel.map(FileChannel.MapMode.READ_ONLY, stringsOffset, channel.size() - stringsOffset);
+
+        for (int code = 0; code < stringCount; code++)
+        {
+            final byte[] encoded = new byte[table.getInt()];
+
+            table.get(encoded);
+            strings[code] = new String(encoded, StandardCharsets.UTF_8);
+        }
+
+        return strings;
+    }
+}
@@ -0,0 +1,196 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Aggregate over a set of devices which is kept up to date as the devices change, so that querying it takes
+ * constant time instead of a scan. The view records what each device contributed when it was included; once a
+ * field the view depends on has changed, that recorded contribution is removed from the aggregate and the device's
+ * new one added, in one step under the view's lock. Changes to other fields, and to devices which are not in the
+ * view, are ignored.
+ *
+ * Since only recorded contributions are ever removed, the aggregate stays exact however adds, removes and changes
+ * to the same device from different threads interleave. A query made by another thread while a device is being
+ * changed sees the device's old contribution.
+ *
+ * Subclasses define the aggregate by implementing include, which returns the contribution it added, and exclude,
+ * which must undo it. Views are registered with DeviceChanges when they are created and should be closed once
+ * they are no longer needed; while no view is registered, the mutators pay nothing for them.
+ *
+ * @param <D> the type of device the view aggregates
+ * @param <C> the type of a device's contribution to the aggregate
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public abstract class MaterializedView<D extends IDevice, C> implements DeviceChangeListener, AutoCloseable
+{
+    private final Class<D> type;
+    private final Set<DeviceField> dependencies;
+    private final Map<IDevice, C> members;
+
+    /**
+     * Initializes a view of devices of a given type.
+     *
+     * @param type         the type of device to aggregate, including its subclasses
+     * @param dependencies the fields the aggregate depends on
+     */
+    protected MaterializedView(final Class<D> type,
+                               final DeviceField... dependencies)
+    {
+        if (type == null || dependencies == null)
+        {
+            throw new IllegalArgumentException("Invalid view definition");
+        }
+
+        this.type = type;
+        this.dependencies = dependencies.length == 0 ?
+                            EnumSet.noneOf(DeviceField.class) :
+                            EnumSet.of(dependencies[0], dependencies);
+        this.members = new IdentityHashMap<>();
+    }
+
+    /**
+     * Registers a view to follow device changes.
+     *
+     * @param view the view to register
+     * @param <V>  the type of the view
+     * @return the view
+     */
+    protected static <V extends MaterializedView<?, ?>> V registered(final V view)
+    {
+        DeviceChanges.register(view);
+
+        return view;
+    }
+
+    /**
+     * Adds a device to the view. Devices of other types, and devices already in the view, are not added.
+     *
+     * @param device the IDevice to add
+     * @return true if the device was added, false otherwise
+     */
+    public final synchronized boolean add(final IDevice device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        if (!type.isInstance(device) || members.containsKey(device))
+        {
+            return false;
+        }
+
+        members.put(device, include(type.cast(device)));
+
+        return true;
+    }
+
+    /**
+     * Adds every device of an Iterable to the view.
+     *
+     * @param devices the IDevices to add
+     */
+    public final synchronized void addAll(final Iterable<? extends IDevice> devices)
+    {
+        for (final IDevice device : devices)
+        {
+            add(device);
+        }
+    }
+
+    /**
+     * Removes a device from the view.
+     *
+     * @param device the IDevice to remove
+     * @return true if the device was in the view, false otherwise
+     */
+    public final synchronized boolean remove(final IDevice device)
+    {
+        if (!members.containsKey(device))
+        {
+            return false;
+        }
+
+        exclude(members.remove(device));
+
+        return true;
+    }
+
+    /**
+     * Returns the number of devices in the view.
+     *
+     * @return the number of devices
+     */
+    public final synchronized int size()
+    {
+        return members.size();
+    }
+
+    /**
+     * Nothing needs to happen before a change, since the contribution of each device in the view is already
+     * recorded.
+     *
+     * @param device the IDevice being changed
+     * @param field  the field being changed
+     */
+    @Override
+    public final void beforeChange(final IDevice device,
+                                   final DeviceField field)
+    {
+    }
+
+    /**
+     * Replaces the recorded contribution of a device in the view with its new one after a field it depends on
+     * changes.
+     *
+     * @param device the IDevice that changed
+     * @param field  the field that changed
+     */
+    @Override
+    public final void afterChange(final IDevice device,
+                                  final DeviceField field)
+    {
+        if (dependencies.contains(field))
+        {
+            synchronized (this)
+            {
+                if (members.containsKey(device))
+                {
+                    exclude(members.get(device));
+                    members.put(device, include(type.cast(device)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the view from following device changes.
+     */
+    @Override
+    public void close()
+    {
+        DeviceChanges.unregister(this);
+    }
+
+    /**
+     * Adds a device's current contribution to the aggregate. Called while holding the view's lock.
+     *
+     * @param device the device to include
+     * @return the contribution which was added, to be passed to exclude once the device leaves the view or changes
+     */
+    protected abstract C include(D device);
+
+    /**
+     * Removes a contribution which include added from the aggregate. Called while holding the view's lock.
+     *
+     * @param contribution the contribution to exclude
+     */
+    protected abstract void exclude(C contribution);
+}
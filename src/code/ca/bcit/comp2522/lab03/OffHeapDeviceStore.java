@@ -0,0 +1,712 @@
+package ca.bcit.comp2522.lab03;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Stores IDevices off the Java heap, as fixed-layout records in MemorySegments allocated from a shared Arena.
+ * The records are invisible to the garbage collector, so even hundreds of millions of devices add nothing to
+ * heap size or GC pause times. The memory is released all at once when the store is closed.
+ *
+ * Like DeviceInventory, each concrete type has its own section, and devices are addressed by their type and their
+ * row within that section. Records are laid out as:
+ * - IPod (16 bytes): int songsStored, 4 bytes padding, double maxVolumeDb
+ * - IPad (8 bytes): int operatingSystemVersion code, int flags (bit 0: tabletCase)
+ * - IPhone (16 bytes): double remainingPlanMinutes, int carrier code, 4 bytes padding
+ * - IPhone17 (24 bytes): double remainingPlanMinutes, int carrier code, int memoryGB, int flags (bit 0:
+ *   highResolutionCamera), 4 bytes padding
+ * Carriers and operating system versions are stored as their StringDictionary codes. Sections grow in chunks of
+ * CHUNK_RECORDS records, so growing never copies existing records.
+ *
+ * view returns an OffHeapDeviceView, a small object which reads a record in place and can be moved from row to
+ * row, so a scan needs only one. toDevice copies a record into a new IDevice.
+ *
+ * All values are checked with the same validation rules as the IDevice constructors and mutators. Since the
+ * Arena is shared, any thread may read the store, but adding devices and setting fields must not run at the same
+ * time as any other access. Every access after close throws IllegalStateException.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class OffHeapDeviceStore implements AutoCloseable
+{
+    /**
+     * The number of records in each chunk of a section.
+     */
+    public static final int CHUNK_RECORDS = 1 << 16;
+
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_RECORDS);
+    private static final int CHUNK_MASK = CHUNK_RECORDS - 1;
+    private static final int FLAG_SET = 1;
+
+    private static final StructLayout IPOD_LAYOUT = MemoryLayout.structLayout(
+        ValueLayout.JAVA_INT.withName("songsStored"),
+        MemoryLayout.paddingLayout(Integer.BYTES),
+        ValueLayout.JAVA_DOUBLE.withName("maxVolumeDb")).withName("IPod");
+
+    private static final StructLayout IPAD_LAYOUT = MemoryLayout.structLayout(
+        ValueLayout.JAVA_INT.withName("operatingSystemVersion"),
+        ValueLayout.JAVA_INT.withName("flags")).withName("IPad");
+
+    private static final StructLayout IPHONE_LAYOUT = MemoryLayout.structLayout(
+        ValueLayout.JAVA_DOUBLE.withName("remainingPlanMinutes"),
+        ValueLayout.JAVA_INT.withName("carrier"),
+        MemoryLayout.paddingLayout(Integer.BYTES)).withName("IPhone");
+
+    // Starts with the same fields as IPHONE_LAYOUT, so phone fields are at the same offsets in both sections
+    private static final StructLayout IPHONE17_LAYOUT = MemoryLayout.structLayout(
+        ValueLayout.JAVA_DOUBLE.withName("remainingPlanMinutes"),
+        ValueLayout.JAVA_INT.withName("carrier"),
+        ValueLayout.JAVA_INT.withName("memoryGB"),
+        ValueLayout.JAVA_INT.withName("flags"),
+        MemoryLayout.paddingLayout(Integer.BYTES)).withName("IPhone17");
+
+    private static final long SONGS_STORED = offsetOf(IPOD_LAYOUT, "songsStored");
+    private static final long MAX_VOLUME_DB = offsetOf(IPOD_LAYOUT, "maxVolumeDb");
+    private static final long OPERATING_SYSTEM_VERSION = offsetOf(IPAD_LAYOUT, "operatingSystemVersion");
+    private static final long IPAD_FLAGS = offsetOf(IPAD_LAYOUT, "flags");
+    private static final long REMAINING_PLAN_MINUTES = offsetOf(IPHONE_LAYOUT, "remainingPlanMinutes");
+    private static final long CARRIER = offsetOf(IPHONE_LAYOUT, "carrier");
+    private static final long MEMORY_GB = offsetOf(IPHONE17_LAYOUT, "memoryGB");
+    private static final long IPHONE17_FLAGS = offsetOf(IPHONE17_LAYOUT, "flags");
+
+    private final Arena arena;
+    private final Section ipods;
+    private final Section ipads;
+    private final Section iphones;
+    private final Section iphone17s;
+
+    /**
+     * Constructs a new, empty OffHeapDeviceStore with its own shared Arena.
+     */
+    public OffHeapDeviceStore()
+    {
+        this.arena = Arena.ofShared();
+        this.ipods = new Section(arena, IPOD_LAYOUT);
+        this.ipads = new Section(arena, IPAD_LAYOUT);
+        this.iphones = new Section(arena, IPHONE_LAYOUT);
+        this.iphone17s = new Section(arena, IPHONE17_LAYOUT);
+    }
+
+    /**
+     * Adds the fields of an existing IDevice to the store.
+     *
+     * @param device the IDevice to copy into the store
+     * @return the row of the device within its type's section
+     */
+    public int add(final IDevice device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        return switch (DeviceType.of(device))
+        {
+            case IPOD ->
+            {
+                final IPod ipod = (IPod) device;
+                yield addIPod(ipod.getSongsStored(),
+                              ipod.getMaxVolumeDb());
+            }
+            case IPAD ->
+            {
+                final IPad ipad = (IPad) device;
+                yield addIPad(ipad.hasCase(),
+                              ipad.getOperatingSystemVersion());
+            }
+            case IPHONE ->
+            {
+                final IPhone iphone = (IPhone) device;
+                yield addIPhone(iphone.getRemainingPlanMinutes(),
+                                iphone.getCarrier());
+            }
+            case IPHONE17 ->
+            {
+                final IPhone17 iphone17 = (IPhone17) device;
+                yield addIPhone17(iphone17.getRemainingPlanMinutes(),
+                                  iphone17.getCarrier(),
+                                  iphone17.hasHighResolutionCamera(),
+                                  iphone17.getMemoryGB());
+            }
+        };
+    }
+
+    /**
+     * Adds an IPod to the store.
+     *
+     * @param songsStored the number of songs stored on the IPod
+     * @param maxVolumeDb the maximum volume of the IPod, in decibels
+     * @return the row of the new IPod
+     */
+    public int addIPod(final int songsStored,
+                       final double maxVolumeDb)
+    {
+        IPod.validateSongsStored(songsStored);
+        IPod.validateMaxVolumeDb(maxVolumeDb);
+
+        final int row = ipods.append();
+        final MemorySegment chunk = ipods.chunk(row);
+        final long record = ipods.offset(row);
+
+        chunk.set(ValueLayout.JAVA_INT, record + SONGS_STORED, songsStored);
+        chunk.set(ValueLayout.JAVA_DOUBLE, record + MAX_VOLUME_DB, maxVolumeDb);
+
+        return row;
+    }
+
+    /**
+     * Adds an IPad to the store.
+     *
+     * @param tabletCase             whether the IPad has a case
+     * @param operatingSystemVersion the IPad's operating system version
+     * @return the row of the new IPad
+     */
+    public int addIPad(final boolean tabletCase,
+                       final String operatingSystemVersion)
+    {
+        IPad.validateOperatingSystemVersion(operatingSystemVersion);
+
+        final int row = ipads.append();
+        final MemorySegment chunk = ipads.chunk(row);
+        final long record = ipads.offset(row);
+
+        chunk.set(ValueLayout.JAVA_INT,
+                  record + OPERATING_SYSTEM_VERSION,
+                  StringDictionary.OPERATING_SYSTEM_VERSIONS.encode(operatingSystemVersion));
+        chunk.set(ValueLayout.JAVA_INT, record + IPAD_FLAGS, tabletCase ? FLAG_SET : 0);
+
+        return row;
+    }
+
+    /**
+     * Adds an IPhone to the store.
+     *
+     * @param remainingPlanMinutes the number of minutes remaining on the IPhone's plan
+     * @param carrier              the name of the IPhone's carrier
+     * @return the row of the new IPhone
+     */
+    public int addIPhone(final double remainingPlanMinutes,
+                         final String carrier)
+    {
+        IPhone.validateRemainingPlanMinutes(remainingPlanMinutes);
+        IPhone.validateCarrier(carrier);
+
+        final int row = iphones.append();
+
+        writePhone(iphones, row, remainingPlanMinutes, carrier);
+
+        return row;
+    }
+
+    /**
+     * Adds an IPhone17 to the store.
+     *
+     * @param remainingPlanMinutes the number of minutes remaining on the IPhone17's plan
+     * @param carrier              the name of the IPhone17's carrier
+     * @param highResolutionCamera whether the IPhone17 has a high-resolution camera
+     * @param memoryGB             the IPhone17's memory, in gigabytes
+     * @return the row of the new IPhone17
+     */
+    public int addIPhone17(final double remainingPlanMinutes,
+                           final String carrier,
+                           final boolean highResolutionCamera,
+                           final int memoryGB)
+    {
+        IPhone.validateRemainingPlanMinutes(remainingPlanMinutes);
+        IPhone.validateCarrier(carrier);
+        IPhone17.validateMemoryGB(memoryGB);
+
+        final int row = iphone17s.append();
+        final MemorySegment chunk = iphone17s.chunk(row);
+        final long record = iphone17s.offset(row);
+
+        writePhone(iphone17s, row, remainingPlanMinutes, carrier);
+        chunk.set(ValueLayout.JAVA_INT, record + MEMORY_GB, memoryGB);
+        chunk.set(ValueLayout.JAVA_INT, record + IPHONE17_FLAGS, highResolutionCamera ? FLAG_SET : 0);
+
+        return row;
+    }
+
+    /**
+     * Returns the total number of devices in the store.
+     *
+     * @return the number of devices of every type
+     */
+    public int size()
+    {
+        return ipods.count + ipads.count + iphones.count + iphone17s.count;
+    }
+
+    /**
+     * Returns the number of devices of a given type in the store.
+     *
+     * @param type the type of device to count
+     * @return the number of devices of that type
+     */
+    public int size(final DeviceType type)
+    {
+        return section(type).count;
+    }
+
+    /**
+     * Returns the number of bytes of off-heap memory allocated for records.
+     *
+     * @return the allocated size, in bytes
+     */
+    public long allocatedBytes()
+    {
+        return ipods.allocatedBytes() + ipads.allocatedBytes() + iphones.allocatedBytes() +
+               iphone17s.allocatedBytes();
+    }
+
+    /**
+     * Returns a view which reads a device's record in place.
+     *
+     * @param type the type of the device
+     * @param row  the row of the device within its type's section
+     * @return a new view of the device
+     */
+    public OffHeapDeviceView view(final DeviceType type,
+                                  final int row)
+    {
+        Objects.checkIndex(row, size(type));
+
+        return new OffHeapDeviceView(this, type, row);
+    }
+
+    /**
+     * Materializes a device from the store as a new IDevice object. The returned object is a copy; changing it
+     * does not change the store.
+     *
+     * @param type the type of the device
+     * @param row  the row of the device within its type's section
+     * @return a new IDevice with the fields stored at the given row
+     */
+    public IDevice toDevice(final DeviceType type,
+                            final int row)
+    {
+        Objects.checkIndex(row, size(type));
+
+        return switch (type)
+        {
+            case IPOD -> new IPod(getSongsStored(row),
+                                  getMaxVolumeDb(row));
+            case IPAD -> new IPad(hasCase(row),
+                                  getOperatingSystemVersion(row));
+            case IPHONE -> new IPhone(getRemainingPlanMinutes(type, row),
+                                      getCarrier(type, row));
+            case IPHONE17 -> new IPhone17(getRemainingPlanMinutes(type, row),
+                                          getCarrier(type, row),
+                                          hasHighResolutionCamera(row),
+                                          getMemoryGB(row));
+        };
+    }
+
+    /**
+     * Accessor for an IPod's songsStored.
+     *
+     * @param row the row of the IPod
+     * @return the number of songs stored on the IPod
+     */
+    public int getSongsStored(final int row)
+    {
+        Objects.checkIndex(row, ipods.count);
+        return ipods.chunk(row).get(ValueLayout.JAVA_INT, ipods.offset(row) + SONGS_STORED);
+    }
+
+    /**
+     * Mutator for an IPod's songsStored.
+     *
+     * @param row         the row of the IPod
+     * @param songsStored the new number of songs stored on the IPod
+     */
+    public void setSongsStored(final int row,
+                               final int songsStored)
+    {
+        Objects.checkIndex(row, ipods.count);
+        IPod.validateSongsStored(songsStored);
+        ipods.chunk(row).set(ValueLayout.JAVA_INT, ipods.offset(row) + SONGS_STORED, songsStored);
+    }
+
+    /**
+     * Accessor for an IPod's maxVolumeDb.
+     *
+     * @param row the row of the IPod
+     * @return the maximum volume of the IPod, in decibels
+     */
+    public double getMaxVolumeDb(final int row)
+    {
+        Objects.checkIndex(row, ipods.count);
+        return ipods.chunk(row).get(ValueLayout.JAVA_DOUBLE, ipods.offset(row) + MAX_VOLUME_DB);
+    }
+
+    /**
+     * Mutator for an IPod's maxVolumeDb.
+     *
+     * @param row         the row of the IPod
+     * @param maxVolumeDb the new maximum volume of the IPod, in decibels
+     */
+    public void setMaxVolumeDb(final int row,
+                               final double maxVolumeDb)
+    {
+        Objects.checkIndex(row, ipods.count);
+        IPod.validateMaxVolumeDb(maxVolumeDb);
+        ipods.chunk(row).set(ValueLayout.JAVA_DOUBLE, ipods.offset(row) + MAX_VOLUME_DB, maxVolumeDb);
+    }
+
+    /**
+     * Accessor for an IPad's tabletCase.
+     *
+     * @param row the row of the IPad
+     * @return true if the IPad has a case, false otherwise
+     */
+    public boolean hasCase(final int row)
+    {
+        Objects.checkIndex(row, ipads.count);
+        return (ipads.chunk(row).get(ValueLayout.JAVA_INT, ipads.offset(row) + IPAD_FLAGS) & FLAG_SET) != 0;
+    }
+
+    /**
+     * Mutator for an IPad's tabletCase.
+     *
+     * @param row        the row of the IPad
+     * @param tabletCase whether the IPad has a case
+     */
+    public void setTabletCase(final int row,
+                              final boolean tabletCase)
+    {
+        Objects.checkIndex(row, ipads.count);
+        setFlag(ipads, row, IPAD_FLAGS, tabletCase);
+    }
+
+    /**
+     * Accessor for an IPad's operatingSystemVersion.
+     *
+     * @param row the row of the IPad
+     * @return the IPad's operating system version
+     */
+    public String getOperatingSystemVersion(final int row)
+    {
+        return StringDictionary.OPERATING_SYSTEM_VERSIONS.decode(getOperatingSystemVersionCode(row));
+    }
+
+    // Accessor for the dictionary code of an IPad's operatingSystemVersion.
+    int getOperatingSystemVersionCode(final int row)
+    {
+        Objects.checkIndex(row, ipads.count);
+        return ipads.chunk(row).get(ValueLayout.JAVA_INT, ipads.offset(row) + OPERATING_SYSTEM_VERSION);
+    }
+
+    /**
+     * Mutator for an IPad's operatingSystemVersion.
+     *
+     * @param row                    the row of the IPad
+     * @param operatingSystemVersion the IPad's new operating system version
+     */
+    public void setOperatingSystemVersion(final int row,
+                                          final String operatingSystemVersion)
+    {
+        Objects.checkIndex(row, ipads.count);
+        IPad.validateOperatingSystemVersion(operatingSystemVersion);
+        ipads.chunk(row).set(ValueLayout.JAVA_INT,
+                             ipads.offset(row) + OPERATING_SYSTEM_VERSION,
+                             StringDictionary.OPERATING_SYSTEM_VERSIONS.encode(operatingSystemVersion));
+    }
+
+    /**
+     * Accessor for the remainingPlanMinutes of an IPhone or IPhone17.
+     *
+     * @param type either IPHONE or IPHONE17
+     * @param row  the row of the phone
+     * @return the number of minutes remaining on the phone's plan
+     */
+    public double getRemainingPlanMinutes(final DeviceType type,
+                                          final int row)
+    {
+        final Section section = phoneSection(type);
+
+        Objects.checkIndex(row, section.count);
+        return section.chunk(row).get(ValueLayout.JAVA_DOUBLE, section.offset(row) + REMAINING_PLAN_MINUTES);
+    }
+
+    /**
+     * Mutator for the remainingPlanMinutes of an IPhone or IPhone17.
+     *
+     * @param type                 either IPHONE or IPHONE17
+     * @param row                  the row of the phone
+     * @param remainingPlanMinutes the new number of minutes remaining on the phone's plan
+     */
+    public void setRemainingPlanMinutes(final DeviceType type,
+                                        final int row,
+                                        final double remainingPlanMinutes)
+    {
+        final Section section = phoneSection(type);
+
+        Objects.checkIndex(row, section.count);
+        IPhone.validateRemainingPlanMinutes(remainingPlanMinutes);
+        section.chunk(row).set(ValueLayout.JAVA_DOUBLE,
+                               section.offset(row) + REMAINING_PLAN_MINUTES,
+                               remainingPlanMinutes);
+    }
+
+    /**
+     * Accessor for the carrier of an IPhone or IPhone17.
+     *
+     * @param type either IPHONE or IPHONE17
+     * @param row  the row of the phone
+     * @return the name of the phone's carrier
+     */
+    public String getCarrier(final DeviceType type,
+                             final int row)
+    {
+        return StringDictionary.CARRIERS.decode(getCarrierCode(type, row));
+    }
+
+    // Accessor for the dictionary code of the carrier of an IPhone or IPhone17.
+    int getCarrierCode(final DeviceType type,
+                       final int row)
+    {
+        final Section section = phoneSection(type);
+
+        Objects.checkIndex(row, section.count);
+        return section.chunk(row).get(ValueLayout.JAVA_INT, section.offset(row) + CARRIER);
+    }
+
+    /**
+     * Mutator for the carrier of an IPhone or IPhone17.
+     *
+     * @param type    either IPHONE or IPHONE17
+     * @param row     the row of the phone
+     * @param carrier the name of the phone's new carrier
+     */
+    public void setCarrier(final DeviceType type,
+                           final int row,
+                           final String carrier)
+    {
+        final Section section = phoneSection(type);
+
+        Objects.checkIndex(row, section.count);
+        IPhone.validateCarrier(carrier);
+        section.chunk(row).set(ValueLayout.JAVA_INT,
+                               section.offset(row) + CARRIER,
+                               StringDictionary.CARRIERS.encode(carrier));
+    }
+
+    /**
+     * Accessor for an IPhone17's highResolutionCamera.
+     *
+     * @param row the row of the IPhone17
+     * @return true if the IPhone17 has a high-resolution camera, false otherwise
+     */
+    public boolean hasHighResolutionCamera(final int row)
+    {
+        Objects.checkIndex(row, iphone17s.count);
+        return (iphone17s.chunk(row).get(ValueLayout.JAVA_INT, iphone17s.offset(row) + IPHONE17_FLAGS) &
+                FLAG_SET) != 0;
+    }
+
+    /**
+     * Mutator for an IPhone17's highResolutionCamera.
+     *
+     * @param row                  the row of the IPhone17
+     * @param highResolutionCamera whether the IPhone17 has a high-resolution camera
+     */
+    public void setHighResolutionCamera(final int row,
+                                        final boolean highResolutionCamera)
+    {
+        Objects.checkIndex(row, iphone17s.count);
+        setFlag(iphone17s, row, IPHONE17_FLAGS, highResolutionCamera);
+    }
+
+    /**
+     * Accessor for an IPhone17's memoryGB.
+     *
+     * @param row the row of the IPhone17
+     * @return the IPhone17's memory, in gigabytes
+     */
+    public int getMemoryGB(final int row)
+    {
+        Objects.checkIndex(row, iphone17s.count);
+        return iphone17s.chunk(row).get(ValueLayout.JAVA_INT, iphone17s.offset(row) + MEMORY_GB);
+    }
+
+    /**
+     * Mutator for an IPhone17's memoryGB.
+     *
+     * @param row      the row of the IPhone17
+     * @param memoryGB the IPhone17's new memory, in gigabytes
+     */
+    public void setMemoryGB(final int row,
+                            final int memoryGB)
+    {
+        Objects.checkIndex(row, iphone17s.count);
+        IPhone17.validateMemoryGB(memoryGB);
+        iphone17s.chunk(row).set(ValueLayout.JAVA_INT, iphone17s.offset(row) + MEMORY_GB, memoryGB);
+    }
+
+    /**
+     * Sums the remaining plan minutes of every IPhone and IPhone17, reading the records in place.
+     *
+     * @return the total number of minutes remaining
+     */
+    public double totalRemainingPlanMinutes()
+    {
+        return iphones.sumDoubles(REMAINING_PLAN_MINUTES) + iphone17s.sumDoubles(REMAINING_PLAN_MINUTES);
+    }
+
+    /**
+     * Releases the store's off-heap memory. The store, and every view of it, cannot be used afterwards. Closing
+     * a store which is already closed does nothing.
+     */
+    @Override
+    public void close()
+    {
+        if (arena.scope().isAlive())
+        {
+            arena.close();
+        }
+    }
+
+    // Writes the fields shared by IPhones and IPhone17s.
+    private static void writePhone(final Section section,
+                                   final int row,
+                                   final double remainingPlanMinutes,
+                                   final String carrier)
+    {
+        final MemorySegment chunk = section.chunk(row);
+        final long record = section.offset(row);
+
+        chunk.set(ValueLayout.JAVA_DOUBLE, record + REMAINING_PLAN_MINUTES, remainingPlanMinutes);
+        chunk.set(ValueLayout.JAVA_INT, record + CARRIER, StringDictionary.CARRIERS.encode(carrier));
+    }
+
+    // Sets or clears bit 0 of a record's flags.
+    private static void setFlag(final Section section,
+                                final int row,
+                                final long flagsOffset,
+                                final boolean value)
+    {
+        final MemorySegment chunk = section.chunk(row);
+        final long offset = section.offset(row) + flagsOffset;
+        final int flags = chunk.get(ValueLayout.JAVA_INT, offset);
+
+        chunk.set(ValueLayout.JAVA_INT, offset, value ? flags | FLAG_SET : flags & ~FLAG_SET);
+    }
+
+    // Selects the section for a type.
+    private Section section(final DeviceType type)
+    {
+        if (type == null)
+        {
+            throw new IllegalArgumentException("Invalid device type");
+        }
+
+        return switch (type)
+        {
+            case IPOD -> ipods;
+            case IPAD -> ipads;
+            case IPHONE -> iphones;
+            case IPHONE17 -> iphone17s;
+        };
+    }
+
+    // Selects the section for a phone type.
+    private Section phoneSection(final DeviceType type)
+    {
+        if (type != DeviceType.IPHONE && type != DeviceType.IPHONE17)
+        {
+            throw new IllegalArgumentException("Not a phone type: " + type);
+        }
+
+        return section(type);
+    }
+
+    private static long offsetOf(final StructLayout layout,
+                                 final String field)
+    {
+        return layout.byteOffset(MemoryLayout.PathElement.groupElement(field));
+    }
+
+    // The records of one type, in chunks of CHUNK_RECORDS records allocated as needed.
+    private static final class Section
+    {
+        private final Arena arena;
+        private final long stride;
+        private final long alignment;
+        private MemorySegment[] chunks;
+        private int count;
+
+        private Section(final Arena arena,
+                        final StructLayout layout)
+        {
+            this.arena = arena;
+            this.stride = layout.byteSize();
+            this.alignment = layout.byteAlignment();
+            this.chunks = new MemorySegment[0];
+        }
+
+        // Reserves the next row, allocating a new chunk if the last one is full.
+        private int append()
+        {
+            final int row = count;
+            final int chunk = row >>> CHUNK_SHIFT;
+
+            if (row == Integer.MAX_VALUE)
+            {
+                throw new IllegalStateException("Section is full");
+            }
+
+            if (chunk == chunks.length)
+            {
+                chunks = Arrays.copyOf(chunks, chunk + 1);
+                chunks[chunk] = arena.allocate(stride * CHUNK_RECORDS, alignment);
+            }
+
+            count++;
+
+            return row;
+        }
+
+        private MemorySegment chunk(final int row)
+        {
+            return chunks[row >>> CHUNK_SHIFT];
+        }
+
+        private long offset(final int row)
+        {
+            return (row & CHUNK_MASK) * stride;
+        }
+
+        private long allocatedBytes()
+        {
+            return chunks.length * stride * CHUNK_RECORDS;
+        }
+
+        // Sums a double field over every record, chunk by chunk.
+        private double sumDoubles(final long fieldOffset)
+        {
+            double sum = 0.0;
+
+            for (int c = 0; c < chunks.length; c++)
+            {
+                final MemorySegment chunk = chunks[c];
+                final int records = Math.min(CHUNK_RECORDS, count - (c << CHUNK_SHIFT));
+
+                for (int i = 0; i < records; i++)
+                {
+                    sum += chunk.get(ValueLayout.JAVA_DOUBLE, i * stride + fieldOffset);
+                }
+            }
+
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.Objects;
+
+/**
+ * A view of one device record in an OffHeapDeviceStore. It has the same accessors as the IDevice classes, but it
+ * reads them from off-heap memory on every call, so it always shows the record's current values. Only the
+ * accessors of the view's type may be called; the others throw IllegalStateException.
+ *
+ * A view is only a store, a type and a row, and moveTo points it at another row of the same type, so a single
+ * view can walk a whole section without creating an object per device. toString and printDetails read the record
+ * in place too; snapshot and toDevice copy it for use where an actual DeviceSnapshot or IDevice is needed.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class OffHeapDeviceView
+{
+    private final OffHeapDeviceStore store;
+    private final DeviceType type;
+    private int row;
+
+    /*
+     * Constructs a view of an existing record. The store checks the row.
+     */
+    OffHeapDeviceView(final OffHeapDeviceStore store,
+                      final DeviceType type,
+                      final int row)
+    {
+        this.store = store;
+        this.type = type;
+        this.row = row;
+    }
+
+    /**
+     * Accessor for the type of the device viewed.
+     *
+     * @return the device's type
+     */
+    public DeviceType getType()
+    {
+        return type;
+    }
+
+    /**
+     * Accessor for the row of the device viewed.
+     *
+     * @return the device's row within its type's section
+     */
+    public int getRow()
+    {
+        return row;
+    }
+
+    /**
+     * Points the view at another device of the same type.
+     *
+     * @param row the row of the device to view
+     * @return this view
+     */
+    public OffHeapDeviceView moveTo(final int row)
+    {
+        Objects.checkIndex(row, store.size(type));
+        this.row = row;
+
+        return this;
+    }
+
+    /**
+     * Accessor for the purpose of the device viewed.
+     *
+     * @return "music", "learning" or "talking", as for the IDevice class of the view's type
+     */
+    public String getPurpose()
+    {
+        return switch (type)
+        {
+            case IPOD -> IPod.PURPOSE;
+            case IPAD -> IPad.PURPOSE;
+            case IPHONE, IPHONE17 -> IPhone.PURPOSE;
+        };
+    }
+
+    /**
+     * Accessor for an IPod's songsStored.
+     *
+     * @return the number of songs stored on the IPod
+     */
+    public int getSongsStored()
+    {
+        requireType(DeviceType.IPOD);
+        return store.getSongsStored(row);
+    }
+
+    /**
+     * Accessor for an IPod's maxVolumeDb.
+     *
+     * @return the maximum volume of the IPod, in decibels
+     */
+    public double getMaxVolumeDb()
+    {
+        requireType(DeviceType.IPOD);
+        return store.getMaxVolumeDb(row);
+    }
+
+    /**
+     * Accessor for an IPad's tabletCase.
+     *
+     * @return true if the IPad has a case, false otherwise
+     */
+    public boolean hasCase()
+    {
+        requireType(DeviceType.IPAD);
+        return store.hasCase(row);
+    }
+
+    /**
+     * Accessor for an IPad's operatingSystemVersion.
+     *
+     * @return the IPad's operating system version
+     */
+    public String getOperatingSystemVersion()
+    {
+        requireType(DeviceType.IPAD);
+        return store.getOperatingSystemVersion(row);
+    }
+
+    /**
+     * Accessor for the remainingPlanMinutes of an IPhone or IPhone17.
+     *
+     * @return the number of minutes remaining on the phone's plan
+     */
+    public double getRemainingPlanMinutes()
+    {
+        requirePhone();
+        return store.getRemainingPlanMinutes(type, row);
+    }
+
+    /**
+     * Accessor for the carrier of an IPhone or IPhone17.
+     *
+     * @return the name of the phone's carrier
+     */
+    public String getCarrier()
+    {
+        requirePhone();
+        return store.getCarrier(type, row);
+    }
+
+    /**
+     * Accessor for an IPhone17's highResolutionCamera.
+     *
+     * @return true if the IPhone17 has a high-resolution camera, false otherwise
+     */
+    public boolean hasHighResolutionCamera()
+    {
+        requireType(DeviceType.IPHONE17);
+        return store.hasHighResolutionCamera(row);
+    }
+
+    /**
+     * Accessor for an IPhone17's memoryGB.
+     *
+     * @return the IPhone17's memory, in gigabytes
+     */
+    public int getMemoryGB()
+    {
+        requireType(DeviceType.IPHONE17);
+        return store.getMemoryGB(row);
+    }
+
+    /**
+     * Copies the record into a new IDevice.
+     *
+     * @return a new IDevice with the record's current values
+     */
+    public IDevice toDevice()
+    {
+        return store.toDevice(type, row);
+    }
+
+    /**
+     * Takes an immutable snapshot of the record, which is equal to, and has the same hash code as, a snapshot of
+     * an IDevice with the same values.
+     *
+     * @return a snapshot of the record's current values
+     */
+    public DeviceSnapshot snapshot()
+    {
+        return switch (type)
+        {
+            case IPOD -> new IPodSnapshot(store.getSongsStored(row),
+                                          store.getMaxVolumeDb(row));
+            case IPAD -> new IPadSnapshot(store.hasCase(row),
+                                          store.getOperatingSystemVersionCode(row));
+            case IPHONE -> new IPhoneSnapshot(store.getRemainingPlanMinutes(type, row),
+                                              store.getCarrierCode(type, row));
+            case IPHONE17 -> new IPhone17Snapshot(store.getRemainingPlanMinutes(type, row),
+                                                  store.getCarrierCode(type, row),
+                                                  store.hasHighResolutionCamera(row),
+                                                  store.getMemoryGB(row));
+        };
+    }
+
+    /**
+     * Prints the device's details to the console, as its IDevice class would.
+     */
+    public void printDetails()
+    {
+        System.out.println(this);
+    }
+
+    /**
+     * Returns the device's details, formatted as by its IDevice class.
+     *
+     * @return the details of the record's current values
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+
+        IDevice.appendPurpose(builder, getPurpose());
+
+        switch (type)
+        {
+            case IPOD -> IPod.appendFields(builder,
+                                           store.getSongsStored(row),
+                                           store.getMaxVolumeDb(row));
+            case IPAD -> IPad.appendFields(builder,
+                                           store.hasCase(row),
+                                           store.getOperatingSystemVersion(row));
+            case IPHONE, IPHONE17 ->
+            {
+                IPhone.appendFields(builder,
+                                    store.getCarrier(type, row),
+                                    store.getRemainingPlanMinutes(type, row));
+
+                if (type == DeviceType.IPHONE17)
+                {
+                    IPhone17.appendFields(builder,
+                                          store.hasHighResolutionCamera(row),
+                                          store.getMemoryGB(row));
+                }
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private void requireType(final DeviceType required)
+    {
+        if (type != required)
+        {
+            throw new IllegalStateException("Invalid accessor for a " + type + " view: requires " + required);
+        }
+    }
+
+    private void requirePhone()
+    {
+        if (type != DeviceType.IPHONE && type != DeviceType.IPHONE17)
+        {
+            throw new IllegalStateException("Invalid accessor for a " + type + " view: requires a phone");
+        }
+    }
+}
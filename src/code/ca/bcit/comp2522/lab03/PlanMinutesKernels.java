@@ -0,0 +1,130 @@
+package ca.bcit.comp2522.lab03;
+
+/*
+ * Bulk updates over columns of remaining plan minutes, used by DeviceInventory's billing-cycle operations. Each
+ * kernel runs a branch-free loop over whole columns, with no per-phone validation.
+ *
+ * When the jdk.incubator.vector module is present (the JVM was started with --add-modules
+ * jdk.incubator.vector), the kernels run in VectorPlanMinutesKernels, several lanes at a time. Otherwise, or
+ * when the JVM is started with -Dca.bcit.comp2522.lab03.scalar=true, they run in the scalar loops here. Both
+ * paths give identical results. That choice is made at run time; compiling needs the module too (see
+ * VectorPlanMinutesKernels).
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+final class PlanMinutesKernels
+{
+    /*
+     * Whether the vectorized kernels are used. Read once, so the JIT compiler drops the branch not taken.
+     */
+    static final boolean VECTORIZED = !Boolean.getBoolean("ca.bcit.comp2522.lab03.scalar") &&
+                                      ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private PlanMinutesKernels()
+    {
+    }
+
+    /*
+     * Subtracts usage[i] from minutes[i] for every i below length, clamping each result at floor.
+     */
+    static void subtract(final double[] minutes,
+                         final double[] usage,
+                         final int length,
+                         final double floor)
+    {
+        if (VECTORIZED)
+        {
+            VectorPlanMinutesKernels.subtract(minutes, usage, length, floor);
+        }
+        else
+        {
+            subtractScalar(minutes, usage, 0, length, floor);
+        }
+    }
+
+    /*
+     * Subtracts usage from minutes[i], clamping at floor, for every i below length where codes[i] is code.
+     */
+    static void subtractWhere(final double[] minutes,
+                              final int[] codes,
+                              final int length,
+                              final int code,
+                              final double usage,
+                              final double floor)
+    {
+        if (VECTORIZED)
+        {
+            VectorPlanMinutesKernels.subtractWhere(minutes, codes, length, code, usage, floor);
+        }
+        else
+        {
+            subtractWhereScalar(minutes, codes, 0, length, code, usage, floor);
+        }
+    }
+
+    /*
+     * Sets minutes[i] to value for every i below length where codes[i] is code.
+     */
+    static void assignWhere(final double[] minutes,
+                            final int[] codes,
+                            final int length,
+                            final int code,
+                            final double value)
+    {
+        if (VECTORIZED)
+        {
+            VectorPlanMinutesKernels.assignWhere(minutes, codes, length, code, value);
+        }
+        else
+        {
+            assignWhereScalar(minutes, codes, 0, length, code, value);
+        }
+    }
+
+    // Scalar subtract over [from, to); also finishes the tail the vector loop leaves.
+    static void subtractScalar(final double[] minutes,
+                               final double[] usage,
+                               final int from,
+                               final int to,
+                               final double floor)
+    {
+        for (int i = from; i < to; i++)
+        {
+            minutes[i] = Math.max(minutes[i] - usage[i], floor);
+        }
+    }
+
+    // Scalar masked subtract over [from, to); also finishes the tail the vector loop leaves.
+    static void subtractWhereScalar(final double[] minutes,
+                                    final int[] codes,
+                                    final int from,
+                                    final int to,
+                                    final int code,
+                                    final double usage,
+                                    final double floor)
+    {
+        for (int i = from; i < to; i++)
+        {
+            final double subtracted = Math.max(minutes[i] - usage, floor);
+
+            minutes[i] = codes[i] == code ? subtracted : minutes[i];
+        }
+    }
+
+    // Scalar conditional assign over [from, to); also finishes the tail the vector loop leaves.
+    static void assignWhereScalar(final double[] minutes,
+                                  final int[] codes,
+                                  final int from,
+                                  final int to,
+                                  final int code,
+                                  final double value)
+    {
+        for (int i = from; i < to; i++)
+        {
+            minutes[i] = codes[i] == code ? value : minutes[i];
+        }
+    }
+}
@@ -0,0 +1,511 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free ledger of remaining plan minutes for IPhones, for many threads debiting and crediting minutes at once.
+ * Each registered phone gets an account whose balance is held as the raw bits of a double and updated with
+ * compare-and-set, so concurrent updates are never lost and none of them allocates. A debit which would take an
+ * account below MIN_REMAINING_PLAN_MINUTES returns false instead of throwing.
+ *
+ * Hot phones can be registered with several stripes, each on its own cache line. Threads debit and credit their
+ * own stripe, so they do not contend with each other; the account's balance is the sum of its stripes. The first
+ * stripe never drops below MIN_REMAINING_PLAN_MINUTES and the others never drop below zero, so the balance never
+ * drops below the floor either.
+ *
+ * A debit which no single stripe can cover gathers minutes from several stripes. Those debits hold the account's
+ * lock, so they are serialized with each other. A snapshot takes every account's lock, so it never sees one of
+ * them half done, and then freezes every stripe by swapping its bits for a marker which no balance can have.
+ * Updates to a frozen stripe wait for the snapshot to put its bits back, so a snapshot always succeeds, however
+ * busy the ledger is, at the cost of holding up writers for one pass over the stripes.
+ *
+ * Balances are written back to the phones themselves only when writeBack is called.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class PlanMinutesLedger
+{
+    // Each stripe is padded to its own 64-byte cache line
+    private static final int SLOT_STRIDE = 8;
+    private static final int DEFAULT_HOT_STRIPES = 8;
+
+    // A NaN which arithmetic on balances never produces, marking a stripe frozen by a snapshot
+    private static final long FROZEN = 0xFFF0_0000_0000_0001L;
+
+    private final AtomicLongArray slots;
+    private final AtomicLongArray versions;
+    private final IPhone[] phones;
+    private final int[] firstStripes;
+    private final int[] stripeCounts;
+    private final Map<IPhone, Integer> accountsByPhone;
+
+    // Written last when registering, so reading it first makes every registered account visible
+    private volatile int accountCount;
+    private int stripeCount;
+
+    /**
+     * Constructs an empty ledger with room for the given numbers of accounts and stripes.
+     *
+     * @param maxAccounts the maximum number of phones which can be registered
+     * @param maxStripes  the maximum total number of stripes across all accounts
+     */
+    public PlanMinutesLedger(final int maxAccounts,
+                             final int maxStripes)
+    {
+        if (maxAccounts <= 0 || maxStripes < maxAccounts)
+        {
+            throw new IllegalArgumentException("Invalid ledger capacity: " + maxAccounts + " accounts, " +
+                                               maxStripes + " stripes");
+        }
+
+        this.slots = new AtomicLongArray(Math.multiplyExact(maxStripes, SLOT_STRIDE));
+        this.versions = new AtomicLongArray(maxAccounts);
+        this.phones = new IPhone[maxAccounts];
+        this.firstStripes = new int[maxAccounts];
+        this.stripeCounts = new int[maxAccounts];
+        this.accountsByPhone = new IdentityHashMap<>();
+    }
+
+    /**
+     * Registers a phone with a single-stripe account, starting at its current remaining plan minutes.
+     *
+     * @param phone the IPhone to register
+     * @return the phone's account number
+     */
+    public int register(final IPhone phone)
+    {
+        return register(phone, 1);
+    }
+
+    /**
+     * Registers a phone which is expected to be updated by many threads at once, with a striped account.
+     *
+     * @param phone the IPhone to register
+     * @return the phone's account number
+     */
+    public int registerHot(final IPhone phone)
+    {
+        return register(phone, DEFAULT_HOT_STRIPES);
+    }
+
+    /**
+     * Registers a phone with an account of the given number of stripes, starting at its current remaining plan
+     * minutes. Registering a phone twice returns its existing account.
+     *
+     * @param phone   the IPhone to register
+     * @param stripes the number of stripes for the account
+     * @return the phone's account number
+     */
+    public synchronized int register(final IPhone phone,
+                                     final int stripes)
+    {
+        if (phone == null)
+        {
+            throw new IllegalArgumentException("Invalid phone");
+        }
+
+        if (stripes <= 0)
+        {
+            throw new IllegalArgumentException("Invalid stripe count: " + stripes);
+        }
+
+        final Integer existing = accountsByPhone.get(phone);
+
+        if (existing != null)
+        {
+            return existing;
+        }
+
+        if (accountCount == firstStripes.length || stripeCount + stripes > slots.length() / SLOT_STRIDE)
+        {
+            throw new IllegalStateException("Ledger is full");
+        }
+
+        final int account = accountCount;
+
+        firstStripes[account] = stripeCount;
+        stripeCounts[account] = stripes;
+        slots.set(slotOf(stripeCount), Double.doubleToRawLongBits(phone.getRemainingPlanMinutes()));
+
+        for (int stripe = 1; stripe < stripes; stripe++)
+        {
+            slots.set(slotOf(stripeCount + stripe), Double.doubleToRawLongBits(0.0));
+        }
+
+        stripeCount += stripes;
+        accountsByPhone.put(phone, account);
+        phones[account] = phone;
+
+        accountCount = account + 1;
+
+        return account;
+    }
+
+    /**
+     * Looks up the account of a registered phone.
+     *
+     * @param phone the IPhone to look up
+     * @return the phone's account number
+     */
+    public synchronized int accountOf(final IPhone phone)
+    {
+        final Integer account = accountsByPhone.get(phone);
+
+        if (account == null)
+        {
+            throw new IllegalArgumentException("Phone is not registered");
+        }
+
+        return account;
+    }
+
+    /**
+     * Adds minutes to an account.
+     *
+     * @param account the account number
+     * @param minutes the number of minutes to add, which must be finite and non-negative
+     */
+    public void credit(final int account,
+                       final double minutes)
+    {
+        validateAccount(account);
+        validateMinutes(minutes);
+
+        add(firstStripes[account] + localStripe(account), minutes);
+    }
+
+    /**
+     * Takes minutes from an account, unless doing so would take its balance below MIN_REMAINING_PLAN_MINUTES.
+     *
+     * @param account the account number
+     * @param minutes the number of minutes to take, which must be finite and non-negative
+     * @return true if the minutes were taken, false if the account did not have enough
+     */
+    public boolean debit(final int account,
+                         final double minutes)
+    {
+        validateAccount(account);
+        validateMinutes(minutes);
+
+        final int first = firstStripes[account];
+        final int stripes = stripeCounts[account];
+        final int local = localStripe(account);
+
+        // Fast path: take everything from a single stripe, starting with this thread's own
+        for (int i = 0; i < stripes; i++)
+        {
+            final int stripe = (local + i) % stripes;
+
+            if (tryTake(first + stripe, minutes, floorOf(stripe)))
+            {
+                return true;
+            }
+        }
+
+        // Slow path: the minutes are spread over several stripes, so gather them under the account's lock,
+        // returning each stripe's share on failure
+        final long version = lock(account);
+
+        try
+        {
+            final double[] taken = new double[stripes];
+            double remaining = minutes;
+
+            for (int stripe = 0; stripe < stripes && remaining > 0.0; stripe++)
+            {
+                taken[stripe] = takeUpTo(first + stripe, remaining, floorOf(stripe));
+                remaining -= taken[stripe];
+            }
+
+            if (remaining > 0.0)
+            {
+                for (int stripe = 0; stripe < stripes; stripe++)
+                {
+                    if (taken[stripe] > 0.0)
+                    {
+                        add(first + stripe, taken[stripe]);
+                    }
+                }
+
+                return false;
+            }
+
+            return true;
+        }
+        finally
+        {
+            versions.set(account, version + 1);
+        }
+    }
+
+    /**
+     * Reads an account's balance. The stripes are read one at a time, so under concurrent updates the result may
+     * not match any single instant; use snapshot for a consistent reading.
+     *
+     * @param account the account number
+     * @return the account's remaining plan minutes
+     */
+    public double balance(final int account)
+    {
+        validateAccount(account);
+
+        final int first = firstStripes[account];
+        double total = 0.0;
+
+        for (int stripe = 0; stripe < stripeCounts[account]; stripe++)
+        {
+            total += Double.longBitsToDouble(read(slotOf(first + stripe)));
+        }
+
+        return total;
+    }
+
+    /**
+     * Reads the balance of every account for billing. Every account's lock is taken and then every stripe frozen,
+     * so the balances reflect a single point in time rather than a mix of before and after concurrent updates.
+     * Debits and credits wait while the stripes are frozen.
+     *
+     * @return the balances, indexed by account number
+     */
+    public double[] snapshot()
+    {
+        final int accounts = accountCount;
+
+        if (accounts == 0)
+        {
+            return new double[0];
+        }
+
+        final int stripes = firstStripes[accounts - 1] + stripeCounts[accounts - 1];
+        final long[] held = new long[accounts];
+        final long[] frozen = new long[stripes];
+        final double[] balances = new double[accounts];
+
+        // Locks and stripes are always taken in ascending order, so concurrent snapshots cannot deadlock, and a
+        // debit holding a lock never waits on a stripe frozen by a snapshot, which would need its lock first.
+        for (int account = 0; account < accounts; account++)
+        {
+            held[account] = lock(account);
+        }
+
+        for (int stripe = 0; stripe < stripes; stripe++)
+        {
+            frozen[stripe] = freeze(slotOf(stripe));
+        }
+
+        for (int stripe = 0; stripe < stripes; stripe++)
+        {
+            slots.set(slotOf(stripe), frozen[stripe]);
+        }
+
+        for (int account = 0; account < accounts; account++)
+        {
+            versions.set(account, held[account] + 1);
+
+            for (int stripe = 0; stripe < stripeCounts[account]; stripe++)
+            {
+                balances[account] += Double.longBitsToDouble(frozen[firstStripes[account] + stripe]);
+            }
+        }
+
+        return balances;
+    }
+
+    /**
+     * Writes an account's balance back to its phone through setRemainingPlanMinutes.
+     *
+     * @param account the account number
+     */
+    public void writeBack(final int account)
+    {
+        validateAccount(account);
+        phones[account].setRemainingPlanMinutes(balance(account));
+    }
+
+    /**
+     * Writes every account's balance, from one consistent snapshot, back to its phone.
+     */
+    public void writeBackAll()
+    {
+        final double[] balances = snapshot();
+
+        for (int account = 0; account < balances.length; account++)
+        {
+            phones[account].setRemainingPlanMinutes(balances[account]);
+        }
+    }
+
+    /**
+     * Returns the number of registered accounts.
+     *
+     * @return the number of accounts
+     */
+    public int size()
+    {
+        return accountCount;
+    }
+
+    // Attempts to take an amount from one stripe without taking it below a floor.
+    private boolean tryTake(final int stripe,
+                            final double minutes,
+                            final double floor)
+    {
+        final int slot = slotOf(stripe);
+
+        while (true)
+        {
+            final long bits = read(slot);
+            final double updated = Double.longBitsToDouble(bits) - minutes;
+
+            if (updated < floor)
+            {
+                return false;
+            }
+
+            if (slots.compareAndSet(slot, bits, Double.doubleToRawLongBits(updated)))
+            {
+                return true;
+            }
+        }
+    }
+
+    // Takes as much of an amount as one stripe has above a floor, returning how much was taken.
+    private double takeUpTo(final int stripe,
+                            final double minutes,
+                            final double floor)
+    {
+        final int slot = slotOf(stripe);
+
+        while (true)
+        {
+            final long bits = read(slot);
+            final double current = Double.longBitsToDouble(bits);
+            final double taken = Math.max(0.0, Math.min(minutes, current - floor));
+
+            if (taken == 0.0)
+            {
+                return 0.0;
+            }
+
+            if (slots.compareAndSet(slot, bits, Double.doubleToRawLongBits(current - taken)))
+            {
+                return taken;
+            }
+        }
+    }
+
+    // Adds an amount to one stripe.
+    private void add(final int stripe,
+                     final double minutes)
+    {
+        final int slot = slotOf(stripe);
+
+        while (true)
+        {
+            final long bits = read(slot);
+
+            if (slots.compareAndSet(slot, bits, Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + minutes)))
+            {
+                return;
+            }
+        }
+    }
+
+    // Reads the bits of a stripe's balance, waiting while a snapshot has it frozen.
+    private long read(final int slot)
+    {
+        long bits;
+
+        while ((bits = slots.get(slot)) == FROZEN)
+        {
+            Thread.onSpinWait();
+        }
+
+        return bits;
+    }
+
+    // Freezes a stripe, so that updates wait until its bits are put back, and returns the bits it held.
+    private long freeze(final int slot)
+    {
+        while (true)
+        {
+            final long bits = read(slot);
+
+            if (slots.compareAndSet(slot, bits, FROZEN))
+            {
+                return bits;
+            }
+        }
+    }
+
+    // Acquires an account's lock, making its version odd, and returns the odd version.
+    private long lock(final int account)
+    {
+        while (true)
+        {
+            final long version = versions.get(account);
+
+            if ((version & 1L) == 0L && versions.compareAndSet(account, version, version + 1))
+            {
+                return version + 1;
+            }
+
+            Thread.onSpinWait();
+        }
+    }
+
+    // Chooses the stripe of an account used by the current thread.
+    private int localStripe(final int account)
+    {
+        final int stripes = stripeCounts[account];
+
+        if (stripes == 1)
+        {
+            return 0;
+        }
+
+        return (int) (mix(Thread.currentThread().threadId()) % stripes);
+    }
+
+    // The floor of a stripe: the first stripe carries the account's floor, and the others cannot go below zero.
+    private static double floorOf(final int stripe)
+    {
+        return stripe == 0 ? IPhone.MIN_REMAINING_PLAN_MINUTES : 0.0;
+    }
+
+    private static int slotOf(final int stripe)
+    {
+        return stripe * SLOT_STRIDE;
+    }
+
+    // Spreads thread ids so that neighbouring threads use different stripes.
+    private static long mix(final long value)
+    {
+        final long mixed = value * 0x9E3779B97F4A7C15L;
+
+        return (mixed ^ (mixed >>> 32)) & Long.MAX_VALUE;
+    }
+
+    // Validates an account number, which must belong to a registered phone.
+    private void validateAccount(final int account)
+    {
+        if (account < 0 || account >= accountCount)
+        {
+            throw new IllegalArgumentException("Invalid account: " + account);
+        }
+    }
+
+    // Validates an amount of minutes, which must be finite and non-negative.
+    private static void validateMinutes(final double minutes)
+    {
+        if (!(minutes >= 0.0) || Double.isInfinite(minutes))
+        {
+            throw new IllegalArgumentException("Invalid number of minutes: " + minutes);
+        }
+    }
+}
@@ -0,0 +1,684 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Inventory of devices partitioned into shards, each owned by a single writer thread. Devices are split first by
+ * purpose ("music", "learning" or "talking"), then by a hash of their carrier (IPhones and IPhone17s), operating
+ * system version (IPads) or identity (IPods). Updates to different shards run in parallel without any locking, so
+ * updates scale with the number of shards instead of contending for one shared list.
+ *
+ * Every operation is a command appended to its shard's queue and applied by the shard's writer in the order it
+ * was submitted. Adds, removals and updates return as soon as they are queued; reads either run on the owning
+ * writer, through query, or return copies, through snapshot. Commands from one thread are applied in the order
+ * that thread submitted them.
+ *
+ * A device is placed by its carrier or operating system version when it is added, and stays in that shard if the
+ * value later changes. Once added, a device belongs to the inventory: change it only through the inventory, or
+ * within a query.
+ *
+ * Ids are never reused, since a stale id must not reach a different device. Each shard's slot table, and so the
+ * scan a snapshot makes of it, therefore grows with the number of devices ever added to the shard rather than the
+ * number it holds; an inventory with heavy churn is best rebuilt from a snapshot from time to time.
+ *
+ * Closing waits for every offer in progress to finish before stopping the writers, and later calls throw
+ * IllegalStateException, so every command either reaches a writer before it stops or is refused; no future is
+ * left waiting on a command that will never run.
+ *
+ * A command which throws never stops its writer. A query or snapshot completes its future exceptionally; any
+ * other command, such as an update whose DeviceChangeListener throws, has nobody waiting for it, so its failure is
+ * counted in failureCount and passed to the writer thread's uncaught exception handler, and the writer goes on to
+ * the next command.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class ShardedInventory implements AutoCloseable
+{
+    private static final int PURPOSES = 3;
+    private static final int MUSIC = 0;
+    private static final int LEARNING = 1;
+    private static final int TALKING = 2;
+    private static final int BATCH_SIZE = 256;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int GROWTH_FACTOR = 2;
+
+    private final int shardsPerPurpose;
+    private final Shard[] shards;
+    private volatile boolean closed;
+
+    /**
+     * Creates an inventory with enough shards to use every available processor.
+     */
+    public ShardedInventory()
+    {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / PURPOSES));
+    }
+
+    /**
+     * Creates an inventory with the given number of shards for each purpose.
+     *
+     * @param shardsPerPurpose the number of shards per purpose, at least 1
+     */
+    public ShardedInventory(final int shardsPerPurpose)
+    {
+        if (shardsPerPurpose < 1)
+        {
+            throw new IllegalArgumentException("Invalid number of shards per purpose: " + shardsPerPurpose);
+        }
+
+        this.shardsPerPurpose = shardsPerPurpose;
+        this.shards = new Shard[PURPOSES * shardsPerPurpose];
+
+        for (int i = 0; i < shards.length; i++)
+        {
+            shards[i] = new Shard(i);
+            shards[i].writer.start();
+        }
+    }
+
+    /**
+     * Returns the number of shards, and so of writer threads.
+     *
+     * @return the number of shards
+     */
+    public int shardCount()
+    {
+        return shards.length;
+    }
+
+    /**
+     * Returns the number of devices in the inventory, counting only the adds and removals already applied.
+     *
+     * @return the number of devices
+     */
+    public int size()
+    {
+        int size = 0;
+
+        for (final Shard shard : shards)
+        {
+            size += shard.size;
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns the number of commands which have thrown with nobody waiting for their result, such as adds,
+     * removals and updates whose DeviceChangeListener threw. Failed queries and snapshots are not counted, since
+     * their futures report them.
+     *
+     * @return the number of failed commands
+     */
+    public long failureCount()
+    {
+        long failures = 0L;
+
+        for (final Shard shard : shards)
+        {
+            failures += shard.failures;
+        }
+
+        return failures;
+    }
+
+    /**
+     * Adds a device to its shard.
+     *
+     * @param device the device to add
+     * @return the id of the device, which identifies it to every other operation
+     */
+    public long add(final IDevice device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("Invalid device");
+        }
+
+        final Shard shard = shards[shardOf(device)];
+        final int slot = shard.nextSlot.getAndIncrement();
+
+        submit(shard, owner -> owner.put(slot, device));
+
+        return idOf(shard.index, slot);
+    }
+
+    /**
+     * Adds devices in bulk, queueing a single command for each shard they fall into.
+     *
+     * @param devices the devices to add
+     * @return the ids of the devices, in the same order
+     */
+    public long[] addAll(final List<? extends IDevice> devices)
+    {
+        if (devices == null)
+        {
+            throw new IllegalArgumentException("Invalid devices");
+        }
+
+        final long[] ids = new long[devices.size()];
+        final int[] shardOfDevice = new int[devices.size()];
+        final int[] counts = new int[shards.length];
+
+        for (int i = 0; i < devices.size(); i++)
+        {
+            if (devices.get(i) == null)
+            {
+                throw new IllegalArgumentException("Invalid device at index " + i);
+            }
+
+            shardOfDevice[i] = shardOf(devices.get(i));
+            counts[shardOfDevice[i]]++;
+        }
+
+        final int[][] slots = new int[shards.length][];
+        final IDevice[][] batches = new IDevice[shards.length][];
+
+        for (int s = 0; s < shards.length; s++)
+        {
+            slots[s] = new int[counts[s]];
+            batches[s] = new IDevice[counts[s]];
+            counts[s] = 0;
+        }
+
+        for (int i = 0; i < devices.size(); i++)
+        {
+            final int s = shardOfDevice[i];
+            final int slot = shards[s].nextSlot.getAndIncrement();
+
+            slots[s][counts[s]] = slot;
+            batches[s][counts[s]] = devices.get(i);
+            counts[s]++;
+            ids[i] = idOf(s, slot);
+        }
+
+        enterAll();
+
+        try
+        {
+            for (int s = 0; s < shards.length; s++)
+            {
+                if (counts[s] > 0)
+                {
+                    final int[] shardSlots = slots[s];
+                    final IDevice[] batch = batches[s];
+
+                    shards[s].queue.offer(owner -> {
+                        for (int i = 0; i < batch.length; i++)
+                        {
+                            owner.put(shardSlots[i], batch[i]);
+                        }
+                    });
+                }
+            }
+        }
+        finally
+        {
+            exitAll();
+        }
+
+        return ids;
+    }
+
+    /**
+     * Removes a device. Does nothing if it has already been removed.
+     *
+     * @param id the id of the device
+     */
+    public void remove(final long id)
+    {
+        final int slot = slotOf(id);
+
+        submit(shardFor(id), owner -> owner.take(slot));
+    }
+
+    /**
+     * Sets the remaining plan minutes of an IPhone or IPhone17. Does nothing if it has been removed.
+     *
+     * @param id the id of the phone
+     * @param remainingPlanMinutes the new number of minutes remaining on the plan
+     */
+    public void setRemainingPlanMinutes(final long id,
+                                        final double remainingPlanMinutes)
+    {
+        final Shard shard = shardFor(id);
+        final int slot = slotOf(id);
+
+        if (shard.index / shardsPerPurpose != TALKING)
+        {
+            throw new IllegalArgumentException("Invalid phone id: " + id);
+        }
+
+        IPhone.validateRemainingPlanMinutes(remainingPlanMinutes);
+
+        submit(shard, owner -> {
+            if (owner.get(slot) instanceof final IPhone phone)
+            {
+                phone.setRemainingPlanMinutes(remainingPlanMinutes);
+            }
+        });
+    }
+
+    /**
+     * Sets the operating system version of an IPad. Does nothing if it has been removed.
+     *
+     * @param id the id of the IPad
+     * @param operatingSystemVersion the new operating system version
+     */
+    public void setOperatingSystemVersion(final long id,
+                                          final String operatingSystemVersion)
+    {
+        final Shard shard = shardFor(id);
+        final int slot = slotOf(id);
+
+        if (shard.index / shardsPerPurpose != LEARNING)
+        {
+            throw new IllegalArgumentException("Invalid IPad id: " + id);
+        }
+
+        IPad.validateOperatingSystemVersion(operatingSystemVersion);
+
+        submit(shard, owner -> {
+            if (owner.get(slot) instanceof final IPad iPad)
+            {
+                iPad.setOperatingSystemVersion(operatingSystemVersion);
+            }
+        });
+    }
+
+    /**
+     * Runs a function on a device in its shard's writer thread, after every command already queued for that
+     * shard. The function may read or change the device freely, but must not keep it.
+     *
+     * @param id the id of the device
+     * @param function the function to apply to the device, or to null if the device has been removed
+     * @param <R> the type of the result
+     * @return a future completed with the function's result, or exceptionally with anything it threw, errors
+     *         included
+     */
+    public <R> CompletableFuture<R> query(final long id,
+                                          final Function<? super IDevice, ? extends R> function)
+    {
+        if (function == null)
+        {
+            throw new IllegalArgumentException("Invalid function");
+        }
+
+        final int slot = slotOf(id);
+        final CompletableFuture<R> result = new CompletableFuture<>();
+
+        submit(shardFor(id), owner -> completeWith(result, () -> function.apply(owner.get(slot))));
+
+        return result;
+    }
+
+    /**
+     * Takes a snapshot of every device, reflecting every command queued before this call. Each shard copies its
+     * devices in its own writer, so the copies are consistent per shard, and shards are copied in parallel.
+     *
+     * @return a future completed with the snapshots, grouped by shard
+     */
+    public CompletableFuture<List<DeviceSnapshot>> snapshot()
+    {
+        final List<CompletableFuture<List<DeviceSnapshot>>> parts = new ArrayList<>(shards.length);
+
+        enterAll();
+
+        try
+        {
+            for (final Shard shard : shards)
+            {
+                final CompletableFuture<List<DeviceSnapshot>> part = new CompletableFuture<>();
+
+                shard.queue.offer(owner -> completeWith(part, owner::snapshot));
+                parts.add(part);
+            }
+        }
+        finally
+        {
+            exitAll();
+        }
+
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            final List<DeviceSnapshot> snapshots = new ArrayList<>();
+
+            for (final CompletableFuture<List<DeviceSnapshot>> part : parts)
+            {
+                snapshots.addAll(part.join());
+            }
+
+            return Collections.unmodifiableList(snapshots);
+        });
+    }
+
+    /**
+     * Returns a future completed once every shard has applied every command queued before this call.
+     *
+     * @return the future
+     */
+    public CompletableFuture<Void> flush()
+    {
+        final CompletableFuture<?>[] parts = new CompletableFuture<?>[shards.length];
+
+        enterAll();
+
+        try
+        {
+            for (int s = 0; s < shards.length; s++)
+            {
+                final CompletableFuture<Void> part = new CompletableFuture<>();
+
+                shards[s].queue.offer(owner -> part.complete(null));
+                parts[s] = part;
+            }
+        }
+        finally
+        {
+            exitAll();
+        }
+
+        return CompletableFuture.allOf(parts);
+    }
+
+    /**
+     * Refuses new commands, waits for offers in progress, applies every queued command, then stops the writer
+     * threads.
+     */
+    @Override
+    public void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        closed = true;
+
+        // An offer which began before closed was set is announced in its shard's count, so stop is queued after it
+        for (final Shard shard : shards)
+        {
+            while (shard.offering.get() != 0)
+            {
+                Thread.onSpinWait();
+            }
+
+            shard.queue.offer(Shard::stop);
+        }
+
+        boolean interrupted = false;
+
+        for (final Shard shard : shards)
+        {
+            while (shard.writer.isAlive())
+            {
+                try
+                {
+                    shard.writer.join();
+                }
+                catch (final InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Completes a future with a result computed on a writer, or exceptionally with anything computing it threw, so
+    // that the failure goes to whoever waits on the future rather than to the writer.
+    private static <R> void completeWith(final CompletableFuture<R> future,
+                                         final Supplier<? extends R> supplier)
+    {
+        try
+        {
+            future.complete(supplier.get());
+        }
+        catch (final Throwable e)
+        {
+            future.completeExceptionally(e);
+        }
+    }
+
+    // Queues a command for a shard, unless the inventory is closed.
+    private void submit(final Shard shard,
+                        final Command command)
+    {
+        enter(shard);
+
+        try
+        {
+            shard.queue.offer(command);
+        }
+        finally
+        {
+            shard.offering.decrementAndGet();
+        }
+    }
+
+    // Announces an offer to a shard, which close waits for, then checks that the inventory is open. Announcing
+    // first means that either this sees closed, or close sees the announcement.
+    private void enter(final Shard shard)
+    {
+        shard.offering.incrementAndGet();
+
+        if (closed)
+        {
+            shard.offering.decrementAndGet();
+            throw new IllegalStateException("Inventory is closed");
+        }
+    }
+
+    // Announces offers to every shard, for the commands which go to all of them, then checks that the inventory is
+    // open.
+    private void enterAll()
+    {
+        for (final Shard shard : shards)
+        {
+            shard.offering.incrementAndGet();
+        }
+
+        if (closed)
+        {
+            exitAll();
+            throw new IllegalStateException("Inventory is closed");
+        }
+    }
+
+    private void exitAll()
+    {
+        for (final Shard shard : shards)
+        {
+            shard.offering.decrementAndGet();
+        }
+    }
+
+    // Returns the index of the shard a new device belongs in.
+    private int shardOf(final IDevice device)
+    {
+        final int purpose;
+        final int key;
+
+        // Dictionary codes stand in for the carrier and version strings: equal strings always share a code.
+        switch (DeviceType.of(device))
+        {
+            case IPOD ->
+            {
+                purpose = MUSIC;
+                key = System.identityHashCode(device);
+            }
+            case IPAD ->
+            {
+                purpose = LEARNING;
+                key = ((IPad) device).getOperatingSystemVersionCode();
+            }
+            default ->
+            {
+                purpose = TALKING;
+                key = ((IPhone) device).getCarrierCode();
+            }
+        }
+
+        return purpose * shardsPerPurpose + Math.floorMod(key, shardsPerPurpose);
+    }
+
+    // Returns the shard an id belongs to, checking that the id is valid.
+    private Shard shardFor(final long id)
+    {
+        if (id < 0 || id / shards.length > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Invalid device id: " + id);
+        }
+
+        final Shard shard = shards[(int) (id % shards.length)];
+
+        if (slotOf(id) >= shard.nextSlot.get())
+        {
+            throw new IllegalArgumentException("Invalid device id: " + id);
+        }
+
+        return shard;
+    }
+
+    private long idOf(final int shard,
+                      final int slot)
+    {
+        return (long) slot * shards.length + shard;
+    }
+
+    private int slotOf(final long id)
+    {
+        return (int) (id / shards.length);
+    }
+
+    // A command applied by a shard's writer.
+    @FunctionalInterface
+    private interface Command
+    {
+        void apply(Shard owner);
+    }
+
+    // One partition of the inventory. Only the writer thread touches the devices.
+    private static final class Shard
+    {
+        private final int index;
+        private final AtomicInteger nextSlot;
+        // Offers in progress, which close waits for before queueing stop
+        private final AtomicInteger offering;
+        private final Thread writer;
+        private final CommandQueue<Command> queue;
+        private IDevice[] devices;
+        private boolean running;
+        private volatile int size;
+        // Written only by the writer
+        private volatile long failures;
+
+        private Shard(final int index)
+        {
+            this.index = index;
+            this.nextSlot = new AtomicInteger();
+            this.offering = new AtomicInteger();
+            this.writer = new Thread(this::run, "device-shard-" + index);
+            this.writer.setDaemon(true);
+            this.queue = new CommandQueue<>(writer);
+            this.devices = new IDevice[INITIAL_CAPACITY];
+            this.running = true;
+        }
+
+        // Applies commands in batches until stopped, waiting whenever the queue is empty.
+        private void run()
+        {
+            while (running)
+            {
+                if (queue.drain(this::apply, BATCH_SIZE) == 0)
+                {
+                    queue.await();
+                }
+            }
+        }
+
+        // Applies one command, reporting anything it throws instead of letting it end the writer, which would leave
+        // every later command, and every future waiting on one, stuck in the queue.
+        private void apply(final Command command)
+        {
+            try
+            {
+                command.apply(this);
+            }
+            catch (final Throwable e)
+            {
+                failures++;
+
+                try
+                {
+                    writer.getUncaughtExceptionHandler().uncaughtException(writer, e);
+                }
+                catch (final Throwable ignored)
+                {
+                    // A handler which throws must not end the writer either
+                }
+            }
+        }
+
+        private void stop()
+        {
+            running = false;
+        }
+
+        private IDevice get(final int slot)
+        {
+            return slot < devices.length ? devices[slot] : null;
+        }
+
+        // Stores a new device. Slots are handed out before their commands are queued, so they may arrive out of
+        // order.
+        private void put(final int slot,
+                         final IDevice device)
+        {
+            if (slot >= devices.length)
+            {
+                devices = Arrays.copyOf(devices, Math.max(slot + 1, devices.length * GROWTH_FACTOR));
+            }
+
+            devices[slot] = device;
+            size++;
+        }
+
+        private void take(final int slot)
+        {
+            if (get(slot) != null)
+            {
+                devices[slot] = null;
+                size--;
+            }
+        }
+
+        private List<DeviceSnapshot> snapshot()
+        {
+            final List<DeviceSnapshot> snapshots = new ArrayList<>(size);
+
+            for (final IDevice device : devices)
+            {
+                if (device != null)
+                {
+                    snapshots.add(device.snapshot());
+                }
+            }
+
+            return snapshots;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Space-Saving summary which tracks the most frequent items of a stream in a fixed number of counters, however
+ * many distinct items the stream holds. While there is a free counter, a new item takes it; once every counter is
+ * in use, a new item takes over the counter with the smallest count, inheriting that count as its error. So an
+ * item's count is never below its true number of occurrences and exceeds it by at most its error, and every item
+ * which occurred more than total / capacity times is certain to be tracked.
+ *
+ * Counters are kept in a min-heap indexed by a HashMap from item to heap position, so adding an item takes
+ * logarithmic time in the capacity. A summary is not thread-safe: each thread should add to its own and merge them,
+ * as HeavyHitterTracker does.
+ *
+ * @param <T> the type of the items
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class SpaceSavingTopK<T>
+{
+    private final int capacity;
+    private final Map<T, Integer> positions;
+    private final Object[] items;
+    private final long[] counts;
+    private final long[] errors;
+    private int size;
+    private long totalCount;
+
+    /**
+     * Constructs an empty SpaceSavingTopK with a number of counters.
+     *
+     * @param capacity the number of items tracked at once, greater than 0
+     */
+    public SpaceSavingTopK(final int capacity)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.positions = new HashMap<>();
+        this.items = new Object[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+    }
+
+    /**
+     * Adds one occurrence of an item.
+     *
+     * @param item the item, not null
+     */
+    public void add(final T item)
+    {
+        add(item, 1L);
+    }
+
+    /**
+     * Adds occurrences of an item.
+     *
+     * @param item  the item, not null
+     * @param count the number of occurrences, greater than 0
+     */
+    public void add(final T item,
+                    final long count)
+    {
+        if (item == null)
+        {
+            throw new IllegalArgumentException("Invalid item");
+        }
+
+        if (count <= 0L)
+        {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+
+        totalCount += count;
+
+        final Integer position = positions.get(item);
+
+        if (position != null)
+        {
+            counts[position] += count;
+            siftDown(position);
+        }
+        else if (size < capacity)
+        {
+            set(size, item, count, 0L);
+            siftUp(size++);
+        }
+        else
+        {
+            // The smallest counter, at the root, goes to the new item along with its count.
+            positions.remove(items[0]);
+            set(0, item, counts[0] + count, counts[0]);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Estimates how many times an item has occurred.
+     *
+     * @param item the item
+     * @return the item's count if it is tracked, otherwise the most an untracked item can have occurred
+     */
+    public long estimate(final T item)
+    {
+        final Integer position = positions.get(item);
+
+        if (position != null)
+        {
+            return counts[position];
+        }
+
+        return minCount();
+    }
+
+    /**
+     * Adds every occurrence added to another summary to this one. An item tracked by only one of the summaries is
+     * counted as having occurred as often in the other as that summary's smallest count, so counts stay upper
+     * bounds; then the capacity items with the largest counts are kept.
+     *
+     * @param other the summary to merge into this one
+     */
+    public void merge(final SpaceSavingTopK<T> other)
+    {
+        if (other == null || other == this)
+        {
+            throw new IllegalArgumentException("Invalid summary");
+        }
+
+        final long ownMin = minCount();
+        final long otherMin = other.minCount();
+        final List<Counter<T>> merged = new ArrayList<>(size + other.size);
+
+        for (int i = 0; i < size; i++)
+        {
+            final T item = itemAt(i);
+            final Integer otherPosition = other.positions.get(item);
+
+            if (otherPosition != null)
+            {
+                merged.add(new Counter<>(item,
+                                         counts[i] + other.counts[otherPosition],
+                                         errors[i] + other.errors[otherPosition]));
+            }
+            else
+            {
+                merged.add(new Counter<>(item, counts[i] + otherMin, errors[i] + otherMin));
+            }
+        }
+
+        for (int i = 0; i < other.size; i++)
+        {
+            final T item = other.itemAt(i);
+
+            if (!positions.containsKey(item))
+            {
+                merged.add(new Counter<>(item, other.counts[i] + ownMin, other.errors[i] + ownMin));
+            }
+        }
+
+        merged.sort(Counter.BY_COUNT_DESCENDING);
+
+        positions.clear();
+        size = Math.min(capacity, merged.size());
+
+        // Counters in descending order of count form a valid heap once reversed into the array.
+        for (int i = 0; i < size; i++)
+        {
+            final Counter<T> counter = merged.get(i);
+
+            set(size - 1 - i, counter.item, counter.count, counter.error);
+        }
+
+        for (int i = size; i < capacity; i++)
+        {
+            items[i] = null;
+        }
+
+        totalCount += other.totalCount;
+    }
+
+    /**
+     * Returns the most frequent tracked items, most frequent first.
+     *
+     * @param n the largest number of items to return
+     * @return up to n items with the largest counts
+     */
+    public List<HeavyHitter<T>> top(final int n)
+    {
+        if (n < 0)
+        {
+            throw new IllegalArgumentException("Invalid n: " + n);
+        }
+
+        final List<Counter<T>> tracked = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++)
+        {
+            tracked.add(new Counter<>(itemAt(i), counts[i], errors[i]));
+        }
+
+        tracked.sort(Counter.BY_COUNT_DESCENDING);
+
+        final int count = Math.min(n, tracked.size());
+        final List<HeavyHitter<T>> top = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++)
+        {
+            final Counter<T> counter = tracked.get(i);
+
+            top.add(new HeavyHitter<>(counter.item, counter.count, counter.error));
+        }
+
+        return top;
+    }
+
+    /**
+     * Accessor for the capacity.
+     *
+     * @return the number of items tracked at once
+     */
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Accessor for the size.
+     *
+     * @return the number of items tracked now
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Accessor for the total count.
+     *
+     * @return the number of occurrences of every item added
+     */
+    public long totalCount()
+    {
+        return totalCount;
+    }
+
+    /*
+     * Returns the most an untracked item can have occurred: the smallest count once every counter is in use,
+     * otherwise 0, since until then every item added is tracked.
+     */
+    long minCount()
+    {
+        return size == capacity ? counts[0] : 0L;
+    }
+
+    // Returns the item in a heap position.
+    @SuppressWarnings("unchecked")
+    private T itemAt(final int position)
+    {
+        return (T) items[position];
+    }
+
+    // Places a counter in a heap position and records the position.
+    private void set(final int position,
+                     final T item,
+                     final long count,
+                     final long error)
+    {
+        items[position] = item;
+        counts[position] = count;
+        errors[position] = error;
+        positions.put(item, position);
+    }
+
+    // Moves a counter towards the root while it is smaller than its parent, moving each parent passed down into
+    // the hole it leaves, so each level costs one position update rather than two.
+    private void siftUp(final int position)
+    {
+        final T item = itemAt(position);
+        final long count = counts[position];
+        final long error = errors[position];
+        int hole = position;
+
+        while (hole > 0)
+        {
+            final int parent = (hole - 1) >>> 1;
+
+            if (counts[parent] <= count)
+            {
+                break;
+            }
+
+            set(hole, itemAt(parent), counts[parent], errors[parent]);
+            hole = parent;
+        }
+
+        if (hole != position)
+        {
+            set(hole, item, count, error);
+        }
+    }
+
+    // Moves a counter away from the root while it is larger than its smaller child, moving each child passed up
+    // into the hole it leaves.
+    private void siftDown(final int position)
+    {
+        final T item = itemAt(position);
+        final long count = counts[position];
+        final long error = errors[position];
+        int hole = position;
+
+        while (true)
+        {
+            final int left = 2 * hole + 1;
+
+            if (left >= size)
+            {
+                break;
+            }
+
+            final int right = left + 1;
+            final int smaller = right < size && counts[right] < counts[left] ? right : left;
+
+            if (count <= counts[smaller])
+            {
+                break;
+            }
+
+            set(hole, itemAt(smaller), counts[smaller], errors[smaller]);
+            hole = smaller;
+        }
+
+        if (hole != position)
+        {
+            set(hole, item, count, error);
+        }
+    }
+
+    // One counter, gathered for sorting.
+    private record Counter<T>(T item,
+                              long count,
+                              long error)
+    {
+        private static final Comparator<Counter<?>> BY_COUNT_DESCENDING =
+            Comparator.comparingLong((Counter<?> counter) -> counter.count).reversed();
+    }
+}
@@ -0,0 +1,180 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent dictionary which assigns each distinct String a small int code, starting from zero. Fields which
+ * take only a handful of distinct values across millions of devices, such as carriers and operating system
+ * versions, are stored as codes, so every device with the same value shares one String and comparing or hashing
+ * the field is an int operation.
+ *
+ * Encoding a String which is already in the dictionary takes no lock. Codes are never reused or removed, so
+ * every String a dictionary has seen is kept for as long as the dictionary is, which for CARRIERS and
+ * OPERATING_SYSTEM_VERSIONS is the life of the JVM. To bound that, a dictionary holds at most its capacity of
+ * Strings, and encoding a new String once it is full throws IllegalArgumentException. The capacity does not bound
+ * the Strings' lengths; code which encodes Strings from untrusted input, such as DeviceService, should.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class StringDictionary
+{
+    /**
+     * The capacity of a dictionary constructed without one, and of the shared dictionaries.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 12;
+
+    /**
+     * Dictionary of IPhone carriers.
+     */
+    public static final StringDictionary CARRIERS = new StringDictionary();
+
+    /**
+     * Dictionary of IPad operating system versions.
+     */
+    public static final StringDictionary OPERATING_SYSTEM_VERSIONS = new StringDictionary();
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int GROWTH_FACTOR = 2;
+
+    private final int capacity;
+    private final ConcurrentHashMap<String, Integer> codes;
+    private volatile String[] values;
+    private int size;
+
+    /**
+     * Constructs a new, empty StringDictionary which holds up to DEFAULT_CAPACITY Strings.
+     */
+    public StringDictionary()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new, empty StringDictionary.
+     *
+     * @param capacity the largest number of distinct Strings the dictionary holds, greater than 0
+     */
+    public StringDictionary(final int capacity)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("Invalid dictionary capacity: " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.codes = new ConcurrentHashMap<>();
+        this.values = new String[Math.min(INITIAL_CAPACITY, capacity)];
+    }
+
+    /**
+     * Returns the code of a String, adding it to the dictionary if it is not already present.
+     *
+     * @param value the String to encode
+     * @return the String's code
+     * @throws IllegalArgumentException if the String is new and the dictionary is full
+     */
+    public int encode(final String value)
+    {
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Invalid dictionary value");
+        }
+
+        final Integer code = codes.get(value);
+
+        if (code != null)
+        {
+            return code;
+        }
+
+        return add(value);
+    }
+
+    /**
+     * Returns the code of a String without adding it to the dictionary.
+     *
+     * @param value the String to look up
+     * @return the String's code, or -1 if it is not in the dictionary
+     */
+    public int lookup(final String value)
+    {
+        final Integer code = value == null ? null : codes.get(value);
+
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Returns the String with a given code.
+     *
+     * @param code the code to decode
+     * @return the String which was assigned the code
+     */
+    public String decode(final int code)
+    {
+        final String[] current = values;
+
+        if (code < 0 || code >= current.length || current[code] == null)
+        {
+            throw new IllegalArgumentException("Invalid dictionary code: " + code);
+        }
+
+        return current[code];
+    }
+
+    /**
+     * Returns the largest number of distinct Strings the dictionary holds.
+     *
+     * @return the capacity
+     */
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of distinct Strings in the dictionary. Every code from zero up to, but not including,
+     * this number is assigned.
+     *
+     * @return the number of Strings in the dictionary
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    // Assigns the next code to a String, unless another thread has just done so or there is no code left.
+    private synchronized int add(final String value)
+    {
+        final Integer existing = codes.get(value);
+
+        if (existing != null)
+        {
+            return existing;
+        }
+
+        if (size == capacity)
+        {
+            throw new IllegalArgumentException("Invalid dictionary value: the dictionary is full at " + capacity +
+                                               " strings");
+        }
+
+        String[] current = values;
+
+        if (size == current.length)
+        {
+            current = Arrays.copyOf(current, Math.min(size * GROWTH_FACTOR, capacity));
+        }
+
+        current[size] = value;
+
+        // Publish the value before the code, so any thread which sees the code can decode it
+        values = current;
+        codes.put(value, size);
+
+        return size++;
+    }
+}
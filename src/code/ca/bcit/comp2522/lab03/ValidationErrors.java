@@ -0,0 +1,182 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of validation errors, each recorded as a single long code holding the row of the rejected record
+ * in its upper 32 bits and the ordinal of the violated ValidationRule in its lower 32 bits. Since each rule
+ * covers exactly one field, the code identifies the field, the rule and the row without allocating an object.
+ *
+ * A list can be cleared and reused across batches, so validating clean data allocates nothing.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class ValidationErrors
+{
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int GROWTH_FACTOR = 2;
+    private static final int ROW_SHIFT = Integer.SIZE;
+    private static final long RULE_MASK = 0xFFFF_FFFFL;
+    private static final ValidationRule[] RULES = ValidationRule.values();
+
+    private long[] codes;
+    private int size;
+
+    /**
+     * Constructs a new, empty ValidationErrors.
+     */
+    public ValidationErrors()
+    {
+        this.codes = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Encodes a violated rule and the row it was violated at as one code.
+     *
+     * @param rule the violated ValidationRule
+     * @param row  the row of the rejected record
+     * @return the error code
+     */
+    public static long code(final ValidationRule rule,
+                            final int row)
+    {
+        return ((long) row << ROW_SHIFT) | rule.ordinal();
+    }
+
+    /**
+     * Decodes the violated rule of an error code.
+     *
+     * @param code the error code
+     * @return the violated ValidationRule
+     */
+    public static ValidationRule ruleOf(final long code)
+    {
+        return RULES[(int) (code & RULE_MASK)];
+    }
+
+    /**
+     * Decodes the row of an error code.
+     *
+     * @param code the error code
+     * @return the row of the rejected record
+     */
+    public static int rowOf(final long code)
+    {
+        return (int) (code >>> ROW_SHIFT);
+    }
+
+    // Records an error.
+    void add(final ValidationRule rule,
+             final int row)
+    {
+        if (size == codes.length)
+        {
+            codes = Arrays.copyOf(codes, size * GROWTH_FACTOR);
+        }
+
+        codes[size++] = code(rule, row);
+    }
+
+    /**
+     * Returns the number of errors recorded.
+     *
+     * @return the number of errors
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Determines whether no errors are recorded.
+     *
+     * @return true if there are no errors, false otherwise
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Returns the code of an error.
+     *
+     * @param index the index of the error, in the order errors were recorded
+     * @return the error code
+     */
+    public long code(final int index)
+    {
+        checkIndex(index);
+
+        return codes[index];
+    }
+
+    /**
+     * Returns the violated rule of an error.
+     *
+     * @param index the index of the error
+     * @return the violated ValidationRule
+     */
+    public ValidationRule rule(final int index)
+    {
+        return ruleOf(code(index));
+    }
+
+    /**
+     * Returns the row of an error.
+     *
+     * @param index the index of the error
+     * @return the row of the rejected record
+     */
+    public int row(final int index)
+    {
+        return rowOf(code(index));
+    }
+
+    /**
+     * Discards every recorded error, keeping the allocated capacity.
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * Creates a String representation of the errors.
+     *
+     * @return a String listing the row and rule of each error
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder toStringBuilder = new StringBuilder("[");
+
+        for (int i = 0; i < size; i++)
+        {
+            if (i > 0)
+            {
+                toStringBuilder.append(", ");
+            }
+
+            toStringBuilder.append("Row ");
+            toStringBuilder.append(rowOf(codes[i]));
+            toStringBuilder.append(": ");
+            toStringBuilder.append(ruleOf(codes[i]));
+        }
+
+        toStringBuilder.append(']');
+
+        return toStringBuilder.toString();
+    }
+
+    // Validates an error index, which must be less than size.
+    private void checkIndex(final int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Invalid error index: " + index);
+        }
+    }
+}
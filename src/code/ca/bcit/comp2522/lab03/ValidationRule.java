@@ -0,0 +1,20 @@
+package ca.bcit.comp2522.lab03;
+
+/**
+ * Enumerates the validation rules which the IDevice constructors and mutators enforce, one per validated field.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public enum ValidationRule
+{
+    PURPOSE,
+    SONGS_STORED,
+    MAX_VOLUME_DB,
+    OPERATING_SYSTEM_VERSION,
+    REMAINING_PLAN_MINUTES,
+    CARRIER,
+    MEMORY_GB
+}
@@ -0,0 +1,105 @@
+package ca.bcit.comp2522.lab03;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * The vectorized forms of PlanMinutesKernels, using the jdk.incubator.vector API. Only PlanMinutesKernels
+ * refers to this class, and only once it has found the module present, so this class is never loaded without it.
+ *
+ * Compiling this class needs --add-modules jdk.incubator.vector, which .idea/compiler.xml passes to javac for the
+ * whole module. javac then warns that an incubating module is in use; no -Xlint option turns that warning off, so
+ * it is expected in every build until the API leaves incubation.
+ *
+ * Minutes are processed in the platform's preferred double vector. Carrier codes are read in an int vector with
+ * the same number of lanes, so a comparison on the codes gives a mask over the minutes. Lanes left over at the
+ * end of a column go through the scalar loops.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+final class VectorPlanMinutesKernels
+{
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS =
+        VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.length() * Integer.SIZE));
+
+    private VectorPlanMinutesKernels()
+    {
+    }
+
+    /*
+     * Vectorized PlanMinutesKernels.subtract.
+     */
+    static void subtract(final double[] minutes,
+                         final double[] usage,
+                         final int length,
+                         final double floor)
+    {
+        final DoubleVector floors = DoubleVector.broadcast(DOUBLES, floor);
+        final int bound = DOUBLES.loopBound(length);
+        int i = 0;
+
+        for (; i < bound; i += DOUBLES.length())
+        {
+            DoubleVector.fromArray(DOUBLES, minutes, i)
+                        .sub(DoubleVector.fromArray(DOUBLES, usage, i))
+                        .max(floors)
+                        .intoArray(minutes, i);
+        }
+
+        PlanMinutesKernels.subtractScalar(minutes, usage, i, length, floor);
+    }
+
+    /*
+     * Vectorized PlanMinutesKernels.subtractWhere.
+     */
+    static void subtractWhere(final double[] minutes,
+                              final int[] codes,
+                              final int length,
+                              final int code,
+                              final double usage,
+                              final double floor)
+    {
+        final DoubleVector floors = DoubleVector.broadcast(DOUBLES, floor);
+        final int bound = DOUBLES.loopBound(length);
+        int i = 0;
+
+        for (; i < bound; i += DOUBLES.length())
+        {
+            final VectorMask<Double> selected = IntVector.fromArray(INTS, codes, i).eq(code).cast(DOUBLES);
+            final DoubleVector current = DoubleVector.fromArray(DOUBLES, minutes, i);
+
+            current.blend(current.sub(usage).max(floors), selected).intoArray(minutes, i);
+        }
+
+        PlanMinutesKernels.subtractWhereScalar(minutes, codes, i, length, code, usage, floor);
+    }
+
+    /*
+     * Vectorized PlanMinutesKernels.assignWhere.
+     */
+    static void assignWhere(final double[] minutes,
+                            final int[] codes,
+                            final int length,
+                            final int code,
+                            final double value)
+    {
+        final int bound = DOUBLES.loopBound(length);
+        int i = 0;
+
+        for (; i < bound; i += DOUBLES.length())
+        {
+            final VectorMask<Double> selected = IntVector.fromArray(INTS, codes, i).eq(code).cast(DOUBLES);
+
+            DoubleVector.fromArray(DOUBLES, minutes, i).blend(value, selected).intoArray(minutes, i);
+        }
+
+        PlanMinutesKernels.assignWhereScalar(minutes, codes, i, length, code, value);
+    }
+}
@@ -0,0 +1,351 @@
+package ca.bcit.comp2522.lab03;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+/**
+ * Crash and replay tests for DeviceJournal. A crash is simulated by copying the journal's files while it is still
+ * open, which is what a restarted process would find on disk, and opening the copy.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceJournalTest
+{
+    private static final int DEVICES = 1_000;
+    private static final int TORN_BYTES = 3;
+    private static final int LONG_STRING_CHARS = 3 << 20;
+
+    private DeviceJournalTest()
+    {
+    }
+
+    /**
+     * Runs every test.
+     *
+     * @param args command-line arguments (unused).
+     */
+    public static void main(final String[] args)
+    {
+        final TestRunner runner = new TestRunner();
+
+        runner.run("synced entries are replayed after a crash",
+                   DeviceJournalTest::syncedEntriesAreReplayed);
+        runner.run("a torn last entry is dropped and the rest replayed",
+                   DeviceJournalTest::tornEntryIsDropped);
+        runner.run("a checkpoint and later segments are replayed after a crash",
+                   DeviceJournalTest::checkpointIsReplayed);
+        runner.run("a failed compaction is reported",
+                   DeviceJournalTest::compactionFailureIsReported);
+        runner.run("entries after one longer than a megabyte are replayed",
+                   DeviceJournalTest::longEntryIsReplayed);
+        runner.run("a checkpoint left half written is deleted on open",
+                   DeviceJournalTest::temporaryCheckpointIsDeleted);
+        runner.finish();
+    }
+
+    // Creations, setter calls and removals synced before the crash must all be in the replayed devices.
+    private static void syncedEntriesAreReplayed() throws Exception
+    {
+        final Path directory = Files.createTempDirectory("device-journal");
+        final Path crashed = Files.createTempDirectory("device-journal-crashed");
+
+        try (final DeviceJournal journal = DeviceJournal.open(directory, false))
+        {
+            final List<IDevice> devices = addDevices(journal);
+
+            changeDevices(journal, devices);
+            journal.sync();
+            copyFiles(directory, crashed);
+
+            checkReplayed(journal.devices(), crashed);
+        }
+        finally
+        {
+            deleteRecursively(directory);
+            deleteRecursively(crashed);
+        }
+    }
+
+    // A crash in the middle of writing the last entry leaves part of it on disk; replay must stop before it.
+    private static void tornEntryIsDropped() throws Exception
+    {
+        final Path directory = Files.createTempDirectory("device-journal");
+        final Path crashed = Files.createTempDirectory("device-journal-crashed");
+
+        try (final DeviceJournal journal = DeviceJournal.open(directory, true))
+        {
+            final List<IDevice> devices = addDevices(journal);
+            final List<IDevice> beforeLastEntry = copies(journal.devices());
+            final IPod last = (IPod) devices.get(0);
+
+            last.setSongsStored(last.getSongsStored() + 1);
+            copyFiles(directory, crashed);
+
+            try (final Stream<Path> files = Files.list(crashed))
+            {
+                final Path segment = files.filter(file -> file.toString().endsWith(".log"))
+                                          .max(Comparator.naturalOrder())
+                                          .orElseThrow();
+
+                try (final FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE))
+                {
+                    channel.truncate(channel.size() - TORN_BYTES);
+                }
+            }
+
+            checkReplayed(beforeLastEntry, crashed);
+        }
+        finally
+        {
+            deleteRecursively(directory);
+            deleteRecursively(crashed);
+        }
+    }
+
+    // After a compaction, the checkpoint replaces the segments it covers, and changes made since are replayed on
+    // top of it.
+    private static void checkpointIsReplayed() throws Exception
+    {
+        final Path directory = Files.createTempDirectory("device-journal");
+        final Path crashed = Files.createTempDirectory("device-journal-crashed");
+
+        try (final DeviceJournal journal = DeviceJournal.open(directory, false))
+        {
+            final List<IDevice> devices = addDevices(journal);
+
+            journal.compact().get();
+            changeDevices(journal, devices);
+            journal.sync();
+            copyFiles(directory, crashed);
+
+            TestRunner.check(!Files.exists(crashed.resolve("journal-0000000000.log")),
+                             "the segment covered by the checkpoint was not deleted");
+            TestRunner.check(Files.exists(crashed.resolve("checkpoint-0000000001.bin")),
+                             "the checkpoint was not written");
+            checkReplayed(journal.devices(), crashed);
+        }
+        finally
+        {
+            deleteRecursively(directory);
+            deleteRecursively(crashed);
+        }
+    }
+
+    // A compaction which cannot write its files must fail its future, later syncs and close, rather than being
+    // lost on the compactor thread.
+    private static void compactionFailureIsReported() throws Exception
+    {
+        final Path directory = Files.createTempDirectory("device-journal");
+        final DeviceJournal journal = DeviceJournal.open(directory, false);
+
+        addDevices(journal);
+        journal.sync();
+        deleteRecursively(directory);
+
+        try
+        {
+            journal.compact().join();
+            TestRunner.check(false, "compaction succeeded without its directory");
+        }
+        catch (final CompletionException expected)
+        {
+            TestRunner.check(expected.getCause() instanceof UncheckedIOException,
+                             "compaction failed with " + expected.getCause());
+        }
+
+        try
+        {
+            journal.sync();
+            TestRunner.check(false, "sync succeeded after a failed compaction");
+        }
+        catch (final UncheckedIOException expected)
+        {
+            // The compaction's failure is now the journal's
+        }
+
+        try
+        {
+            journal.close();
+            TestRunner.check(false, "close succeeded after a failed compaction");
+        }
+        catch (final IOException expected)
+        {
+            // The compaction's failure is reported once more
+        }
+    }
+
+    // Replay used to take any entry over a megabyte for a torn one and drop it along with everything after it.
+    private static void longEntryIsReplayed() throws Exception
+    {
+        final Path directory = Files.createTempDirectory("device-journal");
+        final Path crashed = Files.createTempDirectory("device-journal-crashed");
+
+        try (final DeviceJournal journal = DeviceJournal.open(directory, false))
+        {
+            final IPhone iphone = new IPhone(10.0, "Bell");
+
+            journal.add(iphone);
+            iphone.setCarrier("Carrier ".repeat(LONG_STRING_CHARS / 8));
+            journal.add(new IPad(true, "iPadOS ".repeat(LONG_STRING_CHARS / 7)));
+            addDevices(journal);
+            journal.sync();
+            copyFiles(directory, crashed);
+
+            checkReplayed(journal.devices(), crashed);
+        }
+        finally
+        {
+            deleteRecursively(directory);
+            deleteRecursively(crashed);
+        }
+    }
+
+    // A crash between writing a checkpoint and moving it into place leaves its temporary file behind.
+    private static void temporaryCheckpointIsDeleted() throws Exception
+    {
+        final Path directory = Files.createTempDirectory("device-journal");
+        final Path temporary = directory.resolve("checkpoint-0000000001.bin.tmp");
+
+        try
+        {
+            try (final DeviceJournal journal = DeviceJournal.open(directory, false))
+            {
+                addDevices(journal);
+            }
+
+            Files.write(temporary, new byte[TORN_BYTES]);
+
+            try (final DeviceJournal reopened = DeviceJournal.open(directory, false))
+            {
+                TestRunner.checkEquals(DEVICES, reopened.devices().size(), "replayed devices");
+            }
+
+            TestRunner.check(!Files.exists(temporary), "the temporary checkpoint was not deleted");
+        }
+        finally
+        {
+            deleteRecursively(directory);
+        }
+    }
+
+    // Adds a mix of every device type to a journal.
+    private static List<IDevice> addDevices(final DeviceJournal journal)
+    {
+        final List<IDevice> devices = new ArrayList<>(DEVICES);
+
+        for (int i = 0; i < DEVICES; i++)
+        {
+            final IDevice device = switch (i % 4)
+            {
+                case 0 -> new IPod(i, 80.0 + i % 40);
+                case 1 -> new IPad(i % 2 == 0, "iPadOS " + i % 7);
+                case 2 -> new IPhone(i, "Carrier " + i % 5);
+                default -> new IPhone17(i, "Carrier " + i % 5, i % 2 == 0, 128 << i % 3);
+            };
+
+            journal.add(device);
+            devices.add(device);
+        }
+
+        return devices;
+    }
+
+    // Changes a field of every device through its setters and removes every tenth device.
+    private static void changeDevices(final DeviceJournal journal,
+                                      final List<IDevice> devices)
+    {
+        for (int i = 0; i < devices.size(); i++)
+        {
+            switch (devices.get(i))
+            {
+                case IPod ipod -> ipod.setMaxVolumeDb(ipod.getMaxVolumeDb() + 1.0);
+                case IPad ipad -> ipad.setTabletCase(!ipad.hasCase());
+                case IPhone iphone -> iphone.setCarrier("Changed " + i % 3);
+                default -> throw new IllegalStateException("Unexpected device " + devices.get(i));
+            }
+
+            if (i % 10 == 0)
+            {
+                journal.remove(devices.get(i));
+            }
+        }
+    }
+
+    // Opens the journal left by a crash and checks that it holds the expected devices, field for field.
+    private static void checkReplayed(final List<IDevice> expected,
+                                      final Path crashed) throws IOException
+    {
+        try (final DeviceJournal replayed = DeviceJournal.open(crashed, false))
+        {
+            TestRunner.checkEquals(details(expected), details(replayed.devices()), "replayed devices");
+        }
+    }
+
+    // Returns every device's details, which cover all of its fields, unlike equals.
+    private static List<String> details(final List<IDevice> devices)
+    {
+        final List<String> details = new ArrayList<>(devices.size());
+
+        for (final IDevice device : devices)
+        {
+            details.add(device.toString());
+        }
+
+        return details;
+    }
+
+    // Returns new devices with the same fields, which later changes to the originals do not affect.
+    private static List<IDevice> copies(final List<IDevice> devices)
+    {
+        final List<IDevice> copies = new ArrayList<>(devices.size());
+
+        for (final IDevice device : devices)
+        {
+            copies.add(device.snapshot().thaw());
+        }
+
+        return copies;
+    }
+
+    // Copies every file in one directory into another, as a restarted process would find them.
+    private static void copyFiles(final Path from,
+                                  final Path to) throws IOException
+    {
+        try (final Stream<Path> files = Files.list(from))
+        {
+            for (final Path file : (Iterable<Path>) files::iterator)
+            {
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
+        }
+    }
+
+    // Deletes a directory and everything in it, if it exists.
+    private static void deleteRecursively(final Path directory) throws IOException
+    {
+        if (!Files.exists(directory))
+        {
+            return;
+        }
+
+        try (final Stream<Path> files = Files.walk(directory))
+        {
+            for (final Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+            {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for DeviceKdTree: inserting devices in sorted order keeps the tree shallow, and searches after any mix of
+ * builds, inserts and deletions agree with a brute-force scan.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class DeviceKdTreeTest
+{
+    private static final int SORTED_DEVICES = 30_000;
+    private static final int RANDOM_DEVICES = 2_000;
+    private static final int QUERIES = 500;
+    private static final int K = 10;
+    private static final double RADIUS = 3.0;
+    private static final long SEED = 2522L;
+    private static final double LOG_INVERSE_BALANCE = Math.log(1.5);
+
+    private DeviceKdTreeTest()
+    {
+    }
+
+    /**
+     * Runs every test.
+     *
+     * @param args command-line arguments (unused).
+     */
+    public static void main(final String[] args)
+    {
+        final TestRunner runner = new TestRunner();
+
+        runner.run("sorted inserts into an empty tree keep it shallow",
+                   DeviceKdTreeTest::sortedInsertsIntoEmptyTree);
+        runner.run("sorted inserts after a build keep it shallow",
+                   DeviceKdTreeTest::sortedInsertsAfterBuild);
+        runner.run("searches match a brute-force scan",
+                   DeviceKdTreeTest::searchesMatchBruteForce);
+        runner.finish();
+    }
+
+    // Songs stored rising one by one, the worst case for a tree which only rebalances on a full rebuild.
+    private static void sortedInsertsIntoEmptyTree()
+    {
+        final DeviceKdTree<IPod> tree = DeviceKdTree.forIPods();
+
+        for (int i = 0; i < SORTED_DEVICES; i++)
+        {
+            tree.insert(new IPod(i, 80.0));
+        }
+
+        checkShallow(tree, SORTED_DEVICES);
+        TestRunner.checkEquals(K, tree.nearest(new double[] {0.0, 80.0}, K).size(), "neighbours found");
+    }
+
+    // A build followed by as many sorted inserts used to leave a chain deep enough to overflow a recursive search.
+    private static void sortedInsertsAfterBuild()
+    {
+        final DeviceKdTree<IPod> tree = DeviceKdTree.forIPods();
+        final List<IPod> built = new ArrayList<>(SORTED_DEVICES);
+        final Random random = new Random(SEED);
+
+        for (int i = 0; i < SORTED_DEVICES; i++)
+        {
+            built.add(randomIPod(random));
+        }
+
+        tree.build(built);
+
+        for (int i = 0; i < SORTED_DEVICES; i++)
+        {
+            tree.insert(new IPod(i, 100.0));
+        }
+
+        checkShallow(tree, 2 * SORTED_DEVICES);
+
+        final IPod last = new IPod(SORTED_DEVICES - 1, 100.0);
+
+        TestRunner.checkEquals(K, tree.nearest(last, K).size(), "neighbours found");
+        TestRunner.check(!tree.withinRadius(last, RADIUS).isEmpty(), "no devices within the radius");
+    }
+
+    // Builds, inserts and deletes at random, checking every search against every live device.
+    private static void searchesMatchBruteForce()
+    {
+        final Random random = new Random(SEED);
+        final DeviceKdTree<IPod> tree = DeviceKdTree.forIPods();
+        final List<IPod> live = new ArrayList<>();
+
+        for (int i = 0; i < RANDOM_DEVICES; i++)
+        {
+            live.add(randomIPod(random));
+        }
+
+        tree.build(live);
+
+        for (int query = 0; query < QUERIES; query++)
+        {
+            switch (random.nextInt(3))
+            {
+                case 0 ->
+                {
+                    final IPod added = randomIPod(random);
+
+                    tree.insert(added);
+                    live.add(added);
+                }
+                case 1 ->
+                {
+                    // Sorted runs, so the scapegoat rebuilds are exercised too
+                    final int songs = random.nextInt(4_000);
+
+                    for (int i = 0; i < K; i++)
+                    {
+                        final IPod added = new IPod(songs + i, 80.0);
+
+                        tree.insert(added);
+                        live.add(added);
+                    }
+                }
+                default ->
+                {
+                    if (!live.isEmpty())
+                    {
+                        tree.delete(live.remove(random.nextInt(live.size())));
+                    }
+                }
+            }
+
+            final double[] point = {random.nextDouble() * 50.0, 60.0 + random.nextDouble() * 40.0};
+
+            checkNearest(tree, live, point);
+            checkRadius(tree, live, point);
+        }
+
+        TestRunner.checkEquals(live.size(), tree.size(), "size");
+    }
+
+    // The nearest devices must be at the same distances as the nearest found by sorting every live device.
+    private static void checkNearest(final DeviceKdTree<IPod> tree,
+                                     final List<IPod> live,
+                                     final double[] point)
+    {
+        final List<IPod> expected = new ArrayList<>(live);
+
+        expected.sort(Comparator.comparingDouble(ipod -> squaredDistance(tree, ipod, point)));
+
+        final List<IPod> found = tree.nearest(point, K);
+        final int count = Math.min(K, expected.size());
+
+        TestRunner.checkEquals(count, found.size(), "neighbours found");
+
+        for (int i = 0; i < count; i++)
+        {
+            TestRunner.checkEquals(squaredDistance(tree, expected.get(i), point),
+                                   squaredDistance(tree, found.get(i), point),
+                                   "distance of neighbour " + i);
+        }
+    }
+
+    // The devices within the radius must be exactly the live devices within it.
+    private static void checkRadius(final DeviceKdTree<IPod> tree,
+                                    final List<IPod> live,
+                                    final double[] point)
+    {
+        final Map<IPod, Boolean> expected = new IdentityHashMap<>();
+        final Map<IPod, Boolean> found = new IdentityHashMap<>();
+
+        for (final IPod ipod : live)
+        {
+            if (squaredDistance(tree, ipod, point) <= RADIUS * RADIUS)
+            {
+                expected.put(ipod, Boolean.TRUE);
+            }
+        }
+
+        for (final IPod ipod : tree.withinRadius(point, RADIUS))
+        {
+            found.put(ipod, Boolean.TRUE);
+        }
+
+        TestRunner.checkEquals(expected.keySet(), found.keySet(), "devices within the radius");
+    }
+
+    // A scapegoat tree with balance 2/3 is never more than log base 3/2 of its node count deep, plus the root.
+    private static void checkShallow(final DeviceKdTree<IPod> tree,
+                                     final int nodes)
+    {
+        final int limit = (int) Math.floor(Math.log(nodes) / LOG_INVERSE_BALANCE) + 1;
+
+        TestRunner.check(tree.height() <= limit,
+                         "height " + tree.height() + " exceeds " + limit + " for " + nodes + " nodes");
+    }
+
+    private static double squaredDistance(final DeviceKdTree<IPod> tree,
+                                          final IPod ipod,
+                                          final double[] point)
+    {
+        final double[] coordinates = tree.coordinates(ipod);
+        double sum = 0.0;
+
+        for (int i = 0; i < point.length; i++)
+        {
+            final double difference = point[i] - coordinates[i];
+
+            sum += difference * difference;
+        }
+
+        return sum;
+    }
+
+    private static IPod randomIPod(final Random random)
+    {
+        return new IPod(random.nextInt(5_000), 60.0 + random.nextInt(40));
+    }
+}
@@ -0,0 +1,146 @@
+package ca.bcit.comp2522.lab03;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests for HeavyHitterTracker and DeviceHeavyHitters: threads which exit without flushing neither lose their
+ * additions nor leave state behind, and counts from concurrent threads are never below the truth.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class HeavyHitterTrackerTest
+{
+    private static final int CHURNED_THREADS = 8_000;
+    private static final long MAX_RETAINED_BYTES = 64L << 20;
+    private static final int THREADS = 8;
+    private static final int ADDITIONS_PER_THREAD = 100_000;
+    private static final int DISTINCT_ITEMS = 1_000;
+    private static final int CAPACITY = 64;
+    private static final int GC_ROUNDS = 3;
+
+    private HeavyHitterTrackerTest()
+    {
+    }
+
+    /**
+     * Runs every test.
+     *
+     * @param args command-line arguments (unused).
+     */
+    public static void main(final String[] args)
+    {
+        final TestRunner runner = new TestRunner();
+
+        runner.run("threads which exit without flushing are counted and leave nothing behind",
+                   HeavyHitterTrackerTest::churnedThreadsAreCounted);
+        runner.run("concurrent additions are never undercounted",
+                   HeavyHitterTrackerTest::concurrentAdditionsAreCounted);
+        runner.finish();
+    }
+
+    // Each virtual thread accepts one activation and exits without calling flush, as request handlers do.
+    private static void churnedThreadsAreCounted() throws Exception
+    {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        final long before = usedHeapAfterGc(memory);
+        final DeviceHeavyHitters heavyHitters = new DeviceHeavyHitters();
+
+        try (final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            for (int i = 0; i < CHURNED_THREADS; i++)
+            {
+                final String carrier = i % 4 == 0 ? "Rogers" : "Bell";
+
+                executor.submit(() -> heavyHitters.accept(new IPhone(100.0, carrier)));
+            }
+        }
+
+        final long retained = usedHeapAfterGc(memory) - before;
+        final List<HeavyHitter<String>> top = heavyHitters.topCarriers(2);
+
+        TestRunner.checkEquals(2, top.size(), "carriers reported");
+        TestRunner.checkEquals("Bell", top.get(0).getItem(), "top carrier");
+        TestRunner.checkEquals((long) CHURNED_THREADS * 3 / 4, top.get(0).getCount(), "Bell count");
+        TestRunner.checkEquals((long) CHURNED_THREADS / 4, top.get(1).getCount(), "Rogers count");
+        TestRunner.check(retained < MAX_RETAINED_BYTES,
+                         retained + " bytes retained after " + CHURNED_THREADS + " threads");
+
+        // Kept reachable until after the measurement
+        TestRunner.check(heavyHitters.estimateCarrier("Bell") >= CHURNED_THREADS * 3 / 4, "Bell estimate");
+    }
+
+    // Platform threads add skewed items at once; every reported count and estimate must cover the true count.
+    private static void concurrentAdditionsAreCounted() throws Exception
+    {
+        final HeavyHitterTracker<Integer> tracker =
+            new HeavyHitterTracker<>(CAPACITY, 1024, 4, 4096, item -> DeviceHashing.mix(item));
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        final List<Future<?>> adders = new ArrayList<>();
+        final long[] trueCounts = new long[DISTINCT_ITEMS];
+
+        for (int i = 0; i < ADDITIONS_PER_THREAD; i++)
+        {
+            trueCounts[skewed(i)] += THREADS;
+        }
+
+        for (int thread = 0; thread < THREADS; thread++)
+        {
+            adders.add(pool.submit(() -> {
+                for (int i = 0; i < ADDITIONS_PER_THREAD; i++)
+                {
+                    tracker.add(skewed(i));
+                }
+            }));
+        }
+
+        for (final Future<?> adder : adders)
+        {
+            adder.get();
+        }
+
+        pool.shutdown();
+
+        final List<HeavyHitter<Integer>> top = tracker.top(CAPACITY);
+
+        TestRunner.checkEquals(0, top.get(0).getItem(), "top item");
+
+        for (final HeavyHitter<Integer> hitter : top)
+        {
+            TestRunner.check(hitter.getCount() >= trueCounts[hitter.getItem()],
+                             "count of " + hitter.getItem() + " below its true count");
+        }
+
+        for (int item = 0; item < DISTINCT_ITEMS; item++)
+        {
+            TestRunner.check(tracker.estimate(item) >= trueCounts[item],
+                             "estimate of " + item + " below its true count");
+        }
+    }
+
+    // Maps a sequence number to an item: 3 in 8 are item 0, 2 in 8 item 1, and the rest spread over every item.
+    private static int skewed(final int i)
+    {
+        final int eighth = i % 8;
+
+        return eighth < 3 ? 0 : eighth < 5 ? 1 : i % DISTINCT_ITEMS;
+    }
+
+    private static long usedHeapAfterGc(final MemoryMXBean memory)
+    {
+        for (int i = 0; i < GC_ROUNDS; i++)
+        {
+            System.gc();
+        }
+
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,190 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Concurrency tests for MaterializedView: devices added to and removed from a view while other threads change them
+ * must leave the aggregate exactly what a scan of the view's devices would give.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class MaterializedViewTest
+{
+    private static final int DEVICES = 64;
+    private static final int CHANGERS = 4;
+    private static final int MEMBERSHIP_THREADS = 2;
+    private static final int CHANGES_PER_THREAD = 200_000;
+    private static final String[] CARRIERS = {"Bell", "Rogers", "Telus"};
+
+    private MaterializedViewTest()
+    {
+    }
+
+    /**
+     * Runs every test.
+     *
+     * @param args command-line arguments (unused).
+     */
+    public static void main(final String[] args)
+    {
+        final TestRunner runner = new TestRunner();
+
+        runner.run("a count is exact after adds and removes race with changes",
+                   MaterializedViewTest::countIsExact);
+        runner.run("grouped totals are exact after adds and removes race with changes",
+                   MaterializedViewTest::groupedTotalsAreExact);
+        runner.finish();
+    }
+
+    // An add between another thread's setter hooks used to count the device twice, and a remove to uncount it twice.
+    private static void countIsExact() throws Exception
+    {
+        final List<IPad> ipads = new ArrayList<>(DEVICES);
+
+        for (int i = 0; i < DEVICES; i++)
+        {
+            ipads.add(new IPad(i % 2 == 0, "iPadOS 17"));
+        }
+
+        try (final CountView<IPad> view = DeviceViews.iPadsWithCase())
+        {
+            race(ipads, view, (ipad, random) -> ipad.setTabletCase(!ipad.hasCase()));
+            view.addAll(ipads);
+
+            int expected = 0;
+
+            for (final IPad ipad : ipads)
+            {
+                expected += ipad.hasCase() ? 1 : 0;
+            }
+
+            TestRunner.checkEquals(expected, view.count(), "IPads with a case");
+        }
+    }
+
+    // Minutes are whole numbers, so the totals have no rounding error and must match a scan exactly.
+    private static void groupedTotalsAreExact() throws Exception
+    {
+        final List<IPhone> iphones = new ArrayList<>(DEVICES);
+
+        for (int i = 0; i < DEVICES; i++)
+        {
+            iphones.add(new IPhone(i, CARRIERS[i % CARRIERS.length]));
+        }
+
+        try (final GroupedSumView<IPhone, String> view = DeviceViews.remainingPlanMinutesByCarrier())
+        {
+            race(iphones, view, (iphone, random) -> {
+                if (random.nextBoolean())
+                {
+                    iphone.setRemainingPlanMinutes(random.nextInt(1_000));
+                }
+                else
+                {
+                    iphone.setCarrier(CARRIERS[random.nextInt(CARRIERS.length)]);
+                }
+            });
+            view.addAll(iphones);
+
+            final Map<String, Double> expected = new HashMap<>();
+
+            for (final IPhone iphone : iphones)
+            {
+                expected.merge(iphone.getCarrier(), iphone.getRemainingPlanMinutes(), Double::sum);
+            }
+
+            TestRunner.checkEquals(expected, view.totals(), "totals by carrier");
+        }
+    }
+
+    // Each changer thread changes its own share of the devices, so no device is changed by two threads at once,
+    // while the membership threads add and remove devices at random. Once they finish, every device is removed.
+    private static <D extends IDevice> void race(final List<D> devices,
+                                                 final MaterializedView<D, ?> view,
+                                                 final Change<D> change) throws Exception
+    {
+        final ExecutorService pool = Executors.newFixedThreadPool(CHANGERS + MEMBERSHIP_THREADS);
+        final AtomicBoolean done = new AtomicBoolean();
+        final List<Future<?>> changers = new ArrayList<>();
+        final List<Future<?>> members = new ArrayList<>();
+
+        try
+        {
+            for (int thread = 0; thread < MEMBERSHIP_THREADS; thread++)
+            {
+                final Random random = new Random(thread);
+
+                members.add(pool.submit(() -> {
+                    while (!done.get())
+                    {
+                        final D device = devices.get(random.nextInt(devices.size()));
+
+                        if (random.nextBoolean())
+                        {
+                            view.add(device);
+                        }
+                        else
+                        {
+                            view.remove(device);
+                        }
+                    }
+                }));
+            }
+
+            for (int thread = 0; thread < CHANGERS; thread++)
+            {
+                final int first = thread;
+                final Random random = new Random(MEMBERSHIP_THREADS + thread);
+
+                changers.add(pool.submit(() -> {
+                    for (int i = 0; i < CHANGES_PER_THREAD; i++)
+                    {
+                        final int index = first + CHANGERS * random.nextInt(devices.size() / CHANGERS);
+
+                        change.apply(devices.get(index), random);
+                    }
+                }));
+            }
+
+            for (final Future<?> changer : changers)
+            {
+                changer.get();
+            }
+        }
+        finally
+        {
+            done.set(true);
+            pool.shutdown();
+        }
+
+        for (final Future<?> member : members)
+        {
+            member.get();
+        }
+
+        for (final D device : devices)
+        {
+            view.remove(device);
+        }
+
+        TestRunner.checkEquals(0, view.size(), "devices left in the view");
+    }
+
+    // Changes one device through its setters.
+    @FunctionalInterface
+    private interface Change<D>
+    {
+        void apply(D device, Random random);
+    }
+}
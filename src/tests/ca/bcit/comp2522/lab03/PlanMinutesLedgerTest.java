@@ -0,0 +1,214 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Concurrency tests for PlanMinutesLedger: concurrent debits and credits are never lost, a debit gathered from
+ * several stripes is serialized with other such debits, and a snapshot never sees one half done.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class PlanMinutesLedgerTest
+{
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 100_000;
+    private static final int TRIALS = 2_000;
+    private static final long SNAPSHOT_MILLIS = 1_000L;
+
+    private PlanMinutesLedgerTest()
+    {
+    }
+
+    /**
+     * Runs every test.
+     *
+     * @param args command-line arguments (unused).
+     */
+    public static void main(final String[] args)
+    {
+        final TestRunner runner = new TestRunner();
+
+        runner.run("concurrent debits and credits are never lost",
+                   PlanMinutesLedgerTest::debitsAndCreditsAreNeverLost);
+        runner.run("one of two spread debits succeeds",
+                   PlanMinutesLedgerTest::oneOfTwoSpreadDebitsSucceeds);
+        runner.run("snapshot never sees a failed debit half done",
+                   PlanMinutesLedgerTest::snapshotIsConsistent);
+        runner.finish();
+    }
+
+    // Threads debit and credit whole minutes at random; the balance must be exactly what succeeded.
+    private static void debitsAndCreditsAreNeverLost() throws Exception
+    {
+        final PlanMinutesLedger ledger = new PlanMinutesLedger(1, 8);
+        final int account = ledger.registerHot(new IPhone(1_000.0, "Bell"));
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        final List<Future<Long>> changes = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++)
+        {
+            final long seed = thread;
+
+            changes.add(pool.submit(() ->
+                                    {
+                                        final Random random = new Random(seed);
+                                        long change = 0L;
+
+                                        for (int i = 0; i < OPERATIONS_PER_THREAD; i++)
+                                        {
+                                            final int minutes = 1 + random.nextInt(20);
+
+                                            if (random.nextBoolean())
+                                            {
+                                                ledger.credit(account, minutes);
+                                                change += minutes;
+                                            }
+                                            else if (ledger.debit(account, minutes))
+                                            {
+                                                change -= minutes;
+                                            }
+                                        }
+
+                                        return change;
+                                    }));
+        }
+
+        long expected = 1_000L;
+
+        for (final Future<Long> change : changes)
+        {
+            expected += change.get();
+        }
+
+        pool.shutdown();
+
+        TestRunner.checkEquals((double) expected, ledger.balance(account), "balance");
+        TestRunner.checkEquals((double) expected, ledger.snapshot()[account], "snapshot");
+    }
+
+    // Ten minutes spread over the stripes by credits from several threads; of two debits of 8 racing for them,
+    // exactly one must succeed, however the minutes are spread.
+    private static void oneOfTwoSpreadDebitsSucceeds() throws Exception
+    {
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+
+        try
+        {
+            for (int trial = 0; trial < TRIALS; trial++)
+            {
+                final PlanMinutesLedger ledger = new PlanMinutesLedger(1, 8);
+                final int account = ledger.registerHot(new IPhone(0.0, "Bell"));
+
+                spread(pool, ledger, account, 10);
+
+                final CountDownLatch start = new CountDownLatch(1);
+                final Future<Boolean> first = pool.submit(() -> debitAfter(start, ledger, account, 8.0));
+                final Future<Boolean> second = pool.submit(() -> debitAfter(start, ledger, account, 8.0));
+
+                start.countDown();
+
+                final int succeeded = (first.get() ? 1 : 0) + (second.get() ? 1 : 0);
+
+                TestRunner.checkEquals(1, succeeded, "successful debits in trial " + trial);
+                TestRunner.checkEquals(2.0, ledger.balance(account), "balance in trial " + trial);
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    // Threads keep trying to debit more than the account holds, which gathers and returns minutes from every
+    // stripe; the balance in every serial order is 10, so every snapshot must say so.
+    private static void snapshotIsConsistent() throws Exception
+    {
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        final PlanMinutesLedger ledger = new PlanMinutesLedger(1, 8);
+        final int account = ledger.registerHot(new IPhone(0.0, "Bell"));
+        final AtomicBoolean done = new AtomicBoolean();
+        final List<Future<Boolean>> debitors = new ArrayList<>();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SNAPSHOT_MILLIS);
+        int snapshots = 0;
+
+        spread(pool, ledger, account, 10);
+
+        for (int thread = 0; thread < THREADS / 2; thread++)
+        {
+            debitors.add(pool.submit(() ->
+                                     {
+                                         boolean anySucceeded = false;
+
+                                         while (!done.get())
+                                         {
+                                             anySucceeded |= ledger.debit(account, 12.0);
+                                         }
+
+                                         return anySucceeded;
+                                     }));
+        }
+
+        try
+        {
+            while (System.nanoTime() < deadline)
+            {
+                TestRunner.checkEquals(10.0, ledger.snapshot()[account], "snapshot balance");
+                snapshots++;
+            }
+        }
+        finally
+        {
+            done.set(true);
+            pool.shutdown();
+        }
+
+        for (final Future<Boolean> debitor : debitors)
+        {
+            TestRunner.check(!debitor.get(), "a debit of more than the balance succeeded");
+        }
+
+        TestRunner.check(snapshots > 0, "no snapshot was taken");
+        TestRunner.checkEquals(10.0, ledger.balance(account), "balance");
+    }
+
+    // Credits an account one minute at a time from the pool's threads, so the minutes land on several stripes.
+    private static void spread(final ExecutorService pool,
+                               final PlanMinutesLedger ledger,
+                               final int account,
+                               final int minutes) throws Exception
+    {
+        final List<Future<?>> credits = new ArrayList<>();
+
+        for (int i = 0; i < minutes; i++)
+        {
+            credits.add(pool.submit(() -> ledger.credit(account, 1.0)));
+        }
+
+        for (final Future<?> credit : credits)
+        {
+            credit.get();
+        }
+    }
+
+    // Waits for the start signal, then debits an account.
+    private static boolean debitAfter(final CountDownLatch start,
+                                      final PlanMinutesLedger ledger,
+                                      final int account,
+                                      final double minutes) throws InterruptedException
+    {
+        start.await();
+
+        return ledger.debit(account, minutes);
+    }
+}
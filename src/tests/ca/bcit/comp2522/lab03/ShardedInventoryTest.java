@@ -0,0 +1,207 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writer failure and shutdown tests for ShardedInventory: a command which throws, whether or not anybody waits for
+ * it, must neither stop its shard's writer nor leave later commands waiting forever, and neither may closing the
+ * inventory while other threads submit commands.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class ShardedInventoryTest
+{
+    private static final long TIMEOUT_SECONDS = 2L;
+    private static final int CLOSE_TRIALS = 200;
+    private static final int SUBMITTERS = 4;
+
+    private ShardedInventoryTest()
+    {
+    }
+
+    /**
+     * Runs every test.
+     *
+     * @param args command-line arguments (unused).
+     */
+    public static void main(final String[] args)
+    {
+        final TestRunner runner = new TestRunner();
+
+        runner.run("a query which throws an error fails only its own future",
+                   ShardedInventoryTest::failedQueryFailsItsFuture);
+        runner.run("an update whose listener throws is reported and later commands run",
+                   ShardedInventoryTest::failedUpdateIsReported);
+        runner.run("every future returned while closing completes",
+                   ShardedInventoryTest::closeCompletesEveryFuture);
+        runner.finish();
+    }
+
+    // An Error from a query used to escape the writer, killing it, so nothing queued after it ever ran.
+    private static void failedQueryFailsItsFuture() throws Exception
+    {
+        try (final ShardedInventory inventory = new ShardedInventory(1))
+        {
+            final long id = inventory.add(new IPhone(10.0, "Bell"));
+
+            try
+            {
+                inventory.query(id, device -> {
+                    throw new AssertionError("query failed");
+                }).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                TestRunner.check(false, "the failed query completed normally");
+            }
+            catch (final ExecutionException expected)
+            {
+                TestRunner.check(expected.getCause() instanceof AssertionError,
+                                 "the query failed with " + expected.getCause());
+            }
+
+            inventory.setRemainingPlanMinutes(id, 20.0);
+            inventory.flush().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            TestRunner.checkEquals(20.0,
+                                   inventory.query(id, device -> ((IPhone) device).getRemainingPlanMinutes())
+                                            .get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                                   "minutes after the failed query");
+            TestRunner.checkEquals(0L, inventory.failureCount(), "failure count");
+        }
+    }
+
+    // Nobody waits on an update, so when a DeviceChangeListener throws from it, the failure must be counted and
+    // passed to the uncaught exception handler, and the writer must go on to the next command.
+    private static void failedUpdateIsReported() throws Exception
+    {
+        final List<Throwable> reported = new CopyOnWriteArrayList<>();
+        final Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        final DeviceChangeListener failing = new DeviceChangeListener()
+        {
+            @Override
+            public void beforeChange(final IDevice device,
+                                     final DeviceField field)
+            {
+            }
+
+            @Override
+            public void afterChange(final IDevice device,
+                                    final DeviceField field)
+            {
+                throw new IllegalStateException("listener failed");
+            }
+        };
+
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> reported.add(e));
+
+        try (final ShardedInventory inventory = new ShardedInventory(1))
+        {
+            final long id = inventory.add(new IPhone(10.0, "Bell"));
+
+            DeviceChanges.register(failing);
+
+            try
+            {
+                inventory.setRemainingPlanMinutes(id, 20.0);
+                inventory.flush().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            finally
+            {
+                DeviceChanges.unregister(failing);
+            }
+
+            inventory.setRemainingPlanMinutes(id, 30.0);
+
+            TestRunner.checkEquals(30.0,
+                                   inventory.query(id, device -> ((IPhone) device).getRemainingPlanMinutes())
+                                            .get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                                   "minutes after the failed update");
+            TestRunner.checkEquals(1L, inventory.failureCount(), "failure count");
+            TestRunner.checkEquals(1, reported.size(), "failures reported");
+            TestRunner.check(reported.get(0) instanceof IllegalStateException,
+                             "the update failed with " + reported.get(0));
+        }
+        finally
+        {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+    }
+
+    // A command offered after its shard's writer had stopped used to sit in the queue forever, so whoever waited on
+    // its future hung. Every call racing with close must either be refused or have its future completed.
+    private static void closeCompletesEveryFuture() throws Exception
+    {
+        final ExecutorService pool = Executors.newFixedThreadPool(SUBMITTERS);
+
+        try
+        {
+            for (int trial = 0; trial < CLOSE_TRIALS; trial++)
+            {
+                final ShardedInventory inventory = new ShardedInventory(1);
+                final long id = inventory.add(new IPhone(10.0, "Bell"));
+                final CountDownLatch started = new CountDownLatch(SUBMITTERS);
+                final List<Future<List<CompletableFuture<?>>>> submitters = new ArrayList<>();
+
+                for (int thread = 0; thread < SUBMITTERS; thread++)
+                {
+                    final int kind = thread;
+
+                    submitters.add(pool.submit(() -> submitUntilClosed(inventory, id, kind, started)));
+                }
+
+                started.await();
+                inventory.close();
+
+                for (final Future<List<CompletableFuture<?>>> submitter : submitters)
+                {
+                    for (final CompletableFuture<?> future : submitter.get())
+                    {
+                        future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    // Submits queries, flushes and snapshots until the inventory refuses them, returning every future it got.
+    private static List<CompletableFuture<?>> submitUntilClosed(final ShardedInventory inventory,
+                                                                final long id,
+                                                                final int kind,
+                                                                final CountDownLatch started)
+    {
+        final List<CompletableFuture<?>> futures = new ArrayList<>();
+
+        started.countDown();
+
+        try
+        {
+            while (true)
+            {
+                futures.add(switch (kind % 3)
+                {
+                    case 0 -> inventory.query(id, device -> device);
+                    case 1 -> inventory.flush();
+                    default -> inventory.snapshot();
+                });
+            }
+        }
+        catch (final IllegalStateException closed)
+        {
+            return futures;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ca.bcit.comp2522.lab03;
+
+import java.util.Locale;
+
+/**
+ * Minimal test harness, in the spirit of the benchmarks' BenchmarkRunner, so the tests need nothing beyond the JDK.
+ * Each test is run in turn and reported as passed or failed, with the failure's message; a test fails by throwing,
+ * usually through one of the check methods.
+ *
+ * @author June Pyle
+ * @author Min Lee
+ *
+ * @version 1.0.0
+ */
+public final class TestRunner
+{
+    private static final String ROW_FORMAT = "%-6s %s%n";
+
+    private int passed;
+    private int failed;
+
+    /**
+     * A single test.
+     */
+    @FunctionalInterface
+    public interface Test
+    {
+        /**
+         * Runs the test.
+         *
+         * @throws Exception if the test fails or cannot run
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs and reports a test.
+     *
+     * @param name the name to report the test under
+     * @param test the test to run
+     */
+    public void run(final String name,
+                    final Test test)
+    {
+        try
+        {
+            test.run();
+            passed++;
+            System.out.printf(Locale.ROOT, ROW_FORMAT, "PASS", name);
+        }
+        catch (final Throwable failure)
+        {
+            failed++;
+            System.out.printf(Locale.ROOT, ROW_FORMAT, "FAIL", name + ": " + failure);
+        }
+    }
+
+    /**
+     * Reports how many tests passed and failed, and exits with status 1 if any failed.
+     */
+    public void finish()
+    {
+        System.out.printf(Locale.ROOT, "%d passed, %d failed%n", passed, failed);
+
+        if (failed > 0)
+        {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Fails the current test unless a condition holds.
+     *
+     * @param condition the condition which must hold
+     * @param message   describes what went wrong if it does not
+     */
+    public static void check(final boolean condition,
+                             final String message)
+    {
+        if (!condition)
+        {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * Fails the current test unless two values are equal.
+     *
+     * @param expected the expected value
+     * @param actual   the actual value
+     * @param message  describes the value compared
+     */
+    public static void checkEquals(final Object expected,
+                                   final Object actual,
+                                   final String message)
+    {
+        if (expected == null ? actual != null : !expected.equals(actual))
+        {
+            throw new AssertionError(message + ": expected " + expected + " but was " + actual);
+        }
+    }
+}